@@ -0,0 +1,187 @@
+package com.example.myapplication.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JsonBackupHelper 备份后恢复的往返测试
+ * 恢复的结果是 ContentValues，在本地 JVM 上只有 android.jar 的空实现，所以放在设备上运行。
+ */
+@RunWith(AndroidJUnit4.class)
+public class JsonBackupHelperTest {
+
+    private static final int SCHEMA = 8;
+
+    private static final String[] COLUMNS = {
+            "id", "title", "description", "start_time", "end_time", "color", "alarm_request_code", "exdates"
+    };
+
+    @Test
+    public void roundTripsRows() throws IOException {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        cursor.addRow(new Object[]{1L, "周会", "第一行\n第二行 \"引号\" \\ 📅", -86_400_000L,
+                1_700_000_000_123L, 0xFFFF0000, Long.MAX_VALUE, "20240101T090000Z,20240108T090000Z"});
+        cursor.addRow(new Object[]{2L, null, null, null, null, 0, -1L, null});
+        cursor.addRow(new Object[]{3L, "", "", 0L, 0L, -1, Long.MIN_VALUE, ""});
+        cursor.addRow(new Object[]{4L, "小数", null, 1.5, null, 1, 0L, null});
+        cursor.addRow(new Object[]{5L, "最后", null, 5L, 6L, 2, 3L, null});
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(5, JsonBackupHelper.writeBackup(out, cursor, SCHEMA, null));
+
+        Set<String> columns = new HashSet<>(Arrays.asList(COLUMNS));
+        List<List<ContentValues>> batches = new ArrayList<>();
+        int[] begins = {0};
+        int count = JsonBackupHelper.readBackup(new ByteArrayInputStream(out.toByteArray()), columns, SCHEMA, 2,
+                new JsonBackupHelper.RestoreSink() {
+                    @Override
+                    public void begin() {
+                        begins[0]++;
+                    }
+
+                    @Override
+                    public void insert(List<ContentValues> rows) {
+                        assertEquals(1, begins[0]);
+                        batches.add(rows);
+                    }
+                });
+        assertEquals(5, count);
+        assertEquals(1, begins[0]);
+        // 每批最多 2 行，最后不满一批的也会交出
+        assertEquals(3, batches.size());
+        assertEquals(1, batches.get(2).size());
+
+        List<ContentValues> rows = new ArrayList<>();
+        for (List<ContentValues> batch : batches) {
+            rows.addAll(batch);
+        }
+        ContentValues first = rows.get(0);
+        assertEquals(Long.valueOf(1L), first.getAsLong("id"));
+        assertEquals("周会", first.getAsString("title"));
+        assertEquals("第一行\n第二行 \"引号\" \\ 📅", first.getAsString("description"));
+        assertEquals(Long.valueOf(-86_400_000L), first.getAsLong("start_time"));
+        assertEquals(Long.valueOf(1_700_000_000_123L), first.getAsLong("end_time"));
+        assertEquals(Integer.valueOf(0xFFFF0000), first.getAsInteger("color"));
+        // 大整数不经过 double，不损失精度
+        assertEquals(Long.valueOf(Long.MAX_VALUE), first.getAsLong("alarm_request_code"));
+        assertEquals("20240101T090000Z,20240108T090000Z", first.getAsString("exdates"));
+
+        // 空值不写出，恢复时没有这一列，使用表的默认值
+        ContentValues second = rows.get(1);
+        assertEquals(3, second.size());
+        assertFalse(second.containsKey("title"));
+        assertFalse(second.containsKey("start_time"));
+        assertEquals(Long.valueOf(-1L), second.getAsLong("alarm_request_code"));
+
+        ContentValues third = rows.get(2);
+        assertEquals("", third.getAsString("title"));
+        assertEquals("", third.getAsString("exdates"));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), third.getAsLong("alarm_request_code"));
+
+        ContentValues fourth = rows.get(3);
+        assertEquals(1.5, fourth.getAsDouble("start_time"), 0);
+        assertTrue(fourth.get("start_time") instanceof Double);
+
+        assertEquals(Long.valueOf(5L), rows.get(4).getAsLong("id"));
+    }
+
+    @Test
+    public void ignoresUnknownColumns() throws IOException {
+        String json = "{\"format\":\"mycalendar-backup\",\"version\":1,\"schema\":6,\"extra\":{\"a\":[1]},"
+                + "\"events\":[{\"id\":7,\"title\":\"新版本\",\"future_column\":\"x\",\"reminder_enabled\":true}]}";
+        Set<String> columns = new HashSet<>(Arrays.asList("id", "title", "reminder_enabled"));
+        List<ContentValues> rows = new ArrayList<>();
+        int count = JsonBackupHelper.readBackup(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), columns, SCHEMA, 100,
+                new JsonBackupHelper.RestoreSink() {
+                    @Override
+                    public void begin() {
+                    }
+
+                    @Override
+                    public void insert(List<ContentValues> batch) {
+                        rows.addAll(batch);
+                    }
+                });
+        assertEquals(1, count);
+        assertEquals(3, rows.get(0).size());
+        assertFalse(rows.get(0).containsKey("future_column"));
+        assertEquals(Integer.valueOf(1), rows.get(0).getAsInteger("reminder_enabled"));
+    }
+
+    @Test
+    public void validationFailsOnTruncatedOrMalformedFiles() throws IOException {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        for (long id = 1; id <= 3; id++) {
+            cursor.addRow(new Object[]{id, "事件" + id, null, id, id + 1, 0, 0L, null});
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonBackupHelper.writeBackup(out, cursor, SCHEMA, null);
+        byte[] bytes = out.toByteArray();
+        Set<String> columns = new HashSet<>(Arrays.asList(COLUMNS));
+
+        assertEquals(3, JsonBackupHelper.validateBackup(new ByteArrayInputStream(bytes), columns, SCHEMA, null));
+        // 截在最后一个事件中间：前面的事件能读出来，但整个文件不能通过校验
+        assertInvalid(Arrays.copyOf(bytes, bytes.length - 20), columns);
+        assertInvalid(("{\"format\":\"mycalendar-backup\",\"events\":[{\"id\":1},"
+                + "{\"id\":123456789012345678901234}]}").getBytes(StandardCharsets.UTF_8), columns);
+        assertInvalid(("{\"format\":\"mycalendar-backup\",\"events\":[{\"id\":1}],"
+                + "\"events\":[{\"id\":2}]}").getBytes(StandardCharsets.UTF_8), columns);
+    }
+
+    @Test
+    public void rejectsOtherFilesBeforeBegin() {
+        assertRejected("{\"events\":[{\"id\":1}]}");
+        assertRejected("{\"format\":\"other\",\"events\":[]}");
+        assertRejected("{\"format\":\"mycalendar-backup\",\"version\":99,\"events\":[]}");
+        // 新版应用的数据库版本更高，同名的列含义可能不同
+        assertRejected("{\"format\":\"mycalendar-backup\",\"version\":1,\"schema\":9,\"events\":[]}");
+    }
+
+    private static void assertInvalid(byte[] bytes, Set<String> columns) {
+        try {
+            JsonBackupHelper.validateBackup(new ByteArrayInputStream(bytes), columns, SCHEMA, null);
+            fail("Accepted " + new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException expected) {
+        }
+    }
+
+    private static void assertRejected(String json) {
+        try {
+            JsonBackupHelper.readBackup(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                    new HashSet<>(Arrays.asList(COLUMNS)), SCHEMA, 100, new JsonBackupHelper.RestoreSink() {
+                        @Override
+                        public void begin() {
+                            fail("Restore began for " + json);
+                        }
+
+                        @Override
+                        public void insert(List<ContentValues> rows) {
+                            fail("Rows were inserted for " + json);
+                        }
+                    });
+            fail("Accepted " + json);
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -2,20 +2,104 @@ package com.example.myapplication.data.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.data.model.DeletedEvent;
+import com.example.myapplication.data.model.TransferCheckpoint;
 
-@Database(entities = {CalendarEvent.class}, version = 2, exportSchema = false)
+@Database(entities = {CalendarEvent.class, DeletedEvent.class, TransferCheckpoint.class}, version = 8, exportSchema = false)
 @TypeConverters({DateConverter.class, EventTypeConverter.class})
 public abstract class AppDatabase extends RoomDatabase {
     
     private static final String DATABASE_NAME = "calendar_database";
     private static volatile AppDatabase INSTANCE;
     
+    // 数据库新建（首次创建或破坏性迁移）后的回调，用于丢弃由旧数据生成的文件（索引、快照等）
+    private static volatile Runnable onCreateListener;
+    
+    // 2 -> 3：为 start_time 建立索引（范围查询与议程列表分页）
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_start_time` "
+                    + "ON `calendar_events` (`start_time`)");
+        }
+    };
+
+    // 3 -> 4：重复日程（RRULE、EXDATE）和单独修改的实例
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `rrule` TEXT");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `exdates` TEXT");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `recurrence_end` INTEGER");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `parent_id` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `recurrence_id` INTEGER");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_recurrence_end` "
+                    + "ON `calendar_events` (`recurrence_end`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_parent_id` "
+                    + "ON `calendar_events` (`parent_id`)");
+        }
+    };
+
+    // 4 -> 5：按 UID 导入更新（uid、sequence、last_modified），已有日程按导出时的格式补上 UID
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `uid` TEXT");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `sequence` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `last_modified` INTEGER");
+            database.execSQL("UPDATE `calendar_events` SET `uid` = 'event-' || "
+                    + "(CASE WHEN `parent_id` != 0 THEN `parent_id` ELSE `id` END) || '@mycalendar.app'");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_uid` "
+                    + "ON `calendar_events` (`uid`)");
+        }
+    };
+
+    // 5 -> 6：增量导出（本地变更序号和已删除日程的记录）
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `calendar_events` ADD COLUMN `change_seq` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_events_change_seq` "
+                    + "ON `calendar_events` (`change_seq`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `deleted_events` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `uid` TEXT, `recurrence_id` INTEGER, "
+                    + "`sequence` INTEGER NOT NULL, `start_time` INTEGER, `deleted_at` INTEGER NOT NULL, "
+                    + "`change_seq` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_deleted_events_change_seq` "
+                    + "ON `deleted_events` (`change_seq`)");
+        }
+    };
+
+    // 6 -> 7：导入导出任务的检查点
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `transfer_checkpoints` ("
+                    + "`work_id` TEXT NOT NULL, `position` INTEGER NOT NULL, `batch` INTEGER NOT NULL, "
+                    + "`item_count` INTEGER NOT NULL, `written_count` INTEGER NOT NULL, `last_id` INTEGER NOT NULL, "
+                    + "`since_seq` INTEGER NOT NULL, `until_seq` INTEGER NOT NULL, `updated_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`work_id`))");
+        }
+    };
+
+    // 7 -> 8：全部导出按事件 id 划定范围；进行中的导出按当前最大的 id 继续
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `transfer_checkpoints` ADD COLUMN `until_id` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `transfer_checkpoints` SET `until_id` = "
+                    + "(SELECT IFNULL(MAX(`id`), 0) FROM `calendar_events`)");
+        }
+    };
 
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
@@ -27,7 +111,19 @@ public abstract class AppDatabase extends RoomDatabase {
                             DATABASE_NAME
                     )
                     .allowMainThreadQueries()
+                    .addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
                     .fallbackToDestructiveMigration()
+                    .addCallback(new Callback() {
+                        @Override
+                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                            notifyCreated();
+                        }
+
+                        @Override
+                        public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+                            notifyCreated();
+                        }
+                    })
                     .build();
                 }
             }
@@ -35,5 +131,21 @@ public abstract class AppDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    /**
+     * 设置数据库新建后的回调；数据库在第一次查询时才打开，需在此之前设置
+     */
+    public static void setOnCreateListener(Runnable listener) {
+        onCreateListener = listener;
+    }
+
+    private static void notifyCreated() {
+        Runnable listener = onCreateListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     public abstract EventDao eventDao();
+
+    public abstract CheckpointDao checkpointDao();
 }
@@ -0,0 +1,32 @@
+package com.example.myapplication.data.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.myapplication.data.model.TransferCheckpoint;
+
+
+@Dao
+public interface CheckpointDao {
+    
+
+    @Query("SELECT * FROM transfer_checkpoints WHERE work_id = :workId")
+    TransferCheckpoint getCheckpoint(String workId);
+    
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void save(TransferCheckpoint checkpoint);
+    
+
+    @Query("DELETE FROM transfer_checkpoints WHERE work_id = :workId")
+    void delete(String workId);
+    
+
+    /**
+     * 清理早于 time 的检查点（任务已不存在，没有被正常删除的）
+     */
+    @Query("DELETE FROM transfer_checkpoints WHERE updated_at < :time")
+    void deleteOlderThan(long time);
+}
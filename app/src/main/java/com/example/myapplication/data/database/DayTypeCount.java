@@ -0,0 +1,21 @@
+package com.example.myapplication.data.database;
+
+import androidx.room.ColumnInfo;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+/**
+ * 按天、按类型分组的事件数量（分组查询的结果行）
+ */
+public class DayTypeCount {
+
+    // 本地日期，格式 yyyy-MM-dd
+    @ColumnInfo(name = "day")
+    public String day;
+
+    @ColumnInfo(name = "type")
+    public CalendarEvent.EventType type;
+
+    @ColumnInfo(name = "count")
+    public int count;
+}
@@ -1,5 +1,7 @@
 package com.example.myapplication.data.database;
 
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
@@ -7,6 +9,7 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.data.model.DeletedEvent;
 
 import java.util.Date;
 import java.util.List;
@@ -42,7 +45,7 @@ public interface EventDao {
     @Query("SELECT * FROM calendar_events ORDER BY start_time ASC")
     List<CalendarEvent> getAllEvents();
 
-    @Query("SELECT * FROM calendar_events WHERE start_time >= :startOfDay AND start_time < :endOfDay ORDER BY start_time ASC")
+    @Query("SELECT * FROM calendar_events WHERE start_time >= :startOfDay AND start_time < :endOfDay AND rrule IS NULL ORDER BY start_time ASC")
     List<CalendarEvent> getEventsByDate(long startOfDay, long endOfDay);
     
 
@@ -58,14 +61,227 @@ public interface EventDao {
     List<CalendarEvent> searchEvents(String keyword);
     
 
-    @Query("SELECT * FROM calendar_events WHERE start_time >= :monthStart AND start_time < :monthEnd ORDER BY start_time ASC")
+    @Query("SELECT * FROM calendar_events WHERE start_time >= :monthStart AND start_time < :monthEnd AND rrule IS NULL ORDER BY start_time ASC")
     List<CalendarEvent> getEventsByMonth(long monthStart, long monthEnd);
     
 
+    @Query("SELECT * FROM calendar_events WHERE start_time < :endTime AND (end_time > :startTime OR start_time >= :startTime) AND rrule IS NULL ORDER BY start_time ASC")
+    List<CalendarEvent> getEventsOverlapping(long startTime, long endTime);
+    
+
+    /**
+     * 区间内按本地日期和类型分组计数，一次查询同时得到每天的数量和每种类型的数量
+     */
+    @Query("SELECT strftime('%Y-%m-%d', start_time / 1000, 'unixepoch', 'localtime') AS day, type, COUNT(*) AS count FROM calendar_events WHERE start_time >= :startTime AND start_time < :endTime AND rrule IS NULL GROUP BY day, type")
+    List<DayTypeCount> getDayTypeCounts(long startTime, long endTime);
+    
+
+    /**
+     * 历史标题按 (标题, 类型, 提醒设置) 分组计数，用于构建自动补全索引
+     */
+    @Query("SELECT title AS text, type, reminder_enabled, reminder_minutes_before, COUNT(*) AS count, MAX(start_time) AS last_used FROM calendar_events WHERE title IS NOT NULL AND title != '' GROUP BY title, type, reminder_enabled, reminder_minutes_before")
+    List<HistoryCount> getTitleHistory();
+    
+
+    @Query("SELECT location AS text, NULL AS type, 0 AS reminder_enabled, 0 AS reminder_minutes_before, COUNT(*) AS count, MAX(start_time) AS last_used FROM calendar_events WHERE location IS NOT NULL AND location != '' GROUP BY location")
+    List<HistoryCount> getLocationHistory();
+    
+
+    // ---- 重复日程：上面的区间查询只返回不重复的行，重复日程按窗口取出后在内存中展开 ----
+
+    /**
+     * 可能在 [startTime, endTime) 内发生的重复日程（recurrence_end 上有索引）
+     */
+    @Query("SELECT * FROM calendar_events WHERE rrule IS NOT NULL AND recurrence_end > :startTime AND start_time < :endTime")
+    List<CalendarEvent> getRecurringEvents(long startTime, long endTime);
+    
+
+    @Query("SELECT * FROM calendar_events WHERE rrule IS NOT NULL AND recurrence_end > :startTime AND start_time < :endTime AND type IN (:types)")
+    List<CalendarEvent> getRecurringEventsOfTypes(long startTime, long endTime, List<String> types);
+    
+
+    /**
+     * 重复日程中被单独修改的各次原本的开始时间
+     */
+    @Query("SELECT recurrence_id FROM calendar_events WHERE parent_id = :parentId AND recurrence_id IS NOT NULL")
+    List<Long> getOverriddenStarts(long parentId);
+    
+
+    @Query("DELETE FROM calendar_events WHERE parent_id = :parentId")
+    void deleteOverrides(long parentId);
+    
+
+    @Query("SELECT MAX(recurrence_end) FROM calendar_events")
+    Long getLatestRecurrenceEnd();
+    
+
+    // 导入时按 UID 判断新增、更新还是跳过，只取比较需要的列
+    @Query("SELECT id, uid, recurrence_id, sequence, last_modified FROM calendar_events WHERE uid IS NOT NULL")
+    List<UidVersion> getUidVersions();
+    
+
+    // ---- 导出：change_seq 在 (sinceSeq, untilSeq] 之间的日程和删除记录；全部导出的日程按 id 划定范围 ----
+
+    @Query("SELECT MAX(change_seq) FROM calendar_events")
+    Long getMaxChangeSeq();
+    
+
+    @Query("SELECT MAX(change_seq) FROM deleted_events")
+    Long getMaxDeletedChangeSeq();
+    
+
+    /**
+     * 按主键分块读取，afterId 为上一块最后一行的 id
+     */
+    @Query("SELECT * FROM calendar_events WHERE change_seq > :sinceSeq AND change_seq <= :untilSeq AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<CalendarEvent> getEventsChangedAfter(long sinceSeq, long untilSeq, long afterId, int limit);
+    
+
+    @Query("SELECT COUNT(*) FROM calendar_events WHERE change_seq > :sinceSeq AND change_seq <= :untilSeq")
+    int countEventsChangedAfter(long sinceSeq, long untilSeq);
+    
+
+    @Query("SELECT MAX(id) FROM calendar_events")
+    Long getMaxId();
+    
+
+    /**
+     * 全部导出：按主键分块读取 id 不超过 untilId 的事件，导出期间修改过的事件同样在范围内
+     */
+    @Query("SELECT * FROM calendar_events WHERE id > :afterId AND id <= :untilId ORDER BY id ASC LIMIT :limit")
+    List<CalendarEvent> getEventsUpToId(long afterId, long untilId, int limit);
+    
+
+    @Query("SELECT COUNT(*) FROM calendar_events WHERE id <= :untilId")
+    int countEventsUpToId(long untilId);
+    
+
+    @Query("SELECT * FROM deleted_events WHERE change_seq > :sinceSeq AND change_seq <= :untilSeq ORDER BY change_seq ASC")
+    List<DeletedEvent> getDeletedEvents(long sinceSeq, long untilSeq);
+    
+
+    @Insert
+    void insertDeleted(DeletedEvent deletedEvent);
+    
+
+    /**
+     * 清理已经导出过的删除记录
+     */
+    @Query("DELETE FROM deleted_events WHERE change_seq <= :untilSeq")
+    void deleteDeletedEventsUntil(long untilSeq);
+    
+
+    /**
+     * pruneDeletedEvents 将要删除的记录中最大的变更序号，没有要删除的记录时为 null
+     */
+    @Query("SELECT MAX(change_seq) FROM deleted_events WHERE deleted_at < :cutoff "
+            + "OR id <= (SELECT MAX(id) FROM deleted_events) - :maxCount")
+    Long getMaxPrunableChangeSeq(long cutoff, int maxCount);
+    
+
+    /**
+     * 从不导出时删除记录不会被清理：丢弃早于 cutoff 的记录，并只保留最近的 maxCount 条
+     */
+    @Query("DELETE FROM deleted_events WHERE deleted_at < :cutoff "
+            + "OR id <= (SELECT MAX(id) FROM deleted_events) - :maxCount")
+    void pruneDeletedEvents(long cutoff, int maxCount);
+    
+
+    // ---- 以下为带类型筛选的区间查询，types 为 EventType 名称 ----
+
+    @Query("SELECT * FROM calendar_events WHERE start_time >= :startOfDay AND start_time < :endOfDay AND type IN (:types) AND rrule IS NULL ORDER BY start_time ASC")
+    List<CalendarEvent> getEventsByDateOfTypes(long startOfDay, long endOfDay, List<String> types);
+    
+
+    @Query("SELECT * FROM calendar_events WHERE start_time < :endTime AND (end_time > :startTime OR start_time >= :startTime) AND type IN (:types) AND rrule IS NULL ORDER BY start_time ASC")
+    List<CalendarEvent> getEventsOverlappingOfTypes(long startTime, long endTime, List<String> types);
+    
+
+    @Query("SELECT * FROM calendar_events WHERE start_time >= :startTime AND (start_time > :startTime OR id > :id) AND type IN (:types) AND rrule IS NULL ORDER BY start_time ASC, id ASC LIMIT :limit")
+    List<CalendarEvent> getEventsAfterOfTypes(long startTime, long id, List<String> types, int limit);
+    
+
+    @Query("SELECT * FROM calendar_events WHERE start_time <= :startTime AND (start_time < :startTime OR id < :id) AND type IN (:types) AND rrule IS NULL ORDER BY start_time DESC, id DESC LIMIT :limit")
+    List<CalendarEvent> getEventsBeforeOfTypes(long startTime, long id, List<String> types, int limit);
+    
+
+    /**
+     * 最长事件时长，用于给冲突查询的 start_time 加下界
+     */
+    @Query("SELECT MAX(end_time - start_time) FROM calendar_events")
+    Long getMaxEventSpan();
+    
+
+    /**
+     * 与 [startTime, endTime) 重叠的事件
+     * minStartTime = startTime - 最长事件时长，使查询只扫描 start_time 索引上的一小段
+     */
+    @Query("SELECT * FROM calendar_events WHERE start_time < :endTime AND start_time > :minStartTime AND end_time > :startTime AND id != :excludeId AND rrule IS NULL ORDER BY start_time ASC LIMIT :limit")
+    List<CalendarEvent> getConflictingEvents(long startTime, long endTime, long minStartTime, long excludeId, int limit);
+    
+
+    /**
+     * 与 [startTime, endTime) 重叠的事件数量；minStartTime 作用同冲突查询
+     */
+    @Query("SELECT COUNT(*) FROM calendar_events WHERE start_time < :endTime AND start_time > :minStartTime AND (end_time > :startTime OR start_time >= :startTime) AND rrule IS NULL")
+    int countEventsOverlapping(long startTime, long endTime, long minStartTime);
+    
+
+    @Query("SELECT MIN(start_time) FROM calendar_events")
+    Long getEarliestStartTime();
+    
+
+    @Query("SELECT MAX(start_time) FROM calendar_events")
+    Long getLatestStartTime();
+    
+
+    /**
+     * 键集分页：(start_time, id) 严格大于给定位置的下一页，按时间正序
+     */
+    @Query("SELECT * FROM calendar_events WHERE start_time >= :startTime AND (start_time > :startTime OR id > :id) AND rrule IS NULL ORDER BY start_time ASC, id ASC LIMIT :limit")
+    List<CalendarEvent> getEventsAfter(long startTime, long id, int limit);
+    
+
+    /**
+     * 键集分页：(start_time, id) 严格小于给定位置的上一页，按时间倒序返回
+     */
+    @Query("SELECT * FROM calendar_events WHERE start_time <= :startTime AND (start_time < :startTime OR id < :id) AND rrule IS NULL ORDER BY start_time DESC, id DESC LIMIT :limit")
+    List<CalendarEvent> getEventsBefore(long startTime, long id, int limit);
+    
+
+    /**
+     * 按 id 取出组合查询的一页（EventQuery 的查询只取 id，以便在 SQL 执行中取消）
+     */
+    @Query("SELECT * FROM calendar_events WHERE id IN (:ids) ORDER BY start_time ASC, id ASC")
+    List<CalendarEvent> getEventsByIds(List<Long> ids);
+    
+
     @Query("DELETE FROM calendar_events")
     void deleteAll();
     
 
     @Query("SELECT COUNT(*) FROM calendar_events")
     int getEventCount();
+    
+
+    /**
+     * 全部事件的游标，按主键顺序；备份时逐行读取，不生成实体对象
+     */
+    @Query("SELECT * FROM calendar_events ORDER BY id ASC")
+    Cursor getAllEventsCursor();
+    
+
+    @Query("SELECT alarm_request_code FROM calendar_events WHERE reminder_enabled = 1")
+    List<Integer> getAlarmRequestCodes();
+    
+
+    /**
+     * 开启提醒的事件，按主键分块读取，afterId 为上一块最后一行的 id
+     */
+    @Query("SELECT * FROM calendar_events WHERE reminder_enabled = 1 AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<CalendarEvent> getReminderEventsAfter(long afterId, int limit);
+    
+
+    @Query("DELETE FROM deleted_events")
+    void deleteAllDeleted();
 }
@@ -0,0 +1,349 @@
+package com.example.myapplication.data.database;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 可组合的事件查询条件
+ * 文本、类型集合、时间窗口、地点和提醒开关可以任意组合，编译为一条 SQL，
+ * 由 EventManager 执行（可以用 CancellationSignal 中途取消）。结果按 (start_time, id) 排序并用键集分页，
+ * 时间窗口和排序都落在 start_time 索引上。
+ * 有时间窗口时 SQL 只取非重复的行，重复日程在窗口内的各次由 EventManager 展开后并入；
+ * 没有时间窗口时重复日程按原行列出一次。
+ */
+public class EventQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private String text;
+    private String location;
+    private EnumSet<CalendarEvent.EventType> types;
+    private Long startFrom;
+    private Long startTo;
+    private Boolean reminderEnabled;
+    private Boolean soundEnabled;
+
+    // 键集分页位置，null 表示第一页
+    private Long afterStartTime;
+    private long afterId;
+    private int limit = DEFAULT_PAGE_SIZE;
+
+    public EventQuery() {
+    }
+
+    private EventQuery(EventQuery other) {
+        this.text = other.text;
+        this.location = other.location;
+        this.types = other.types != null ? EnumSet.copyOf(other.types) : null;
+        this.startFrom = other.startFrom;
+        this.startTo = other.startTo;
+        this.reminderEnabled = other.reminderEnabled;
+        this.soundEnabled = other.soundEnabled;
+        this.afterStartTime = other.afterStartTime;
+        this.afterId = other.afterId;
+        this.limit = other.limit;
+    }
+
+    public EventQuery copy() {
+        return new EventQuery(this);
+    }
+
+    /**
+     * 标题、描述或地点包含该文本（空白表示不限）
+     */
+    public EventQuery text(String text) {
+        this.text = text != null && !text.trim().isEmpty() ? text.trim() : null;
+        return this;
+    }
+
+    /**
+     * 地点包含该文本（空白表示不限）
+     */
+    public EventQuery location(String location) {
+        this.location = location != null && !location.trim().isEmpty() ? location.trim() : null;
+        return this;
+    }
+
+    /**
+     * 限定事件类型；null 表示不限，空集合表示不匹配任何事件
+     */
+    public EventQuery types(Collection<CalendarEvent.EventType> types) {
+        if (types == null) {
+            this.types = null;
+        } else if (types.isEmpty()) {
+            this.types = EnumSet.noneOf(CalendarEvent.EventType.class);
+        } else {
+            this.types = EnumSet.copyOf(types);
+        }
+        return this;
+    }
+
+    /**
+     * 开始时间位于 [from, to) 之内；重复日程按窗口内发生的各次匹配
+     */
+    public EventQuery startBetween(long from, long to) {
+        this.startFrom = from;
+        this.startTo = to;
+        return this;
+    }
+
+    public EventQuery reminderEnabled(Boolean reminderEnabled) {
+        this.reminderEnabled = reminderEnabled;
+        return this;
+    }
+
+    public EventQuery soundEnabled(Boolean soundEnabled) {
+        this.soundEnabled = soundEnabled;
+        return this;
+    }
+
+    public EventQuery limit(int limit) {
+        this.limit = Math.max(1, limit);
+        return this;
+    }
+
+    /**
+     * 从 (startTime, id) 之后开始（不含）
+     */
+    public EventQuery after(long startTime, long id) {
+        this.afterStartTime = startTime;
+        this.afterId = id;
+        return this;
+    }
+
+    /**
+     * 根据当前页的最后一个事件生成下一页的查询
+     */
+    public EventQuery nextPage(List<CalendarEvent> page) {
+        EventQuery next = copy();
+        if (!page.isEmpty()) {
+            CalendarEvent last = page.get(page.size() - 1);
+            long startTime = last.getStartTime() != null ? last.getStartTime().getTime() : Long.MIN_VALUE;
+            next.after(startTime, last.getId());
+        }
+        return next;
+    }
+
+    /**
+     * 当前页是否已满，满页时可能还有下一页
+     */
+    public boolean hasMore(List<CalendarEvent> page) {
+        return page.size() >= limit;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public EnumSet<CalendarEvent.EventType> getTypes() {
+        return types != null ? EnumSet.copyOf(types) : null;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasTimeWindow() {
+        return startFrom != null;
+    }
+
+    public long getStartFrom() {
+        return startFrom;
+    }
+
+    public long getStartTo() {
+        return startTo;
+    }
+
+    /**
+     * 键集分页位置：是否在 (startTime, id) 之后
+     */
+    public boolean isAfterPosition(long startTime, long id) {
+        return afterStartTime == null || startTime > afterStartTime
+                || (startTime == afterStartTime && id > afterId);
+    }
+
+    /**
+     * 分页位置的开始时间，第一页时为 null
+     */
+    public Long getAfterStartTime() {
+        return afterStartTime;
+    }
+
+    /**
+     * 在内存中判断事件是否满足条件（忽略分页位置），文本匹配规则与 SQL 的 LIKE 一致
+     */
+    public boolean matches(CalendarEvent event) {
+        // 有时间窗口时重复日程只以展开的各次出现
+        if (startFrom != null && event.isRecurring() && !event.isOccurrence()) {
+            return false;
+        }
+        long startTime = event.getStartTime() != null ? event.getStartTime().getTime() : 0;
+        if (startFrom != null && startTime < startFrom) {
+            return false;
+        }
+        if (startTo != null && startTime >= startTo) {
+            return false;
+        }
+        if (types != null && !types.contains(event.getType())) {
+            return false;
+        }
+        if (reminderEnabled != null && event.isReminderEnabled() != reminderEnabled) {
+            return false;
+        }
+        if (soundEnabled != null && event.isSoundEnabled() != soundEnabled) {
+            return false;
+        }
+        if (location != null && !likeContains(event.getLocation(), location)) {
+            return false;
+        }
+        if (text != null && !likeContains(event.getTitle(), text)
+                && !likeContains(event.getDescription(), text)
+                && !likeContains(event.getLocation(), text)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 本查询的结果是否一定是 previous 结果的子集：除文本外条件相同，且文本包含 previous 的文本
+     */
+    public boolean narrows(EventQuery previous) {
+        if (!Objects.equals(location, previous.location)
+                || !Objects.equals(types, previous.types)
+                || !Objects.equals(startFrom, previous.startFrom)
+                || !Objects.equals(startTo, previous.startTo)
+                || !Objects.equals(reminderEnabled, previous.reminderEnabled)
+                || !Objects.equals(soundEnabled, previous.soundEnabled)) {
+            return false;
+        }
+        if (previous.text == null) {
+            return true;
+        }
+        return text != null && likeContains(text, previous.text);
+    }
+
+    /**
+     * 编译为分页查询，只取这一页的 id（按顺序），事件本身按主键取出
+     */
+    public SimpleSQLiteQuery build() {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id FROM calendar_events");
+        appendWhere(sql, args, true);
+        sql.append(" ORDER BY start_time ASC, id ASC LIMIT ?");
+        args.add(limit);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * 编译为总数查询（忽略分页位置）
+     */
+    public SimpleSQLiteQuery buildCount() {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM calendar_events");
+        appendWhere(sql, args, false);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    private void appendWhere(StringBuilder sql, List<Object> args, boolean withKeyset) {
+        List<String> conditions = new ArrayList<>();
+
+        if (startFrom != null) {
+            conditions.add("start_time >= ?");
+            args.add(startFrom);
+        }
+        if (startTo != null) {
+            conditions.add("start_time < ?");
+            args.add(startTo);
+        }
+        if (startFrom != null) {
+            conditions.add("rrule IS NULL");
+        }
+        if (withKeyset && afterStartTime != null) {
+            conditions.add("start_time >= ? AND (start_time > ? OR id > ?)");
+            args.add(afterStartTime);
+            args.add(afterStartTime);
+            args.add(afterId);
+        }
+        if (types != null) {
+            if (types.isEmpty()) {
+                conditions.add("0");
+            } else {
+                StringBuilder in = new StringBuilder("type IN (");
+                boolean first = true;
+                for (CalendarEvent.EventType type : types) {
+                    in.append(first ? "?" : ", ?");
+                    args.add(EventTypeConverter.fromEventType(type));
+                    first = false;
+                }
+                conditions.add(in.append(")").toString());
+            }
+        }
+        if (reminderEnabled != null) {
+            conditions.add("reminder_enabled = ?");
+            args.add(reminderEnabled ? 1 : 0);
+        }
+        if (soundEnabled != null) {
+            conditions.add("sound_enabled = ?");
+            args.add(soundEnabled ? 1 : 0);
+        }
+        if (location != null) {
+            conditions.add("location LIKE ? ESCAPE '\\'");
+            args.add(likePattern(location));
+        }
+        if (text != null) {
+            String pattern = likePattern(text);
+            conditions.add("(title LIKE ? ESCAPE '\\' OR description LIKE ? ESCAPE '\\' OR location LIKE ? ESCAPE '\\')");
+            args.add(pattern);
+            args.add(pattern);
+            args.add(pattern);
+        }
+
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+
+    /**
+     * 与 SQLite 的 LIKE 相同：只对 ASCII 字母忽略大小写
+     */
+    private static boolean likeContains(String value, String part) {
+        if (value == null) {
+            return false;
+        }
+        int max = value.length() - part.length();
+        for (int i = 0; i <= max; i++) {
+            int j = 0;
+            while (j < part.length() && foldAscii(value.charAt(i + j)) == foldAscii(part.charAt(j))) {
+                j++;
+            }
+            if (j == part.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * 包含匹配的 LIKE 模式，转义用户输入中的通配符
+     */
+    private static String likePattern(String value) {
+        String escaped = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.myapplication.data.database;
+
+import androidx.room.ColumnInfo;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+/**
+ * 历史输入的使用次数（自动补全索引的分组查询结果行）
+ */
+public class HistoryCount {
+
+    // 标题或地点
+    @ColumnInfo(name = "text")
+    public String text;
+
+    // 地点查询中为 null
+    @ColumnInfo(name = "type")
+    public CalendarEvent.EventType type;
+
+    @ColumnInfo(name = "reminder_enabled")
+    public boolean reminderEnabled;
+
+    @ColumnInfo(name = "reminder_minutes_before")
+    public int reminderMinutesBefore;
+
+    @ColumnInfo(name = "count")
+    public int count;
+
+    // 最近一次使用（开始时间最晚的事件）
+    @ColumnInfo(name = "last_used")
+    public long lastUsed;
+}
@@ -0,0 +1,25 @@
+package com.example.myapplication.data.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * 已有日程的 UID 和版本（导入时判断是否需要更新的查询结果行）
+ */
+public class UidVersion {
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "uid")
+    public String uid;
+
+    // 单独修改的实例原本的开始时间，重复日程本身和普通日程为 null
+    @ColumnInfo(name = "recurrence_id")
+    public Long recurrenceId;
+
+    @ColumnInfo(name = "sequence")
+    public int sequence;
+
+    @ColumnInfo(name = "last_modified")
+    public Long lastModified;
+}
@@ -11,6 +11,10 @@ public class CalendarDay {
     private boolean isToday;
     private boolean isSelected;
     private int eventCount;
+    // 来自“有日程的日期”索引，覆盖跨天事件经过的日期
+    private boolean busy;
+    // 按 EventType 序号统计的当天事件数，未加载时为 null
+    private int[] typeCounts;
 
     public CalendarDay(Calendar calendar) {
         this.calendar = (Calendar) calendar.clone();
@@ -72,8 +76,24 @@ public class CalendarDay {
         this.eventCount = eventCount;
     }
 
+    public int[] getTypeCounts() {
+        return typeCounts;
+    }
+
+    public void setTypeCounts(int[] typeCounts) {
+        this.typeCounts = typeCounts;
+    }
+
+    public boolean isBusy() {
+        return busy;
+    }
+
+    public void setBusy(boolean busy) {
+        this.busy = busy;
+    }
+
     public boolean hasEvents() {
-        return eventCount > 0;
+        return eventCount > 0 || busy;
     }
 
 }
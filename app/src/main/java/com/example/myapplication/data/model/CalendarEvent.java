@@ -2,6 +2,7 @@ package com.example.myapplication.data.model;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 import androidx.annotation.NonNull;
@@ -13,8 +14,12 @@ import java.util.Date;
 
 /**
  * 日程事件模型类
+ * start_time 上的索引同时覆盖按时间范围查询和 (start_time, id) 的键集分页（id 即 rowid）
+ * 重复日程只保存一行（rrule 不为空），各次发生按查看的时间窗口展开；
+ * 单独修改过的某一次保存为另一行，parent_id 指向重复日程，recurrence_id 为原本的开始时间。
  */
-@Entity(tableName = "calendar_events")
+@Entity(tableName = "calendar_events", indices = {@Index("start_time"), @Index("recurrence_end"), @Index("parent_id"), @Index("uid"),
+        @Index("change_seq")})
 @TypeConverters({DateConverter.class, EventTypeConverter.class})
 public class CalendarEvent {
     @PrimaryKey(autoGenerate = true)
@@ -55,6 +60,43 @@ public class CalendarEvent {
     @ColumnInfo(name = "alarm_request_code")
     private int alarmRequestCode;  // AlarmManager的请求码
     
+    // 重复相关字段
+    @ColumnInfo(name = "rrule")
+    private String rrule;  // RRULE 的值，如 FREQ=WEEKLY;BYDAY=MO，null 表示不重复
+    
+    @ColumnInfo(name = "exdates")
+    private String exdates;  // 排除的各次开始时间（毫秒），逗号分隔
+    
+    @ColumnInfo(name = "recurrence_end")
+    private Long recurrenceEnd;  // 最后一次发生的结束时间，无限重复为 Long.MAX_VALUE；不重复为 null
+    
+    @ColumnInfo(name = "parent_id", defaultValue = "0")
+    private long parentId;  // 单独修改的实例所属的重复日程，0 表示不是
+    
+    @ColumnInfo(name = "recurrence_id")
+    private Long recurrenceId;  // 单独修改的实例原本的开始时间
+    
+    // 同步相关字段
+    @ColumnInfo(name = "uid")
+    private String uid;  // iCalendar UID；单独修改的实例与所属的重复日程相同
+    
+    @ColumnInfo(name = "sequence", defaultValue = "0")
+    private int sequence;  // iCalendar SEQUENCE，每次修改递增
+    
+    @ColumnInfo(name = "last_modified")
+    private Long lastModified;  // 最后修改时间（毫秒）
+    
+    @ColumnInfo(name = "change_seq", defaultValue = "0")
+    private long changeSeq;  // 本地变更序号，每次写入时分配，增量导出据此判断是否变化
+    
+    // 导入的 STATUS:CANCELLED（不存库），表示删除对应 UID 的日程
+    @androidx.room.Ignore
+    private boolean cancelled;
+    
+    // 展开出的某一次发生（不存库），id 与重复日程相同
+    @androidx.room.Ignore
+    private boolean occurrence;
+    
     public enum EventType {
         MEETING("会议", "#2196F3"),
         WORK("工作", "#4CAF50"),
@@ -241,6 +283,161 @@ public class CalendarEvent {
         this.alarmRequestCode = alarmRequestCode;
     }
     
+    public String getRrule() {
+        return rrule;
+    }
+    
+    public void setRrule(String rrule) {
+        this.rrule = rrule;
+    }
+    
+    public String getExdates() {
+        return exdates;
+    }
+    
+    public void setExdates(String exdates) {
+        this.exdates = exdates;
+    }
+    
+    public Long getRecurrenceEnd() {
+        return recurrenceEnd;
+    }
+    
+    public void setRecurrenceEnd(Long recurrenceEnd) {
+        this.recurrenceEnd = recurrenceEnd;
+    }
+    
+    public long getParentId() {
+        return parentId;
+    }
+    
+    public void setParentId(long parentId) {
+        this.parentId = parentId;
+    }
+    
+    public Long getRecurrenceId() {
+        return recurrenceId;
+    }
+    
+    public void setRecurrenceId(Long recurrenceId) {
+        this.recurrenceId = recurrenceId;
+    }
+    
+    public String getUid() {
+        return uid;
+    }
+    
+    public void setUid(String uid) {
+        this.uid = uid;
+    }
+    
+    public int getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+    
+    public Long getLastModified() {
+        return lastModified;
+    }
+    
+    public void setLastModified(Long lastModified) {
+        this.lastModified = lastModified;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+    
+    /**
+     * 是否比另一份同一日程更新：先比较 SEQUENCE，相同时比较 LAST-MODIFIED
+     * 两边都没有修改时间时视为相同版本
+     */
+    public boolean isNewerThan(int otherSequence, Long otherLastModified) {
+        if (sequence != otherSequence) {
+            return sequence > otherSequence;
+        }
+        if (lastModified == null) {
+            return false;
+        }
+        return otherLastModified == null || lastModified > otherLastModified;
+    }
+    
+    public boolean isRecurring() {
+        return rrule != null && !rrule.isEmpty();
+    }
+    
+    public boolean isOccurrence() {
+        return occurrence;
+    }
+    
+    /**
+     * 排除的各次开始时间
+     */
+    public java.util.Set<Long> getExcludedStarts() {
+        java.util.Set<Long> result = new java.util.HashSet<>();
+        if (exdates != null && !exdates.isEmpty()) {
+            for (String part : exdates.split(",")) {
+                try {
+                    result.add(Long.parseLong(part.trim()));
+                } catch (NumberFormatException e) {
+                    // 忽略无法解析的项
+                }
+            }
+        }
+        return result;
+    }
+    
+    public void addExcludedStart(long start) {
+        if (getExcludedStarts().contains(start)) {
+            return;
+        }
+        exdates = exdates == null || exdates.isEmpty() ? String.valueOf(start) : exdates + "," + start;
+    }
+    
+    /**
+     * 生成重复日程在 start 开始的一次发生（复制所有字段，时长不变）
+     */
+    public CalendarEvent createOccurrence(long start) {
+        CalendarEvent copy = new CalendarEvent();
+        copy.id = id;
+        copy.title = title;
+        copy.description = description;
+        copy.location = location;
+        copy.color = color;
+        copy.type = type;
+        copy.reminderEnabled = reminderEnabled;
+        copy.reminderMinutesBefore = reminderMinutesBefore;
+        copy.soundEnabled = soundEnabled;
+        copy.alarmRequestCode = alarmRequestCode;
+        copy.rrule = rrule;
+        copy.exdates = exdates;
+        copy.recurrenceEnd = recurrenceEnd;
+        copy.uid = uid;
+        copy.sequence = sequence;
+        copy.lastModified = lastModified;
+        copy.changeSeq = changeSeq;
+        long duration = startTime != null && endTime != null ? endTime.getTime() - startTime.getTime() : 0;
+        copy.startTime = new Date(start);
+        copy.endTime = new Date(start + duration);
+        copy.occurrence = true;
+        return copy;
+    }
+    
     /**
      * 计算提醒时间
      */
@@ -0,0 +1,93 @@
+package com.example.myapplication.data.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 已删除日程的记录，增量导出时写为 STATUS:CANCELLED
+ * 导出检查点之前的记录在导出成功后清理；从不导出时按时间和条数限制（见 EventManager.pruneDeletedEvents）。
+ */
+@Entity(tableName = "deleted_events", indices = {@Index("change_seq")})
+public class DeletedEvent {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    
+    @ColumnInfo(name = "uid")
+    private String uid;
+    
+    @ColumnInfo(name = "recurrence_id")
+    private Long recurrenceId;  // 单独修改的实例原本的开始时间
+    
+    @ColumnInfo(name = "sequence")
+    private int sequence;  // 删除前的 SEQUENCE
+    
+    @ColumnInfo(name = "start_time")
+    private Long startTime;
+    
+    @ColumnInfo(name = "deleted_at")
+    private long deletedAt;
+    
+    @ColumnInfo(name = "change_seq")
+    private long changeSeq;
+    
+    public DeletedEvent() {
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public void setId(long id) {
+        this.id = id;
+    }
+    
+    public String getUid() {
+        return uid;
+    }
+    
+    public void setUid(String uid) {
+        this.uid = uid;
+    }
+    
+    public Long getRecurrenceId() {
+        return recurrenceId;
+    }
+    
+    public void setRecurrenceId(Long recurrenceId) {
+        this.recurrenceId = recurrenceId;
+    }
+    
+    public int getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+    
+    public Long getStartTime() {
+        return startTime;
+    }
+    
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+    
+    public long getDeletedAt() {
+        return deletedAt;
+    }
+    
+    public void setDeletedAt(long deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myapplication.data.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 导入导出任务的进度检查点，按 WorkManager 任务 ID 保存
+ * 导入时与每批事件在同一个事务中写入，进程被杀后任务重新运行时从这里继续，已提交的批次不会重复写入。
+ */
+@Entity(tableName = "transfer_checkpoints")
+public class TransferCheckpoint {
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "work_id")
+    private String workId;
+    
+    @ColumnInfo(name = "position")
+    private long position;  // 文件中已处理到的字节偏移
+    
+    @ColumnInfo(name = "batch")
+    private int batch;  // 已提交的批次数
+    
+    @ColumnInfo(name = "item_count")
+    private int itemCount;  // 已处理的事件数
+    
+    @ColumnInfo(name = "written_count")
+    private int writtenCount;  // 导入时新增、更新和删除的事件数
+    
+    @ColumnInfo(name = "last_id")
+    private long lastId;  // 导出时已写出的最后一个事件的 id
+    
+    @ColumnInfo(name = "since_seq")
+    private long sinceSeq;  // 导出开始时的检查点
+    
+    @ColumnInfo(name = "until_seq")
+    private long untilSeq;  // 导出覆盖到的变更序号
+    
+    @ColumnInfo(name = "until_id")
+    private long untilId;  // 全部导出时覆盖到的最大事件 id
+    
+    @ColumnInfo(name = "updated_at")
+    private long updatedAt;
+    
+    public TransferCheckpoint(@NonNull String workId) {
+        this.workId = workId;
+    }
+    
+    @NonNull
+    public String getWorkId() {
+        return workId;
+    }
+    
+    public void setWorkId(@NonNull String workId) {
+        this.workId = workId;
+    }
+    
+    public long getPosition() {
+        return position;
+    }
+    
+    public void setPosition(long position) {
+        this.position = position;
+    }
+    
+    public int getBatch() {
+        return batch;
+    }
+    
+    public void setBatch(int batch) {
+        this.batch = batch;
+    }
+    
+    public int getItemCount() {
+        return itemCount;
+    }
+    
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+    
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+    
+    public void setWrittenCount(int writtenCount) {
+        this.writtenCount = writtenCount;
+    }
+    
+    public long getLastId() {
+        return lastId;
+    }
+    
+    public void setLastId(long lastId) {
+        this.lastId = lastId;
+    }
+    
+    public long getSinceSeq() {
+        return sinceSeq;
+    }
+    
+    public void setSinceSeq(long sinceSeq) {
+        this.sinceSeq = sinceSeq;
+    }
+    
+    public long getUntilSeq() {
+        return untilSeq;
+    }
+    
+    public void setUntilSeq(long untilSeq) {
+        this.untilSeq = untilSeq;
+    }
+    
+    public long getUntilId() {
+        return untilId;
+    }
+    
+    public void setUntilId(long untilId) {
+        this.untilId = untilId;
+    }
+    
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
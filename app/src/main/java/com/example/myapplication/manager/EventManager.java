@@ -1,40 +1,193 @@
 package com.example.myapplication.manager;
 
+import android.content.ContentValues;
 import android.content.Context;
-import android.net.Uri;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.Trace;
+import android.util.LruCache;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
 import com.example.myapplication.data.model.CalendarEvent;
 import com.example.myapplication.data.model.CalendarDay;
+import com.example.myapplication.data.model.DeletedEvent;
+import com.example.myapplication.data.model.TransferCheckpoint;
 import com.example.myapplication.data.database.AppDatabase;
+import com.example.myapplication.data.database.CheckpointDao;
+import com.example.myapplication.data.database.DayTypeCount;
 import com.example.myapplication.data.database.EventDao;
-import com.example.myapplication.util.IcsExportImportHelper;
+import com.example.myapplication.data.database.EventQuery;
+import com.example.myapplication.data.database.HistoryCount;
+import com.example.myapplication.data.database.UidVersion;
+import com.example.myapplication.util.BusyDayIndex;
+import com.example.myapplication.util.RecurrenceRule;
+import com.example.myapplication.util.SuggestionTrie;
+import com.example.myapplication.util.EventLayoutEngine;
+import com.example.myapplication.util.FreeBusyEngine;
+import com.example.myapplication.util.ReminderScheduler;
+import com.example.myapplication.util.SnapshotCodec;
+import com.example.myapplication.util.StartupSnapshot;
+import com.example.myapplication.util.CalendarUtils;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.List;
 
 //日程管理器 - 负责日程的增删改查和持久化（使用 Room 数据库）
 public class EventManager {
     
+    // 时间轴中过短的事件按 15 分钟参与排布
+    private static final long MIN_LAYOUT_DURATION = 15 * 60 * 1000L;
+    
+    // 按天缓存的时间轴布局，所有实例共享，任何写操作后失效
+    private static final LruCache<Long, DayLayout> dayLayoutCache = new LruCache<>(14);
+    
+    // 按周缓存的周视图布局（当前周及前后各一周）
+    private static final LruCache<Long, WeekLayout> weekLayoutCache = new LruCache<>(5);
+    
+    // 按天缓存的忙碌位图（约两个月），写操作时只更新受影响的日期
+    private static final LruCache<Long, long[]> busyDayCache = new LruCache<>(62);
+    // 忙碌位图版本，写操作时递增，用于丢弃过期的计算结果
+    private static int busyVersion = 0;
+    
+    // 空闲时段最多向后查找一年
+    private static final long MAX_FREE_SLOT_RANGE = 366L * 24 * 60 * 60 * 1000;
+    
+    // 每年一个的“有日程的日期”位图索引，持久化在 files/busy_days 下
+    private static BusyDayIndex busyDayIndex;
+    // findBusyDay 的查找范围：{最早开始时间, 最晚开始时间, 最晚的重复结束时间（没有时为 Long.MIN_VALUE）}；
+    // 空数组表示没有日程，null 表示写操作后尚未重新查询
+    private static long[] busyDayRange = null;
+    
+    // 事件类型筛选（EventType 名称），null 表示显示全部类型；下推到日视图、周视图和议程列表的区间查询中
+    private static volatile List<String> typeFilter = null;
+    
+    // 标题和地点的自动补全索引，首次使用时在后台构建，之后随写操作增量更新
+    private static final Object suggestionLock = new Object();
+    private static SuggestionTrie titleTrie;
+    private static SuggestionTrie locationTrie;
+    private static boolean suggestionsLoading = false;
+    // 写操作时递增，构建期间有写入则重新构建
+    private static int suggestionVersion = 0;
+    
+    // 重复日程按 (id, 窗口) 缓存的展开结果（各次开始时间），任何写操作后失效
+    private static final LruCache<String, long[]> occurrenceCache = new LruCache<>(256);
+    private static int occurrenceVersion = 0;
+    
+    // 议程列表不满一页时，向前或向后展开重复日程的最大范围
+    private static final long AGENDA_RECURRENCE_HORIZON = 366L * 24 * 60 * 60 * 1000;
+    
+    // 冲突检测最多返回的事件数
+    private static final int MAX_CONFLICTS = 20;
+    
+    // 导出时每次从数据库读取的事件数
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    
+    // 恢复后重新安排提醒时每次读取的事件数
+    private static final int REMINDER_CHUNK_SIZE = 500;
+    
+    // 上次导出的检查点（导出时最大的本地变更序号），增量导出只写之后变化的日程
+    private static final String EXPORT_PREFS = "export_state";
+    private static final String KEY_EXPORT_CHECKPOINT = "export_checkpoint";
+    // 未导出就被清理的删除记录中最大的变更序号：超过导出检查点时增量导出会漏掉删除，改为全部导出
+    private static final String KEY_PRUNED_SEQ = "pruned_seq";
+    
+    // 删除记录最多保留的时间和条数（从不导出时也不会无限增长）
+    private static final long DELETED_EVENT_MAX_AGE = 90L * 24 * 60 * 60 * 1000;
+    private static final int DELETED_EVENT_MAX_COUNT = 5000;
+    
+    // 最近分配的本地变更序号，-1 表示尚未从数据库读取
+    private static long lastChangeSeq = -1;
+    
+    // 所有事件中最长的时长（毫秒），-1 表示尚未计算；只增不减，始终是有效上界
+    private static long maxEventSpan = -1;
+    
+    // 数据版本，任何写操作后递增；界面据此判断返回前台时是否需要重新加载
+    private static volatile int dataVersion = 0;
+    
+    // 组合查询（搜索）的串行线程：新查询排在旧查询之后，旧查询取消后立即让出
+    private static final java.util.concurrent.ExecutorService queryExecutor =
+            java.util.concurrent.Executors.newSingleThreadExecutor();
+    
+    // 冷启动首屏快照（files/startup_snapshot），写操作后在单个后台线程中重写；
+    // 已安排但尚未开始的重写只保留一个，连续的写操作合并为一次
+    private static final String STARTUP_SNAPSHOT_FILE = "startup_snapshot";
+    private static final java.util.concurrent.ExecutorService startupSnapshotExecutor =
+            java.util.concurrent.Executors.newSingleThreadExecutor();
+    private static final Object startupSnapshotLock = new Object();
+    private static boolean startupSnapshotDirty = false;
+    
     private Context context;
+    private AppDatabase database;
     private EventDao eventDao;
+    private CheckpointDao checkpointDao;
     
     public EventManager(Context context) {
         this.context = context.getApplicationContext();
-        AppDatabase database = AppDatabase.getInstance(this.context);
+        this.database = AppDatabase.getInstance(this.context);
         this.eventDao = database.eventDao();
+        this.checkpointDao = database.checkpointDao();
+        synchronized (EventManager.class) {
+            if (busyDayIndex == null) {
+                busyDayIndex = new BusyDayIndex(new File(this.context.getFilesDir(), "busy_days"));
+                Context appContext = this.context;
+                // 数据库被新建或清空重建后，磁盘上的索引和首屏快照属于旧数据
+                AppDatabase.setOnCreateListener(() -> {
+                    busyDayIndex.clear();
+                    new File(appContext.getFilesDir(), STARTUP_SNAPSHOT_FILE).delete();
+                });
+            }
+        }
     }
 
     public CalendarEvent addEvent(CalendarEvent event) {
+        database.runInTransaction(() -> insertEvent(event));
+        onEventsChanged(null, event);
+        return event;
+    }
+    
+
+    /**
+     * 写入新事件，不更新缓存和索引（批量导入在整批提交后统一处理）
+     */
+    private void insertEvent(CalendarEvent event) {
+        if (event.getUid() == null) {
+            event.setUid(java.util.UUID.randomUUID() + "@mycalendar.app");
+        }
+        if (event.getLastModified() == null) {
+            event.setLastModified(System.currentTimeMillis());
+        }
+        prepareRecurrence(event);
+        event.setChangeSeq(nextChangeSeq());
         long id = eventDao.insert(event);
         event.setId(id);
-        return event;
+        noteEventSpan(event);
     }
     
 
     public boolean updateEvent(CalendarEvent event) {
         try {
-            eventDao.update(event);
+            CalendarEvent oldEvent = database.runInTransaction(() -> {
+                CalendarEvent current = eventDao.getEventById(event.getId());
+                // 本地修改：版本递增，导出后其他日历可以据此更新
+                event.setSequence((current != null ? current.getSequence() : event.getSequence()) + 1);
+                event.setLastModified(System.currentTimeMillis());
+                prepareRecurrence(event);
+                event.setChangeSeq(nextChangeSeq());
+                eventDao.update(event);
+                return current;
+            });
+            noteEventSpan(event);
+            onEventsChanged(oldEvent, event);
             return true;
         } catch (Exception e) {
             return false;
@@ -42,9 +195,30 @@ public class EventManager {
     }
     
 
+    /**
+     * 用导入的新版本替换已有日程，保留版本号和本地的提醒请求码
+     * 不更新缓存和索引，由导入在整批提交后统一处理
+     */
+    private void replaceEvent(CalendarEvent event) {
+        CalendarEvent oldEvent = eventDao.getEventById(event.getId());
+        if (oldEvent != null) {
+            event.setAlarmRequestCode(oldEvent.getAlarmRequestCode());
+        }
+        prepareRecurrence(event);
+        event.setChangeSeq(nextChangeSeq());
+        eventDao.update(event);
+        noteEventSpan(event);
+    }
+    
+
     public boolean deleteEvent(long eventId) {
         try {
-            eventDao.deleteById(eventId);
+            CalendarEvent oldEvent = database.runInTransaction(() -> {
+                CalendarEvent removed = removeEvent(eventId);
+                pruneDeletedEvents();
+                return removed;
+            });
+            onEventsChanged(oldEvent, null);
             return true;
         } catch (Exception e) {
             return false;
@@ -52,241 +226,2035 @@ public class EventManager {
     }
     
 
+    /**
+     * 删除事件并记录删除，不更新缓存和索引；返回删除前的事件（不存在时为 null）
+     */
+    private CalendarEvent removeEvent(long eventId) {
+        CalendarEvent oldEvent = eventDao.getEventById(eventId);
+        eventDao.deleteById(eventId);
+        if (oldEvent != null && oldEvent.isRecurring()) {
+            // 单独修改过的实例随重复日程一起删除（重复日程的删除记录按 UID 覆盖它们）
+            eventDao.deleteOverrides(eventId);
+        }
+        if (oldEvent != null) {
+            recordDeletion(oldEvent);
+        }
+        return oldEvent;
+    }
+    
+
     public boolean deleteEvent(CalendarEvent event) {
         return deleteEvent(event.getId());
     }
     
 
-    public CalendarEvent getEvent(long eventId) {
-        return eventDao.getEventById(eventId);
+    /**
+     * 记录删除，增量导出时写为 STATUS:CANCELLED
+     */
+    private void recordDeletion(CalendarEvent event) {
+        if (event.getUid() == null) {
+            return;
+        }
+        DeletedEvent deleted = new DeletedEvent();
+        deleted.setUid(event.getUid());
+        deleted.setRecurrenceId(event.getParentId() != 0 ? event.getRecurrenceId() : null);
+        deleted.setSequence(event.getSequence());
+        deleted.setStartTime(event.getStartTime() != null ? event.getStartTime().getTime() : null);
+        deleted.setDeletedAt(System.currentTimeMillis());
+        deleted.setChangeSeq(nextChangeSeq());
+        eventDao.insertDeleted(deleted);
     }
     
 
-    public CalendarEvent getEvent(String eventId) {
-        try {
-            long id = Long.parseLong(eventId);
-            return getEvent(id);
-        } catch (NumberFormatException e) {
-            return null;
+    /**
+     * 按时间和条数限制删除记录（按主键的区间删除，表本身也有上限）
+     */
+    private void pruneDeletedEvents() {
+        long cutoff = System.currentTimeMillis() - DELETED_EVENT_MAX_AGE;
+        Long prunedSeq = eventDao.getMaxPrunableChangeSeq(cutoff, DELETED_EVENT_MAX_COUNT);
+        if (prunedSeq == null) {
+            return;
         }
+        // 先记下再删除：事务回滚时记录偏大，只会多做一次全部导出
+        SharedPreferences prefs = context.getSharedPreferences(EXPORT_PREFS, Context.MODE_PRIVATE);
+        if (prunedSeq > prefs.getLong(KEY_PRUNED_SEQ, -1)) {
+            prefs.edit().putLong(KEY_PRUNED_SEQ, prunedSeq).apply();
+        }
+        eventDao.pruneDeletedEvents(cutoff, DELETED_EVENT_MAX_COUNT);
     }
     
 
-    public List<CalendarEvent> getAllEvents() {
-        return eventDao.getAllEvents();
+    /**
+     * 分配下一个本地变更序号（新增、修改和删除共用，单调递增）
+     * 必须在写入这一行的事务中调用：写事务互斥，序号的分配顺序就是提交顺序，
+     * 导出读到的已提交最大序号之下不会再有晚提交的行。
+     */
+    private long nextChangeSeq() {
+        if (!database.inTransaction()) {
+            throw new IllegalStateException("Change sequence must be assigned inside the write transaction");
+        }
+        synchronized (EventManager.class) {
+            if (lastChangeSeq < 0) {
+                lastChangeSeq = getCommittedChangeSeq();
+            }
+            return ++lastChangeSeq;
+        }
     }
     
 
-    public List<CalendarEvent> getEventsForDate(java.util.Date date) {
-        // 计算当天的开始和结束时间戳
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startOfDay = calendar.getTimeInMillis();
-        
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        long endOfDay = calendar.getTimeInMillis();
-        
-        return eventDao.getEventsByDate(startOfDay, endOfDay);
+    /**
+     * 数据库中已写入的最大变更序号
+     */
+    public long getCommittedChangeSeq() {
+        Long events = eventDao.getMaxChangeSeq();
+        Long deleted = eventDao.getMaxDeletedChangeSeq();
+        return Math.max(events != null ? events : 0, deleted != null ? deleted : 0);
     }
     
 
-    public List<CalendarEvent> getEventsForMonth(int year, int month) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month, 1, 0, 0, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long monthStart = calendar.getTimeInMillis();
-        
-        calendar.add(Calendar.MONTH, 1);
-        long monthEnd = calendar.getTimeInMillis();
-        
-        return eventDao.getEventsByMonth(monthStart, monthEnd);
+    /**
+     * 只删除重复日程的某一次（记为 EXDATE）
+     */
+    public boolean deleteOccurrence(long eventId, long occurrenceStart) {
+        CalendarEvent event = eventDao.getEventById(eventId);
+        if (event == null || !event.isRecurring()) {
+            return false;
+        }
+        event.addExcludedStart(occurrenceStart);
+        return updateEvent(event);
     }
     
 
-    public List<CalendarEvent> searchEvents(String keyword) {
-        return eventDao.searchEvents(keyword);
+    /**
+     * 保存前校验重复规则并计算 recurrence_end（区间查询靠它筛选可能发生的重复日程）
+     */
+    private static void prepareRecurrence(CalendarEvent event) {
+        RecurrenceRule rule = RecurrenceRule.parse(event.getRrule());
+        if (rule == null || event.getStartTime() == null) {
+            event.setRrule(null);
+            event.setExdates(null);
+            event.setRecurrenceEnd(null);
+            return;
+        }
+        long start = event.getStartTime().getTime();
+        long duration = event.getEndTime() != null ? Math.max(0, event.getEndTime().getTime() - start) : 0;
+        event.setRrule(rule.format());
+        event.setRecurrenceEnd(rule.getEnd(start, duration));
     }
     
 
-    public int getEventCount() {
-        return eventDao.getEventCount();
+    /**
+     * 当前数据版本；与之前取得的值不同说明期间有过写操作
+     */
+    public static int getDataVersion() {
+        return dataVersion;
     }
     
-
+    /**
+     * 数据发生变化后清理或更新各类缓存
+     *
+     * @param removed 变化前的事件（新增时为 null）
+     * @param added 变化后的事件（删除时为 null）
+     */
+    private void onEventsChanged(CalendarEvent removed, CalendarEvent added) {
+        synchronized (EventManager.class) {
+            dataVersion++;
+            busyDayRange = null;
+        }
+        dayLayoutCache.evictAll();
+        weekLayoutCache.evictAll();
+        synchronized (occurrenceCache) {
+            occurrenceVersion++;
+            occurrenceCache.evictAll();
+        }
+        updateBusyDays(removed, added);
+        updateBusyDayIndex(removed, added);
+        updateSuggestions(removed, added);
+        refreshStartupSnapshot();
+    }
     
 
-    public void loadEventCounts(List<CalendarDay> calendarDays, EventCountCallback callback) {
-        new Thread(() -> {
-            java.util.Map<java.util.Date, Integer> counts = new java.util.HashMap<>();
-            for (CalendarDay day : calendarDays) {
-                List<CalendarEvent> events = getEventsForDate(day.getDate());
-                if (!events.isEmpty()) {
-                    counts.put(day.getDate(), events.size());
+    /**
+     * 增量更新“有日程的日期”索引：新事件经过的日期直接置位，
+     * 旧事件经过的日期用一次索引区间计数确认当天是否还有其他日程
+     */
+    private void updateBusyDayIndex(CalendarEvent removed, CalendarEvent added) {
+        if (affectsRecurrence(removed) || affectsRecurrence(added)) {
+            // 重复日程影响的日期不限于一段，直接清空索引，之后按年重新构建
+            busyDayIndex.clear();
+            return;
+        }
+        List<Long> addedDays = added != null ? getEventDays(added) : new ArrayList<>();
+        for (long dayStart : addedDays) {
+            busyDayIndex.setBusy(dayStart, true);
+        }
+        if (removed != null) {
+            long span = getMaxEventSpan();
+            Calendar calendar = Calendar.getInstance();
+            for (long dayStart : getEventDays(removed)) {
+                if (addedDays.contains(dayStart)) {
+                    continue;
                 }
+                calendar.setTimeInMillis(dayStart);
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+                long dayEnd = calendar.getTimeInMillis();
+                int count = eventDao.countEventsOverlapping(dayStart, dayEnd, dayStart - span - 1)
+                        + getOccurrences(dayStart, dayEnd, null).size();
+                busyDayIndex.setBusy(dayStart, count > 0);
             }
-            callback.onCountsLoaded(counts);
-        }).start();
+        }
+        busyDayIndex.flush();
     }
     
 
-    public void loadDayEvents(java.util.Date date, DayEventsCallback callback) {
-        new Thread(() -> {
-            List<CalendarEvent> events = getEventsForDate(date);
-            callback.onEventsLoaded(events);
-        }).start();
+    /**
+     * 获取某一年的索引，尚未建立时用一次重叠查询构建并保存
+     */
+    private long[] getBusyYear(int year) {
+        long[] bits = busyDayIndex.getYear(year);
+        if (bits != null) {
+            return bits;
+        }
+        int version = busyDayIndex.getVersion();
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1);
+        long yearStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.YEAR, 1);
+        long yearEnd = calendar.getTimeInMillis();
+
+        bits = BusyDayIndex.newYear();
+        List<CalendarEvent> events = eventDao.getEventsOverlapping(yearStart, yearEnd);
+        events.addAll(getOccurrences(yearStart, yearEnd, null));
+        for (CalendarEvent event : events) {
+            for (long dayStart : getEventDays(event)) {
+                if (dayStart < yearStart) {
+                    continue;
+                }
+                if (dayStart >= yearEnd) {
+                    break;
+                }
+                calendar.setTimeInMillis(dayStart);
+                BusyDayIndex.set(bits, calendar.get(Calendar.DAY_OF_YEAR) - 1);
+            }
+        }
+        busyDayIndex.putYear(year, bits, version);
+        return bits;
     }
     
 
-    public interface EventCountCallback {
-        void onCountsLoaded(java.util.Map<java.util.Date, Integer> counts);
+    /**
+     * 按索引标记日期列表中有日程的日期（只使用已建立的索引，不访问数据库）
+     */
+    public void applyBusyDays(List<CalendarDay> calendarDays) {
+        boolean filtered = typeFilter != null;
+        for (CalendarDay day : calendarDays) {
+            // 索引不区分类型，筛选时只按各类型的数量显示
+            if (filtered) {
+                day.setBusy(false);
+                continue;
+            }
+            long[] bits = busyDayIndex.getYear(day.getYear());
+            if (bits != null) {
+                Calendar calendar = day.getCalendar();
+                day.setBusy(BusyDayIndex.get(bits, calendar.get(Calendar.DAY_OF_YEAR) - 1));
+            }
+        }
     }
     
 
-    public interface DayEventsCallback {
-        void onEventsLoaded(List<CalendarEvent> events);
+    /**
+     * 查找 from 之后（forward）或之前最近的有日程的日期，没有时返回 null
+     * 每年只需一次位扫描，只在有日程的年份范围内查找；已加载的年份和查找范围都不访问数据库，
+     * 只有尚未建立索引的年份才查询一次
+     */
+    public java.util.Date findBusyDay(java.util.Date from, boolean forward) {
+        long[] range = getBusyDayRange();
+        if (range.length == 0) {
+            return null;
+        }
+        long earliest = range[0];
+        long latest = range[1];
+        // 无限重复的日程没有最晚时间，最多向后找两年
+        if (range[2] != Long.MIN_VALUE) {
+            latest = Math.max(latest, Math.min(range[2], from.getTime() + 2 * AGENDA_RECURRENCE_HORIZON));
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(earliest);
+        int firstYear = calendar.get(Calendar.YEAR);
+        calendar.setTimeInMillis(latest + getMaxEventSpan());
+        int lastYear = calendar.get(Calendar.YEAR);
+
+        calendar.setTime(from);
+        int year = calendar.get(Calendar.YEAR);
+        int index = calendar.get(Calendar.DAY_OF_YEAR) - 1 + (forward ? 1 : -1);
+        // 起点在有日程的年份范围之外时，直接从范围的边界开始
+        if (forward && year < firstYear) {
+            year = firstYear;
+            index = 0;
+        } else if (!forward && year > lastYear) {
+            year = lastYear;
+            index = BusyDayIndex.DAYS_PER_YEAR - 1;
+        }
+        while (year >= firstYear && year <= lastYear) {
+            long[] bits = getBusyYear(year);
+            int found = forward ? BusyDayIndex.nextSetBit(bits, index) : BusyDayIndex.previousSetBit(bits, index);
+            if (found >= 0) {
+                calendar.clear();
+                calendar.set(Calendar.YEAR, year);
+                calendar.set(Calendar.DAY_OF_YEAR, found + 1);
+                return calendar.getTime();
+            }
+            year += forward ? 1 : -1;
+            index = forward ? 0 : BusyDayIndex.DAYS_PER_YEAR - 1;
+        }
+        return null;
     }
     
+
     /**
-     * 导出所有事件到 ICS 文件
-     * 
-     * @param uri 目标文件 Uri
-     * @param callback 回调接口
+     * 有日程的时间范围，写操作后第一次使用时查询，之后直接使用缓存
      */
-    public void exportEventsToIcs(Uri uri, ExportCallback callback) {
-        new Thread(() -> {
-            try {
-                List<CalendarEvent> events = getAllEvents();
-                boolean success = IcsExportImportHelper.exportToIcs(context, events, uri);
-                callback.onExportComplete(success, events.size());
-            } catch (Exception e) {
-                e.printStackTrace();
-                callback.onExportComplete(false, 0);
+    private long[] getBusyDayRange() {
+        int version;
+        synchronized (EventManager.class) {
+            if (busyDayRange != null) {
+                return busyDayRange;
             }
-        }).start();
+            version = dataVersion;
+        }
+        Long earliest = eventDao.getEarliestStartTime();
+        Long latest = eventDao.getLatestStartTime();
+        Long recurrenceEnd = eventDao.getLatestRecurrenceEnd();
+        long[] range = earliest == null || latest == null ? new long[0]
+                : new long[]{earliest, latest, recurrenceEnd != null ? recurrenceEnd : Long.MIN_VALUE};
+        synchronized (EventManager.class) {
+            // 查询期间有写入时不缓存
+            if (version == dataVersion) {
+                busyDayRange = range;
+            }
+        }
+        return range;
     }
     
+
+    public void loadBusyDay(java.util.Date from, boolean forward, BusyDayCallback callback) {
+        new Thread(() -> callback.onBusyDayFound(findBusyDay(from, forward))).start();
+    }
+    
+
+    public interface BusyDayCallback {
+        void onBusyDayFound(java.util.Date date);
+    }
+    
+
     /**
-     * 从 ICS 文件导入事件（支持自动去重）
-     * 
-     * @param uri 源文件 Uri
-     * @param callback 回调接口
+     * 增量更新忙碌位图：旧事件覆盖的日期需要重算（直接移出缓存），新事件直接置位
      */
-    public void importEventsFromIcs(Uri uri, ImportCallback callback) {
-        new Thread(() -> {
-            try {
-                List<CalendarEvent> events = IcsExportImportHelper.importFromIcs(context, uri);
-                
-                if (events.isEmpty()) {
-                    callback.onImportComplete(false, 0);
-                    return;
+    private static void updateBusyDays(CalendarEvent removed, CalendarEvent added) {
+        synchronized (busyDayCache) {
+            busyVersion++;
+            if (affectsRecurrence(removed) || affectsRecurrence(added)) {
+                busyDayCache.evictAll();
+                return;
+            }
+            if (removed != null) {
+                for (long dayStart : getEventDays(removed)) {
+                    busyDayCache.remove(dayStart);
                 }
-                
-                // 获取已有的所有事件用于去重
-                List<CalendarEvent> existingEvents = getAllEvents();
-                
-                // 批量插入事件（自动去重）
-                int successCount = 0;
-                int duplicateCount = 0;
-                for (CalendarEvent event : events) {
-                    try {
-                        // 检查是否为重复事件
-                        if (isDuplicateEvent(event, existingEvents)) {
-                            duplicateCount++;
-                            continue;
-                        }
-                        
-                        addEvent(event);
-                        existingEvents.add(event); // 添加到已有列表，用于后续重复事件检测
-                        successCount++;
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        // 继续导入其他事件
+            }
+            if (added != null) {
+                Calendar calendar = Calendar.getInstance();
+                for (long dayStart : getEventDays(added)) {
+                    long[] bits = busyDayCache.get(dayStart);
+                    if (bits != null) {
+                        calendar.setTimeInMillis(dayStart);
+                        calendar.add(Calendar.DAY_OF_MONTH, 1);
+                        FreeBusyEngine.markBusy(bits, dayStart, calendar.getTimeInMillis(), added);
                     }
                 }
-                
-                callback.onImportComplete(successCount > 0, successCount);
-            } catch (Exception e) {
-                e.printStackTrace();
-                callback.onImportComplete(false, 0);
             }
-        }).start();
+        }
     }
     
+
     /**
-     * 检查是否为重复事件
-     * 判断标准：标题相同、开始时间相同、结束时间相同的事件视为重复
-     * 
-     * @param newEvent 新事件
-     * @param existingEvents 已有的事件列表
-     * @return true 表示为重复事件，false 表示为新事件
+     * 事件覆盖的每一天的零点
      */
-    private boolean isDuplicateEvent(CalendarEvent newEvent, List<CalendarEvent> existingEvents) {
-        for (CalendarEvent existingEvent : existingEvents) {
-            if (isSameEvent(newEvent, existingEvent)) {
-                return true;
-            }
+    private static List<Long> getEventDays(CalendarEvent event) {
+        List<Long> days = new ArrayList<>();
+        if (event.getStartTime() == null) {
+            return days;
         }
-        return false;
+        long start = event.getStartTime().getTime();
+        long end = event.getEndTime() != null ? Math.max(event.getEndTime().getTime(), start + 1) : start + 1;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(getStartOfDay(event.getStartTime()));
+        while (calendar.getTimeInMillis() < end) {
+            days.add(calendar.getTimeInMillis());
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return days;
     }
     
+
     /**
-     * 比较两个事件是否相同
-     * 
-     * @param event1 事件1
-     * @param event2 事件2
-     * @return true 表示两个事件相同
+     * 查找 [from, to) 内第一个长度不小于 duration 的空闲时段
+     *
+     * @param dailyFromMinute 每天可用时段的开始（从零点起的分钟数）
+     * @param dailyToMinute 每天可用时段的结束（不含）
+     * @return 空闲时段的开始时间，找不到时返回 -1
      */
-    private boolean isSameEvent(CalendarEvent event1, CalendarEvent event2) {
-        // 检查标题
-        if (!nullSafeEquals(event1.getTitle(), event2.getTitle())) {
-            return false;
+    public long findNextFreeSlot(long from, long to, long duration, int dailyFromMinute, int dailyToMinute) {
+        to = Math.min(to, from + MAX_FREE_SLOT_RANGE);
+        if (from >= to) {
+            return -1;
         }
-        
-        // 检查开始时间
-        if (!nullSafeEquals(event1.getStartTime(), event2.getStartTime())) {
-            return false;
+        List<Long> starts = new ArrayList<>();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(getStartOfDay(new java.util.Date(from)));
+        while (calendar.getTimeInMillis() < to) {
+            starts.add(calendar.getTimeInMillis());
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
         }
-        
-        // 检查结束时间
-        if (!nullSafeEquals(event1.getEndTime(), event2.getEndTime())) {
-            return false;
+        starts.add(calendar.getTimeInMillis());
+
+        long[] dayStarts = new long[starts.size()];
+        for (int i = 0; i < dayStarts.length; i++) {
+            dayStarts[i] = starts.get(i);
         }
-        
-        // 所有关键字段都相同，则判定为相同事件
-        return true;
+        long[][] days = getBusyDays(dayStarts);
+        int slotMinutes = (int) (FreeBusyEngine.SLOT_MILLIS / 60000);
+        return FreeBusyEngine.findFreeSlot(days, dayStarts, from, to, duration,
+                (dailyFromMinute + slotMinutes - 1) / slotMinutes, dailyToMinute / slotMinutes);
+    }
+    
+
+    public void loadNextFreeSlot(long from, long to, long duration, int dailyFromMinute, int dailyToMinute,
+                                 FreeSlotCallback callback) {
+        new Thread(() -> callback.onFreeSlotFound(
+                findNextFreeSlot(from, to, duration, dailyFromMinute, dailyToMinute))).start();
     }
     
+
     /**
-     * null 安全的相等性判断
+     * 获取连续若干天的忙碌位图（返回副本）
+     * 缓存未命中的日期用一次重叠查询统一计算
+     *
+     * @param dayStarts 每天零点，最后一项为结束日次日零点
      */
-    private boolean nullSafeEquals(Object obj1, Object obj2) {
-        if (obj1 == null && obj2 == null) {
-            return true;
+    private long[][] getBusyDays(long[] dayStarts) {
+        int dayCount = dayStarts.length - 1;
+        long[][] days = new long[dayCount][];
+        int firstMissing = -1;
+        int lastMissing = -1;
+        int version;
+        synchronized (busyDayCache) {
+            version = busyVersion;
+            for (int i = 0; i < dayCount; i++) {
+                long[] bits = busyDayCache.get(dayStarts[i]);
+                if (bits != null) {
+                    days[i] = bits.clone();
+                } else {
+                    if (firstMissing < 0) {
+                        firstMissing = i;
+                    }
+                    lastMissing = i;
+                }
+            }
         }
-        if (obj1 == null || obj2 == null) {
-            return false;
+        if (firstMissing < 0) {
+            return days;
         }
-        return obj1.equals(obj2);
+
+        List<CalendarEvent> events = eventDao.getEventsOverlapping(dayStarts[firstMissing], dayStarts[lastMissing + 1]);
+        events.addAll(getOccurrences(dayStarts[firstMissing], dayStarts[lastMissing + 1], null));
+        for (int i = firstMissing; i <= lastMissing; i++) {
+            if (days[i] == null) {
+                days[i] = FreeBusyEngine.buildDay(events, dayStarts[i], dayStarts[i + 1]);
+            }
+        }
+        synchronized (busyDayCache) {
+            if (version == busyVersion) {
+                for (int i = firstMissing; i <= lastMissing; i++) {
+                    busyDayCache.put(dayStarts[i], days[i].clone());
+                }
+            }
+        }
+        return days;
     }
     
-    /**
-     * 导出回调接口
-     */
-    public interface ExportCallback {
-        void onExportComplete(boolean success, int eventCount);
+
+    public interface FreeSlotCallback {
+        void onFreeSlotFound(long startTime);
     }
     
+
     /**
-     * 导入回调接口
+     * 查询与给定时间段冲突的事件（不含 excludeId 本身）
+     * 只扫描 start_time 在 (startTime - 最长事件时长, endTime) 之间的索引区间，与总数据量无关
      */
-    public interface ImportCallback {
-        void onImportComplete(boolean success, int eventCount);
+    public List<CalendarEvent> getConflictingEvents(long startTime, long endTime, long excludeId) {
+        if (endTime <= startTime) {
+            return new ArrayList<>();
+        }
+        // systrace / Perfetto 中可以看到每次检测的耗时
+        Trace.beginSection("EventManager#getConflictingEvents");
+        try {
+            long span = getMaxEventSpan();
+            List<CalendarEvent> conflicts = eventDao.getConflictingEvents(startTime, endTime, startTime - span, excludeId, MAX_CONFLICTS);
+            for (CalendarEvent occurrence : getOccurrences(startTime, endTime, null)) {
+                if (conflicts.size() >= MAX_CONFLICTS) {
+                    break;
+                }
+                if (occurrence.getId() != excludeId && occurrence.getEndTime().getTime() > startTime) {
+                    conflicts.add(occurrence);
+                }
+            }
+            sortByStart(conflicts);
+            return conflicts;
+        } finally {
+            Trace.endSection();
+        }
+    }
+    
+
+    public void loadConflictingEvents(long startTime, long endTime, long excludeId, ConflictCallback callback) {
+        new Thread(() -> callback.onConflictsLoaded(getConflictingEvents(startTime, endTime, excludeId))).start();
+    }
+    
+
+    private long getMaxEventSpan() {
+        synchronized (EventManager.class) {
+            if (maxEventSpan < 0) {
+                Long span = eventDao.getMaxEventSpan();
+                maxEventSpan = span != null ? Math.max(span, 0) : 0;
+            }
+            return maxEventSpan;
+        }
+    }
+    
+
+    private static void noteEventSpan(CalendarEvent event) {
+        if (event.getStartTime() == null || event.getEndTime() == null) {
+            return;
+        }
+        long span = event.getEndTime().getTime() - event.getStartTime().getTime();
+        synchronized (EventManager.class) {
+            if (maxEventSpan >= 0 && span > maxEventSpan) {
+                maxEventSpan = span;
+            }
+        }
+    }
+    
+
+    public interface ConflictCallback {
+        void onConflictsLoaded(List<CalendarEvent> conflicts);
+    }
+    
+
+    public CalendarEvent getEvent(long eventId) {
+        return eventDao.getEventById(eventId);
+    }
+    
+
+    public CalendarEvent getEvent(String eventId) {
+        try {
+            long id = Long.parseLong(eventId);
+            return getEvent(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+
+    public List<CalendarEvent> getAllEvents() {
+        return eventDao.getAllEvents();
+    }
+    
+
+    public List<CalendarEvent> getEventsForDate(java.util.Date date) {
+        return getEventsForDate(date, typeFilter);
+    }
+    
+    private List<CalendarEvent> getEventsForDate(java.util.Date date, List<String> types) {
+        // 计算当天的开始和结束时间戳
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long startOfDay = calendar.getTimeInMillis();
+        
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        calendar.set(Calendar.SECOND, 59);
+        calendar.set(Calendar.MILLISECOND, 999);
+        long endOfDay = calendar.getTimeInMillis();
+        
+        List<CalendarEvent> events = types != null
+                ? eventDao.getEventsByDateOfTypes(startOfDay, endOfDay, types)
+                : eventDao.getEventsByDate(startOfDay, endOfDay);
+        // 与上面的查询一致，只取当天开始的各次
+        for (CalendarEvent occurrence : getOccurrences(startOfDay, endOfDay + 1, types)) {
+            if (occurrence.getStartTime().getTime() >= startOfDay) {
+                events.add(occurrence);
+            }
+        }
+        sortByStart(events);
+        return events;
+    }
+    
+
+    public List<CalendarEvent> getEventsForMonth(int year, int month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(year, month, 1, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long monthStart = calendar.getTimeInMillis();
+        
+        calendar.add(Calendar.MONTH, 1);
+        long monthEnd = calendar.getTimeInMillis();
+        
+        List<CalendarEvent> events = eventDao.getEventsByMonth(monthStart, monthEnd);
+        for (CalendarEvent occurrence : getOccurrences(monthStart, monthEnd, null)) {
+            if (occurrence.getStartTime().getTime() >= monthStart) {
+                events.add(occurrence);
+            }
+        }
+        sortByStart(events);
+        return events;
+    }
+    
+
+    public List<CalendarEvent> searchEvents(String keyword) {
+        return eventDao.searchEvents(keyword);
+    }
+    
+
+    public int getEventCount() {
+        return eventDao.getEventCount();
+    }
+    
+
+    /**
+     * 执行组合查询，返回一页结果
+     * 有时间窗口时把重复日程在窗口内的各次按 (开始时间, id) 并入：满页时只展开到这一页的最后一个
+     */
+    public List<CalendarEvent> queryEvents(EventQuery query) {
+        return queryEvents(query, null);
+    }
+    
+
+    private List<CalendarEvent> queryEvents(EventQuery query, CancellationSignal signal) {
+        List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = database.query(query.build(), signal)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        List<CalendarEvent> events = ids.isEmpty() ? new ArrayList<>() : eventDao.getEventsByIds(ids);
+        if (!query.hasTimeWindow()) {
+            return events;
+        }
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+        long from = query.getStartFrom();
+        Long afterStartTime = query.getAfterStartTime();
+        if (afterStartTime != null) {
+            from = Math.max(from, afterStartTime);
+        }
+        long to = events.size() >= query.getLimit()
+                ? events.get(events.size() - 1).getStartTime().getTime() + 1
+                : query.getStartTo();
+        List<CalendarEvent> merged = new ArrayList<>(events);
+        boolean added = false;
+        for (CalendarEvent occurrence : getMatchingOccurrences(query, from, to)) {
+            if (query.isAfterPosition(occurrence.getStartTime().getTime(), occurrence.getId())) {
+                merged.add(occurrence);
+                added = true;
+            }
+        }
+        if (!added) {
+            return events;
+        }
+        sortByStart(merged);
+        return merged.size() > query.getLimit() ? new ArrayList<>(merged.subList(0, query.getLimit())) : merged;
+    }
+    
+
+    public int countEvents(EventQuery query) {
+        return countEvents(query, null);
+    }
+    
+
+    private int countEvents(EventQuery query, CancellationSignal signal) {
+        int count;
+        try (Cursor cursor = database.query(query.buildCount(), signal)) {
+            count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+        if (query.hasTimeWindow()) {
+            if (signal != null) {
+                signal.throwIfCanceled();
+            }
+            count += getMatchingOccurrences(query, query.getStartFrom(), query.getStartTo()).size();
+        }
+        return count;
+    }
+    
+
+    /**
+     * 重复日程在 [from, to) 内发生、且满足查询其他条件的各次
+     */
+    private List<CalendarEvent> getMatchingOccurrences(EventQuery query, long from, long to) {
+        List<CalendarEvent> matching = new ArrayList<>();
+        if (from >= to) {
+            return matching;
+        }
+        Set<CalendarEvent.EventType> types = query.getTypes();
+        List<String> typeNames = null;
+        if (types != null) {
+            if (types.isEmpty()) {
+                return matching;
+            }
+            typeNames = new ArrayList<>();
+            for (CalendarEvent.EventType type : types) {
+                typeNames.add(type.name());
+            }
+        }
+        for (CalendarEvent occurrence : getOccurrences(from, to, typeNames)) {
+            if (query.matches(occurrence)) {
+                matching.add(occurrence);
+            }
+        }
+        return matching;
+    }
+    
+
+    /**
+     * 后台加载组合查询的一页；条件变化时调用返回任务的 cancel()，已取消的结果不会回调
+     * 查询在同一个串行线程上执行，取消时正在执行的 SQL 随之中止，过期的查询不会堆积
+     */
+    public QueryTask loadEventPage(EventQuery query, EventPageCallback callback) {
+        QueryTask task = new QueryTask();
+        queryExecutor.execute(() -> {
+            if (task.isCancelled()) {
+                return;
+            }
+            try {
+                List<CalendarEvent> page = queryEvents(query, task.signal);
+                if (!task.isCancelled()) {
+                    callback.onPageLoaded(query, page);
+                }
+            } catch (OperationCanceledException e) {
+                // 已取消，不回调
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        return task;
+    }
+    
+
+    /**
+     * 后台统计组合查询的总数，可以和分页查询一样取消
+     */
+    public QueryTask loadEventCount(EventQuery query, QueryCountCallback callback) {
+        QueryTask task = new QueryTask();
+        queryExecutor.execute(() -> {
+            if (task.isCancelled()) {
+                return;
+            }
+            try {
+                int count = countEvents(query, task.signal);
+                if (!task.isCancelled()) {
+                    callback.onCountLoaded(query, count);
+                }
+            } catch (OperationCanceledException e) {
+                // 已取消，不回调
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        return task;
+    }
+    
+
+    /**
+     * 可取消的后台查询：取消时通过 CancellationSignal 中止正在执行的 SQL
+     */
+    public static class QueryTask {
+        private final CancellationSignal signal = new CancellationSignal();
+        private volatile boolean cancelled = false;
+
+        public void cancel() {
+            cancelled = true;
+            signal.cancel();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+    
+
+    public interface EventPageCallback {
+        void onPageLoaded(EventQuery query, List<CalendarEvent> page);
+    }
+    
+
+    public interface QueryCountCallback {
+        void onCountLoaded(EventQuery query, int count);
+    }
+    
+    /**
+     * 在后台构建自动补全索引（已构建或正在构建时不做任何事）
+     */
+    public void prepareSuggestions() {
+        synchronized (suggestionLock) {
+            if (titleTrie != null || suggestionsLoading) {
+                return;
+            }
+            suggestionsLoading = true;
+        }
+        new Thread(() -> {
+            try {
+                // 构建期间有写入时重新构建，最多尝试三次
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    int version;
+                    synchronized (suggestionLock) {
+                        version = suggestionVersion;
+                    }
+                    SuggestionTrie titles = buildTrie(eventDao.getTitleHistory());
+                    SuggestionTrie locations = buildTrie(eventDao.getLocationHistory());
+                    synchronized (suggestionLock) {
+                        if (version == suggestionVersion) {
+                            titleTrie = titles;
+                            locationTrie = locations;
+                            return;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (suggestionLock) {
+                    suggestionsLoading = false;
+                }
+            }
+        }).start();
+    }
+    
+    private static SuggestionTrie buildTrie(List<HistoryCount> rows) {
+        SuggestionTrie trie = new SuggestionTrie();
+        for (HistoryCount row : rows) {
+            int reminder = row.reminderEnabled ? row.reminderMinutesBefore : SuggestionTrie.NO_REMINDER;
+            trie.recordBulk(row.text, row.type, reminder, row.lastUsed, row.count);
+        }
+        trie.rebuildTops();
+        return trie;
+    }
+    
+    /**
+     * 标题补全建议（按频率和最近使用排序）；索引尚未构建好时返回空列表
+     */
+    public List<String> suggestTitles(String prefix, int limit) {
+        SuggestionTrie trie = titleTrie;
+        return trie != null ? trie.suggest(prefix, limit) : new ArrayList<>();
+    }
+    
+    public List<String> suggestLocations(String prefix, int limit) {
+        SuggestionTrie trie = locationTrie;
+        return trie != null ? trie.suggest(prefix, limit) : new ArrayList<>();
+    }
+    
+    /**
+     * 某个标题的历史使用统计（常用类型和提醒），没有记录或索引尚未构建好时返回 null
+     */
+    public SuggestionTrie.Entry getTitleHistory(String title) {
+        SuggestionTrie trie = titleTrie;
+        return trie != null ? trie.get(title) : null;
+    }
+    
+    private void updateSuggestions(CalendarEvent removed, CalendarEvent added) {
+        synchronized (suggestionLock) {
+            suggestionVersion++;
+            if (titleTrie == null) {
+                return;
+            }
+            if (removed != null) {
+                recordSuggestion(removed, -1);
+            }
+            if (added != null) {
+                recordSuggestion(added, 1);
+            }
+        }
+    }
+    
+    private static void recordSuggestion(CalendarEvent event, int delta) {
+        long time = event.getStartTime() != null ? event.getStartTime().getTime() : System.currentTimeMillis();
+        int reminder = event.isReminderEnabled() ? event.getReminderMinutesBefore() : SuggestionTrie.NO_REMINDER;
+        titleTrie.record(event.getTitle(), event.getType(), reminder, time, delta);
+        locationTrie.record(event.getLocation(), null, SuggestionTrie.NO_REMINDER, time, delta);
+    }
+    
+
+    public void loadDayTypeCounts(List<CalendarDay> calendarDays, TypeCountCallback callback) {
+        new Thread(() -> {
+            // 顺带建立这些日期所在年份的索引，回调中即可用 applyBusyDays 标记
+            ensureBusyYears(calendarDays);
+            callback.onCountsLoaded(getDayTypeCounts(calendarDays));
+        }).start();
+    }
+    
+
+    private void ensureBusyYears(List<CalendarDay> calendarDays) {
+        int lastYear = Integer.MIN_VALUE;
+        for (CalendarDay day : calendarDays) {
+            if (day.getYear() != lastYear) {
+                lastYear = day.getYear();
+                getBusyYear(lastYear);
+            }
+        }
+    }
+    
+    /**
+     * 统计每一天每种类型的事件数量（下标为 EventType 序号）
+     * 整个日期范围只发起一次 GROUP BY 查询；类型筛选在内存中对这些数量求和，切换筛选无需重新查询
+     */
+    public java.util.Map<java.util.Date, int[]> getDayTypeCounts(List<CalendarDay> calendarDays) {
+        java.util.Map<java.util.Date, int[]> counts = new java.util.HashMap<>();
+        if (calendarDays.isEmpty()) {
+            return counts;
+        }
+        
+        // 日期列表本身按时间升序
+        java.text.SimpleDateFormat dayFormat = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US);
+        java.util.Map<String, java.util.Date> daysByKey = new java.util.HashMap<>();
+        for (CalendarDay day : calendarDays) {
+            daysByKey.put(dayFormat.format(day.getDate()), day.getDate());
+        }
+        long rangeStart = getStartOfDay(calendarDays.get(0).getDate());
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(getStartOfDay(calendarDays.get(calendarDays.size() - 1).getDate()));
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        long rangeEnd = calendar.getTimeInMillis();
+        
+        int typeCount = CalendarEvent.EventType.values().length;
+        for (DayTypeCount row : eventDao.getDayTypeCounts(rangeStart, rangeEnd)) {
+            java.util.Date date = daysByKey.get(row.day);
+            if (date == null || row.type == null) {
+                continue;
+            }
+            int[] dayCounts = counts.get(date);
+            if (dayCounts == null) {
+                dayCounts = new int[typeCount];
+                counts.put(date, dayCounts);
+            }
+            dayCounts[row.type.ordinal()] += row.count;
+        }
+        // 重复日程的各次按开始日期计入
+        for (CalendarEvent occurrence : getOccurrences(rangeStart, rangeEnd, null)) {
+            if (occurrence.getStartTime().getTime() < rangeStart) {
+                continue;
+            }
+            java.util.Date date = daysByKey.get(dayFormat.format(occurrence.getStartTime()));
+            if (date == null || occurrence.getType() == null) {
+                continue;
+            }
+            int[] dayCounts = counts.get(date);
+            if (dayCounts == null) {
+                dayCounts = new int[typeCount];
+                counts.put(date, dayCounts);
+            }
+            dayCounts[occurrence.getType().ordinal()]++;
+        }
+        return counts;
+    }
+    
+    /**
+     * 设置事件类型筛选；null 或包含全部类型时不筛选
+     * 时间轴布局缓存随之失效，月视图数量由调用方在内存中重新求和
+     */
+    public static void setTypeFilter(Set<CalendarEvent.EventType> types) {
+        if (types == null || types.size() == CalendarEvent.EventType.values().length) {
+            typeFilter = null;
+        } else {
+            List<String> names = new ArrayList<>();
+            for (CalendarEvent.EventType type : types) {
+                names.add(type.name());
+            }
+            typeFilter = names;
+        }
+        dayLayoutCache.evictAll();
+        weekLayoutCache.evictAll();
+    }
+    
+    /**
+     * 当前显示的事件类型
+     */
+    public static Set<CalendarEvent.EventType> getTypeFilter() {
+        List<String> types = typeFilter;
+        if (types == null) {
+            return EnumSet.allOf(CalendarEvent.EventType.class);
+        }
+        Set<CalendarEvent.EventType> result = EnumSet.noneOf(CalendarEvent.EventType.class);
+        for (String name : types) {
+            result.add(CalendarEvent.EventType.valueOf(name));
+        }
+        return result;
+    }
+    
+    /**
+     * 按类型数量和当前筛选求和
+     */
+    public static int sumVisibleCounts(int[] typeCounts) {
+        if (typeCounts == null) {
+            return 0;
+        }
+        Set<CalendarEvent.EventType> visible = getTypeFilter();
+        int sum = 0;
+        for (CalendarEvent.EventType type : visible) {
+            sum += typeCounts[type.ordinal()];
+        }
+        return sum;
+    }
+    
+    private List<CalendarEvent> getEventsOverlapping(long startTime, long endTime, List<String> types) {
+        List<CalendarEvent> events = types != null
+                ? eventDao.getEventsOverlappingOfTypes(startTime, endTime, types)
+                : eventDao.getEventsOverlapping(startTime, endTime);
+        List<CalendarEvent> occurrences = getOccurrences(startTime, endTime, types);
+        if (!occurrences.isEmpty()) {
+            events.addAll(occurrences);
+            sortByStart(events);
+        }
+        return events;
+    }
+    
+
+    /**
+     * 重复日程在 [startTime, endTime) 内发生的各次（已去掉 EXDATE 和单独修改过的实例），按开始时间排序
+     * 只取出可能在窗口内发生的重复日程，只展开这个窗口
+     */
+    private List<CalendarEvent> getOccurrences(long startTime, long endTime, List<String> types) {
+        List<CalendarEvent> masters = types != null
+                ? eventDao.getRecurringEventsOfTypes(startTime, endTime, types)
+                : eventDao.getRecurringEvents(startTime, endTime);
+        List<CalendarEvent> occurrences = new ArrayList<>();
+        for (CalendarEvent master : masters) {
+            for (long start : expandOccurrences(master, startTime, endTime)) {
+                occurrences.add(master.createOccurrence(start));
+            }
+        }
+        sortByStart(occurrences);
+        return occurrences;
+    }
+    
+
+    private long[] expandOccurrences(CalendarEvent master, long startTime, long endTime) {
+        String key = master.getId() + ":" + startTime + ":" + endTime;
+        int version;
+        synchronized (occurrenceCache) {
+            long[] cached = occurrenceCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            version = occurrenceVersion;
+        }
+        RecurrenceRule rule = RecurrenceRule.parse(master.getRrule());
+        if (rule == null || master.getStartTime() == null) {
+            return new long[0];
+        }
+        Set<Long> excluded = getExcludedStarts(master);
+        long dtStart = master.getStartTime().getTime();
+        long duration = master.getEndTime() != null ? Math.max(0, master.getEndTime().getTime() - dtStart) : 0;
+        long[] starts = rule.expand(dtStart, duration, startTime, endTime, excluded);
+        synchronized (occurrenceCache) {
+            if (version == occurrenceVersion) {
+                occurrenceCache.put(key, starts);
+            }
+        }
+        return starts;
+    }
+    
+
+    /**
+     * 重复日程不再按规则发生的开始时间：EXDATE 和被单独修改过的实例
+     */
+    public Set<Long> getExcludedStarts(CalendarEvent master) {
+        Set<Long> excluded = master.getExcludedStarts();
+        excluded.addAll(eventDao.getOverriddenStarts(master.getId()));
+        return excluded;
+    }
+    
+
+    private static boolean affectsRecurrence(CalendarEvent event) {
+        return event != null && (event.isRecurring() || event.getParentId() != 0);
+    }
+    
+
+    private static void sortByStart(List<CalendarEvent> events) {
+        Collections.sort(events, (a, b) -> {
+            int result = Long.compare(a.getStartTime().getTime(), b.getStartTime().getTime());
+            return result != 0 ? result : Long.compare(a.getId(), b.getId());
+        });
+    }
+    
+    public void loadDayEvents(java.util.Date date, DayEventsCallback callback) {
+        new Thread(() -> {
+            List<CalendarEvent> events = getEventsForDate(date);
+            callback.onEventsLoaded(events);
+        }).start();
+    }
+    
+
+    /**
+     * 加载某一天的时间轴布局（后台计算，按天缓存）
+     */
+    public void loadDayLayout(java.util.Date date, DayLayoutCallback callback) {
+        long dayStart = getStartOfDay(date);
+        DayLayout cached = dayLayoutCache.get(dayStart);
+        if (cached != null) {
+            callback.onLayoutLoaded(cached);
+            return;
+        }
+        new Thread(() -> callback.onLayoutLoaded(getDayLayout(dayStart))).start();
+    }
+    
+    /**
+     * 同步计算某一天的时间轴布局：查询与当天有交集的事件，再交给布局引擎分列
+     */
+    public DayLayout getDayLayout(long dayStart) {
+        DayLayout cached = dayLayoutCache.get(dayStart);
+        if (cached != null) {
+            return cached;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayStart);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        long dayEnd = calendar.getTimeInMillis();
+        
+        List<String> types = typeFilter;
+        List<CalendarEvent> events = getEventsOverlapping(dayStart, dayEnd, types);
+        List<EventLayoutEngine.Block> blocks =
+                EventLayoutEngine.layout(events, dayStart, dayEnd, MIN_LAYOUT_DURATION);
+        DayLayout layout = new DayLayout(dayStart, dayEnd, events, blocks);
+        // 计算期间筛选条件变了就不缓存
+        if (types == typeFilter) {
+            dayLayoutCache.put(dayStart, layout);
+        }
+        return layout;
+    }
+    
+    private static long getStartOfDay(java.util.Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+    
+    /**
+     * 一天的时间轴布局结果
+     */
+    public static class DayLayout {
+        private final long dayStart;
+        private final long dayEnd;
+        private final List<CalendarEvent> events;
+        private final List<EventLayoutEngine.Block> blocks;
+        
+        DayLayout(long dayStart, long dayEnd, List<CalendarEvent> events,
+                  List<EventLayoutEngine.Block> blocks) {
+            this.dayStart = dayStart;
+            this.dayEnd = dayEnd;
+            this.events = events;
+            this.blocks = blocks;
+        }
+        
+        public long getDayStart() {
+            return dayStart;
+        }
+        
+        public long getDayEnd() {
+            return dayEnd;
+        }
+        
+        public List<CalendarEvent> getEvents() {
+            return events;
+        }
+        
+        public List<EventLayoutEngine.Block> getBlocks() {
+            return blocks;
+        }
+    }
+    
+
+    public interface DayLayoutCallback {
+        void onLayoutLoaded(DayLayout layout);
+    }
+    
+    /**
+     * 加载一周的布局（后台计算，按周缓存）
+     *
+     * @param weekStart 周日零点
+     */
+    public void loadWeekLayout(long weekStart, WeekLayoutCallback callback) {
+        WeekLayout cached = weekLayoutCache.get(weekStart);
+        if (cached != null) {
+            callback.onLayoutLoaded(cached);
+            return;
+        }
+        new Thread(() -> callback.onLayoutLoaded(getWeekLayout(weekStart))).start();
+    }
+    
+    /**
+     * 返回已缓存的周布局，没有则返回 null（不会查询数据库）
+     */
+    public WeekLayout peekWeekLayout(long weekStart) {
+        return weekLayoutCache.get(weekStart);
+    }
+    
+    /**
+     * 在后台预先计算前后相邻两周，保证左右滑动时无需等待
+     */
+    public void prefetchAdjacentWeeks(long weekStart) {
+        new Thread(() -> {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(weekStart);
+            calendar.add(Calendar.DAY_OF_MONTH, -7);
+            getWeekLayout(calendar.getTimeInMillis());
+            calendar.add(Calendar.DAY_OF_MONTH, 14);
+            getWeekLayout(calendar.getTimeInMillis());
+        }).start();
+    }
+    
+    /**
+     * 同步计算一周的布局
+     * 整周只发起一次区间交集查询：单日内的事件按天分列排布，跨天事件作为横条按周排布，
+     * 两者使用同一个 EventLayoutEngine。查询结果同时用于填充这 7 天的日视图布局缓存。
+     */
+    public WeekLayout getWeekLayout(long weekStart) {
+        WeekLayout cached = weekLayoutCache.get(weekStart);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long[] dayStarts = new long[8];
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(weekStart);
+        for (int i = 0; i < dayStarts.length; i++) {
+            dayStarts[i] = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        long weekEnd = dayStarts[7];
+        
+        List<String> types = typeFilter;
+        List<CalendarEvent> events = getEventsOverlapping(weekStart, weekEnd, types);
+        List<CalendarEvent> spanning = new ArrayList<>();
+        List<List<CalendarEvent>> singleDay = new ArrayList<>(7);
+        List<List<CalendarEvent>> overlappingDay = new ArrayList<>(7);
+        for (int i = 0; i < 7; i++) {
+            singleDay.add(new ArrayList<>());
+            overlappingDay.add(new ArrayList<>());
+        }
+        
+        for (CalendarEvent event : events) {
+            long start = event.getStartTime().getTime();
+            long end = event.getEndTime() != null ? Math.max(event.getEndTime().getTime(), start) : start;
+            int first = dayIndexOf(dayStarts, Math.max(start, weekStart));
+            int last = end > start ? dayIndexOf(dayStarts, Math.min(end, weekEnd) - 1) : first;
+            boolean withinOneDay = start >= dayStarts[first] && end <= dayStarts[first + 1];
+            if (withinOneDay) {
+                singleDay.get(first).add(event);
+            } else {
+                spanning.add(event);
+            }
+            for (int day = first; day <= last; day++) {
+                overlappingDay.get(day).add(event);
+            }
+        }
+        
+        List<List<EventLayoutEngine.Block>> dayBlocks = new ArrayList<>(7);
+        for (int day = 0; day < 7; day++) {
+            dayBlocks.add(EventLayoutEngine.layout(singleDay.get(day),
+                    dayStarts[day], dayStarts[day + 1], MIN_LAYOUT_DURATION));
+            
+            // 顺带填充日视图缓存
+            if (types == typeFilter && dayLayoutCache.get(dayStarts[day]) == null) {
+                List<CalendarEvent> dayEvents = overlappingDay.get(day);
+                dayLayoutCache.put(dayStarts[day], new DayLayout(dayStarts[day], dayStarts[day + 1], dayEvents,
+                        EventLayoutEngine.layout(dayEvents, dayStarts[day], dayStarts[day + 1], MIN_LAYOUT_DURATION)));
+            }
+        }
+        
+        // 跨天横条：列号即所在的行
+        List<EventLayoutEngine.Block> bars = EventLayoutEngine.layout(spanning, weekStart, weekEnd, 0);
+        int laneCount = 0;
+        for (EventLayoutEngine.Block bar : bars) {
+            laneCount = Math.max(laneCount, bar.getColumnCount());
+        }
+        
+        WeekLayout layout = new WeekLayout(dayStarts, events.size(), dayBlocks, bars, laneCount);
+        if (types == typeFilter) {
+            weekLayoutCache.put(weekStart, layout);
+        }
+        return layout;
+    }
+    
+    /**
+     * 返回时间点所在的天下标（0-6），超出范围时截断到首尾
+     */
+    private static int dayIndexOf(long[] dayStarts, long time) {
+        int index = java.util.Arrays.binarySearch(dayStarts, time);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(0, Math.min(index, 6));
+    }
+    
+    /**
+     * 一周的布局结果
+     */
+    public static class WeekLayout {
+        private final long[] dayStarts;
+        private final int eventCount;
+        private final List<List<EventLayoutEngine.Block>> dayBlocks;
+        private final List<EventLayoutEngine.Block> spanningBars;
+        private final int laneCount;
+        
+        WeekLayout(long[] dayStarts, int eventCount, List<List<EventLayoutEngine.Block>> dayBlocks,
+                   List<EventLayoutEngine.Block> spanningBars, int laneCount) {
+            this.dayStarts = dayStarts;
+            this.eventCount = eventCount;
+            this.dayBlocks = dayBlocks;
+            this.spanningBars = spanningBars;
+            this.laneCount = laneCount;
+        }
+        
+        public long getWeekStart() {
+            return dayStarts[0];
+        }
+        
+        /** 8 个零点时间戳：7 天的开始以及下周第一天 */
+        public long[] getDayStarts() {
+            return dayStarts;
+        }
+        
+        public int getEventCount() {
+            return eventCount;
+        }
+        
+        /** 某一天内（不跨天）事件的分列结果 */
+        public List<EventLayoutEngine.Block> getDayBlocks(int dayIndex) {
+            return dayBlocks.get(dayIndex);
+        }
+        
+        /** 跨天事件横条，getColumn() 为所在行 */
+        public List<EventLayoutEngine.Block> getSpanningBars() {
+            return spanningBars;
+        }
+        
+        public int getLaneCount() {
+            return laneCount;
+        }
+        
+        /** 返回时间点所在的天下标（0-6） */
+        public int getDayIndex(long time) {
+            return dayIndexOf(dayStarts, time);
+        }
+    }
+    
+
+    /**
+     * 议程列表分页加载（键集分页，位置为 (startTime, id)，不使用 OFFSET）
+     *
+     * @param forward true 加载该位置之后的一页，false 加载之前的一页
+     */
+    public void loadAgendaPage(long startTime, long id, boolean forward, int limit,
+                               AgendaPageCallback callback) {
+        new Thread(() -> callback.onPageLoaded(getAgendaPage(startTime, id, forward, limit))).start();
+    }
+    
+
+    /**
+     * 获取议程列表的一页，结果始终按 (start_time, id) 正序
+     */
+    public List<CalendarEvent> getAgendaPage(long startTime, long id, boolean forward, int limit) {
+        List<String> types = typeFilter;
+        List<CalendarEvent> events;
+        if (forward) {
+            events = types != null
+                    ? eventDao.getEventsAfterOfTypes(startTime, id, types, limit)
+                    : eventDao.getEventsAfter(startTime, id, limit);
+        } else {
+            events = types != null
+                    ? eventDao.getEventsBeforeOfTypes(startTime, id, types, limit)
+                    : eventDao.getEventsBefore(startTime, id, limit);
+            Collections.reverse(events);
+        }
+        return mergeAgendaOccurrences(events, startTime, id, forward, limit, types);
+    }
+    
+
+    /**
+     * 把重复日程的各次按 (开始时间, id) 并入议程的一页
+     * 满页时只展开这一页覆盖的时间段，否则最多向前或向后展开 AGENDA_RECURRENCE_HORIZON
+     */
+    private List<CalendarEvent> mergeAgendaOccurrences(List<CalendarEvent> events, long startTime, long id,
+                                                       boolean forward, int limit, List<String> types) {
+        long from;
+        long to;
+        if (forward) {
+            from = startTime;
+            to = events.size() >= limit
+                    ? events.get(events.size() - 1).getStartTime().getTime() + 1
+                    : startTime + AGENDA_RECURRENCE_HORIZON;
+        } else {
+            from = events.size() >= limit
+                    ? events.get(0).getStartTime().getTime()
+                    : startTime - AGENDA_RECURRENCE_HORIZON;
+            to = startTime + 1;
+        }
+        List<CalendarEvent> merged = new ArrayList<>(events);
+        boolean added = false;
+        for (CalendarEvent occurrence : getOccurrences(from, to, types)) {
+            long start = occurrence.getStartTime().getTime();
+            if (start < from) {
+                continue;
+            }
+            boolean inPage = forward
+                    ? start > startTime || (start == startTime && occurrence.getId() > id)
+                    : start < startTime || (start == startTime && occurrence.getId() < id);
+            if (inPage) {
+                merged.add(occurrence);
+                added = true;
+            }
+        }
+        if (!added) {
+            return events;
+        }
+        sortByStart(merged);
+        if (merged.size() > limit) {
+            merged = forward
+                    ? new ArrayList<>(merged.subList(0, limit))
+                    : new ArrayList<>(merged.subList(merged.size() - limit, merged.size()));
+        }
+        return merged;
+    }
+    
+
+    public interface AgendaPageCallback {
+        void onPageLoaded(List<CalendarEvent> events);
+    }
+    
+
+    public interface WeekLayoutCallback {
+        void onLayoutLoaded(WeekLayout layout);
+    }
+    
+    public interface TypeCountCallback {
+        void onCountsLoaded(java.util.Map<java.util.Date, int[]> counts);
+    }
+    
+
+    public interface DayEventsCallback {
+        void onEventsLoaded(List<CalendarEvent> events);
+    }
+    
+    // ---- 导入导出：由 IcsImportWorker / IcsExportWorker 在后台任务中调用 ----
+    
+    public TransferCheckpoint getTransferCheckpoint(String workId) {
+        return checkpointDao.getCheckpoint(workId);
+    }
+    
+    public void saveTransferCheckpoint(TransferCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        checkpointDao.save(checkpoint);
+    }
+    
+    public void deleteTransferCheckpoint(String workId) {
+        checkpointDao.delete(workId);
+    }
+    
+    /**
+     * 清理长时间没有更新的检查点（对应的任务已经不存在）
+     */
+    public void deleteStaleTransferCheckpoints(long maxAge) {
+        checkpointDao.deleteOlderThan(System.currentTimeMillis() - maxAge);
+    }
+    
+    /**
+     * 上次导出的检查点（当时最大的本地变更序号），从未导出过时为 -1
+     */
+    public long getExportCheckpoint() {
+        SharedPreferences prefs = context.getSharedPreferences(EXPORT_PREFS, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_EXPORT_CHECKPOINT, -1);
+    }
+    
+    /**
+     * 从检查点 sinceSeq 开始的增量导出是否会漏掉删除（对应的删除记录未导出就被清理了）
+     */
+    public boolean hasPrunedDeletionsAfter(long sinceSeq) {
+        SharedPreferences prefs = context.getSharedPreferences(EXPORT_PREFS, Context.MODE_PRIVATE);
+        return prefs.getLong(KEY_PRUNED_SEQ, -1) > sinceSeq;
+    }
+    
+    /**
+     * 导出成功后记录检查点，并清理已经导出的删除记录
+     * 全部导出和增量导出都会写出检查点之后的删除记录（STATUS:CANCELLED）
+     */
+    public void commitExport(long untilSeq) {
+        SharedPreferences prefs = context.getSharedPreferences(EXPORT_PREFS, Context.MODE_PRIVATE);
+        prefs.edit().putLong(KEY_EXPORT_CHECKPOINT, untilSeq).apply();
+        eventDao.deleteDeletedEventsUntil(untilSeq);
+    }
+    
+    /**
+     * 增量导出：变更序号在 (sinceSeq, untilSeq] 之间的事件，按主键分块读取
+     *
+     * @param afterId 上一块最后一个事件的 id
+     */
+    public List<CalendarEvent> getEventsChangedAfter(long sinceSeq, long untilSeq, long afterId) {
+        return eventDao.getEventsChangedAfter(sinceSeq, untilSeq, afterId, EXPORT_CHUNK_SIZE);
+    }
+    
+    public int countEventsChangedAfter(long sinceSeq, long untilSeq) {
+        return eventDao.countEventsChangedAfter(sinceSeq, untilSeq);
+    }
+    
+    /**
+     * 当前最大的事件 id，全部导出以它为范围：之后新增的事件 id 更大，留给下次导出
+     */
+    public long getMaxEventId() {
+        Long id = eventDao.getMaxId();
+        return id != null ? id : 0;
+    }
+    
+    /**
+     * 全部导出：id 不超过 untilId 的事件（包括导出期间修改过的），按主键分块读取
+     */
+    public List<CalendarEvent> getEventsUpToId(long afterId, long untilId) {
+        return eventDao.getEventsUpToId(afterId, untilId, EXPORT_CHUNK_SIZE);
+    }
+    
+    public int countEventsUpToId(long untilId) {
+        return eventDao.countEventsUpToId(untilId);
+    }
+    
+    public List<DeletedEvent> getDeletedEvents(long sinceSeq, long untilSeq) {
+        return eventDao.getDeletedEvents(sinceSeq, untilSeq);
+    }
+    
+    public ImportSession newImportSession() {
+        return new ImportSession();
+    }
+    
+    /**
+     * 在一个事务中导入一批事件并保存检查点，进程在批次之间被杀时已提交的批次不会重复写入
+     * 逐条只做数据库写入，整批提交后统一清理一次缓存和索引
+     *
+     * @param offsets 每个事件在文件中的字节位置，与 events 一一对应
+     * @param checkpoint position 为这批事件之后的位置
+     * @return 新增、更新和删除的数量
+     */
+    public int importBatch(ImportSession session, List<CalendarEvent> events, List<Long> offsets,
+                           TransferCheckpoint checkpoint) {
+        int count = database.runInTransaction(() -> {
+            int written = session.importBatch(events, offsets);
+            // 还有等待所属重复日程的实例时，恢复后从第一个这样的实例开始重新读取
+            checkpoint.setPosition(session.getResumeOffset(checkpoint.getPosition()));
+            checkpoint.setWrittenCount(checkpoint.getWrittenCount() + written);
+            saveTransferCheckpoint(checkpoint);
+            return written;
+        });
+        if (count > 0) {
+            pruneDeletedEvents();
+            onAllEventsChanged();
+        }
+        return count;
+    }
+    
+    /**
+     * 文件读完后处理仍在等待的实例
+     */
+    public int finishImport(ImportSession session, TransferCheckpoint checkpoint) {
+        int count = database.runInTransaction(() -> {
+            int written = session.finish();
+            checkpoint.setWrittenCount(checkpoint.getWrittenCount() + written);
+            saveTransferCheckpoint(checkpoint);
+            return written;
+        });
+        if (count > 0) {
+            onAllEventsChanged();
+        }
+        return count;
+    }
+    
+    /**
+     * 一次导入的状态（按 UID 新增或更新，支持自动去重）
+     * 只写数据库，缓存和索引由 importBatch/finishImport 在整批提交后统一处理。
+     * 已有同一 UID 的日程只在 SEQUENCE 或 LAST-MODIFIED 更新时原地更新，未变化的跳过；
+     * 没有 UID 的日程按标题和时间去重；STATUS:CANCELLED 的日程删除本地同一 UID 的日程。
+     * 单独修改的实例按 UID 关联到重复日程，重复日程还没有读到时先暂存，到后面的批次或导入结束时再处理。
+     */
+    public class ImportSession {
+        // 已有日程的 UID 和版本，键为 UID + 原本的开始时间（单独修改的实例）
+        private final java.util.Map<String, UidVersion> known = new java.util.HashMap<>();
+        // 没有 UID 的事件才需要按内容去重，用到时再加载
+        private List<CalendarEvent> existingEvents = null;
+        // 等待所属重复日程的实例及其在文件中的位置
+        private final List<CalendarEvent> deferred = new ArrayList<>();
+        private final List<Long> deferredOffsets = new ArrayList<>();
+        
+        private ImportSession() {
+            for (UidVersion version : eventDao.getUidVersions()) {
+                known.put(uidKey(version.uid, version.recurrenceId), version);
+            }
+        }
+        
+        /**
+         * 导入一批事件：先处理重复日程和普通日程，单独修改的实例排在最后
+         */
+        int importBatch(List<CalendarEvent> events, List<Long> offsets) {
+            List<CalendarEvent> overrides = new ArrayList<>(deferred);
+            List<Long> overrideOffsets = new ArrayList<>(deferredOffsets);
+            deferred.clear();
+            deferredOffsets.clear();
+            
+            int writeCount = 0;
+            for (int i = 0; i < events.size(); i++) {
+                CalendarEvent event = events.get(i);
+                if (event.getRecurrenceId() != null && !event.isRecurring() && event.getUid() != null) {
+                    overrides.add(event);
+                    overrideOffsets.add(offsets.get(i));
+                } else {
+                    event.setRecurrenceId(null);
+                    writeCount += importEvent(event);
+                }
+            }
+            for (int i = 0; i < overrides.size(); i++) {
+                CalendarEvent event = overrides.get(i);
+                if (!known.containsKey(uidKey(event.getUid(), null))) {
+                    deferred.add(event);
+                    deferredOffsets.add(overrideOffsets.get(i));
+                    continue;
+                }
+                writeCount += importEvent(event);
+            }
+            return writeCount;
+        }
+        
+        /**
+         * 导入结束：所属的重复日程不存在的实例作为普通日程导入
+         */
+        int finish() {
+            int writeCount = 0;
+            for (CalendarEvent event : deferred) {
+                writeCount += importEvent(event);
+            }
+            deferred.clear();
+            deferredOffsets.clear();
+            return writeCount;
+        }
+        
+        /**
+         * 恢复读取的位置：没有暂存的实例时为这批之后，否则为最靠前的暂存实例
+         */
+        long getResumeOffset(long batchEndOffset) {
+            long offset = batchEndOffset;
+            for (long deferredOffset : deferredOffsets) {
+                offset = Math.min(offset, deferredOffset);
+            }
+            return offset;
+        }
+        
+        /**
+         * 导入一个事件，写入了数据库时返回 1
+         */
+        private int importEvent(CalendarEvent event) {
+            try {
+                if (event.isCancelled()) {
+                    // 在其他地方删除的日程：本地版本不比它新时删除
+                    String key = event.getUid() != null ? uidKey(event.getUid(), event.getRecurrenceId()) : null;
+                    UidVersion current = key != null ? known.get(key) : null;
+                    if (key != null && event.getRecurrenceId() != null) {
+                        return cancelOccurrence(event, key, current);
+                    }
+                    if (current == null || event.getSequence() < current.sequence) {
+                        return 0;
+                    }
+                    removeEvent(current.id);
+                    known.remove(key);
+                    if (event.getRecurrenceId() == null) {
+                        // 单独修改的实例已随重复日程删除
+                        String prefix = event.getUid() + "#";
+                        known.keySet().removeIf(k -> k.startsWith(prefix));
+                    }
+                    return 1;
+                }
+                
+                if (event.getRecurrenceId() != null) {
+                    UidVersion parent = known.get(uidKey(event.getUid(), null));
+                    if (parent != null) {
+                        event.setParentId(parent.id);
+                    } else {
+                        // 所属的重复日程不存在，作为普通日程导入
+                        event.setRecurrenceId(null);
+                    }
+                }
+                
+                if (event.getUid() == null) {
+                    if (existingEvents == null) {
+                        existingEvents = getAllEvents();
+                    }
+                    // 检查是否为重复事件
+                    if (isDuplicateEvent(event, existingEvents)) {
+                        return 0;
+                    }
+                    insertEvent(event);
+                    existingEvents.add(event); // 添加到已有列表，用于后续重复事件检测
+                    return 1;
+                }
+                
+                String key = uidKey(event.getUid(), event.getRecurrenceId());
+                UidVersion current = known.get(key);
+                if (current == null) {
+                    insertEvent(event);
+                    current = new UidVersion();
+                    current.id = event.getId();
+                    current.uid = event.getUid();
+                    current.recurrenceId = event.getRecurrenceId();
+                    known.put(key, current);
+                } else if (event.isNewerThan(current.sequence, current.lastModified)) {
+                    event.setId(current.id);
+                    replaceEvent(event);
+                } else {
+                    // 版本未变化
+                    return 0;
+                }
+                current.sequence = event.getSequence();
+                current.lastModified = event.getLastModified();
+                return 1;
+            } catch (Exception e) {
+                e.printStackTrace();
+                // 继续导入其他事件
+                return 0;
+            }
+        }
+        
+        /**
+         * 重复日程的某一次被取消：删除本地单独修改的实例（如有），并把这一次记为重复日程的 EXDATE
+         * 没有单独修改过的实例时同样需要 EXDATE，否则这一次仍会按规则显示
+         */
+        private int cancelOccurrence(CalendarEvent event, String key, UidVersion current) {
+            int writeCount = 0;
+            if (current != null && event.getSequence() >= current.sequence) {
+                removeEvent(current.id);
+                known.remove(key);
+                writeCount = 1;
+            }
+            UidVersion parent = known.get(uidKey(event.getUid(), null));
+            if (parent == null) {
+                return writeCount;
+            }
+            CalendarEvent master = eventDao.getEventById(parent.id);
+            long start = event.getRecurrenceId();
+            if (master == null || !master.isRecurring() || master.getExcludedStarts().contains(start)) {
+                return writeCount;
+            }
+            master.addExcludedStart(start);
+            replaceEvent(master);
+            return 1;
+        }
+    }
+    
+    // ---- 完整备份与恢复：由 BackupWorker 在后台任务中调用 ----
+    
+    /**
+     * 全部事件的游标（按主键顺序），调用方负责关闭
+     */
+    public Cursor openEventsCursor() {
+        return eventDao.getAllEventsCursor();
+    }
+    
+    public int getSchemaVersion() {
+        return database.getOpenHelper().getReadableDatabase().getVersion();
+    }
+    
+    /**
+     * 日程表当前的列名，恢复时只写入这些列
+     */
+    public Set<String> getEventColumns() {
+        try (Cursor cursor = database.query("SELECT * FROM calendar_events LIMIT 0", null)) {
+            return new java.util.HashSet<>(java.util.Arrays.asList(cursor.getColumnNames()));
+        }
+    }
+    
+    /**
+     * 开始恢复：取消现有日程的提醒，清空日程和删除记录
+     */
+    public void beginRestore(ReminderScheduler reminderScheduler) {
+        for (int requestCode : eventDao.getAlarmRequestCodes()) {
+            reminderScheduler.cancelReminder(requestCode);
+        }
+        database.runInTransaction(() -> {
+            eventDao.deleteAll();
+            eventDao.deleteAllDeleted();
+        });
+    }
+    
+    /**
+     * 在一个事务中写入一批备份中的事件（保留原来的 id，单独修改的实例与重复日程的关联不变）
+     */
+    public void restoreBatch(List<ContentValues> rows) {
+        database.runInTransaction(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            for (ContentValues row : rows) {
+                db.insert("calendar_events", SQLiteDatabase.CONFLICT_REPLACE, row);
+            }
+        });
+    }
+    
+    /**
+     * 从二进制快照中读取至多 maxRecords 个事件，在一个事务中用预编译的语句写入
+     * 每条记录直接从快照的缓冲区解码后绑定参数，不经过 ContentValues 和实体对象
+     *
+     * @return 写入的事件数，0 表示已读完
+     */
+    public int restoreSnapshotBatch(SnapshotCodec.Reader reader, int maxRecords) {
+        return database.runInTransaction(() -> {
+            StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO calendar_events (")
+                    .append(String.join(", ", SnapshotCodec.COLUMNS))
+                    .append(") VALUES (?");
+            for (int i = 1; i < SnapshotCodec.COLUMNS.length; i++) {
+                sql.append(", ?");
+            }
+            sql.append(")");
+            
+            SnapshotCodec.Record record = new SnapshotCodec.Record();
+            int count = 0;
+            try (SupportSQLiteStatement statement = database.compileStatement(sql.toString())) {
+                while (count < maxRecords && reader.next(record)) {
+                    bindSnapshotRecord(statement, record);
+                    statement.executeInsert();
+                    statement.clearBindings();
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+    
+    // 参数顺序与 SnapshotCodec.COLUMNS 相同
+    private static void bindSnapshotRecord(SupportSQLiteStatement statement, SnapshotCodec.Record record) {
+        statement.bindLong(1, record.id);
+        bindString(statement, 2, record.title);
+        bindString(statement, 3, record.description);
+        if (record.hasStartTime) {
+            statement.bindLong(4, record.startTime);
+        }
+        if (record.hasEndTime) {
+            statement.bindLong(5, record.endTime);
+        }
+        bindString(statement, 6, record.location);
+        statement.bindLong(7, record.color);
+        bindString(statement, 8, record.type);
+        statement.bindLong(9, record.reminderEnabled ? 1 : 0);
+        statement.bindLong(10, record.reminderMinutesBefore);
+        statement.bindLong(11, record.soundEnabled ? 1 : 0);
+        statement.bindLong(12, record.alarmRequestCode);
+        bindString(statement, 13, record.rrule);
+        bindString(statement, 14, record.exdates);
+        if (record.hasRecurrenceEnd) {
+            statement.bindLong(15, record.recurrenceEnd);
+        }
+        statement.bindLong(16, record.parentId);
+        if (record.hasRecurrenceId) {
+            statement.bindLong(17, record.recurrenceId);
+        }
+        bindString(statement, 18, record.uid);
+        statement.bindLong(19, record.sequence);
+        if (record.hasLastModified) {
+            statement.bindLong(20, record.lastModified);
+        }
+        statement.bindLong(21, record.changeSeq);
+    }
+    
+    // clearBindings 之后未绑定的参数为 NULL
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        }
+    }
+    
+    /**
+     * 恢复结束：清空缓存和索引，重新安排提醒
+     * 变更序号来自备份，与本机的导出检查点无关，下次增量导出按全部导出处理
+     */
+    public void finishRestore(ReminderScheduler reminderScheduler) {
+        SharedPreferences prefs = context.getSharedPreferences(EXPORT_PREFS, Context.MODE_PRIVATE);
+        prefs.edit().remove(KEY_EXPORT_CHECKPOINT).remove(KEY_PRUNED_SEQ).apply();
+        synchronized (EventManager.class) {
+            lastChangeSeq = -1;
+            maxEventSpan = -1;
+        }
+        onAllEventsChanged();
+        
+        // 按主键分块读取，内存中最多一块事件
+        long afterId = 0;
+        while (true) {
+            List<CalendarEvent> chunk = eventDao.getReminderEventsAfter(afterId, REMINDER_CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            for (CalendarEvent event : chunk) {
+                if (event.isRecurring()) {
+                    reminderScheduler.scheduleReminder(event, getExcludedStarts(event));
+                } else if (event.getStartTime().getTime() - event.getReminderMinutesBefore() * 60 * 1000L
+                        > System.currentTimeMillis()) {
+                    reminderScheduler.scheduleReminder(event);
+                }
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+    
+    /**
+     * 数据被整体替换后清空所有缓存和索引
+     */
+    private void onAllEventsChanged() {
+        synchronized (EventManager.class) {
+            dataVersion++;
+            busyDayRange = null;
+        }
+        dayLayoutCache.evictAll();
+        weekLayoutCache.evictAll();
+        synchronized (occurrenceCache) {
+            occurrenceVersion++;
+            occurrenceCache.evictAll();
+        }
+        synchronized (busyDayCache) {
+            busyVersion++;
+            busyDayCache.evictAll();
+        }
+        busyDayIndex.clear();
+        synchronized (suggestionLock) {
+            suggestionVersion++;
+            titleTrie = null;
+            locationTrie = null;
+        }
+        refreshStartupSnapshot();
+    }
+    
+    // ---- 冷启动首屏快照 ----
+    
+    /**
+     * 同步读取首屏快照（几 KB），没有或已损坏时返回 null
+     */
+    public StartupSnapshot readStartupSnapshot() {
+        return StartupSnapshot.read(new File(context.getFilesDir(), STARTUP_SNAPSHOT_FILE));
+    }
+    
+    /**
+     * 在后台按当前数据重写首屏快照：本月每天各类型的数量和今天的日程（不受类型筛选影响）
+     */
+    public void refreshStartupSnapshot() {
+        synchronized (startupSnapshotLock) {
+            if (startupSnapshotDirty) {
+                // 队列中已有一次尚未开始的重写，它会读到这次的修改
+                return;
+            }
+            startupSnapshotDirty = true;
+        }
+        // 单线程执行：最多一个在写、一个在排队
+        startupSnapshotExecutor.execute(() -> {
+            synchronized (startupSnapshotLock) {
+                startupSnapshotDirty = false;
+            }
+            writeStartupSnapshot();
+        });
+    }
+    
+    private void writeStartupSnapshot() {
+        Calendar today = Calendar.getInstance();
+        List<CalendarDay> days = CalendarUtils.getMonthDays(today.get(Calendar.YEAR), today.get(Calendar.MONTH));
+        java.util.Map<Long, int[]> dayCounts = new java.util.HashMap<>();
+        try {
+            // getDayTypeCounts 本身不受筛选影响；今天的日程不筛选，由显示时按当前筛选过滤
+            for (java.util.Map.Entry<java.util.Date, int[]> entry : getDayTypeCounts(days).entrySet()) {
+                dayCounts.put(getStartOfDay(entry.getKey()), entry.getValue());
+            }
+            List<CalendarEvent> todayEvents = getEventsForDate(today.getTime(), null);
+            new StartupSnapshot(today.get(Calendar.YEAR), today.get(Calendar.MONTH),
+                    getStartOfDay(today.getTime()), dayCounts, todayEvents)
+                    .write(new File(context.getFilesDir(), STARTUP_SNAPSHOT_FILE));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private static String uidKey(String uid, Long recurrenceId) {
+        return recurrenceId != null ? uid + "#" + recurrenceId : uid;
+    }
+    
+    /**
+     * 检查是否为重复事件
+     * 判断标准：标题相同、开始时间相同、结束时间相同的事件视为重复
+     * 
+     * @param newEvent 新事件
+     * @param existingEvents 已有的事件列表
+     * @return true 表示为重复事件，false 表示为新事件
+     */
+    private boolean isDuplicateEvent(CalendarEvent newEvent, List<CalendarEvent> existingEvents) {
+        for (CalendarEvent existingEvent : existingEvents) {
+            if (isSameEvent(newEvent, existingEvent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 比较两个事件是否相同
+     * 
+     * @param event1 事件1
+     * @param event2 事件2
+     * @return true 表示两个事件相同
+     */
+    private boolean isSameEvent(CalendarEvent event1, CalendarEvent event2) {
+        // 检查标题
+        if (!nullSafeEquals(event1.getTitle(), event2.getTitle())) {
+            return false;
+        }
+        
+        // 检查开始时间
+        if (!nullSafeEquals(event1.getStartTime(), event2.getStartTime())) {
+            return false;
+        }
+        
+        // 检查结束时间
+        if (!nullSafeEquals(event1.getEndTime(), event2.getEndTime())) {
+            return false;
+        }
+        
+        // 所有关键字段都相同，则判定为相同事件
+        return true;
+    }
+    
+    /**
+     * null 安全的相等性判断
+     */
+    private boolean nullSafeEquals(Object obj1, Object obj2) {
+        if (obj1 == null && obj2 == null) {
+            return true;
+        }
+        if (obj1 == null || obj2 == null) {
+            return false;
+        }
+        return obj1.equals(obj2);
     }
 }
@@ -0,0 +1,190 @@
+package com.example.myapplication.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.myapplication.data.database.EventQuery;
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 边输入边搜索的控制器（在主线程使用）
+ * 输入停止一段时间后才查询，新的查询会取消还在进行的旧查询，过期结果直接丢弃；
+ * 若上一次结果已完整加载且新文本包含旧文本，直接在内存中筛选，不再查询数据库。
+ * 结果先返回第一页，总数随后单独统计。
+ */
+public class EventSearchController {
+
+    public static final long DEBOUNCE_DELAY = 200;
+    // 内存中最多保留的结果数，达到后不再加载更多
+    private static final int MAX_CACHED_RESULTS = 2000;
+
+    public interface Listener {
+        /**
+         * 结果更新（第一页、后续页或内存筛选的结果）
+         */
+        void onResults(String text, List<CalendarEvent> results, boolean hasMore);
+
+        /**
+         * 匹配总数已知
+         */
+        void onCount(String text, int count);
+    }
+
+    private final EventManager eventManager;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+
+    private String pendingText = "";
+    // 当前结果对应的查询条件
+    private EventQuery currentQuery;
+    private List<CalendarEvent> results = new ArrayList<>();
+    // results 是否已包含全部匹配结果
+    private boolean complete = false;
+    private EventQuery nextPageQuery;
+    private boolean loadingMore = false;
+
+    private EventManager.QueryTask pageTask;
+    private EventManager.QueryTask countTask;
+    // 每次发起新搜索递增，用于丢弃过期的回调
+    private int generation = 0;
+
+    public EventSearchController(EventManager eventManager, Listener listener) {
+        this.eventManager = eventManager;
+        this.listener = listener;
+    }
+
+    /**
+     * 输入内容变化，等待 DEBOUNCE_DELAY 后再搜索
+     */
+    public void setText(String text) {
+        pendingText = text != null ? text : "";
+        handler.removeCallbacks(searchRunnable);
+        if (pendingText.trim().isEmpty()) {
+            // 清空输入时立即清空结果
+            runSearch();
+        } else {
+            handler.postDelayed(searchRunnable, DEBOUNCE_DELAY);
+        }
+    }
+
+    /**
+     * 数据已变化：丢弃缓存的结果，按当前输入重新搜索
+     */
+    public void refresh() {
+        handler.removeCallbacks(searchRunnable);
+        currentQuery = null;
+        complete = false;
+        runSearch();
+    }
+
+    /**
+     * 加载下一页（列表滚动到底部附近时调用）
+     */
+    public void loadMore() {
+        if (nextPageQuery == null || loadingMore || results.size() >= MAX_CACHED_RESULTS) {
+            return;
+        }
+        loadingMore = true;
+        int requestGeneration = generation;
+        String text = pendingText;
+        pageTask = eventManager.loadEventPage(nextPageQuery, (query, page) -> handler.post(() -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loadingMore = false;
+            onPageLoaded(text, query, page);
+        }));
+    }
+
+    /**
+     * 页面销毁时调用，取消等待中和进行中的查询
+     */
+    public void release() {
+        handler.removeCallbacks(searchRunnable);
+        cancelTasks();
+        generation++;
+    }
+
+    private void runSearch() {
+        String text = pendingText;
+        EventQuery query = new EventQuery().text(text);
+        if (currentQuery != null && currentQuery.getText() != null
+                && currentQuery.getText().equals(query.getText())) {
+            return;
+        }
+
+        cancelTasks();
+        generation++;
+        loadingMore = false;
+        nextPageQuery = null;
+
+        if (query.getText() == null) {
+            currentQuery = null;
+            results = new ArrayList<>();
+            complete = false;
+            listener.onResults(text, Collections.emptyList(), false);
+            listener.onCount(text, 0);
+            return;
+        }
+
+        // 旧结果完整且新条件更严格：在内存中筛选
+        if (complete && currentQuery != null && query.narrows(currentQuery)) {
+            List<CalendarEvent> refined = new ArrayList<>();
+            for (CalendarEvent event : results) {
+                if (query.matches(event)) {
+                    refined.add(event);
+                }
+            }
+            currentQuery = query;
+            results = refined;
+            listener.onResults(text, new ArrayList<>(results), false);
+            listener.onCount(text, results.size());
+            return;
+        }
+
+        currentQuery = query;
+        results = new ArrayList<>();
+        complete = false;
+        int requestGeneration = generation;
+        pageTask = eventManager.loadEventPage(query, (loadedQuery, page) -> handler.post(() -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            onPageLoaded(text, loadedQuery, page);
+            // 第一页已显示，再统计总数；第一页就是全部时不需要再查
+            if (complete) {
+                listener.onCount(text, results.size());
+            } else {
+                countTask = eventManager.loadEventCount(query, (countQuery, count) -> handler.post(() -> {
+                    if (requestGeneration == generation) {
+                        listener.onCount(text, count);
+                    }
+                }));
+            }
+        }));
+    }
+
+    private void onPageLoaded(String text, EventQuery query, List<CalendarEvent> page) {
+        results.addAll(page);
+        complete = !query.hasMore(page);
+        nextPageQuery = complete ? null : query.nextPage(page);
+        boolean hasMore = !complete && results.size() < MAX_CACHED_RESULTS;
+        listener.onResults(text, new ArrayList<>(results), hasMore);
+    }
+
+    private void cancelTasks() {
+        if (pageTask != null) {
+            pageTask.cancel();
+            pageTask = null;
+        }
+        if (countTask != null) {
+            countTask.cancel();
+            countTask = null;
+        }
+    }
+}
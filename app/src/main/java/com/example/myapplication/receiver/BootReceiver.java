@@ -32,6 +32,11 @@ public class BootReceiver extends BroadcastReceiver {
                 List<CalendarEvent> allEvents = eventManager.getAllEvents();
                 for (CalendarEvent event : allEvents) {
                     if (event.isReminderEnabled()) {
+                        if (event.isRecurring()) {
+                            // 重复日程安排下一次发生的提醒
+                            reminderScheduler.scheduleReminder(event, eventManager.getExcludedStarts(event));
+                            continue;
+                        }
                         // 只安排未来的提醒
                         long reminderTime = event.getStartTime().getTime() - 
                                            (event.getReminderMinutesBefore() * 60 * 1000L);
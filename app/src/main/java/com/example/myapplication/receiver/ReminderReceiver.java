@@ -13,8 +13,10 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.myapplication.R;
 import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
 import com.example.myapplication.ui.activity.AlarmActivity;
 import com.example.myapplication.ui.activity.EventEditActivity;
+import com.example.myapplication.util.ReminderScheduler;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -36,7 +38,12 @@ public class ReminderReceiver extends BroadcastReceiver {
         String location = intent.getStringExtra("event_location");
         long startTime = intent.getLongExtra("event_start_time", 0);
         boolean soundEnabled = intent.getBooleanExtra("sound_enabled", false);
+        boolean recurring = intent.getBooleanExtra("recurring", false);
         
+        // 重复日程：安排下一次的提醒
+        if (recurring) {
+            scheduleNextOccurrence(context, eventId);
+        }
 
         // 创建通知渠道
         createNotificationChannel(context);
@@ -63,6 +70,23 @@ public class ReminderReceiver extends BroadcastReceiver {
         }
     }
     
+    private void scheduleNextOccurrence(Context context, long eventId) {
+        PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            try {
+                EventManager eventManager = new EventManager(context);
+                CalendarEvent event = eventManager.getEvent(eventId);
+                if (event != null && event.isRecurring()) {
+                    new ReminderScheduler(context).scheduleReminder(event, eventManager.getExcludedStarts(event));
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                pendingResult.finish();
+            }
+        }).start();
+    }
+    
     private void createNotificationChannel(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -8,6 +8,7 @@ import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.GridLayout;
 import android.widget.ImageButton;
 import android.widget.TextView;
@@ -18,36 +19,66 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.PopupMenu;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager2.widget.ViewPager2;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import com.example.myapplication.R;
+import com.example.myapplication.ui.adapter.AgendaAdapter;
 import com.example.myapplication.ui.adapter.CalendarAdapter;
 import com.example.myapplication.ui.adapter.DayScheduleAdapter;
+import com.example.myapplication.ui.adapter.MonthPagerAdapter;
+import com.example.myapplication.ui.adapter.WeekPagerAdapter;
+import com.example.myapplication.ui.view.DayTimelineView;
+import com.example.myapplication.ui.viewmodel.CalendarViewModel;
+import com.example.myapplication.ui.viewmodel.CalendarViewModel.ViewMode;
 import com.example.myapplication.data.model.CalendarDay;
 import com.example.myapplication.data.model.CalendarEvent;
 import com.example.myapplication.manager.EventManager;
 import com.example.myapplication.util.CalendarUtils;
+import com.example.myapplication.util.StartupSnapshot;
+import com.example.myapplication.worker.BackupWorker;
+import com.example.myapplication.worker.IcsExportWorker;
+import com.example.myapplication.worker.IcsImportWorker;
 import com.google.android.material.button.MaterialButtonToggleGroup;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 
 public class CalendarActivity extends AppCompatActivity {
 
     private RecyclerView calendarRecyclerView;
     private CalendarAdapter calendarAdapter;
+    private ViewPager2 monthPager;
+    private MonthPagerAdapter monthPagerAdapter;
+    private ViewPager2 weekPager;
+    private WeekPagerAdapter weekPagerAdapter;
+    private RecyclerView agendaRecyclerView;
+    private AgendaAdapter agendaAdapter;
+    private LinearLayoutManager agendaLayoutManager;
+    // 分页共享的 ViewHolder 缓存池
+    private RecyclerView.RecycledViewPool sharedPagePool;
     private TextView tvMonthYear;
     private ImageButton btnPrevMonth, btnNextMonth, btnMoreOptions;
     private MaterialButtonToggleGroup toggleViewMode;
     private GridLayout weekdayHeader;
+    private View typeFilterScroll;
+    private ChipGroup chipGroupTypeFilter;
     
     // 日视图相关
     private View dayScheduleLayout;
@@ -57,36 +88,101 @@ public class CalendarActivity extends AppCompatActivity {
     private View emptyView;
     private FloatingActionButton fabAddEvent;
     private DayScheduleAdapter dayScheduleAdapter;
+    private View timelineScroll;
+    private DayTimelineView dayTimeline;
+    private com.google.android.material.button.MaterialButton btnToggleTimeline;
+    private com.google.android.material.button.MaterialButton btnFindFreeSlot;
     
     // 日程管理
     private EventManager eventManager;
     
     private static final int REQUEST_ADD_EVENT = 1001;
     private static final int REQUEST_EDIT_EVENT = 1002;
+    private static final int REQUEST_SEARCH = 1003;
     
     // 文件选择器
     private ActivityResultLauncher<String> exportFileLauncher;
+    private ActivityResultLauncher<String> exportGzipFileLauncher;
+    // 当前导出是否只导出变更
+    private boolean exportChangesOnly = false;
+    private boolean exportCompressed = false;
     private ActivityResultLauncher<String[]> importFileLauncher;
+    private ActivityResultLauncher<String> backupFileLauncher;
+    private ActivityResultLauncher<String> snapshotFileLauncher;
+    private ActivityResultLauncher<String[]> restoreFileLauncher;
     
-    private Calendar currentCalendar;
+    // 导入导出任务的进度对话框；只提示在对话框中跟踪过的任务的结果
+    private AlertDialog transferDialog;
+    private TextView tvTransferStatus;
+    private android.widget.ProgressBar transferProgress;
+    private UUID transferWorkId;
+    // 是否有导入任务在排队或进行（导入任务唯一，新的导入不会开始）
+    private boolean importRunning = false;
+    
+    // 视图模式、当前月份、选中的日期和已加载的数据，界面重建后保留
+    private CalendarViewModel viewModel;
     private List<CalendarDay> calendarDays;
-    private CalendarDay selectedDay;
-    private ViewMode currentViewMode = ViewMode.MONTH;
     private boolean isUpdating = false;
+    // 重建后恢复视图模式期间为 true，已加载的数据直接沿用
+    private boolean restoringViewMode = false;
+    
+    // 首屏快照中今天的日程，数据库的结果到达前在日视图中先显示
+    private List<CalendarEvent> startupTodayEvents;
+    // 冷启动到内容显示的耗时每个进程只记录一次
+    private static boolean startupReported = false;
     
-    private enum ViewMode {
-        YEAR, MONTH, DAY
-    }
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_calendar);
+        viewModel = new ViewModelProvider(this).get(CalendarViewModel.class);
 
         initFileLaunchers();
         initViews();
         initCalendar();
+        setupTypeFilterChips();
         setupListeners();
+        observeDayEvents();
+        restoreViewMode();
+        observeTransfers();
+    }
+    
+    /**
+     * 日视图列表显示 ViewModel 中当天的日程；界面重建后观察者立即收到已加载的结果
+     */
+    private void observeDayEvents() {
+        viewModel.getDayEvents().observe(this, events -> {
+            if (events == null || viewModel.isShowTimeline()) return;
+            startupTodayEvents = null;
+            dayScheduleAdapter.updateEvents(events);
+            showDayEventCount(events.size());
+        });
+    }
+    
+    /**
+     * 界面重建后恢复之前的视图模式（初始化时默认是月视图）
+     */
+    private void restoreViewMode() {
+        int buttonId;
+        switch (viewModel.getViewMode()) {
+            case YEAR:
+                buttonId = R.id.btn_year_view;
+                break;
+            case WEEK:
+                buttonId = R.id.btn_week_view;
+                break;
+            case DAY:
+                buttonId = R.id.btn_day_view;
+                break;
+            case AGENDA:
+                buttonId = R.id.btn_agenda_view;
+                break;
+            default:
+                return;
+        }
+        restoringViewMode = true;
+        toggleViewMode.check(buttonId);
+        restoringViewMode = false;
     }
     
     /**
@@ -103,6 +199,16 @@ public class CalendarActivity extends AppCompatActivity {
             }
         );
         
+        // 压缩导出的文件选择器
+        exportGzipFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/gzip"),
+            uri -> {
+                if (uri != null) {
+                    performExport(uri);
+                }
+            }
+        );
+        
         // 导入文件选择器
         importFileLauncher = registerForActivityResult(
             new ActivityResultContracts.OpenDocument(),
@@ -112,16 +218,51 @@ public class CalendarActivity extends AppCompatActivity {
                 }
             }
         );
+        
+        // 完整备份和恢复的文件选择器
+        backupFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/json"),
+            uri -> {
+                if (uri != null) {
+                    takePersistablePermission(uri,
+                        Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+                    BackupWorker.enqueue(this, uri, false, false);
+                }
+            }
+        );
+        snapshotFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/octet-stream"),
+            uri -> {
+                if (uri != null) {
+                    takePersistablePermission(uri,
+                        Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+                    BackupWorker.enqueue(this, uri, false, true);
+                }
+            }
+        );
+        restoreFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) {
+                    performRestore(uri);
+                }
+            }
+        );
     }
 
     private void initViews() {
         calendarRecyclerView = findViewById(R.id.calendar_recycler_view);
+        monthPager = findViewById(R.id.month_pager);
+        weekPager = findViewById(R.id.week_pager);
+        agendaRecyclerView = findViewById(R.id.agenda_recycler_view);
         tvMonthYear = findViewById(R.id.tv_month_year);
         btnPrevMonth = findViewById(R.id.btn_prev_month);
         btnNextMonth = findViewById(R.id.btn_next_month);
         btnMoreOptions = findViewById(R.id.btn_more_options);
         toggleViewMode = findViewById(R.id.toggle_view_mode);
         weekdayHeader = findViewById(R.id.weekday_header);
+        typeFilterScroll = findViewById(R.id.type_filter_scroll);
+        chipGroupTypeFilter = findViewById(R.id.chip_group_type_filter);
         
         // 日视图相关
         dayScheduleLayout = findViewById(R.id.day_schedule_layout);
@@ -130,29 +271,32 @@ public class CalendarActivity extends AppCompatActivity {
         rvDaySchedule = findViewById(R.id.rv_day_schedule);
         emptyView = findViewById(R.id.empty_view);
         fabAddEvent = findViewById(R.id.fab_add_event);
+        timelineScroll = findViewById(R.id.timeline_scroll);
+        dayTimeline = findViewById(R.id.day_timeline);
+        btnToggleTimeline = findViewById(R.id.btn_toggle_timeline);
+        btnFindFreeSlot = findViewById(R.id.btn_find_free_slot);
         
         // 初始化日程管理器
         eventManager = new EventManager(this);
         
         // 设置日视图RecyclerView
         rvDaySchedule.setLayoutManager(new LinearLayoutManager(this));
-        dayScheduleAdapter = new DayScheduleAdapter(new ArrayList<>(), event -> {
-            // 编辑日程
-            Intent intent = new Intent(this, EventEditActivity.class);
-            intent.putExtra("event_id", event.getId());
-            startActivityForResult(intent, REQUEST_EDIT_EVENT);
-        });
+        // 编辑日程
+        dayScheduleAdapter = new DayScheduleAdapter(new ArrayList<>(), this::openEvent);
         rvDaySchedule.setAdapter(dayScheduleAdapter);
         
+        // 时间轴视图点击同样进入编辑
+        dayTimeline.setOnEventClickListener(this::openEvent);
+        
         // 默认隐藏日视图
         dayScheduleLayout.setVisibility(View.GONE);
     }
 
     private void initCalendar() {
-        currentCalendar = Calendar.getInstance();
+        Calendar currentCalendar = viewModel.getCurrentCalendar();
         
-        // 设置日历RecyclerView
-        GridLayoutManager layoutManager = new GridLayoutManager(this, 7);
+        // 设置日历RecyclerView（年视图使用）
+        GridLayoutManager layoutManager = new GridLayoutManager(this, 3);
         calendarRecyclerView.setLayoutManager(layoutManager);
         
         calendarAdapter = new CalendarAdapter(new ArrayList<>(), day -> {
@@ -160,12 +304,118 @@ public class CalendarActivity extends AppCompatActivity {
         });
         calendarRecyclerView.setAdapter(calendarAdapter);
         
+        // 月视图：ViewPager2 分页，每页由 MonthGridView 直接绘制
+        monthPagerAdapter = new MonthPagerAdapter(eventManager,
+                currentCalendar.get(Calendar.YEAR), currentCalendar.get(Calendar.MONTH), viewModel.getMonthCache(), day -> {
+            onDaySelected(day);
+        });
+        monthPagerAdapter.setOnMonthLoadedListener((year, month, days) -> {
+            if (year == viewModel.getCurrentCalendar().get(Calendar.YEAR)
+                    && month == viewModel.getCurrentCalendar().get(Calendar.MONTH)) {
+                if (viewModel.getViewMode() == ViewMode.MONTH) {
+                    calendarDays = days;
+                }
+                updateTypeFilterBar();
+                reportContentShown();
+            }
+        });
+        // 首屏先用快照中的本月数量，数据库的结果到达后替换
+        applyStartupSnapshot();
+        monthPager.setAdapter(monthPagerAdapter);
+        // 预先绑定左右相邻的一页
+        monthPager.setOffscreenPageLimit(1);
+        setupSharedPagePool(monthPager);
+        monthPager.setCurrentItem(MonthPagerAdapter.START_POSITION, false);
+        monthPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageSelected(int position) {
+                onMonthPageSelected(position);
+            }
+        });
+        
+        // 周视图：同样使用 ViewPager2，与月视图共享页面缓存池
+        weekPagerAdapter = new WeekPagerAdapter(eventManager,
+                CalendarUtils.getStartOfWeek(viewModel.getCurrentCalendar().getTime()), day -> {
+            onDaySelected(day);
+        }, this::openEvent);
+        weekPager.setAdapter(weekPagerAdapter);
+        weekPager.setOffscreenPageLimit(1);
+        setupSharedPagePool(weekPager);
+        weekPager.setCurrentItem(WeekPagerAdapter.START_POSITION, false);
+        weekPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageSelected(int position) {
+                onWeekPageSelected(position);
+            }
+        });
+        
+        // 议程列表：滚动接近窗口两端时按键集加载相邻页
+        agendaAdapter = new AgendaAdapter(eventManager, viewModel.getAgendaState(), this::openEvent);
+        agendaLayoutManager = new LinearLayoutManager(this);
+        agendaRecyclerView.setLayoutManager(agendaLayoutManager);
+        agendaRecyclerView.setAdapter(agendaAdapter);
+        agendaRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int threshold = AgendaAdapter.PAGE_SIZE / 5;
+                if (dy > 0 && agendaLayoutManager.findLastVisibleItemPosition()
+                        >= agendaAdapter.getItemCount() - threshold) {
+                    agendaAdapter.loadNext();
+                } else if (dy < 0 && agendaLayoutManager.findFirstVisibleItemPosition() <= threshold) {
+                    agendaAdapter.loadPrevious();
+                }
+            }
+        });
+        
         // 默认选择月视图
         toggleViewMode.check(R.id.btn_month_view);
+        calendarRecyclerView.setVisibility(View.GONE);
+        monthPager.setVisibility(View.VISIBLE);
         
         updateCalendar();
     }
 
+    /**
+     * 同步读取首屏快照，预填本月的事件数量和今天的日程；快照不是今天写的或不存在时在后台重写
+     */
+    private void applyStartupSnapshot() {
+        StartupSnapshot snapshot = eventManager.readStartupSnapshot();
+        long todayStart = CalendarUtils.getStartOfDay(new Date());
+        if (snapshot == null || snapshot.getTodayStart() != todayStart) {
+            eventManager.refreshStartupSnapshot();
+        }
+        if (snapshot == null) {
+            return;
+        }
+        if (snapshot.getYear() == viewModel.getCurrentCalendar().get(Calendar.YEAR)
+                && snapshot.getMonth() == viewModel.getCurrentCalendar().get(Calendar.MONTH)) {
+            monthPagerAdapter.seedMonth(snapshot.getYear(), snapshot.getMonth(), snapshot.getDayCounts());
+            reportContentShown();
+        }
+        if (snapshot.getTodayStart() == todayStart) {
+            startupTodayEvents = snapshot.getTodayEvents();
+        }
+    }
+    
+    /**
+     * 第一次显示带数据的月视图时调用 reportFullyDrawn，冷启动到内容显示的时间由系统记录（logcat 的 Fully drawn）
+     */
+    private void reportContentShown() {
+        if (startupReported) {
+            return;
+        }
+        startupReported = true;
+        View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                reportFullyDrawn();
+                return true;
+            }
+        });
+    }
+
     private void setupListeners() {
         btnPrevMonth.setOnClickListener(v -> navigatePrevious());
         btnNextMonth.setOnClickListener(v -> navigateNext());
@@ -177,20 +427,92 @@ public class CalendarActivity extends AppCompatActivity {
                     switchToYearView();
                 } else if (checkedId == R.id.btn_month_view) {
                     switchToMonthView();
+                } else if (checkedId == R.id.btn_week_view) {
+                    switchToWeekView();
                 } else if (checkedId == R.id.btn_day_view) {
                     switchToDayView();
+                } else if (checkedId == R.id.btn_agenda_view) {
+                    switchToAgendaView();
                 }
             }
         });
         
+        btnToggleTimeline.setText(viewModel.isShowTimeline() ? "列表" : "时间轴");
+        btnToggleTimeline.setOnClickListener(v -> {
+            viewModel.setShowTimeline(!viewModel.isShowTimeline());
+            btnToggleTimeline.setText(viewModel.isShowTimeline() ? "列表" : "时间轴");
+            updateDaySchedule();
+        });
+        
+        btnFindFreeSlot.setOnClickListener(v -> showFindFreeSlotDialog());
+        
         fabAddEvent.setOnClickListener(v -> {
             Intent intent = new Intent(this, EventEditActivity.class);
-            if (selectedDay != null) {
-                intent.putExtra("selected_date", selectedDay.getDate().getTime());
+            if (viewModel.getSelectedDay() != null) {
+                intent.putExtra("selected_date", viewModel.getSelectedDay().getDate().getTime());
             }
             startActivityForResult(intent, REQUEST_ADD_EVENT);
         });
     }
+    
+    /**
+     * 编辑日程；点击的是重复日程的某一次时带上这一次的开始时间
+     */
+    private void openEvent(CalendarEvent event) {
+        Intent intent = new Intent(this, EventEditActivity.class);
+        intent.putExtra(EventEditActivity.EXTRA_EVENT_ID, event.getId());
+        if (event.isOccurrence()) {
+            intent.putExtra(EventEditActivity.EXTRA_OCCURRENCE_START, event.getStartTime().getTime());
+        }
+        startActivityForResult(intent, REQUEST_EDIT_EVENT);
+    }
+    
+    /**
+     * 选择时长后，从选中日期（不早于现在）起 7 天内查找第一个空闲时段
+     */
+    private void showFindFreeSlotDialog() {
+        String[] labels = {"30分钟", "45分钟", "1小时", "1.5小时", "2小时"};
+        int[] minutes = {30, 45, 60, 90, 120};
+        new AlertDialog.Builder(this)
+                .setTitle("查找空闲时段")
+                .setItems(labels, (dialog, which) -> findFreeSlot(minutes[which]))
+                .show();
+    }
+    
+    private void findFreeSlot(int durationMinutes) {
+        long dayStart = viewModel.getSelectedDay() != null
+                ? CalendarUtils.getStartOfDay(viewModel.getSelectedDay().getDate())
+                : CalendarUtils.getStartOfDay(new Date());
+        long from = Math.max(dayStart, System.currentTimeMillis());
+        long to = dayStart + 7L * 24 * 60 * 60 * 1000;
+        long duration = durationMinutes * 60 * 1000L;
+        
+        // 只在每天 8:00 - 22:00 之间查找
+        eventManager.loadNextFreeSlot(from, to, duration, 8 * 60, 22 * 60, startTime -> runOnUiThread(() -> {
+            if (isFinishing()) {
+                return;
+            }
+            if (startTime < 0) {
+                Toast.makeText(this, "7天内没有合适的空闲时段", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            long endTime = startTime + duration;
+            SimpleDateFormat dayFormat = new SimpleDateFormat("M月d日 EEEE HH:mm", Locale.CHINA);
+            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.CHINA);
+            String slotText = dayFormat.format(new Date(startTime)) + " - " + timeFormat.format(new Date(endTime));
+            new AlertDialog.Builder(this)
+                    .setTitle("找到空闲时段")
+                    .setMessage(slotText)
+                    .setPositiveButton("创建日程", (dialog, which) -> {
+                        Intent intent = new Intent(this, EventEditActivity.class);
+                        intent.putExtra(EventEditActivity.EXTRA_START_TIME, startTime);
+                        intent.putExtra(EventEditActivity.EXTRA_END_TIME, endTime);
+                        startActivityForResult(intent, REQUEST_ADD_EVENT);
+                    })
+                    .setNegativeButton("取消", null)
+                    .show();
+        }));
+    }
 
     private void showOverflowMenu(View anchor) {
         PopupMenu popupMenu = new PopupMenu(this, anchor);
@@ -200,6 +522,12 @@ public class CalendarActivity extends AppCompatActivity {
             if (itemId == R.id.action_jump_to_date) {
                 showDatePickerDialog();
                 return true;
+            } else if (itemId == R.id.action_prev_busy_day) {
+                jumpToBusyDay(false);
+                return true;
+            } else if (itemId == R.id.action_next_busy_day) {
+                jumpToBusyDay(true);
+                return true;
             } else if (itemId == R.id.action_import_export) {
                 showImportExportDialog();
                 return true;
@@ -221,8 +549,8 @@ public class CalendarActivity extends AppCompatActivity {
                 selectedDate.set(year, month, dayOfMonth, 0, 0, 0);
                 selectedDate.set(Calendar.MILLISECOND, 0);
 
-                currentCalendar = (Calendar) selectedDate.clone();
-                if (currentViewMode == ViewMode.MONTH) {
+                viewModel.setCurrentCalendar((Calendar) selectedDate.clone());
+                if (viewModel.getViewMode() == ViewMode.MONTH) {
                     updateCalendar();
                 } else {
                     toggleViewMode.check(R.id.btn_month_view);
@@ -242,90 +570,244 @@ public class CalendarActivity extends AppCompatActivity {
         dialog.show();
     }
 
-    private void updateCalendar() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy年M月", Locale.CHINA);
-        tvMonthYear.setText(sdf.format(currentCalendar.getTime()));
-        
-        int year = currentCalendar.get(Calendar.YEAR);
-        int month = currentCalendar.get(Calendar.MONTH);
-        calendarDays = CalendarUtils.getMonthDays(year, month);
-        
-        // 从数据库加载事件数量
-        eventManager.loadEventCounts(calendarDays, counts -> {
-            runOnUiThread(() -> {
-                for (int i = 0; i < calendarDays.size(); i++) {
-                    CalendarDay day = calendarDays.get(i);
-                    Date date = day.getDate();
-                    Integer count = counts.get(date);
-                    if (count != null) {
-                        day.setEventCount(count);
-                    }
+    /**
+     * 跳转到选中日期（没有选中时为今天）之后或之前最近的有日程的日期，并显示日视图
+     */
+    private void jumpToBusyDay(boolean forward) {
+        Date from = viewModel.getSelectedDay() != null ? viewModel.getSelectedDay().getDate() : new Date();
+        eventManager.loadBusyDay(from, forward, date -> runOnUiThread(() -> {
+            if (isFinishing()) {
+                return;
+            }
+            if (date == null) {
+                Toast.makeText(this, forward ? "之后没有日程了" : "之前没有日程了", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Calendar target = Calendar.getInstance();
+            target.setTime(date);
+            CalendarDay day = new CalendarDay(target);
+            viewModel.setCurrentCalendar((Calendar) target.clone());
+            if (viewModel.getViewMode() == ViewMode.DAY) {
+                onDaySelected(day);
+            } else {
+                if (viewModel.getSelectedDay() != null) {
+                    viewModel.getSelectedDay().setSelected(false);
                 }
-                calendarAdapter.updateDays(calendarDays);
-            });
-        });
+                viewModel.setSelectedDay(day);
+                day.setSelected(true);
+                toggleViewMode.check(R.id.btn_day_view);
+            }
+        }));
+    }
+
+    /**
+     * 为每种事件类型创建一个筛选标签
+     */
+    private void setupTypeFilterChips() {
+        chipGroupTypeFilter.removeAllViews();
+        java.util.Set<CalendarEvent.EventType> visible = EventManager.getTypeFilter();
+        for (CalendarEvent.EventType type : CalendarEvent.EventType.values()) {
+            Chip chip = (Chip) getLayoutInflater().inflate(R.layout.item_filter_chip, chipGroupTypeFilter, false);
+            chip.setText(type.getName());
+            chip.setTag(type);
+            chip.setChecked(visible.contains(type));
+            chip.setOnCheckedChangeListener((buttonView, isChecked) -> onTypeFilterChanged());
+            chipGroupTypeFilter.addView(chip);
+        }
+    }
+    
+    /**
+     * 筛选变化：月视图用缓存的分类型数量重新求和，日视图和议程列表按新条件查询
+     */
+    private void onTypeFilterChanged() {
+        java.util.Set<CalendarEvent.EventType> types = EnumSet.noneOf(CalendarEvent.EventType.class);
+        for (int i = 0; i < chipGroupTypeFilter.getChildCount(); i++) {
+            Chip chip = (Chip) chipGroupTypeFilter.getChildAt(i);
+            if (chip.isChecked()) {
+                types.add((CalendarEvent.EventType) chip.getTag());
+            }
+        }
+        EventManager.setTypeFilter(types);
+        monthPagerAdapter.applyTypeFilter();
+        weekPagerAdapter.invalidateLayouts();
+        if (viewModel.getViewMode() == ViewMode.DAY) {
+            updateDaySchedule();
+        }
+        refreshAgenda();
+    }
+    
+    /**
+     * 按当前视图显示或隐藏筛选栏，并更新各标签上的数量（日视图为当天，其余为当前月份）
+     */
+    private void updateTypeFilterBar() {
+        boolean show = viewModel.getViewMode() == ViewMode.MONTH || viewModel.getViewMode() == ViewMode.DAY
+                || viewModel.getViewMode() == ViewMode.AGENDA;
+        typeFilterScroll.setVisibility(show ? View.VISIBLE : View.GONE);
+        if (!show) {
+            return;
+        }
+        int[] counts;
+        if (viewModel.getViewMode() == ViewMode.DAY) {
+            counts = viewModel.getSelectedDay() != null ? viewModel.getSelectedDay().getTypeCounts() : null;
+        } else {
+            counts = monthPagerAdapter.getTypeCounts(monthPager.getCurrentItem());
+        }
+        for (int i = 0; i < chipGroupTypeFilter.getChildCount(); i++) {
+            Chip chip = (Chip) chipGroupTypeFilter.getChildAt(i);
+            CalendarEvent.EventType type = (CalendarEvent.EventType) chip.getTag();
+            chip.setText(counts != null ? type.getName() + " " + counts[type.ordinal()] : type.getName());
+        }
+    }
+
+    /**
+     * 让 ViewPager2 内部的 RecyclerView 使用共享缓存池，离屏页面被回收复用，长距离滑动时内存保持平稳
+     */
+    private void setupSharedPagePool(ViewPager2 pager) {
+        if (sharedPagePool == null) {
+            sharedPagePool = new RecyclerView.RecycledViewPool();
+            sharedPagePool.setMaxRecycledViews(MonthPagerAdapter.VIEW_TYPE_MONTH, 2);
+            sharedPagePool.setMaxRecycledViews(WeekPagerAdapter.VIEW_TYPE_WEEK, 2);
+        }
+        View child = pager.getChildAt(0);
+        if (child instanceof RecyclerView) {
+            RecyclerView pagerRecyclerView = (RecyclerView) child;
+            pagerRecyclerView.setRecycledViewPool(sharedPagePool);
+            // 页面内容由适配器就地刷新，不需要 change 动画
+            pagerRecyclerView.setItemAnimator(null);
+        }
+    }
+
+    private void onMonthPageSelected(int position) {
+        int year = monthPagerAdapter.getYear(position);
+        int month = monthPagerAdapter.getMonth(position);
+        Calendar currentCalendar = viewModel.getCurrentCalendar();
+        if (year != currentCalendar.get(Calendar.YEAR) || month != currentCalendar.get(Calendar.MONTH)) {
+            viewModel.getCurrentCalendar().set(year, month, 1);
+        }
+        if (viewModel.getViewMode() == ViewMode.MONTH) {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy年M月", Locale.CHINA);
+            tvMonthYear.setText(sdf.format(viewModel.getCurrentCalendar().getTime()));
+            calendarDays = monthPagerAdapter.getMonthDays(position);
+        }
+        monthPagerAdapter.prefetchAround(position);
+        updateTypeFilterBar();
+    }
+
+    private void onWeekPageSelected(int position) {
+        if (viewModel.getViewMode() != ViewMode.WEEK) {
+            return;
+        }
+        long weekStart = weekPagerAdapter.getWeekStart(position);
+        viewModel.getCurrentCalendar().setTimeInMillis(weekStart);
+        updateWeekTitle(weekStart);
+        weekPagerAdapter.prefetchAround(position);
+    }
+    
+    private void updateWeekTitle(long weekStart) {
+        Calendar weekEnd = Calendar.getInstance();
+        weekEnd.setTimeInMillis(weekStart);
+        weekEnd.add(Calendar.DAY_OF_MONTH, 6);
+        SimpleDateFormat startFormat = new SimpleDateFormat("yyyy年M月d日", Locale.CHINA);
+        SimpleDateFormat endFormat = new SimpleDateFormat("M月d日", Locale.CHINA);
+        tvMonthYear.setText(startFormat.format(new Date(weekStart)) + " - " + endFormat.format(weekEnd.getTime()));
+    }
+
+    private void updateCalendar() {
+        if (viewModel.getViewMode() == ViewMode.WEEK) {
+            updateWeekTitle(CalendarUtils.getStartOfWeek(viewModel.getCurrentCalendar().getTime()));
+        } else {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy年M月", Locale.CHINA);
+            tvMonthYear.setText(sdf.format(viewModel.getCurrentCalendar().getTime()));
+        }
+        
+        int year = viewModel.getCurrentCalendar().get(Calendar.YEAR);
+        int month = viewModel.getCurrentCalendar().get(Calendar.MONTH);
+        int position = monthPagerAdapter.getPositionForMonth(year, month);
+        if (monthPager.getCurrentItem() != position) {
+            monthPager.setCurrentItem(position, false);
+        }
+        
+        // 事件数量由适配器按月缓存并在后台加载
+        calendarDays = monthPagerAdapter.getMonthDays(position);
+        monthPagerAdapter.prefetchAround(position);
     }
 
     private void navigatePrevious() {
-        if (currentViewMode == ViewMode.YEAR) {
+        if (viewModel.getViewMode() == ViewMode.YEAR) {
             // 年视图：年份减一
-            currentCalendar.add(Calendar.YEAR, -1);
-            int year = currentCalendar.get(Calendar.YEAR);
+            viewModel.getCurrentCalendar().add(Calendar.YEAR, -1);
+            int year = viewModel.getCurrentCalendar().get(Calendar.YEAR);
             calendarDays = CalendarUtils.getYearDays(year);
             calendarAdapter.updateDays(calendarDays);
             tvMonthYear.setText(String.format(Locale.CHINA, "%d年", year));
-        } else if (currentViewMode == ViewMode.MONTH) {
-            // 月视图：月份减一
-            currentCalendar.add(Calendar.MONTH, -1);
+        } else if (viewModel.getViewMode() == ViewMode.MONTH) {
+            // 月视图：滑动到上一页
+            monthPager.setCurrentItem(monthPager.getCurrentItem() - 1, true);
+        } else if (viewModel.getViewMode() == ViewMode.WEEK) {
+            // 周视图：滑动到上一周
+            weekPager.setCurrentItem(weekPager.getCurrentItem() - 1, true);
+        } else if (viewModel.getViewMode() == ViewMode.AGENDA) {
+            // 议程列表：跳到上个月月初
+            viewModel.getCurrentCalendar().add(Calendar.MONTH, -1);
+            viewModel.getCurrentCalendar().set(Calendar.DAY_OF_MONTH, 1);
             updateCalendar();
+            agendaAdapter.reload(CalendarUtils.getStartOfDay(viewModel.getCurrentCalendar().getTime()));
         } else {
             // 日视图：天数减一
-            currentCalendar.add(Calendar.DAY_OF_MONTH, -1);
-            selectedDay = null;
+            viewModel.getCurrentCalendar().add(Calendar.DAY_OF_MONTH, -1);
+            viewModel.setSelectedDay(null);
             for (CalendarDay day : calendarDays) {
-                if (CalendarUtils.isSameDay(day.getCalendar(), currentCalendar)) {
-                    selectedDay = day;
+                if (CalendarUtils.isSameDay(day.getCalendar(), viewModel.getCurrentCalendar())) {
+                    viewModel.setSelectedDay(day);
                     break;
                 }
             }
-            if (selectedDay == null) {
-                selectedDay = new CalendarDay(currentCalendar);
+            if (viewModel.getSelectedDay() == null) {
+                viewModel.setSelectedDay(new CalendarDay(viewModel.getCurrentCalendar()));
             }
             updateDaySchedule();
         }
     }
     
     private void navigateNext() {
-        if (currentViewMode == ViewMode.YEAR) {
+        if (viewModel.getViewMode() == ViewMode.YEAR) {
             // 年视图：年份加一
-            currentCalendar.add(Calendar.YEAR, 1);
-            int year = currentCalendar.get(Calendar.YEAR);
+            viewModel.getCurrentCalendar().add(Calendar.YEAR, 1);
+            int year = viewModel.getCurrentCalendar().get(Calendar.YEAR);
             calendarDays = CalendarUtils.getYearDays(year);
             calendarAdapter.updateDays(calendarDays);
             tvMonthYear.setText(String.format(Locale.CHINA, "%d年", year));
-        } else if (currentViewMode == ViewMode.MONTH) {
-            // 月视图：月份加一
-            currentCalendar.add(Calendar.MONTH, 1);
+        } else if (viewModel.getViewMode() == ViewMode.MONTH) {
+            // 月视图：滑动到下一页
+            monthPager.setCurrentItem(monthPager.getCurrentItem() + 1, true);
+        } else if (viewModel.getViewMode() == ViewMode.WEEK) {
+            // 周视图：滑动到下一周
+            weekPager.setCurrentItem(weekPager.getCurrentItem() + 1, true);
+        } else if (viewModel.getViewMode() == ViewMode.AGENDA) {
+            // 议程列表：跳到下个月月初
+            viewModel.getCurrentCalendar().add(Calendar.MONTH, 1);
+            viewModel.getCurrentCalendar().set(Calendar.DAY_OF_MONTH, 1);
             updateCalendar();
+            agendaAdapter.reload(CalendarUtils.getStartOfDay(viewModel.getCurrentCalendar().getTime()));
         } else {
             // 日视图：天数加一
-            currentCalendar.add(Calendar.DAY_OF_MONTH, 1);
-            selectedDay = null;
+            viewModel.getCurrentCalendar().add(Calendar.DAY_OF_MONTH, 1);
+            viewModel.setSelectedDay(null);
             for (CalendarDay day : calendarDays) {
-                if (CalendarUtils.isSameDay(day.getCalendar(), currentCalendar)) {
-                    selectedDay = day;
+                if (CalendarUtils.isSameDay(day.getCalendar(), viewModel.getCurrentCalendar())) {
+                    viewModel.setSelectedDay(day);
                     break;
                 }
             }
-            if (selectedDay == null) {
-                selectedDay = new CalendarDay(currentCalendar);
+            if (viewModel.getSelectedDay() == null) {
+                viewModel.setSelectedDay(new CalendarDay(viewModel.getCurrentCalendar()));
             }
             updateDaySchedule();
         }
     }
 
     private void goToToday() {
-        currentCalendar = Calendar.getInstance();
+        viewModel.setCurrentCalendar(Calendar.getInstance());
         updateCalendar();
         
         // 选择今天
@@ -343,21 +825,25 @@ public class CalendarActivity extends AppCompatActivity {
         isUpdating = true;
         
         // 更新选中状态
-        if (selectedDay != null) {
-            selectedDay.setSelected(false);
+        if (viewModel.getSelectedDay() != null) {
+            viewModel.getSelectedDay().setSelected(false);
         }
-        selectedDay = day;
+        viewModel.setSelectedDay(day);
         day.setSelected(true);
         
-        if (currentViewMode == ViewMode.YEAR) {
+        if (viewModel.getViewMode() == ViewMode.YEAR) {
             // 年视图：点击月份，跳转到该月的月视图
-            currentCalendar.set(Calendar.YEAR, day.getYear());
-            currentCalendar.set(Calendar.MONTH, day.getMonth());
-            currentCalendar.set(Calendar.DAY_OF_MONTH, 1);
+            viewModel.getCurrentCalendar().set(Calendar.YEAR, day.getYear());
+            viewModel.getCurrentCalendar().set(Calendar.MONTH, day.getMonth());
+            viewModel.getCurrentCalendar().set(Calendar.DAY_OF_MONTH, 1);
             toggleViewMode.check(R.id.btn_month_view);
-        } else if (currentViewMode == ViewMode.MONTH) {
+        } else if (viewModel.getViewMode() == ViewMode.MONTH) {
             // 月视图：点击日期，跳转到日视图
             toggleViewMode.check(R.id.btn_day_view);
+        } else if (viewModel.getViewMode() == ViewMode.WEEK) {
+            // 周视图：点击表头日期，跳转到该日的日视图
+            viewModel.setCurrentCalendar(day.getCalendar());
+            toggleViewMode.check(R.id.btn_day_view);
         } else {
             // 日视图：刷新日程
             updateDaySchedule();
@@ -367,9 +853,13 @@ public class CalendarActivity extends AppCompatActivity {
     }
 
     private void switchToYearView() {
-        currentViewMode = ViewMode.YEAR;
+        viewModel.setViewMode(ViewMode.YEAR);
         calendarRecyclerView.setVisibility(View.VISIBLE);
+        monthPager.setVisibility(View.GONE);
+        weekPager.setVisibility(View.GONE);
+        agendaRecyclerView.setVisibility(View.GONE);
         weekdayHeader.setVisibility(View.GONE);
+        updateTypeFilterBar();
         dayScheduleLayout.setVisibility(View.GONE);
         fabAddEvent.setVisibility(View.GONE);
         
@@ -378,7 +868,7 @@ public class CalendarActivity extends AppCompatActivity {
         calendarRecyclerView.setLayoutManager(layoutManager);
         
         // 年视图显示12个月
-        int year = currentCalendar.get(Calendar.YEAR);
+        int year = viewModel.getCurrentCalendar().get(Calendar.YEAR);
         calendarDays = CalendarUtils.getYearDays(year);
         calendarAdapter.updateDays(calendarDays);
         
@@ -387,38 +877,99 @@ public class CalendarActivity extends AppCompatActivity {
     }
 
     private void switchToMonthView() {
-        currentViewMode = ViewMode.MONTH;
-        calendarRecyclerView.setVisibility(View.VISIBLE);
+        viewModel.setViewMode(ViewMode.MONTH);
+        calendarRecyclerView.setVisibility(View.GONE);
+        monthPager.setVisibility(View.VISIBLE);
+        weekPager.setVisibility(View.GONE);
+        agendaRecyclerView.setVisibility(View.GONE);
         weekdayHeader.setVisibility(View.VISIBLE);
+        updateTypeFilterBar();
         dayScheduleLayout.setVisibility(View.GONE);
         fabAddEvent.setVisibility(View.GONE);
         
-        // 设置7列布局显示星期
-        GridLayoutManager layoutManager = new GridLayoutManager(this, 7);
-        calendarRecyclerView.setLayoutManager(layoutManager);
+        updateCalendar();
+    }
+
+    private void switchToWeekView() {
+        viewModel.setViewMode(ViewMode.WEEK);
+        calendarRecyclerView.setVisibility(View.GONE);
+        monthPager.setVisibility(View.GONE);
+        weekPager.setVisibility(View.VISIBLE);
+        agendaRecyclerView.setVisibility(View.GONE);
+        weekdayHeader.setVisibility(View.GONE);
+        updateTypeFilterBar();
+        dayScheduleLayout.setVisibility(View.GONE);
+        fabAddEvent.setVisibility(View.GONE);
+        
+        // 优先显示选中日期所在的周
+        CalendarDay selectedDay = viewModel.getSelectedDay();
+        Date anchor = selectedDay != null ? selectedDay.getDate() : viewModel.getCurrentCalendar().getTime();
+        long weekStart = CalendarUtils.getStartOfWeek(anchor);
+        int position = weekPagerAdapter.getPositionForWeek(weekStart);
+        viewModel.getCurrentCalendar().setTimeInMillis(weekStart);
+        if (weekPager.getCurrentItem() != position) {
+            weekPager.setCurrentItem(position, false);
+        }
+        updateWeekTitle(weekStart);
+        weekPagerAdapter.prefetchAround(position);
+    }
+
+    private void switchToAgendaView() {
+        viewModel.setViewMode(ViewMode.AGENDA);
+        calendarRecyclerView.setVisibility(View.GONE);
+        monthPager.setVisibility(View.GONE);
+        weekPager.setVisibility(View.GONE);
+        agendaRecyclerView.setVisibility(View.VISIBLE);
+        weekdayHeader.setVisibility(View.GONE);
+        updateTypeFilterBar();
+        dayScheduleLayout.setVisibility(View.GONE);
+        fabAddEvent.setVisibility(View.GONE);
+        
+        if (restoringViewMode && agendaAdapter.getItemCount() > 0) {
+            // 界面重建：沿用 ViewModel 中已加载的议程窗口
+            updateCalendar();
+            return;
+        }
         
+        // 从今天开始向后列出日程，向上滚动加载更早的日程
+        viewModel.setCurrentCalendar(Calendar.getInstance());
         updateCalendar();
+        agendaAdapter.reload(CalendarUtils.getStartOfDay(viewModel.getCurrentCalendar().getTime()));
+    }
+    
+    /**
+     * 数据变化后从当前可见位置重新加载议程列表
+     */
+    private void refreshAgenda() {
+        if (viewModel.getViewMode() == ViewMode.AGENDA) {
+            int first = agendaLayoutManager.findFirstVisibleItemPosition();
+            agendaAdapter.reload(agendaAdapter.getTimeAt(first));
+        }
     }
 
     private void switchToDayView() {
-        currentViewMode = ViewMode.DAY;
+        viewModel.setViewMode(ViewMode.DAY);
         calendarRecyclerView.setVisibility(View.GONE);
+        monthPager.setVisibility(View.GONE);
+        weekPager.setVisibility(View.GONE);
+        agendaRecyclerView.setVisibility(View.GONE);
         weekdayHeader.setVisibility(View.GONE);
+        updateTypeFilterBar();
         dayScheduleLayout.setVisibility(View.VISIBLE);
         fabAddEvent.setVisibility(View.VISIBLE);
         
-        if (selectedDay == null) {
+        if (viewModel.getSelectedDay() == null) {
             // 如果没有选中的日期，选择今天
             Calendar today = Calendar.getInstance();
             for (CalendarDay day : calendarDays) {
                 if (CalendarUtils.isSameDay(day.getCalendar(), today)) {
-                    selectedDay = day;
+                    viewModel.setSelectedDay(day);
                     day.setSelected(true);
                     break;
                 }
             }
-            if (selectedDay == null && !calendarDays.isEmpty()) {
-                selectedDay = calendarDays.get(0);
+            if (viewModel.getSelectedDay() == null && !calendarDays.isEmpty()) {
+                viewModel.setSelectedDay(calendarDays.get(0));
             }
         }
         
@@ -426,39 +977,62 @@ public class CalendarActivity extends AppCompatActivity {
     }
 
     private void updateDaySchedule() {
-        if (selectedDay == null) return;
+        if (viewModel.getSelectedDay() == null) return;
         
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy年M月d日 EEEE", Locale.CHINA);
-        tvSelectedDate.setText(sdf.format(selectedDay.getDate()));
-        
-        // 加载当天的事件
-        eventManager.loadDayEvents(selectedDay.getDate(), events -> {
-            runOnUiThread(() -> {
-                dayScheduleAdapter.updateEvents(events);
-                
-                // 更新事件数量和空视图
-                int eventCount = events.size();
-                tvEventCount.setText(String.format(Locale.CHINA, "%d个日程", eventCount));
-                
-                if (eventCount == 0) {
-                    emptyView.setVisibility(View.VISIBLE);
-                    rvDaySchedule.setVisibility(View.GONE);
-                } else {
-                    emptyView.setVisibility(View.GONE);
-                    rvDaySchedule.setVisibility(View.VISIBLE);
-                }
+        tvSelectedDate.setText(sdf.format(viewModel.getSelectedDay().getDate()));
+        updateTypeFilterBar();
+        
+        if (viewModel.isShowTimeline()) {
+            // 时间轴：布局在后台计算并按天缓存
+            eventManager.loadDayLayout(viewModel.getSelectedDay().getDate(), layout -> {
+                runOnUiThread(() -> {
+                    dayTimeline.setDayLayout(layout);
+                    showDayEventCount(layout.getEvents().size());
+                });
             });
-        });
+            return;
+        }
+        
+        if (startupTodayEvents != null && CalendarUtils.isToday(viewModel.getSelectedDay().getDate())) {
+            // 数据库的结果到达前先显示快照中今天的日程
+            Set<CalendarEvent.EventType> types = EventManager.getTypeFilter();
+            List<CalendarEvent> visible = new ArrayList<>();
+            for (CalendarEvent event : startupTodayEvents) {
+                if (event.getType() == null || types.contains(event.getType())) {
+                    visible.add(event);
+                }
+            }
+            dayScheduleAdapter.updateEvents(visible);
+            showDayEventCount(visible.size());
+        }
+        
+        // 加载当天的事件，结果由 observeDayEvents 显示；已加载过的同一天不再查询
+        viewModel.loadDayEvents(viewModel.getSelectedDay().getDate());
+    }
+    
+    /**
+     * 更新事件数量和空视图
+     */
+    private void showDayEventCount(int eventCount) {
+        tvEventCount.setText(String.format(Locale.CHINA, "%d个日程", eventCount));
+        
+        if (eventCount == 0) {
+            emptyView.setVisibility(View.VISIBLE);
+            rvDaySchedule.setVisibility(View.GONE);
+            timelineScroll.setVisibility(View.GONE);
+        } else {
+            emptyView.setVisibility(View.GONE);
+            rvDaySchedule.setVisibility(viewModel.isShowTimeline() ? View.GONE : View.VISIBLE);
+            timelineScroll.setVisibility(viewModel.isShowTimeline() ? View.VISIBLE : View.GONE);
+        }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        // 刷新日历数据
-        updateCalendar();
-        if (currentViewMode == ViewMode.DAY) {
-            updateDaySchedule();
-        }
+        // 首次显示和从编辑界面返回时，只有数据变化了才刷新
+        reloadIfChanged();
     }
 
     @Override
@@ -466,10 +1040,24 @@ public class CalendarActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         if (resultCode == RESULT_OK) {
             // 刷新日历
-            updateCalendar();
-            if (currentViewMode == ViewMode.DAY) {
-                updateDaySchedule();
-            }
+            reloadIfChanged();
+        }
+    }
+    
+    /**
+     * 唯一的刷新入口：EventManager 的数据版本与界面已加载的版本不同时，重新加载各视图的数据
+     */
+    private void reloadIfChanged() {
+        if (!viewModel.checkDataChanged()) {
+            return;
+        }
+        startupTodayEvents = null;
+        monthPagerAdapter.invalidateCounts();
+        weekPagerAdapter.invalidateLayouts();
+        refreshAgenda();
+        updateCalendar();
+        if (viewModel.getViewMode() == ViewMode.DAY) {
+            updateDaySchedule();
         }
     }
     
@@ -481,6 +1069,10 @@ public class CalendarActivity extends AppCompatActivity {
     
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search) {
+            startActivityForResult(new Intent(this, SearchActivity.class), REQUEST_SEARCH);
+            return true;
+        }
         if (item.getItemId() == R.id.action_import_export) {
             showImportExportDialog();
             return true;
@@ -499,12 +1091,22 @@ public class CalendarActivity extends AppCompatActivity {
             .create();
         
         android.widget.Button btnExport = dialogView.findViewById(R.id.btn_export);
+        android.widget.Button btnExportChanges = dialogView.findViewById(R.id.btn_export_changes);
         android.widget.Button btnImport = dialogView.findViewById(R.id.btn_import);
         android.widget.Button btnCancel = dialogView.findViewById(R.id.btn_cancel);
+        android.widget.CheckBox cbCompressed = dialogView.findViewById(R.id.cb_export_compressed);
+        android.widget.Button btnBackup = dialogView.findViewById(R.id.btn_backup);
+        android.widget.CheckBox cbSnapshot = dialogView.findViewById(R.id.cb_backup_snapshot);
+        android.widget.Button btnRestore = dialogView.findViewById(R.id.btn_restore);
         
         btnExport.setOnClickListener(v -> {
             dialog.dismiss();
-            startExport();
+            startExport(false, cbCompressed.isChecked());
+        });
+        
+        btnExportChanges.setOnClickListener(v -> {
+            dialog.dismiss();
+            startExport(true, cbCompressed.isChecked());
         });
         
         btnImport.setOnClickListener(v -> {
@@ -512,6 +1114,21 @@ public class CalendarActivity extends AppCompatActivity {
             startImport();
         });
         
+        btnBackup.setOnClickListener(v -> {
+            dialog.dismiss();
+            String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+            if (cbSnapshot.isChecked()) {
+                snapshotFileLauncher.launch("日程备份-" + uuid + ".mcsnap");
+            } else {
+                backupFileLauncher.launch("日程备份-" + uuid + ".json");
+            }
+        });
+        
+        btnRestore.setOnClickListener(v -> {
+            dialog.dismiss();
+            restoreFileLauncher.launch(new String[]{"application/json", "application/octet-stream", "text/*", "*/*"});
+        });
+        
         btnCancel.setOnClickListener(v -> dialog.dismiss());
         
         dialog.show();
@@ -519,39 +1136,42 @@ public class CalendarActivity extends AppCompatActivity {
     
     /**
      * 开始导出
+     * 
+     * @param changesOnly 是否只导出上次导出后的变更
+     * @param compressed 是否压缩为 .ics.gz
      */
-    private void startExport() {
-        // 生成文件名：日程-uuid(8-12位).ics
+    private void startExport(boolean changesOnly, boolean compressed) {
+        exportChangesOnly = changesOnly;
+        exportCompressed = compressed;
+        // 生成文件名：日程-uuid(8-12位).ics，变更为 日程变更-uuid.ics，压缩时为 .ics.gz
         String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
-        String fileName = "日程-" + uuid + ".ics";
+        String fileName = (changesOnly ? "日程变更-" : "日程-") + uuid + (compressed ? ".ics.gz" : ".ics");
         
-        exportFileLauncher.launch(fileName);
+        if (compressed) {
+            exportGzipFileLauncher.launch(fileName);
+        } else {
+            exportFileLauncher.launch(fileName);
+        }
     }
     
     /**
-     * 执行导出
+     * 执行导出：在后台任务中写入，进程被杀后可以继续
      */
     private void performExport(Uri uri) {
-        Toast.makeText(this, "正在导出...", Toast.LENGTH_SHORT).show();
-        
-        eventManager.exportEventsToIcs(uri, (success, eventCount) -> {
-            runOnUiThread(() -> {
-                if (success) {
-                    Toast.makeText(this, 
-                        String.format("成功导出 %d 个事件", eventCount), 
-                        Toast.LENGTH_LONG).show();
-                } else {
-                    Toast.makeText(this, "导出失败", Toast.LENGTH_SHORT).show();
-                }
-            });
-        });
+        takePersistablePermission(uri,
+            Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+        IcsExportWorker.enqueue(this, uri, exportChangesOnly, exportCompressed);
     }
     
     /**
      * 开始导入
      */
     private void startImport() {
-        importFileLauncher.launch(new String[]{"text/calendar", "text/*", "*/*"});
+        if (importRunning) {
+            Toast.makeText(this, "已有导入正在进行，请等它完成后再导入其他文件", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        importFileLauncher.launch(new String[]{"text/calendar", "application/gzip", "application/zip", "text/*", "*/*"});
     }
     
     /**
@@ -561,29 +1181,176 @@ public class CalendarActivity extends AppCompatActivity {
         // 显示确认对话框
         new AlertDialog.Builder(this)
             .setTitle("确认导入")
-            .setMessage("导入的事件将添加到现有日历中。是否继续？")
+            .setMessage("文件中的新日程将导入到现有日历中，已有的同一日程在文件中的版本更新时会被更新。是否继续？")
             .setPositiveButton("导入", (dialog, which) -> {
-                Toast.makeText(this, "正在导入...", Toast.LENGTH_SHORT).show();
-                
-                eventManager.importEventsFromIcs(uri, (success, eventCount) -> {
-                    runOnUiThread(() -> {
-                        if (success) {
-                            Toast.makeText(this, 
-                                String.format("成功导入 %d 个事件", eventCount), 
-                                Toast.LENGTH_LONG).show();
-                            
-                            // 刷新日历
-                            updateCalendar();
-                            if (currentViewMode == ViewMode.DAY) {
-                                updateDaySchedule();
-                            }
-                        } else {
-                            Toast.makeText(this, "导入失败或文件中没有有效事件", Toast.LENGTH_SHORT).show();
-                        }
-                    });
-                });
+                if (importRunning) {
+                    Toast.makeText(this, "已有导入正在进行，请等它完成后再导入其他文件", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                takePersistablePermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                IcsImportWorker.enqueue(this, uri);
             })
             .setNegativeButton("取消", null)
             .show();
     }
+    
+    /**
+     * 从完整备份恢复
+     */
+    private void performRestore(Uri uri) {
+        new AlertDialog.Builder(this)
+            .setTitle("确认恢复")
+            .setMessage("恢复将删除当前所有日程，替换为备份中的日程。是否继续？")
+            .setPositiveButton("恢复", (dialog, which) -> {
+                takePersistablePermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                BackupWorker.enqueue(this, uri, true, false);
+            })
+            .setNegativeButton("取消", null)
+            .show();
+    }
+    
+    /**
+     * 取得文件的持久权限，后台任务在进程重启后仍能访问
+     */
+    private void takePersistablePermission(Uri uri, int flags) {
+        try {
+            getContentResolver().takePersistableUriPermission(uri, flags);
+        } catch (SecurityException e) {
+            // 提供方不支持持久权限，只能在本次进程中访问
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 观察导入导出和备份任务，界面重建后恢复进行中任务的进度
+     */
+    private void observeTransfers() {
+        WorkManager workManager = WorkManager.getInstance(this);
+        for (String workName : new String[]{IcsImportWorker.WORK_NAME, IcsExportWorker.WORK_NAME,
+                BackupWorker.WORK_NAME}) {
+            workManager.getWorkInfosForUniqueWorkLiveData(workName)
+                .observe(this, infos -> onTransferChanged(workName, infos));
+        }
+    }
+    
+    private void onTransferChanged(String workName, List<WorkInfo> infos) {
+        if (infos == null || infos.isEmpty()) {
+            return;
+        }
+        WorkInfo info = infos.get(infos.size() - 1);
+        if (IcsImportWorker.WORK_NAME.equals(workName)) {
+            importRunning = !info.getState().isFinished();
+        }
+        if (!info.getState().isFinished()) {
+            transferWorkId = info.getId();
+            showTransferProgress(workName, info);
+            return;
+        }
+        // 之前已经结束的任务不再提示
+        if (!info.getId().equals(transferWorkId)) {
+            return;
+        }
+        transferWorkId = null;
+        if (transferDialog != null) {
+            transferDialog.dismiss();
+        }
+        showTransferResult(workName, info);
+    }
+    
+    private void showTransferResult(String workName, WorkInfo info) {
+        Data output = info.getOutputData();
+        boolean succeeded = info.getState() == WorkInfo.State.SUCCEEDED;
+        boolean cancelled = info.getState() == WorkInfo.State.CANCELLED;
+        String message;
+        boolean refresh = false;
+        if (IcsImportWorker.WORK_NAME.equals(workName)) {
+            message = succeeded ? String.format("成功导入或更新 %d 个事件", output.getInt(IcsImportWorker.KEY_WRITTEN, 0))
+                : cancelled ? "已取消导入" : "导入失败或文件中没有有效事件";
+            // 取消或失败时已提交的批次同样保留
+            refresh = true;
+        } else if (IcsExportWorker.WORK_NAME.equals(workName)) {
+            message = succeeded ? String.format(output.getBoolean(IcsExportWorker.KEY_FULL, false)
+                    ? "没有可用的增量记录，已导出全部 %d 个事件" : "成功导出 %d 个事件",
+                    output.getInt(IcsExportWorker.KEY_EXPORTED, 0))
+                : cancelled ? "已取消导出" : "导出失败";
+        } else if (info.getTags().contains(BackupWorker.TAG_RESTORE)) {
+            message = succeeded ? String.format("成功恢复 %d 个事件", output.getInt(BackupWorker.KEY_COUNT, 0))
+                : cancelled ? "恢复未完成，可以用同一个备份重新恢复" : "恢复失败，请确认文件是完整备份";
+            refresh = true;
+        } else {
+            message = succeeded ? String.format("成功备份 %d 个事件", output.getInt(BackupWorker.KEY_COUNT, 0))
+                : cancelled ? "已取消备份" : "备份失败";
+        }
+        Toast.makeText(this, message, succeeded ? Toast.LENGTH_LONG : Toast.LENGTH_SHORT).show();
+        
+        if (refresh) {
+            // 刷新日历
+            reloadIfChanged();
+        }
+    }
+    
+    /**
+     * 显示或更新进度对话框，取消按钮取消后台任务
+     */
+    private void showTransferProgress(String workName, WorkInfo info) {
+        boolean isImport = IcsImportWorker.WORK_NAME.equals(workName);
+        boolean isExport = IcsExportWorker.WORK_NAME.equals(workName);
+        boolean isRestore = !isImport && !isExport && info.getTags().contains(BackupWorker.TAG_RESTORE);
+        if (transferDialog == null) {
+            View dialogView = getLayoutInflater().inflate(R.layout.dialog_transfer_progress, null);
+            tvTransferStatus = dialogView.findViewById(R.id.tv_transfer_status);
+            transferProgress = dialogView.findViewById(R.id.progress_transfer);
+            String title = isImport ? "正在导入" : isExport ? "正在导出" : isRestore ? "正在恢复" : "正在备份";
+            transferDialog = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(dialogView)
+                .setCancelable(false)
+                .setNegativeButton("取消", (dialog, which) ->
+                    WorkManager.getInstance(this).cancelUniqueWork(workName))
+                .create();
+            transferDialog.setOnDismissListener(dialog -> transferDialog = null);
+            transferDialog.show();
+        }
+        
+        Data progress = info.getProgress();
+        int percent = -1;
+        if (isImport) {
+            percent = percentOf(progress.getLong(IcsImportWorker.KEY_BYTES, 0),
+                progress.getLong(IcsImportWorker.KEY_TOTAL_BYTES, -1));
+            tvTransferStatus.setText(String.format("已读取 %d 个事件，导入或更新 %d 个",
+                progress.getInt(IcsImportWorker.KEY_PROCESSED, 0),
+                progress.getInt(IcsImportWorker.KEY_WRITTEN, 0)));
+        } else if (isExport) {
+            int exported = progress.getInt(IcsExportWorker.KEY_EXPORTED, 0);
+            int total = progress.getInt(IcsExportWorker.KEY_TOTAL, 0);
+            percent = percentOf(exported, total);
+            tvTransferStatus.setText(String.format("已导出 %d / %d 个事件", exported, total));
+        } else if (isRestore) {
+            // 校验 JSON 备份时按读取的字节数，写入时事件总数已知，按事件数
+            int count = progress.getInt(BackupWorker.KEY_COUNT, 0);
+            int total = progress.getInt(BackupWorker.KEY_TOTAL, -1);
+            percent = total > 0 ? percentOf(count, total)
+                : percentOf(progress.getLong(BackupWorker.KEY_BYTES, 0),
+                    progress.getLong(BackupWorker.KEY_TOTAL_BYTES, -1));
+            tvTransferStatus.setText(progress.getBoolean(BackupWorker.KEY_CHECKING, false)
+                ? "正在校验备份文件"
+                : String.format("已恢复 %d 个事件", count));
+        } else {
+            int count = progress.getInt(BackupWorker.KEY_COUNT, 0);
+            int total = progress.getInt(BackupWorker.KEY_TOTAL, 0);
+            percent = percentOf(count, total);
+            tvTransferStatus.setText(String.format("已备份 %d / %d 个事件", count, total));
+        }
+        transferProgress.setIndeterminate(percent < 0);
+        if (percent >= 0) {
+            transferProgress.setProgress(percent);
+        }
+    }
+    
+    /**
+     * 百分比，总数未知时返回 -1
+     */
+    private static int percentOf(long done, long total) {
+        return total > 0 ? (int) Math.min(100, done * 100 / total) : -1;
+    }
 }
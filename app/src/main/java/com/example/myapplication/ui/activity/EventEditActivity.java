@@ -6,6 +6,8 @@ import android.app.TimePickerDialog;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -22,14 +24,19 @@ import androidx.core.content.ContextCompat;
 import com.example.myapplication.R;
 import com.example.myapplication.data.model.CalendarEvent;
 import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.adapter.SuggestionAdapter;
 import com.example.myapplication.util.ReminderScheduler;
 import com.example.myapplication.util.BatteryOptimizationHelper;
+import com.example.myapplication.util.SuggestionTrie;
 import com.google.android.material.chip.ChipGroup;
+import com.google.android.material.textfield.MaterialAutoCompleteTextView;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -41,10 +48,25 @@ public class EventEditActivity extends AppCompatActivity {
     private static final int REQUEST_NOTIFICATION_PERMISSION = 1001;
     public static final String EXTRA_EVENT_ID = "event_id";
     public static final String EXTRA_EVENT_DATE = "event_date";
+    // 可选：新建时直接指定开始和结束时间（如从空闲时段创建）
+    public static final String EXTRA_START_TIME = "start_time";
+    public static final String EXTRA_END_TIME = "end_time";
+    // 从重复日程的某一次打开时，这一次的开始时间
+    public static final String EXTRA_OCCURRENCE_START = "occurrence_start";
     public static final int RESULT_DELETED = 2;
     
-    private TextInputEditText etTitle, etLocation, etDescription;
-    private TextView tvTitleBar, tvDate, tvStartTime, tvEndTime;
+    // 调整时间后等待一段时间再检测冲突，连续调整只查询最后一次
+    private static final long CONFLICT_CHECK_DELAY = 250;
+    // 自动补全下拉列表最多显示的条数
+    private static final int MAX_SUGGESTIONS = 6;
+    // 重复选项对应的规则（与 R.array.repeat_options 一一对应）
+    private static final String[] REPEAT_RULES = {
+            null, "FREQ=DAILY", "FREQ=WEEKLY", "FREQ=WEEKLY;INTERVAL=2", "FREQ=MONTHLY", "FREQ=YEARLY"
+    };
+    
+    private MaterialAutoCompleteTextView etTitle, etLocation;
+    private TextInputEditText etDescription;
+    private TextView tvTitleBar, tvDate, tvStartTime, tvEndTime, tvConflictWarning;
     private LinearLayout layoutDate, layoutStartTime, layoutEndTime;
     private ChipGroup chipGroupType;
     private Button btnDelete;
@@ -54,6 +76,7 @@ public class EventEditActivity extends AppCompatActivity {
     private com.google.android.material.switchmaterial.SwitchMaterial switchReminder;
     private com.google.android.material.switchmaterial.SwitchMaterial switchSound;
     private android.widget.Spinner spinnerReminder;
+    private android.widget.Spinner spinnerRepeat;
     private com.google.android.material.card.MaterialCardView cardReminderTime;
     private com.google.android.material.card.MaterialCardView cardSound;
     
@@ -61,11 +84,23 @@ public class EventEditActivity extends AppCompatActivity {
     private ReminderScheduler reminderScheduler;
     private CalendarEvent currentEvent;
     private boolean isEditMode = false;
+    // 打开的重复日程的那一次的开始时间，-1 表示不是从某一次打开
+    private long occurrenceStart = -1;
+    // 导入的规则不在重复选项中时保留原规则
+    private String customRule;
     
     private Calendar eventDate;
     private Calendar startTime;
     private Calendar endTime;
     
+    // 冲突检测
+    private final Handler conflictHandler = new Handler(Looper.getMainLooper());
+    private final Runnable conflictCheck = this::checkConflicts;
+    private List<CalendarEvent> conflicts = new ArrayList<>();
+    private boolean conflictsUpToDate = false;
+    // 每次时间变化递增，用于丢弃过期的检测结果
+    private int conflictGeneration = 0;
+    
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy年MM月dd日", Locale.CHINA);
     private SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.CHINA);
     
@@ -113,6 +148,13 @@ public class EventEditActivity extends AppCompatActivity {
         super.onResume();
     }
     
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        conflictHandler.removeCallbacks(conflictCheck);
+        conflictGeneration++;
+    }
+    
     private void initViews() {
         tvTitleBar = findViewById(R.id.tv_title);
         etTitle = findViewById(R.id.et_event_title);
@@ -122,6 +164,7 @@ public class EventEditActivity extends AppCompatActivity {
         tvDate = findViewById(R.id.tv_date);
         tvStartTime = findViewById(R.id.tv_start_time);
         tvEndTime = findViewById(R.id.tv_end_time);
+        tvConflictWarning = findViewById(R.id.tv_conflict_warning);
         
         layoutDate = findViewById(R.id.layout_date);
         layoutStartTime = findViewById(R.id.layout_start_time);
@@ -144,11 +187,27 @@ public class EventEditActivity extends AppCompatActivity {
                 this, R.array.reminder_times, android.R.layout.simple_spinner_item);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerReminder.setAdapter(adapter);
+        
+        spinnerRepeat = findViewById(R.id.spinner_repeat);
+        setupRepeatOptions();
+    }
+    
+    private void setupRepeatOptions() {
+        List<CharSequence> options = new ArrayList<>(
+                java.util.Arrays.asList(getResources().getTextArray(R.array.repeat_options)));
+        if (customRule != null) {
+            options.add("自定义");
+        }
+        android.widget.ArrayAdapter<CharSequence> adapter = new android.widget.ArrayAdapter<>(
+                this, android.R.layout.simple_spinner_item, options);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRepeat.setAdapter(adapter);
     }
     
     private void initData() {
         eventManager = new EventManager(this);
         reminderScheduler = new ReminderScheduler(this);
+        eventManager.prepareSuggestions();
         
         // 初始化时间
         eventDate = Calendar.getInstance();
@@ -158,6 +217,7 @@ public class EventEditActivity extends AppCompatActivity {
         // 检查是否是编辑模式
         long eventId = getIntent().getLongExtra(EXTRA_EVENT_ID, -1);
         long dateMillis = getIntent().getLongExtra(EXTRA_EVENT_DATE, System.currentTimeMillis());
+        occurrenceStart = getIntent().getLongExtra(EXTRA_OCCURRENCE_START, -1);
         
         if (eventId != -1) {
             // 编辑模式
@@ -178,22 +238,32 @@ public class EventEditActivity extends AppCompatActivity {
             // 设置默认日期
             eventDate.setTimeInMillis(dateMillis);
             
-            // 设置默认时间（下一个整点）
-            startTime.setTimeInMillis(dateMillis);
-            startTime.set(Calendar.MINUTE, 0);
-            startTime.set(Calendar.SECOND, 0);
-            startTime.add(Calendar.HOUR_OF_DAY, 1);
-            
-            endTime.setTimeInMillis(startTime.getTimeInMillis());
-            endTime.add(Calendar.HOUR_OF_DAY, 1);
+            long startMillis = getIntent().getLongExtra(EXTRA_START_TIME, -1);
+            long endMillis = getIntent().getLongExtra(EXTRA_END_TIME, -1);
+            if (startMillis != -1 && endMillis > startMillis) {
+                // 使用指定的时间段
+                eventDate.setTimeInMillis(startMillis);
+                startTime.setTimeInMillis(startMillis);
+                endTime.setTimeInMillis(endMillis);
+            } else {
+                // 设置默认时间（下一个整点）
+                startTime.setTimeInMillis(dateMillis);
+                startTime.set(Calendar.MINUTE, 0);
+                startTime.set(Calendar.SECOND, 0);
+                startTime.add(Calendar.HOUR_OF_DAY, 1);
+                
+                endTime.setTimeInMillis(startTime.getTimeInMillis());
+                endTime.add(Calendar.HOUR_OF_DAY, 1);
+            }
             
             updateDateTimeDisplay();
         }
     }
     
     private void loadEventData() {
-        etTitle.setText(currentEvent.getTitle());
-        etLocation.setText(currentEvent.getLocation());
+        // 不弹出补全列表
+        etTitle.setText(currentEvent.getTitle(), false);
+        etLocation.setText(currentEvent.getLocation(), false);
         etDescription.setText(currentEvent.getDescription());
         
         eventDate.setTime(currentEvent.getStartTime());
@@ -201,23 +271,16 @@ public class EventEditActivity extends AppCompatActivity {
         endTime.setTime(currentEvent.getEndTime());
         
         // 设置事件类型
-        switch (currentEvent.getType()) {
-            case MEETING:
-                chipGroupType.check(R.id.chip_meeting);
-                break;
-            case WORK:
-                chipGroupType.check(R.id.chip_work);
-                break;
-            case PERSONAL:
-                chipGroupType.check(R.id.chip_personal);
-                break;
-            case IMPORTANT:
-                chipGroupType.check(R.id.chip_important);
-                break;
-            case OTHER:
-                chipGroupType.check(R.id.chip_other);
-                break;
+        checkTypeChip(currentEvent.getType());
+        
+        // 设置重复规则（编辑的是整个重复日程）
+        int repeatPosition = getRepeatPosition(currentEvent.getRrule());
+        if (repeatPosition < 0) {
+            customRule = currentEvent.getRrule();
+            setupRepeatOptions();
+            repeatPosition = REPEAT_RULES.length;
         }
+        spinnerRepeat.setSelection(repeatPosition);
         
         // 加载提醒设置
         switchReminder.setChecked(currentEvent.isReminderEnabled());
@@ -237,6 +300,43 @@ public class EventEditActivity extends AppCompatActivity {
         updateDateTimeDisplay();
     }
     
+    private void checkTypeChip(CalendarEvent.EventType type) {
+        switch (type) {
+            case MEETING:
+                chipGroupType.check(R.id.chip_meeting);
+                break;
+            case WORK:
+                chipGroupType.check(R.id.chip_work);
+                break;
+            case PERSONAL:
+                chipGroupType.check(R.id.chip_personal);
+                break;
+            case IMPORTANT:
+                chipGroupType.check(R.id.chip_important);
+                break;
+            case OTHER:
+                chipGroupType.check(R.id.chip_other);
+                break;
+        }
+    }
+    
+    private int getRepeatPosition(String rrule) {
+        for (int i = 0; i < REPEAT_RULES.length; i++) {
+            if (java.util.Objects.equals(REPEAT_RULES[i], rrule)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private String getSelectedRepeatRule() {
+        int position = spinnerRepeat.getSelectedItemPosition();
+        if (position >= 0 && position < REPEAT_RULES.length) {
+            return REPEAT_RULES[position];
+        }
+        return customRule;
+    }
+    
     private int getReminderTimePosition(CalendarEvent.ReminderTime reminderTime) {
         CalendarEvent.ReminderTime[] times = CalendarEvent.ReminderTime.values();
         for (int i = 0; i < times.length; i++) {
@@ -250,7 +350,7 @@ public class EventEditActivity extends AppCompatActivity {
     private void setupListeners() {
         btnCancel.setOnClickListener(v -> finish());
         
-        btnSave.setOnClickListener(v -> saveEvent());
+        btnSave.setOnClickListener(v -> onSaveClicked());
         
         btnDelete.setOnClickListener(v -> showDeleteConfirmDialog());
         
@@ -270,6 +370,45 @@ public class EventEditActivity extends AppCompatActivity {
                 cardSound.setVisibility(View.GONE);
             }
         });
+        
+        setupSuggestions();
+    }
+    
+    /**
+     * 标题和地点的自动补全：候选项来自历史输入的前缀索引（在 EventManager 中后台构建）
+     */
+    private void setupSuggestions() {
+        etTitle.setAdapter(new SuggestionAdapter(this,
+                prefix -> eventManager.suggestTitles(prefix, MAX_SUGGESTIONS)));
+        etLocation.setAdapter(new SuggestionAdapter(this,
+                prefix -> eventManager.suggestLocations(prefix, MAX_SUGGESTIONS)));
+        etTitle.setOnItemClickListener((parent, view, position, id) ->
+                applyTitleHistory((String) parent.getItemAtPosition(position)));
+    }
+    
+    /**
+     * 新建日程时选中历史标题：套用该标题常用的类型和提醒设置
+     */
+    private void applyTitleHistory(String title) {
+        if (isEditMode) {
+            return;
+        }
+        SuggestionTrie.Entry history = eventManager.getTitleHistory(title);
+        if (history == null) {
+            return;
+        }
+        CalendarEvent.EventType type = history.getUsualType();
+        if (type != null) {
+            checkTypeChip(type);
+        }
+        Integer reminderMinutes = history.getUsualReminderMinutes();
+        if (reminderMinutes != null) {
+            switchReminder.setChecked(reminderMinutes != SuggestionTrie.NO_REMINDER);
+            if (reminderMinutes != SuggestionTrie.NO_REMINDER) {
+                spinnerReminder.setSelection(getReminderTimePosition(
+                        CalendarEvent.ReminderTime.fromMinutes(reminderMinutes)));
+            }
+        }
     }
     
     private void showDatePicker() {
@@ -324,6 +463,84 @@ public class EventEditActivity extends AppCompatActivity {
         tvDate.setText(dateFormat.format(eventDate.getTime()));
         tvStartTime.setText(timeFormat.format(startTime.getTime()));
         tvEndTime.setText(timeFormat.format(endTime.getTime()));
+        scheduleConflictCheck();
+    }
+    
+    /**
+     * 时间变化后重新安排冲突检测：取消尚未执行的检测，进行中的结果也会被丢弃
+     */
+    private void scheduleConflictCheck() {
+        conflictGeneration++;
+        conflictsUpToDate = false;
+        conflictHandler.removeCallbacks(conflictCheck);
+        conflictHandler.postDelayed(conflictCheck, CONFLICT_CHECK_DELAY);
+    }
+    
+    private void checkConflicts() {
+        int generation = conflictGeneration;
+        long start = startTime.getTimeInMillis();
+        long end = endTime.getTimeInMillis();
+        eventManager.loadConflictingEvents(start, end, getEditingEventId(), result -> {
+            runOnUiThread(() -> {
+                if (generation != conflictGeneration || isFinishing()) {
+                    return;
+                }
+                conflicts = result;
+                conflictsUpToDate = true;
+                showConflicts();
+            });
+        });
+    }
+    
+    private long getEditingEventId() {
+        return isEditMode && currentEvent != null ? currentEvent.getId() : -1;
+    }
+    
+    private void showConflicts() {
+        if (conflicts.isEmpty()) {
+            tvConflictWarning.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder text = new StringBuilder("⚠ 与 ").append(conflicts.size()).append(" 个日程时间冲突：");
+        int shown = Math.min(conflicts.size(), 3);
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                text.append("、");
+            }
+            CalendarEvent conflict = conflicts.get(i);
+            text.append(timeFormat.format(conflict.getStartTime())).append(" ").append(conflict.getTitle());
+        }
+        if (conflicts.size() > shown) {
+            text.append(" 等");
+        }
+        tvConflictWarning.setText(text);
+        tvConflictWarning.setVisibility(View.VISIBLE);
+    }
+    
+    /**
+     * 保存前确认冲突；若最近一次调整尚未检测，直接同步查询（索引区间查询，耗时很短）
+     */
+    private void onSaveClicked() {
+        if (!conflictsUpToDate) {
+            conflictHandler.removeCallbacks(conflictCheck);
+            conflictGeneration++;
+            conflicts = eventManager.getConflictingEvents(startTime.getTimeInMillis(),
+                    endTime.getTimeInMillis(), getEditingEventId());
+            conflictsUpToDate = true;
+            showConflicts();
+        }
+        
+        if (conflicts.isEmpty()) {
+            saveEvent();
+            return;
+        }
+        
+        new AlertDialog.Builder(this)
+                .setTitle("时间冲突")
+                .setMessage("该日程与 " + conflicts.size() + " 个已有日程时间重叠，仍要保存吗？")
+                .setPositiveButton("仍然保存", (dialog, which) -> saveEvent())
+                .setNegativeButton("取消", null)
+                .show();
     }
     
     private void saveEvent() {
@@ -362,6 +579,7 @@ public class EventEditActivity extends AppCompatActivity {
         event.setType(eventType);
         event.setLocation(etLocation.getText().toString().trim());
         event.setDescription(etDescription.getText().toString().trim());
+        event.setRrule(getSelectedRepeatRule());
         
         // 设置提醒
         boolean reminderEnabled = switchReminder.isChecked();
@@ -398,7 +616,8 @@ public class EventEditActivity extends AppCompatActivity {
         // 设置新的提醒
         if (reminderEnabled) {
             // 检查提醒时间是否已过
-            if (event.getReminderTime() != null && 
+            // 重复日程提醒下一次发生，不检查第一次的提醒时间
+            if (!event.isRecurring() && event.getReminderTime() != null && 
                 event.getReminderTime().getTime() < System.currentTimeMillis()) {
                 Toast.makeText(this, "提醒时间已过，无法设置提醒", Toast.LENGTH_LONG).show();
             } else {
@@ -406,7 +625,7 @@ public class EventEditActivity extends AppCompatActivity {
                 if (!reminderScheduler.canScheduleExactAlarms()) {
                     Toast.makeText(this, "日程已保存，但需要精确闹钟权限才能设置提醒", Toast.LENGTH_LONG).show();
                 } else {
-                    reminderScheduler.scheduleReminder(event);
+                    reminderScheduler.scheduleReminder(event, eventManager.getExcludedStarts(event));
                     Toast.makeText(this, "日程和提醒已设置", Toast.LENGTH_SHORT).show();
                 }
             }
@@ -417,6 +636,10 @@ public class EventEditActivity extends AppCompatActivity {
     }
     
     private void showDeleteConfirmDialog() {
+        if (currentEvent != null && currentEvent.isRecurring()) {
+            showDeleteRecurringDialog();
+            return;
+        }
         new AlertDialog.Builder(this)
                 .setTitle("删除日程")
                 .setMessage("确定要删除这个日程吗？")
@@ -435,4 +658,37 @@ public class EventEditActivity extends AppCompatActivity {
                 .setNegativeButton("取消", null)
                 .show();
     }
+    
+    /**
+     * 删除重复日程：从某一次打开时可以只删除这一次
+     */
+    private void showDeleteRecurringDialog() {
+        boolean canDeleteOne = occurrenceStart != -1;
+        String[] items = canDeleteOne
+                ? new String[]{"仅删除此次", "删除所有重复"}
+                : new String[]{"删除所有重复"};
+        new AlertDialog.Builder(this)
+                .setTitle("删除重复日程")
+                .setItems(items, (dialog, which) -> {
+                    // 取消提醒，删除后重新安排下一次
+                    if (currentEvent.isReminderEnabled()) {
+                        reminderScheduler.cancelReminder(currentEvent);
+                    }
+                    if (canDeleteOne && which == 0) {
+                        eventManager.deleteOccurrence(currentEvent.getId(), occurrenceStart);
+                        CalendarEvent updated = eventManager.getEvent(currentEvent.getId());
+                        if (updated != null && updated.isReminderEnabled()) {
+                            reminderScheduler.scheduleReminder(updated, eventManager.getExcludedStarts(updated));
+                        }
+                        Toast.makeText(this, "已删除此次日程", Toast.LENGTH_SHORT).show();
+                    } else {
+                        eventManager.deleteEvent(currentEvent.getId());
+                        Toast.makeText(this, "日程已删除", Toast.LENGTH_SHORT).show();
+                    }
+                    setResult(RESULT_DELETED);
+                    finish();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
 }
@@ -0,0 +1,148 @@
+package com.example.myapplication.ui.activity;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.ImageButton;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.R;
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.manager.EventSearchController;
+import com.example.myapplication.ui.adapter.DayScheduleAdapter;
+import com.google.android.material.textfield.TextInputEditText;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 日程搜索Activity（边输入边搜索）
+ */
+public class SearchActivity extends AppCompatActivity implements EventSearchController.Listener {
+
+    private static final int REQUEST_EDIT_EVENT = 1001;
+    // 距离列表末尾不足这么多项时加载下一页
+    private static final int LOAD_MORE_THRESHOLD = 10;
+
+    private TextInputEditText etSearch;
+    private TextView tvSearchCount;
+    private RecyclerView searchRecyclerView;
+    private DayScheduleAdapter adapter;
+    private LinearLayoutManager layoutManager;
+
+    private EventSearchController searchController;
+    private boolean hasMore = false;
+    // 已统计出总数的搜索文本及其总数
+    private String countedText;
+    private int totalCount = 0;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        searchController = new EventSearchController(new EventManager(this), this);
+
+        initViews();
+        setupListeners();
+    }
+
+    private void initViews() {
+        etSearch = findViewById(R.id.et_search);
+        tvSearchCount = findViewById(R.id.tv_search_count);
+        searchRecyclerView = findViewById(R.id.search_recycler_view);
+        ImageButton btnBack = findViewById(R.id.btn_back);
+        btnBack.setOnClickListener(v -> finish());
+
+        adapter = new DayScheduleAdapter(new ArrayList<>(), this::openEvent);
+        // 搜索结果跨越多天，时间带上日期
+        adapter.setTimeFormat(new SimpleDateFormat("M月d日 HH:mm", Locale.CHINA));
+        layoutManager = new LinearLayoutManager(this);
+        searchRecyclerView.setLayoutManager(layoutManager);
+        searchRecyclerView.setAdapter(adapter);
+    }
+
+    private void setupListeners() {
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchController.setText(s.toString());
+            }
+        });
+
+        searchRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (hasMore && dy > 0
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    searchController.loadMore();
+                }
+            }
+        });
+    }
+
+    private void openEvent(CalendarEvent event) {
+        Intent intent = new Intent(this, EventEditActivity.class);
+        intent.putExtra(EventEditActivity.EXTRA_EVENT_ID, event.getId());
+        startActivityForResult(intent, REQUEST_EDIT_EVENT);
+    }
+
+    @Override
+    public void onResults(String text, List<CalendarEvent> results, boolean hasMore) {
+        this.hasMore = hasMore;
+        adapter.updateEvents(results);
+        if (text.trim().isEmpty()) {
+            tvSearchCount.setText("");
+        } else if (!hasMore) {
+            tvSearchCount.setText("共 " + results.size() + " 个日程");
+        } else if (text.equals(countedText)) {
+            tvSearchCount.setText("共 " + totalCount + " 个日程");
+        } else {
+            // 总数统计完成前先显示已加载的数量
+            tvSearchCount.setText("已找到 " + results.size() + " 个日程…");
+        }
+    }
+
+    @Override
+    public void onCount(String text, int count) {
+        countedText = text;
+        totalCount = count;
+        if (!text.trim().isEmpty()) {
+            tvSearchCount.setText("共 " + count + " 个日程");
+        }
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode == RESULT_OK || resultCode == EventEditActivity.RESULT_DELETED) {
+            // 日程已修改或删除：重新搜索，并通知日历页面刷新
+            countedText = null;
+            searchController.refresh();
+            setResult(RESULT_OK);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchController.release();
+    }
+}
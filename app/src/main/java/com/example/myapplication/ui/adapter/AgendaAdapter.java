@@ -0,0 +1,302 @@
+package com.example.myapplication.ui.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.R;
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 议程列表适配器
+ * 按 (start_time, id) 键集分页向前/向后加载，每天第一个事件前插入日期标题；
+ * 只保留最近的若干页，滑出窗口的页被丢弃，内存占用与历史数据量无关。
+ * 已加载的窗口放在 State 中由调用方（ViewModel）持有，界面重建后新的适配器直接沿用，不重新查询。
+ */
+public class AgendaAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    public static final int PAGE_SIZE = 50;
+
+    // 最多同时保留的页数
+    private static final int MAX_PAGES = 5;
+
+    private static final int VIEW_TYPE_HEADER = 0;
+    private static final int VIEW_TYPE_EVENT = 1;
+
+    private final EventManager eventManager;
+    private final DayScheduleAdapter.OnEventClickListener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SimpleDateFormat headerFormat = new SimpleDateFormat("yyyy年M月d日 EEEE", Locale.CHINA);
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.CHINA);
+    private final Calendar dayCalendar = Calendar.getInstance();
+
+    private final State state;
+    private final List<Object> rows;
+    private final ArrayDeque<Integer> pageRowCounts;
+    private boolean loadingForward = false;
+    private boolean loadingBackward = false;
+
+    /**
+     * 已加载的窗口，生命周期可以长于适配器
+     */
+    public static class State {
+        // 列表行：Long 为日期标题（当天零点），CalendarEvent 为事件
+        private final List<Object> rows = new ArrayList<>();
+        // 窗口内每一页占用的行数（含标题），按时间顺序
+        private final ArrayDeque<Integer> pageRowCounts = new ArrayDeque<>();
+        private long anchorTime;
+        private boolean reachedStart = false;
+        private boolean reachedEnd = false;
+        // 每次重新加载或换用新的适配器后递增，用于丢弃过期的分页结果
+        private int generation = 0;
+    }
+
+    public AgendaAdapter(EventManager eventManager, State state, DayScheduleAdapter.OnEventClickListener listener) {
+        this.eventManager = eventManager;
+        this.state = state;
+        this.rows = state.rows;
+        this.pageRowCounts = state.pageRowCounts;
+        this.listener = listener;
+        // 旧适配器尚未返回的分页结果不再写入共用的窗口
+        state.generation++;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_HEADER) {
+            return new HeaderViewHolder(inflater.inflate(R.layout.item_agenda_header, parent, false));
+        }
+        return new DayScheduleAdapter.EventViewHolder(inflater.inflate(R.layout.item_day_event, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Object row = rows.get(position);
+        if (holder instanceof HeaderViewHolder) {
+            ((HeaderViewHolder) holder).tvDate.setText(headerFormat.format(new Date((Long) row)));
+        } else {
+            ((DayScheduleAdapter.EventViewHolder) holder).bind((CalendarEvent) row, timeFormat, listener);
+        }
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows.get(position) instanceof CalendarEvent ? VIEW_TYPE_EVENT : VIEW_TYPE_HEADER;
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    /**
+     * 从指定时间开始重新加载：第一页来自一次索引查询，随后预取之前的一页
+     */
+    public void reload(long anchorTime) {
+        state.anchorTime = anchorTime;
+        state.generation++;
+        rows.clear();
+        pageRowCounts.clear();
+        loadingForward = false;
+        loadingBackward = false;
+        state.reachedStart = false;
+        state.reachedEnd = false;
+        notifyDataSetChanged();
+
+        loadingForward = true;
+        int requestGeneration = state.generation;
+        eventManager.loadAgendaPage(anchorTime, Long.MIN_VALUE, true, PAGE_SIZE, events -> mainHandler.post(() -> {
+            if (requestGeneration != state.generation) {
+                return;
+            }
+            loadingForward = false;
+            appendPage(events);
+            loadPrevious();
+        }));
+    }
+
+    /**
+     * 列表中某个位置对应的时间，用于数据变化后从当前位置重新加载
+     */
+    public long getTimeAt(int position) {
+        if (position < 0 || position >= rows.size()) {
+            return state.anchorTime;
+        }
+        Object row = rows.get(position);
+        if (row instanceof CalendarEvent) {
+            return ((CalendarEvent) row).getStartTime().getTime();
+        }
+        return (Long) row;
+    }
+
+    /**
+     * 加载窗口末尾之后的一页
+     */
+    public void loadNext() {
+        if (loadingForward || state.reachedEnd) {
+            return;
+        }
+        long startTime = state.anchorTime;
+        long id = Long.MIN_VALUE;
+        if (!rows.isEmpty()) {
+            CalendarEvent last = (CalendarEvent) rows.get(rows.size() - 1);
+            startTime = last.getStartTime().getTime();
+            id = last.getId();
+        }
+        loadingForward = true;
+        int requestGeneration = state.generation;
+        eventManager.loadAgendaPage(startTime, id, true, PAGE_SIZE, events -> mainHandler.post(() -> {
+            if (requestGeneration != state.generation) {
+                return;
+            }
+            loadingForward = false;
+            appendPage(events);
+        }));
+    }
+
+    /**
+     * 加载窗口开头之前的一页
+     */
+    public void loadPrevious() {
+        if (loadingBackward || state.reachedStart) {
+            return;
+        }
+        long startTime = state.anchorTime;
+        long id = Long.MIN_VALUE;
+        if (!rows.isEmpty()) {
+            // 第一行总是日期标题
+            CalendarEvent first = (CalendarEvent) rows.get(1);
+            startTime = first.getStartTime().getTime();
+            id = first.getId();
+        }
+        loadingBackward = true;
+        int requestGeneration = state.generation;
+        eventManager.loadAgendaPage(startTime, id, false, PAGE_SIZE, events -> mainHandler.post(() -> {
+            if (requestGeneration != state.generation) {
+                return;
+            }
+            loadingBackward = false;
+            prependPage(events);
+        }));
+    }
+
+    private void appendPage(List<CalendarEvent> events) {
+        if (events.size() < PAGE_SIZE) {
+            state.reachedEnd = true;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        long previousDay = Long.MIN_VALUE;
+        if (!rows.isEmpty()) {
+            previousDay = dayOf((CalendarEvent) rows.get(rows.size() - 1));
+        }
+        List<Object> pageRows = buildRows(events, previousDay);
+        int insertAt = rows.size();
+        rows.addAll(pageRows);
+        pageRowCounts.addLast(pageRows.size());
+        notifyItemRangeInserted(insertAt, pageRows.size());
+
+        if (pageRowCounts.size() > MAX_PAGES) {
+            dropFirstPage();
+        }
+    }
+
+    private void prependPage(List<CalendarEvent> events) {
+        if (events.size() < PAGE_SIZE) {
+            state.reachedStart = true;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Object> pageRows = buildRows(events, Long.MIN_VALUE);
+
+        // 新一页最后一天与原第一天相同：去掉原来的日期标题
+        long lastDay = dayOf(events.get(events.size() - 1));
+        if (!rows.isEmpty() && ((Long) rows.get(0)) == lastDay) {
+            rows.remove(0);
+            pageRowCounts.addFirst(pageRowCounts.pollFirst() - 1);
+            notifyItemRemoved(0);
+        }
+
+        rows.addAll(0, pageRows);
+        pageRowCounts.addFirst(pageRows.size());
+        notifyItemRangeInserted(0, pageRows.size());
+
+        if (pageRowCounts.size() > MAX_PAGES) {
+            dropLastPage();
+        }
+    }
+
+    private void dropFirstPage() {
+        int count = pageRowCounts.pollFirst();
+        rows.subList(0, count).clear();
+        notifyItemRangeRemoved(0, count);
+        state.reachedStart = false;
+
+        // 新的第一页如果从一天的中间开始，需要补上日期标题
+        if (!rows.isEmpty() && rows.get(0) instanceof CalendarEvent) {
+            rows.add(0, dayOf((CalendarEvent) rows.get(0)));
+            pageRowCounts.addFirst(pageRowCounts.pollFirst() + 1);
+            notifyItemInserted(0);
+        }
+    }
+
+    private void dropLastPage() {
+        int count = pageRowCounts.pollLast();
+        int from = rows.size() - count;
+        rows.subList(from, rows.size()).clear();
+        notifyItemRangeRemoved(from, count);
+        state.reachedEnd = false;
+    }
+
+    private List<Object> buildRows(List<CalendarEvent> events, long previousDay) {
+        List<Object> pageRows = new ArrayList<>(events.size() + events.size() / 2);
+        for (CalendarEvent event : events) {
+            long day = dayOf(event);
+            if (day != previousDay) {
+                pageRows.add(day);
+                previousDay = day;
+            }
+            pageRows.add(event);
+        }
+        return pageRows;
+    }
+
+    private long dayOf(CalendarEvent event) {
+        dayCalendar.setTime(event.getStartTime());
+        dayCalendar.set(Calendar.HOUR_OF_DAY, 0);
+        dayCalendar.set(Calendar.MINUTE, 0);
+        dayCalendar.set(Calendar.SECOND, 0);
+        dayCalendar.set(Calendar.MILLISECOND, 0);
+        return dayCalendar.getTimeInMillis();
+    }
+
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        TextView tvDate;
+
+        public HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvDate = itemView.findViewById(R.id.tv_agenda_date);
+        }
+    }
+}
@@ -46,48 +46,7 @@ public class DayScheduleAdapter extends RecyclerView.Adapter<DayScheduleAdapter.
     
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-        CalendarEvent event = events.get(position);
-        
-        // 设置时间
-        String timeText = timeFormat.format(event.getStartTime()) + " - " + timeFormat.format(event.getEndTime());
-        holder.tvTime.setText(timeText);
-        
-        // 设置标题
-        holder.tvTitle.setText(event.getTitle());
-        
-        // 设置描述
-        if (event.getDescription() != null && !event.getDescription().isEmpty()) {
-            holder.tvDescription.setVisibility(View.VISIBLE);
-            holder.tvDescription.setText(event.getDescription());
-        } else {
-            holder.tvDescription.setVisibility(View.GONE);
-        }
-        
-        // 设置地点
-        if (event.getLocation() != null && !event.getLocation().isEmpty()) {
-            holder.tvLocation.setVisibility(View.VISIBLE);
-            holder.tvLocation.setText("📍 " + event.getLocation());
-        } else {
-            holder.tvLocation.setVisibility(View.GONE);
-        }
-        
-        // 设置类型标签
-        holder.tvType.setText(event.getType().getName());
-        holder.tvType.setBackgroundColor(event.getColor());
-        
-        // 设置卡片左侧颜色条
-        holder.colorBar.setBackgroundColor(event.getColor());
-        
-        // 计算时长
-        long duration = event.getDurationMinutes();
-        holder.tvDuration.setText(duration + "分钟");
-        
-        // 点击事件
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onEventClick(event);
-            }
-        });
+        holder.bind(events.get(position), timeFormat, listener);
     }
     
     @Override
@@ -95,6 +54,14 @@ public class DayScheduleAdapter extends RecyclerView.Adapter<DayScheduleAdapter.
         return events.size();
     }
     
+    /**
+     * 设置时间格式（如搜索结果跨越多天时带上日期）
+     */
+    public void setTimeFormat(SimpleDateFormat timeFormat) {
+        this.timeFormat = timeFormat;
+        notifyDataSetChanged();
+    }
+    
     public void updateEvents(List<CalendarEvent> newEvents) {
         this.events = newEvents;
         notifyDataSetChanged();
@@ -121,5 +88,51 @@ public class DayScheduleAdapter extends RecyclerView.Adapter<DayScheduleAdapter.
             tvType = itemView.findViewById(R.id.tv_event_type);
             tvDuration = itemView.findViewById(R.id.tv_event_duration);
         }
+        
+        /**
+         * 绑定单个事件（日视图列表与议程列表共用）
+         */
+        void bind(CalendarEvent event, SimpleDateFormat timeFormat, OnEventClickListener listener) {
+            // 设置时间
+            String timeText = timeFormat.format(event.getStartTime()) + " - " + timeFormat.format(event.getEndTime());
+            tvTime.setText(timeText);
+            
+            // 设置标题
+            tvTitle.setText(event.getTitle());
+            
+            // 设置描述
+            if (event.getDescription() != null && !event.getDescription().isEmpty()) {
+                tvDescription.setVisibility(View.VISIBLE);
+                tvDescription.setText(event.getDescription());
+            } else {
+                tvDescription.setVisibility(View.GONE);
+            }
+            
+            // 设置地点
+            if (event.getLocation() != null && !event.getLocation().isEmpty()) {
+                tvLocation.setVisibility(View.VISIBLE);
+                tvLocation.setText("📍 " + event.getLocation());
+            } else {
+                tvLocation.setVisibility(View.GONE);
+            }
+            
+            // 设置类型标签
+            tvType.setText(event.getType().getName());
+            tvType.setBackgroundColor(event.getColor());
+            
+            // 设置卡片左侧颜色条
+            colorBar.setBackgroundColor(event.getColor());
+            
+            // 计算时长
+            long duration = event.getDurationMinutes();
+            tvDuration.setText(duration + "分钟");
+            
+            // 点击事件
+            itemView.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onEventClick(event);
+                }
+            });
+        }
     }
 }
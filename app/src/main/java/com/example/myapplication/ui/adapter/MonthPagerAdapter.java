@@ -0,0 +1,297 @@
+package com.example.myapplication.ui.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.data.model.CalendarDay;
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.view.MonthGridView;
+import com.example.myapplication.util.CalendarUtils;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 月视图分页适配器（配合 ViewPager2 使用）
+ * 每一页是一个 MonthGridView；按月缓存已带事件数量的日期列表，
+ * 并预取相邻月份，滑动时无需等待数据库。
+ * 缓存放在 MonthCache 中由调用方（ViewModel）持有，界面重建后新的适配器直接沿用已加载的月份。
+ */
+public class MonthPagerAdapter extends RecyclerView.Adapter<MonthPagerAdapter.MonthViewHolder> {
+
+    public static final int VIEW_TYPE_MONTH = 1;
+
+    // 近似无限分页，从中间位置开始
+    private static final int PAGE_COUNT = Integer.MAX_VALUE;
+    public static final int START_POSITION = PAGE_COUNT / 2;
+
+    // 当前月及前后各若干个月
+    private static final int CACHE_SIZE = 7;
+
+    private final EventManager eventManager;
+    private final CalendarAdapter.OnDayClickListener listener;
+    private final int baseMonthIndex;
+    private final MonthCache cache;
+    private final LruCache<Integer, MonthPage> monthCache;
+    private final Set<Integer> loadingMonths = new HashSet<>();
+    private final Set<MonthViewHolder> holders = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private OnMonthLoadedListener monthLoadedListener;
+
+    /**
+     * 某个月份的日期数据
+     */
+    private static class MonthPage {
+        final List<CalendarDay> days;
+        final int version;
+
+        MonthPage(List<CalendarDay> days, int version) {
+            this.days = days;
+            this.version = version;
+        }
+    }
+
+    /**
+     * 按月缓存的日期数据，生命周期可以长于适配器
+     */
+    public static class MonthCache {
+        private final LruCache<Integer, MonthPage> pages = new LruCache<>(CACHE_SIZE);
+        // 数据版本，数据变化后递增，用于丢弃过期的加载结果
+        private int dataVersion = 0;
+    }
+
+    public MonthPagerAdapter(EventManager eventManager, int baseYear, int baseMonth, MonthCache cache,
+                             CalendarAdapter.OnDayClickListener listener) {
+        this.eventManager = eventManager;
+        this.baseMonthIndex = baseYear * 12 + baseMonth;
+        this.cache = cache;
+        this.monthCache = cache.pages;
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public MonthViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        MonthGridView gridView = new MonthGridView(parent.getContext());
+        gridView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        gridView.setOnDayClickListener(listener);
+        MonthViewHolder holder = new MonthViewHolder(gridView);
+        holders.add(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MonthViewHolder holder, int position) {
+        holder.monthIndex = getMonthIndex(position);
+        holder.gridView.setDays(getMonthDays(position));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull MonthViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.monthIndex = Integer.MIN_VALUE;
+        holder.gridView.setDays(null);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_MONTH;
+    }
+
+    @Override
+    public int getItemCount() {
+        return PAGE_COUNT;
+    }
+
+    public int getPositionForMonth(int year, int month) {
+        return START_POSITION + (year * 12 + month - baseMonthIndex);
+    }
+
+    public int getYear(int position) {
+        return Math.floorDiv(getMonthIndex(position), 12);
+    }
+
+    public int getMonth(int position) {
+        return Math.floorMod(getMonthIndex(position), 12);
+    }
+
+    private int getMonthIndex(int position) {
+        return baseMonthIndex + (position - START_POSITION);
+    }
+
+    /**
+     * 获取某一页的日期列表
+     * 有缓存时直接返回（可能是旧版本数据，先显示再刷新），否则先返回不带数量的列表并触发加载
+     */
+    public List<CalendarDay> getMonthDays(int position) {
+        int monthIndex = getMonthIndex(position);
+        MonthPage page = monthCache.get(monthIndex);
+        if (page == null) {
+            page = new MonthPage(buildMonthDays(monthIndex), -1);
+            monthCache.put(monthIndex, page);
+        }
+        if (page.version != cache.dataVersion) {
+            loadMonth(monthIndex);
+        }
+        return page.days;
+    }
+
+    /**
+     * 用首屏快照中的数量预先填充某个月（键为当天开始时间），首次显示时不必等待数据库
+     * 预填的数据不算当前版本，显示后照常在后台加载并替换
+     */
+    public void seedMonth(int year, int month, Map<Long, int[]> dayCounts) {
+        int monthIndex = year * 12 + month;
+        if (monthCache.get(monthIndex) != null) {
+            return;
+        }
+        List<CalendarDay> days = buildMonthDays(monthIndex);
+        for (CalendarDay day : days) {
+            int[] typeCounts = dayCounts.get(CalendarUtils.getStartOfDay(day.getDate()));
+            if (typeCounts != null) {
+                day.setTypeCounts(typeCounts);
+                day.setEventCount(EventManager.sumVisibleCounts(typeCounts));
+            }
+        }
+        monthCache.put(monthIndex, new MonthPage(days, -1));
+    }
+
+    /**
+     * 预取相邻月份的事件数量
+     */
+    public void prefetchAround(int position) {
+        prefetch(getMonthIndex(position - 1));
+        prefetch(getMonthIndex(position + 1));
+    }
+
+    private void prefetch(int monthIndex) {
+        MonthPage page = monthCache.get(monthIndex);
+        if (page == null || page.version != cache.dataVersion) {
+            loadMonth(monthIndex);
+        }
+    }
+
+    /**
+     * 数据已变化：缓存的列表保留用于显示，但会重新加载数量
+     */
+    public void invalidateCounts() {
+        cache.dataVersion++;
+        loadingMonths.clear();
+        for (MonthViewHolder holder : holders) {
+            if (holder.monthIndex != Integer.MIN_VALUE) {
+                loadMonth(holder.monthIndex);
+            }
+        }
+    }
+
+    private void loadMonth(int monthIndex) {
+        if (!loadingMonths.add(monthIndex)) {
+            return;
+        }
+        int version = cache.dataVersion;
+        List<CalendarDay> days = buildMonthDays(monthIndex);
+        eventManager.loadDayTypeCounts(days, counts -> mainHandler.post(() -> {
+            if (version != cache.dataVersion) {
+                return;
+            }
+            loadingMonths.remove(monthIndex);
+            applyCounts(days, counts);
+            eventManager.applyBusyDays(days);
+            monthCache.put(monthIndex, new MonthPage(days, version));
+            for (MonthViewHolder holder : holders) {
+                if (holder.monthIndex == monthIndex) {
+                    holder.gridView.setDays(days);
+                }
+            }
+            if (monthLoadedListener != null) {
+                monthLoadedListener.onMonthLoaded(Math.floorDiv(monthIndex, 12),
+                        Math.floorMod(monthIndex, 12), days);
+            }
+        }));
+    }
+
+    /**
+     * 生成某个月的日期列表；已建立的日期索引可以立即标出有日程的日期，无需等待数量加载
+     */
+    private List<CalendarDay> buildMonthDays(int monthIndex) {
+        List<CalendarDay> days = CalendarUtils.getMonthDays(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12));
+        eventManager.applyBusyDays(days);
+        return days;
+    }
+
+    private static void applyCounts(List<CalendarDay> days, Map<Date, int[]> counts) {
+        for (CalendarDay day : days) {
+            int[] typeCounts = counts.get(day.getDate());
+            day.setTypeCounts(typeCounts != null ? typeCounts : new int[CalendarEvent.EventType.values().length]);
+            day.setEventCount(EventManager.sumVisibleCounts(day.getTypeCounts()));
+        }
+    }
+    
+    /**
+     * 类型筛选变化：用已缓存的分类型数量重新求和并重绘，不访问数据库
+     */
+    public void applyTypeFilter() {
+        for (MonthPage page : monthCache.snapshot().values()) {
+            for (CalendarDay day : page.days) {
+                day.setEventCount(EventManager.sumVisibleCounts(day.getTypeCounts()));
+            }
+            eventManager.applyBusyDays(page.days);
+        }
+        for (MonthViewHolder holder : holders) {
+            if (holder.monthIndex != Integer.MIN_VALUE) {
+                holder.gridView.setDays(holder.gridView.getDays());
+            }
+        }
+    }
+    
+    /**
+     * 某一页所在月份（不含前后补齐的日期）各类型的事件数量；尚未加载时返回 null
+     */
+    public int[] getTypeCounts(int position) {
+        MonthPage page = monthCache.get(getMonthIndex(position));
+        if (page == null || page.version < 0) {
+            return null;
+        }
+        int[] totals = new int[CalendarEvent.EventType.values().length];
+        for (CalendarDay day : page.days) {
+            int[] typeCounts = day.getTypeCounts();
+            if (day.isCurrentMonth() && typeCounts != null) {
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += typeCounts[i];
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * 某个月的数量加载完成（列表对象会被替换）
+     */
+    public interface OnMonthLoadedListener {
+        void onMonthLoaded(int year, int month, List<CalendarDay> days);
+    }
+
+    public void setOnMonthLoadedListener(OnMonthLoadedListener listener) {
+        this.monthLoadedListener = listener;
+    }
+
+    static class MonthViewHolder extends RecyclerView.ViewHolder {
+        MonthGridView gridView;
+        int monthIndex = Integer.MIN_VALUE;
+
+        public MonthViewHolder(@NonNull MonthGridView gridView) {
+            super(gridView);
+            this.gridView = gridView;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.myapplication.ui.adapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自动补全下拉列表适配器
+ * 候选项由外部的前缀索引给出，不使用 ArrayAdapter 自带的过滤
+ */
+public class SuggestionAdapter extends ArrayAdapter<String> {
+
+    public interface SuggestionSource {
+        List<String> suggest(String prefix);
+    }
+
+    private final SuggestionSource source;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> suggestions = constraint != null
+                    ? source.suggest(constraint.toString()) : new ArrayList<>();
+            FilterResults results = new FilterResults();
+            results.values = suggestions;
+            results.count = suggestions.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            clear();
+            if (results.values != null) {
+                addAll((List<String>) results.values);
+            }
+            notifyDataSetChanged();
+        }
+    };
+
+    public SuggestionAdapter(Context context, SuggestionSource source) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<>());
+        this.source = source;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
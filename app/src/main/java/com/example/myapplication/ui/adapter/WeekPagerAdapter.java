@@ -0,0 +1,145 @@
+package com.example.myapplication.ui.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ViewGroup;
+import android.widget.ScrollView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.view.WeekView;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 周视图分页适配器（配合 ViewPager2 使用）
+ * 每一页是包在 ScrollView 中的 WeekView；布局来自 EventManager 的周布局缓存，
+ * 选中某一页后预取前后两周，滑动时直接命中缓存。
+ */
+public class WeekPagerAdapter extends RecyclerView.Adapter<WeekPagerAdapter.WeekViewHolder> {
+
+    public static final int VIEW_TYPE_WEEK = 2;
+
+    private static final int PAGE_COUNT = Integer.MAX_VALUE;
+    public static final int START_POSITION = PAGE_COUNT / 2;
+
+    private final EventManager eventManager;
+    private final long baseWeekStart;
+    private final CalendarAdapter.OnDayClickListener dayClickListener;
+    private final DayScheduleAdapter.OnEventClickListener eventClickListener;
+    private final Set<WeekViewHolder> holders = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public WeekPagerAdapter(EventManager eventManager, long baseWeekStart,
+                            CalendarAdapter.OnDayClickListener dayClickListener,
+                            DayScheduleAdapter.OnEventClickListener eventClickListener) {
+        this.eventManager = eventManager;
+        this.baseWeekStart = baseWeekStart;
+        this.dayClickListener = dayClickListener;
+        this.eventClickListener = eventClickListener;
+    }
+
+    @NonNull
+    @Override
+    public WeekViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ScrollView scrollView = new ScrollView(parent.getContext());
+        scrollView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        scrollView.setBackgroundColor(0xFFFFFFFF);
+
+        WeekView weekView = new WeekView(parent.getContext());
+        weekView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        weekView.setOnDayClickListener(dayClickListener);
+        weekView.setOnEventClickListener(eventClickListener);
+        scrollView.addView(weekView);
+
+        WeekViewHolder holder = new WeekViewHolder(scrollView, weekView);
+        holders.add(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull WeekViewHolder holder, int position) {
+        long weekStart = getWeekStart(position);
+        holder.weekStart = weekStart;
+
+        EventManager.WeekLayout cached = eventManager.peekWeekLayout(weekStart);
+        holder.weekView.setWeekLayout(cached);
+        if (cached == null) {
+            loadWeek(weekStart);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull WeekViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.weekStart = Long.MIN_VALUE;
+        holder.weekView.setWeekLayout(null);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_WEEK;
+    }
+
+    @Override
+    public int getItemCount() {
+        return PAGE_COUNT;
+    }
+
+    public long getWeekStart(int position) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(baseWeekStart);
+        calendar.add(Calendar.DAY_OF_MONTH, (position - START_POSITION) * 7);
+        return calendar.getTimeInMillis();
+    }
+
+    public int getPositionForWeek(long weekStart) {
+        // 按天数换算，四舍五入消除夏令时造成的小时偏差
+        long days = Math.round((weekStart - baseWeekStart) / (24 * 60 * 60 * 1000.0));
+        return START_POSITION + (int) Math.floorDiv(days, 7L);
+    }
+
+    /**
+     * 选中某一周后预取前后相邻两周
+     */
+    public void prefetchAround(int position) {
+        eventManager.prefetchAdjacentWeeks(getWeekStart(position));
+    }
+
+    /**
+     * 数据已变化：重新加载当前已绑定的页面
+     */
+    public void invalidateLayouts() {
+        for (WeekViewHolder holder : holders) {
+            if (holder.weekStart != Long.MIN_VALUE) {
+                loadWeek(holder.weekStart);
+            }
+        }
+    }
+
+    private void loadWeek(long weekStart) {
+        eventManager.loadWeekLayout(weekStart, layout -> mainHandler.post(() -> {
+            for (WeekViewHolder holder : holders) {
+                if (holder.weekStart == weekStart) {
+                    holder.weekView.setWeekLayout(layout);
+                }
+            }
+        }));
+    }
+
+    static class WeekViewHolder extends RecyclerView.ViewHolder {
+        WeekView weekView;
+        long weekStart = Long.MIN_VALUE;
+
+        public WeekViewHolder(@NonNull ScrollView itemView, WeekView weekView) {
+            super(itemView);
+            this.weekView = weekView;
+        }
+    }
+}
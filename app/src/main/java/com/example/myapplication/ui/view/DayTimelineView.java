@@ -0,0 +1,344 @@
+package com.example.myapplication.ui.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.adapter.DayScheduleAdapter;
+import com.example.myapplication.util.EventLayoutEngine;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 日视图时间轴
+ * 按时间纵向绘制一天的日程，重叠的日程由 EventLayoutEngine 分列后并排显示。
+ * 布局在后台计算，这里只负责把已排好的块换算成坐标并绘制，只绘制可见区域内的块。
+ */
+public class DayTimelineView extends View {
+
+    private static final int HOURS = 24;
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final int COLOR_HOUR_LINE = Color.parseColor("#E0E0E0");
+    private static final int COLOR_HOUR_TEXT = Color.parseColor("#999999");
+    private static final int COLOR_TITLE = Color.parseColor("#333333");
+    private static final int COLOR_TIME = Color.parseColor("#666666");
+
+    private static final String[] HOUR_LABELS = new String[HOURS];
+
+    static {
+        for (int i = 0; i < HOURS; i++) {
+            HOUR_LABELS[i] = String.format(Locale.CHINA, "%02d:00", i);
+        }
+    }
+
+    private final Paint linePaint = new Paint();
+    private final Paint hourTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint blockPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint stripePaint = new Paint();
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint timePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final float hourHeight;
+    private final float gutterWidth;
+    private final float blockGap;
+    private final float blockPadding;
+    private final float stripeWidth;
+    private final float cornerRadius;
+    private final int touchSlop;
+
+    private final float hourTextAscent;
+    private final float titleAscent;
+    private final float titleHeight;
+    private final float timeAscent;
+    private final float timeHeight;
+
+    private final Rect clipBounds = new Rect();
+    private final RectF drawRect = new RectF();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.CHINA);
+
+    private EventManager.DayLayout dayLayout;
+    private List<EventLayoutEngine.Block> blocks = new ArrayList<>();
+    private DayScheduleAdapter.OnEventClickListener listener;
+
+    // 每个块的坐标（left, top, right, bottom）及预先截断好的文本
+    private float[] blockBounds = new float[0];
+    private String[] titleLabels = new String[0];
+    private String[] timeLabels = new String[0];
+    private int measuredForWidth = -1;
+
+    private float downX;
+    private float downY;
+    private int pressedIndex = -1;
+
+    public DayTimelineView(Context context) {
+        this(context, null);
+    }
+
+    public DayTimelineView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DayTimelineView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        hourHeight = dp(60);
+        gutterWidth = dp(56);
+        blockGap = dp(2);
+        blockPadding = dp(4);
+        stripeWidth = dp(3);
+        cornerRadius = dp(4);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        linePaint.setColor(COLOR_HOUR_LINE);
+        linePaint.setStrokeWidth(dp(1) / 2f);
+        hourTextPaint.setColor(COLOR_HOUR_TEXT);
+        hourTextPaint.setTextSize(sp(12));
+        blockPaint.setStyle(Paint.Style.FILL);
+        titlePaint.setColor(COLOR_TITLE);
+        titlePaint.setTextSize(sp(13));
+        titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        timePaint.setColor(COLOR_TIME);
+        timePaint.setTextSize(sp(11));
+
+        hourTextAscent = -hourTextPaint.getFontMetrics().ascent;
+        Paint.FontMetrics metrics = titlePaint.getFontMetrics();
+        titleAscent = -metrics.ascent;
+        titleHeight = metrics.descent - metrics.ascent;
+        metrics = timePaint.getFontMetrics();
+        timeAscent = -metrics.ascent;
+        timeHeight = metrics.descent - metrics.ascent;
+    }
+
+    public void setOnEventClickListener(DayScheduleAdapter.OnEventClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置已计算好的一天布局
+     */
+    public void setDayLayout(EventManager.DayLayout layout) {
+        this.dayLayout = layout;
+        this.blocks = layout != null ? layout.getBlocks() : new ArrayList<>();
+        measuredForWidth = -1;
+        if (getWidth() > 0) {
+            computeBlockBounds();
+        }
+        invalidate();
+    }
+
+    /**
+     * 返回某个时间点在视图中的纵坐标，用于滚动定位
+     */
+    public int getOffsetForTime(long time) {
+        if (dayLayout == null) {
+            return 0;
+        }
+        return (int) (getPaddingTop() + (time - dayLayout.getDayStart()) / (float) MINUTE * hourHeight / 60f);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = (int) Math.ceil(hourHeight * HOURS) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        computeBlockBounds();
+    }
+
+    /**
+     * 把布局结果换算为坐标并截断文本，仅在数据或宽度变化时执行
+     */
+    private void computeBlockBounds() {
+        int width = getWidth();
+        if (width == measuredForWidth) {
+            return;
+        }
+        measuredForWidth = width;
+
+        int count = blocks.size();
+        blockBounds = new float[count * 4];
+        titleLabels = new String[count];
+        timeLabels = new String[count];
+        if (dayLayout == null) {
+            return;
+        }
+
+        float contentLeft = getPaddingLeft() + gutterWidth;
+        float contentWidth = width - getPaddingRight() - contentLeft;
+        float minuteHeight = hourHeight / 60f;
+
+        for (int i = 0; i < count; i++) {
+            EventLayoutEngine.Block block = blocks.get(i);
+            float columnWidth = contentWidth / Math.max(block.getColumnCount(), 1);
+            float left = contentLeft + block.getColumn() * columnWidth;
+            float top = getPaddingTop() + (block.getStart() - dayLayout.getDayStart()) / (float) MINUTE * minuteHeight;
+            float bottom = getPaddingTop() + (block.getEnd() - dayLayout.getDayStart()) / (float) MINUTE * minuteHeight;
+
+            blockBounds[i * 4] = left + blockGap;
+            blockBounds[i * 4 + 1] = top + blockGap / 2f;
+            blockBounds[i * 4 + 2] = left + columnWidth - blockGap;
+            blockBounds[i * 4 + 3] = bottom - blockGap / 2f;
+
+            float textWidth = columnWidth - blockGap * 2 - stripeWidth - blockPadding * 2;
+            CalendarEvent event = block.getEvent();
+            String title = event.getTitle() != null ? event.getTitle() : "";
+            titleLabels[i] = textWidth > 0
+                    ? TextUtils.ellipsize(title, titlePaint, textWidth, TextUtils.TruncateAt.END).toString()
+                    : "";
+            if (event.getStartTime() != null && event.getEndTime() != null) {
+                String time = timeFormat.format(event.getStartTime()) + " - " + timeFormat.format(event.getEndTime());
+                timeLabels[i] = timePaint.measureText(time) <= textWidth ? time : null;
+            }
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.getClipBounds(clipBounds);
+        drawHourGrid(canvas);
+
+        if (dayLayout == null) {
+            return;
+        }
+        if (measuredForWidth != getWidth()) {
+            computeBlockBounds();
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            float top = blockBounds[i * 4 + 1];
+            float bottom = blockBounds[i * 4 + 3];
+            // 只绘制可见区域内的块
+            if (bottom < clipBounds.top || top > clipBounds.bottom) {
+                continue;
+            }
+            drawBlock(canvas, i);
+        }
+    }
+
+    private void drawHourGrid(Canvas canvas) {
+        float left = getPaddingLeft();
+        float lineLeft = left + gutterWidth;
+        float right = getWidth() - getPaddingRight();
+        for (int hour = 0; hour < HOURS; hour++) {
+            float y = getPaddingTop() + hour * hourHeight;
+            if (y + hourHeight < clipBounds.top || y > clipBounds.bottom) {
+                continue;
+            }
+            canvas.drawLine(lineLeft, y, right, y, linePaint);
+            canvas.drawText(HOUR_LABELS[hour], left + blockPadding, y + hourTextAscent, hourTextPaint);
+        }
+    }
+
+    private void drawBlock(Canvas canvas, int index) {
+        int color = blocks.get(index).getEvent().getColor();
+        drawRect.set(blockBounds[index * 4], blockBounds[index * 4 + 1],
+                blockBounds[index * 4 + 2], blockBounds[index * 4 + 3]);
+
+        blockPaint.setColor(color);
+        blockPaint.setAlpha(48);
+        canvas.drawRoundRect(drawRect, cornerRadius, cornerRadius, blockPaint);
+
+        stripePaint.setColor(color);
+        canvas.drawRect(drawRect.left, drawRect.top, drawRect.left + stripeWidth, drawRect.bottom, stripePaint);
+
+        float textLeft = drawRect.left + stripeWidth + blockPadding;
+        float y = drawRect.top + blockPadding;
+        if (y + titleHeight > drawRect.bottom) {
+            return;
+        }
+        canvas.save();
+        canvas.clipRect(drawRect);
+        canvas.drawText(titleLabels[index], textLeft, y + titleAscent, titlePaint);
+        y += titleHeight;
+        if (timeLabels[index] != null && y + timeHeight <= drawRect.bottom) {
+            canvas.drawText(timeLabels[index], textLeft, y + timeAscent, timePaint);
+        }
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = event.getX();
+                downY = event.getY();
+                pressedIndex = hitTest(downX, downY);
+                // 未命中时不消费，交给外层 ScrollView 处理
+                return pressedIndex >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(event.getX() - downX) > touchSlop
+                        || Math.abs(event.getY() - downY) > touchSlop) {
+                    pressedIndex = -1;
+                }
+                return pressedIndex >= 0;
+            case MotionEvent.ACTION_UP:
+                if (pressedIndex >= 0 && pressedIndex == hitTest(event.getX(), event.getY())) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performClick();
+                    if (listener != null) {
+                        listener.onEventClick(blocks.get(pressedIndex).getEvent());
+                    }
+                }
+                pressedIndex = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedIndex = -1;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * 命中测试：后绘制的块在上层，因此倒序查找
+     */
+    private int hitTest(float x, float y) {
+        if (blockBounds.length < blocks.size() * 4) {
+            return -1;
+        }
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            if (x >= blockBounds[i * 4] && x <= blockBounds[i * 4 + 2]
+                    && y >= blockBounds[i * 4 + 1] && y <= blockBounds[i * 4 + 3]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value,
+                getResources().getDisplayMetrics());
+    }
+
+    private float sp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value,
+                getResources().getDisplayMetrics());
+    }
+}
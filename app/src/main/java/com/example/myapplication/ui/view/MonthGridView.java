@@ -0,0 +1,361 @@
+package com.example.myapplication.ui.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Trace;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.example.myapplication.data.model.CalendarDay;
+import com.example.myapplication.ui.adapter.CalendarAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 月视图网格
+ * 用单个 View 在 Canvas 上绘制整月的日期格子，替代 42 个 MaterialCardView 的 item_calendar_day，
+ * 避免逐格 inflate、measure 和阴影绘制。点击通过坐标命中测试，仍回调 CalendarAdapter.OnDayClickListener。
+ */
+public class MonthGridView extends View {
+
+    private static final int COLUMNS = 7;
+    private static final int MAX_DAY = 31;
+    private static final int MAX_COUNT_LABEL = 99;
+
+    // 与 item_calendar_day / CalendarAdapter 保持一致的配色
+    private static final int COLOR_CARD = Color.parseColor("#FFFFFF");
+    private static final int COLOR_CARD_TODAY = Color.parseColor("#E3F2FD");
+    private static final int COLOR_CARD_SELECTED = Color.parseColor("#2196F3");
+    private static final int COLOR_TEXT = Color.parseColor("#333333");
+    private static final int COLOR_TEXT_OTHER_MONTH = Color.parseColor("#CCCCCC");
+    private static final int COLOR_TEXT_TODAY = Color.parseColor("#2196F3");
+    private static final int COLOR_TEXT_SELECTED = Color.parseColor("#FFFFFF");
+    private static final int COLOR_DOT = Color.parseColor("#4CAF50");
+    private static final int COLOR_COUNT = Color.parseColor("#666666");
+
+    // 预先生成的文本，绘制时不再拼接字符串
+    private static final String[] DAY_LABELS = new String[MAX_DAY + 1];
+    private static final String[] COUNT_LABELS = new String[MAX_COUNT_LABEL + 1];
+
+    static {
+        for (int i = 1; i <= MAX_DAY; i++) {
+            DAY_LABELS[i] = String.valueOf(i);
+        }
+        for (int i = 0; i <= MAX_COUNT_LABEL; i++) {
+            COUNT_LABELS[i] = String.valueOf(i);
+        }
+        COUNT_LABELS[MAX_COUNT_LABEL] = MAX_COUNT_LABEL + "+";
+    }
+
+    // 缓存的画笔
+    private final Paint cardPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint numberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint todayNumberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint countPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // 预计算的文本宽度与基线，随字号只计算一次
+    private final float[] dayLabelWidths = new float[MAX_DAY + 1];
+    private final float[] todayLabelWidths = new float[MAX_DAY + 1];
+    private final float[] countLabelWidths = new float[MAX_COUNT_LABEL + 1];
+    private float numberAscent;
+    private float numberHeight;
+    private float todayNumberAscent;
+    private float todayNumberHeight;
+    private float countAscent;
+    private float countHeight;
+
+    private final float cellMargin;
+    private final float cornerRadius;
+    private final float dotRadius;
+    private final float dotMarginTop;
+    private final float countMarginTop;
+    private final float minRowHeight;
+    private final int touchSlop;
+
+    private final RectF cellRect = new RectF();
+
+    private List<CalendarDay> days = new ArrayList<>();
+    private CalendarAdapter.OnDayClickListener listener;
+
+    private int rows;
+    private float cellWidth;
+    private float cellHeight;
+
+    private float downX;
+    private float downY;
+    private int pressedIndex = -1;
+
+    public MonthGridView(Context context) {
+        this(context, null);
+    }
+
+    public MonthGridView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MonthGridView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        cellMargin = dp(2);
+        cornerRadius = dp(8);
+        dotRadius = dp(3);
+        dotMarginTop = dp(4);
+        countMarginTop = dp(2);
+        minRowHeight = dp(60) + cellMargin * 2;
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        cardPaint.setStyle(Paint.Style.FILL);
+        dotPaint.setStyle(Paint.Style.FILL);
+        dotPaint.setColor(COLOR_DOT);
+
+        numberPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        numberPaint.setTextSize(sp(16));
+        todayNumberPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        todayNumberPaint.setTextSize(sp(18));
+        countPaint.setTextSize(sp(10));
+        countPaint.setColor(COLOR_COUNT);
+
+        precomputeTextLayouts();
+    }
+
+    /**
+     * 预计算所有可能出现的日期数字与数量文本的宽度和字体度量
+     */
+    private void precomputeTextLayouts() {
+        for (int i = 1; i <= MAX_DAY; i++) {
+            dayLabelWidths[i] = numberPaint.measureText(DAY_LABELS[i]);
+            todayLabelWidths[i] = todayNumberPaint.measureText(DAY_LABELS[i]);
+        }
+        for (int i = 0; i <= MAX_COUNT_LABEL; i++) {
+            countLabelWidths[i] = countPaint.measureText(COUNT_LABELS[i]);
+        }
+
+        Paint.FontMetrics metrics = numberPaint.getFontMetrics();
+        numberAscent = -metrics.ascent;
+        numberHeight = metrics.descent - metrics.ascent;
+
+        metrics = todayNumberPaint.getFontMetrics();
+        todayNumberAscent = -metrics.ascent;
+        todayNumberHeight = metrics.descent - metrics.ascent;
+
+        metrics = countPaint.getFontMetrics();
+        countAscent = -metrics.ascent;
+        countHeight = metrics.descent - metrics.ascent;
+    }
+
+    public void setOnDayClickListener(CalendarAdapter.OnDayClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置要显示的日期（35 或 42 天）
+     */
+    public void setDays(List<CalendarDay> newDays) {
+        this.days = newDays != null ? newDays : new ArrayList<>();
+        int newRows = (days.size() + COLUMNS - 1) / COLUMNS;
+        if (newRows != rows) {
+            rows = newRows;
+            // 行数变化而视图大小不变时不会回调 onSizeChanged，这里先按当前大小重算行高
+            if (getWidth() > 0) {
+                updateCellSize();
+            }
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public List<CalendarDay> getDays() {
+        return days;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        Trace.beginSection("MonthGridView#onMeasure");
+        try {
+            int width = MeasureSpec.getSize(widthMeasureSpec);
+            int desiredHeight = (int) Math.ceil(minRowHeight * Math.max(rows, 1))
+                    + getPaddingTop() + getPaddingBottom();
+            int height = resolveSize(desiredHeight, heightMeasureSpec);
+            setMeasuredDimension(width, height);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateCellSize();
+    }
+
+    private void updateCellSize() {
+        int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        int contentHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        cellWidth = contentWidth / (float) COLUMNS;
+        // 行高不小于原卡片高度，高度不足时由外层滚动
+        cellHeight = rows > 0 ? Math.max(minRowHeight, contentHeight / (float) rows) : minRowHeight;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        Trace.beginSection("MonthGridView#onDraw");
+        try {
+            if (cellWidth == 0) {
+                updateCellSize();
+            }
+            int count = days.size();
+            for (int i = 0; i < count; i++) {
+                drawCell(canvas, i, days.get(i));
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private void drawCell(Canvas canvas, int index, CalendarDay day) {
+        float left = getPaddingLeft() + (index % COLUMNS) * cellWidth;
+        float top = getPaddingTop() + (index / COLUMNS) * cellHeight;
+        cellRect.set(left + cellMargin, top + cellMargin,
+                left + cellWidth - cellMargin, top + cellHeight - cellMargin);
+
+        // 卡片背景
+        int cardColor = COLOR_CARD;
+        if (day.isSelected()) {
+            cardColor = COLOR_CARD_SELECTED;
+        } else if (day.isToday()) {
+            cardColor = COLOR_CARD_TODAY;
+        }
+        cardPaint.setColor(cardColor);
+        canvas.drawRoundRect(cellRect, cornerRadius, cornerRadius, cardPaint);
+
+        // 日期数字
+        int dayOfMonth = day.getDay();
+        Paint textPaint = day.isToday() ? todayNumberPaint : numberPaint;
+        float textWidth = day.isToday() ? todayLabelWidths[dayOfMonth] : dayLabelWidths[dayOfMonth];
+        float textAscent = day.isToday() ? todayNumberAscent : numberAscent;
+        float textHeight = day.isToday() ? todayNumberHeight : numberHeight;
+
+        int textColor;
+        int textAlpha = 255;
+        if (day.isSelected()) {
+            textColor = COLOR_TEXT_SELECTED;
+        } else if (day.isToday()) {
+            textColor = COLOR_TEXT_TODAY;
+        } else if (day.isCurrentMonth()) {
+            textColor = COLOR_TEXT;
+        } else {
+            textColor = COLOR_TEXT_OTHER_MONTH;
+            textAlpha = 128;
+        }
+        textPaint.setColor(textColor);
+        textPaint.setAlpha(textAlpha);
+
+        boolean showDot = day.hasEvents();
+        boolean showCount = showDot && day.getEventCount() > 1;
+
+        // 内容整体垂直居中：数字 + 圆点 + 数量
+        float contentHeight = textHeight;
+        if (showDot) {
+            contentHeight += dotMarginTop + dotRadius * 2;
+        }
+        if (showCount) {
+            contentHeight += countMarginTop + countHeight;
+        }
+        float centerX = cellRect.centerX();
+        float y = cellRect.centerY() - contentHeight / 2f;
+
+        canvas.drawText(DAY_LABELS[dayOfMonth], centerX - textWidth / 2f, y + textAscent, textPaint);
+        y += textHeight;
+
+        if (showDot) {
+            y += dotMarginTop;
+            canvas.drawCircle(centerX, y + dotRadius, dotRadius, dotPaint);
+            y += dotRadius * 2;
+        }
+
+        if (showCount) {
+            y += countMarginTop;
+            int label = Math.min(day.getEventCount(), MAX_COUNT_LABEL);
+            canvas.drawText(COUNT_LABELS[label], centerX - countLabelWidths[label] / 2f,
+                    y + countAscent, countPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = event.getX();
+                downY = event.getY();
+                pressedIndex = hitTest(downX, downY);
+                return pressedIndex >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(event.getX() - downX) > touchSlop
+                        || Math.abs(event.getY() - downY) > touchSlop) {
+                    pressedIndex = -1;
+                }
+                return pressedIndex >= 0;
+            case MotionEvent.ACTION_UP:
+                if (pressedIndex >= 0 && pressedIndex == hitTest(event.getX(), event.getY())) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performClick();
+                    if (listener != null) {
+                        listener.onDayClick(days.get(pressedIndex));
+                    }
+                }
+                pressedIndex = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedIndex = -1;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * 根据坐标计算命中的格子下标，未命中返回 -1
+     */
+    private int hitTest(float x, float y) {
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            return -1;
+        }
+        float localX = x - getPaddingLeft();
+        float localY = y - getPaddingTop();
+        if (localX < 0 || localY < 0) {
+            return -1;
+        }
+        int column = (int) (localX / cellWidth);
+        int row = (int) (localY / cellHeight);
+        if (column >= COLUMNS || row >= rows) {
+            return -1;
+        }
+        int index = row * COLUMNS + column;
+        return index < days.size() ? index : -1;
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value,
+                getResources().getDisplayMetrics());
+    }
+
+    private float sp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value,
+                getResources().getDisplayMetrics());
+    }
+}
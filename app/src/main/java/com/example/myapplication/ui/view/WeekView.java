@@ -0,0 +1,458 @@
+package com.example.myapplication.ui.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.example.myapplication.data.model.CalendarDay;
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.adapter.CalendarAdapter;
+import com.example.myapplication.ui.adapter.DayScheduleAdapter;
+import com.example.myapplication.util.EventLayoutEngine;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 周视图
+ * 顶部为 7 天的表头和跨天事件横条，下方为 7 列时间轴。
+ * 布局由 EventManager.getWeekLayout 在后台算好，这里只做坐标换算与绘制。
+ */
+public class WeekView extends View {
+
+    private static final int DAYS = 7;
+    private static final int HOURS = 24;
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final int COLOR_HEADER_TEXT = Color.parseColor("#666666");
+    private static final int COLOR_TODAY = Color.parseColor("#2196F3");
+    private static final int COLOR_TODAY_BACKGROUND = Color.parseColor("#E3F2FD");
+    private static final int COLOR_LINE = Color.parseColor("#E0E0E0");
+    private static final int COLOR_TITLE = Color.parseColor("#333333");
+    private static final int COLOR_BAR_TEXT = Color.parseColor("#FFFFFF");
+
+    private static final String[] WEEKDAY_LABELS = {"日", "一", "二", "三", "四", "五", "六"};
+    private static final String[] HOUR_LABELS = new String[HOURS];
+    private static final String[] DAY_LABELS = new String[32];
+
+    static {
+        for (int i = 0; i < HOURS; i++) {
+            HOUR_LABELS[i] = String.format(Locale.CHINA, "%02d", i);
+        }
+        for (int i = 1; i < DAY_LABELS.length; i++) {
+            DAY_LABELS[i] = String.valueOf(i);
+        }
+    }
+
+    private final Paint linePaint = new Paint();
+    private final Paint headerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dayNumberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint todayPaint = new Paint();
+    private final Paint hourPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint blockPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint barTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+    private final float headerHeight;
+    private final float laneHeight;
+    private final float hourHeight;
+    private final float gutterWidth;
+    private final float gap;
+    private final float textPadding;
+    private final float cornerRadius;
+    private final int touchSlop;
+
+    private final float headerAscent;
+    private final float dayNumberAscent;
+    private final float hourAscent;
+    private final float titleAscent;
+    private final float barTextCenterOffset;
+
+    private final Rect clipBounds = new Rect();
+    private final RectF drawRect = new RectF();
+
+    private EventManager.WeekLayout weekLayout;
+    private CalendarAdapter.OnDayClickListener dayClickListener;
+    private DayScheduleAdapter.OnEventClickListener eventClickListener;
+
+    // 扁平化后的绘制数据：先跨天横条，后各天的块
+    private final List<CalendarEvent> drawEvents = new ArrayList<>();
+    private float[] bounds = new float[0];
+    private String[] labels = new String[0];
+    private int barCount;
+    private int todayIndex = -1;
+    private final int[] dayNumbers = new int[DAYS];
+    private int measuredForWidth = -1;
+
+    private float downX;
+    private float downY;
+    private int pressedIndex = -1;
+    private int pressedDay = -1;
+
+    public WeekView(Context context) {
+        this(context, null);
+    }
+
+    public WeekView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public WeekView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        headerHeight = dp(48);
+        laneHeight = dp(20);
+        hourHeight = dp(48);
+        gutterWidth = dp(32);
+        gap = dp(1);
+        textPadding = dp(2);
+        cornerRadius = dp(3);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        linePaint.setColor(COLOR_LINE);
+        linePaint.setStrokeWidth(dp(1) / 2f);
+        todayPaint.setColor(COLOR_TODAY_BACKGROUND);
+        headerPaint.setColor(COLOR_HEADER_TEXT);
+        headerPaint.setTextSize(sp(12));
+        headerPaint.setTextAlign(Paint.Align.CENTER);
+        dayNumberPaint.setTextSize(sp(16));
+        dayNumberPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        dayNumberPaint.setTextAlign(Paint.Align.CENTER);
+        hourPaint.setColor(COLOR_HEADER_TEXT);
+        hourPaint.setTextSize(sp(10));
+        blockPaint.setStyle(Paint.Style.FILL);
+        titlePaint.setColor(COLOR_TITLE);
+        titlePaint.setTextSize(sp(10));
+        barTextPaint.setColor(COLOR_BAR_TEXT);
+        barTextPaint.setTextSize(sp(11));
+
+        headerAscent = -headerPaint.getFontMetrics().ascent;
+        dayNumberAscent = -dayNumberPaint.getFontMetrics().ascent;
+        hourAscent = -hourPaint.getFontMetrics().ascent;
+        titleAscent = -titlePaint.getFontMetrics().ascent;
+        Paint.FontMetrics barMetrics = barTextPaint.getFontMetrics();
+        barTextCenterOffset = -(barMetrics.ascent + barMetrics.descent) / 2f;
+    }
+
+    public void setOnDayClickListener(CalendarAdapter.OnDayClickListener listener) {
+        this.dayClickListener = listener;
+    }
+
+    public void setOnEventClickListener(DayScheduleAdapter.OnEventClickListener listener) {
+        this.eventClickListener = listener;
+    }
+
+    /**
+     * 设置已计算好的周布局
+     */
+    public void setWeekLayout(EventManager.WeekLayout layout) {
+        boolean lanesChanged = weekLayout == null || layout == null
+                || weekLayout.getLaneCount() != layout.getLaneCount();
+        this.weekLayout = layout;
+        measuredForWidth = -1;
+        todayIndex = -1;
+        if (layout != null) {
+            long now = System.currentTimeMillis();
+            long[] dayStarts = layout.getDayStarts();
+            Calendar calendar = Calendar.getInstance();
+            for (int i = 0; i < DAYS; i++) {
+                calendar.setTimeInMillis(dayStarts[i]);
+                dayNumbers[i] = calendar.get(Calendar.DAY_OF_MONTH);
+                if (now >= dayStarts[i] && now < dayStarts[i + 1]) {
+                    todayIndex = i;
+                }
+            }
+        }
+        if (lanesChanged) {
+            requestLayout();
+        }
+        if (getWidth() > 0) {
+            computeBounds();
+        }
+        invalidate();
+    }
+
+    private float getBarsHeight() {
+        int lanes = weekLayout != null ? weekLayout.getLaneCount() : 0;
+        return lanes > 0 ? lanes * laneHeight + gap * 4 : 0;
+    }
+
+    private float getGridTop() {
+        return getPaddingTop() + headerHeight + getBarsHeight();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = (int) Math.ceil(headerHeight + getBarsHeight() + hourHeight * HOURS)
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        computeBounds();
+    }
+
+    private float getColumnWidth() {
+        return (getWidth() - getPaddingLeft() - getPaddingRight() - gutterWidth) / DAYS;
+    }
+
+    private float getColumnLeft(int day) {
+        return getPaddingLeft() + gutterWidth + day * getColumnWidth();
+    }
+
+    /**
+     * 把布局结果换算为坐标并截断文本，仅在数据或宽度变化时执行
+     */
+    private void computeBounds() {
+        int width = getWidth();
+        if (width == measuredForWidth) {
+            return;
+        }
+        measuredForWidth = width;
+        drawEvents.clear();
+        barCount = 0;
+        if (weekLayout == null) {
+            bounds = new float[0];
+            labels = new String[0];
+            return;
+        }
+
+        List<EventLayoutEngine.Block> bars = weekLayout.getSpanningBars();
+        int total = bars.size();
+        for (int day = 0; day < DAYS; day++) {
+            total += weekLayout.getDayBlocks(day).size();
+        }
+        bounds = new float[total * 4];
+        labels = new String[total];
+
+        float columnWidth = getColumnWidth();
+        float barsTop = getPaddingTop() + headerHeight + gap * 2;
+        int index = 0;
+
+        for (EventLayoutEngine.Block bar : bars) {
+            int firstDay = weekLayout.getDayIndex(bar.getStart());
+            int lastDay = weekLayout.getDayIndex(bar.getEnd() - 1);
+            float top = barsTop + bar.getColumn() * laneHeight;
+            setBounds(index, getColumnLeft(firstDay) + gap, top + gap,
+                    getColumnLeft(lastDay) + columnWidth - gap, top + laneHeight - gap);
+            labels[index] = ellipsize(bar.getEvent(), barTextPaint,
+                    bounds[index * 4 + 2] - bounds[index * 4] - textPadding * 2);
+            drawEvents.add(bar.getEvent());
+            index++;
+        }
+        barCount = index;
+
+        float gridTop = getGridTop();
+        float minuteHeight = hourHeight / 60f;
+        long[] dayStarts = weekLayout.getDayStarts();
+        for (int day = 0; day < DAYS; day++) {
+            float dayLeft = getColumnLeft(day);
+            for (EventLayoutEngine.Block block : weekLayout.getDayBlocks(day)) {
+                float subWidth = columnWidth / Math.max(block.getColumnCount(), 1);
+                float left = dayLeft + block.getColumn() * subWidth;
+                float top = gridTop + (block.getStart() - dayStarts[day]) / (float) MINUTE * minuteHeight;
+                float bottom = gridTop + (block.getEnd() - dayStarts[day]) / (float) MINUTE * minuteHeight;
+                setBounds(index, left + gap, top + gap, left + subWidth - gap, bottom - gap);
+                labels[index] = ellipsize(block.getEvent(), titlePaint, subWidth - gap * 2 - textPadding * 2);
+                drawEvents.add(block.getEvent());
+                index++;
+            }
+        }
+    }
+
+    private void setBounds(int index, float left, float top, float right, float bottom) {
+        bounds[index * 4] = left;
+        bounds[index * 4 + 1] = top;
+        bounds[index * 4 + 2] = right;
+        bounds[index * 4 + 3] = bottom;
+    }
+
+    private static String ellipsize(CalendarEvent event, TextPaint paint, float width) {
+        if (width <= 0 || event.getTitle() == null) {
+            return "";
+        }
+        return TextUtils.ellipsize(event.getTitle(), paint, width, TextUtils.TruncateAt.END).toString();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.getClipBounds(clipBounds);
+        if (measuredForWidth != getWidth()) {
+            computeBounds();
+        }
+        drawHeader(canvas);
+        drawGrid(canvas);
+
+        for (int i = 0; i < drawEvents.size(); i++) {
+            if (bounds[i * 4 + 3] < clipBounds.top || bounds[i * 4 + 1] > clipBounds.bottom) {
+                continue;
+            }
+            drawEvent(canvas, i);
+        }
+    }
+
+    private void drawHeader(Canvas canvas) {
+        float top = getPaddingTop();
+        if (top + headerHeight < clipBounds.top) {
+            return;
+        }
+        float columnWidth = getColumnWidth();
+        for (int day = 0; day < DAYS; day++) {
+            float left = getColumnLeft(day);
+            float centerX = left + columnWidth / 2f;
+            if (day == todayIndex) {
+                canvas.drawRect(left, top, left + columnWidth, top + headerHeight, todayPaint);
+            }
+            canvas.drawText(WEEKDAY_LABELS[day], centerX, top + textPadding * 2 + headerAscent, headerPaint);
+            if (weekLayout != null) {
+                dayNumberPaint.setColor(day == todayIndex ? COLOR_TODAY : COLOR_TITLE);
+                canvas.drawText(DAY_LABELS[dayNumbers[day]], centerX,
+                        top + headerHeight / 2f + dayNumberAscent / 2f + textPadding * 2, dayNumberPaint);
+            }
+        }
+        canvas.drawLine(getPaddingLeft(), top + headerHeight, getWidth() - getPaddingRight(),
+                top + headerHeight, linePaint);
+    }
+
+    private void drawGrid(Canvas canvas) {
+        float gridTop = getGridTop();
+        float left = getPaddingLeft() + gutterWidth;
+        float right = getWidth() - getPaddingRight();
+        for (int hour = 0; hour < HOURS; hour++) {
+            float y = gridTop + hour * hourHeight;
+            if (y + hourHeight < clipBounds.top || y > clipBounds.bottom) {
+                continue;
+            }
+            canvas.drawLine(left, y, right, y, linePaint);
+            canvas.drawText(HOUR_LABELS[hour], getPaddingLeft() + textPadding, y + hourAscent, hourPaint);
+        }
+        float bottom = gridTop + hourHeight * HOURS;
+        for (int day = 0; day <= DAYS; day++) {
+            float x = getColumnLeft(day);
+            canvas.drawLine(x, gridTop, x, bottom, linePaint);
+        }
+    }
+
+    private void drawEvent(Canvas canvas, int index) {
+        CalendarEvent event = drawEvents.get(index);
+        boolean isBar = index < barCount;
+        drawRect.set(bounds[index * 4], bounds[index * 4 + 1], bounds[index * 4 + 2], bounds[index * 4 + 3]);
+
+        blockPaint.setColor(event.getColor());
+        if (!isBar) {
+            blockPaint.setAlpha(64);
+        }
+        canvas.drawRoundRect(drawRect, cornerRadius, cornerRadius, blockPaint);
+
+        canvas.save();
+        canvas.clipRect(drawRect);
+        if (isBar) {
+            canvas.drawText(labels[index], drawRect.left + textPadding * 2,
+                    drawRect.centerY() + barTextCenterOffset, barTextPaint);
+        } else {
+            canvas.drawText(labels[index], drawRect.left + textPadding,
+                    drawRect.top + textPadding + titleAscent, titlePaint);
+        }
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = event.getX();
+                downY = event.getY();
+                pressedIndex = hitTestEvent(downX, downY);
+                pressedDay = pressedIndex < 0 ? hitTestHeader(downX, downY) : -1;
+                return pressedIndex >= 0 || pressedDay >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(event.getX() - downX) > touchSlop
+                        || Math.abs(event.getY() - downY) > touchSlop) {
+                    pressedIndex = -1;
+                    pressedDay = -1;
+                }
+                return pressedIndex >= 0 || pressedDay >= 0;
+            case MotionEvent.ACTION_UP:
+                if (pressedIndex >= 0 && pressedIndex == hitTestEvent(event.getX(), event.getY())) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performClick();
+                    if (eventClickListener != null) {
+                        eventClickListener.onEventClick(drawEvents.get(pressedIndex));
+                    }
+                } else if (pressedDay >= 0 && pressedDay == hitTestHeader(event.getX(), event.getY())) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performClick();
+                    if (dayClickListener != null && weekLayout != null) {
+                        Calendar calendar = Calendar.getInstance();
+                        calendar.setTimeInMillis(weekLayout.getDayStarts()[pressedDay]);
+                        dayClickListener.onDayClick(new CalendarDay(calendar));
+                    }
+                }
+                pressedIndex = -1;
+                pressedDay = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedIndex = -1;
+                pressedDay = -1;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private int hitTestEvent(float x, float y) {
+        if (bounds.length < drawEvents.size() * 4) {
+            return -1;
+        }
+        for (int i = drawEvents.size() - 1; i >= 0; i--) {
+            if (x >= bounds[i * 4] && x <= bounds[i * 4 + 2]
+                    && y >= bounds[i * 4 + 1] && y <= bounds[i * 4 + 3]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int hitTestHeader(float x, float y) {
+        float top = getPaddingTop();
+        float columnWidth = getColumnWidth();
+        if (y < top || y > top + headerHeight || columnWidth <= 0) {
+            return -1;
+        }
+        int day = (int) ((x - getPaddingLeft() - gutterWidth) / columnWidth);
+        return x >= getPaddingLeft() + gutterWidth && day < DAYS ? day : -1;
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value,
+                getResources().getDisplayMetrics());
+    }
+
+    private float sp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value,
+                getResources().getDisplayMetrics());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.myapplication.ui.viewmodel;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.myapplication.data.model.CalendarDay;
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.ui.adapter.AgendaAdapter;
+import com.example.myapplication.ui.adapter.MonthPagerAdapter;
+import com.example.myapplication.util.CalendarUtils;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 主界面（CalendarActivity）的状态：视图模式、当前月份、选中的日期和已加载的数据
+ * 屏幕旋转等界面重建时保留，新的适配器直接沿用已加载的月份和议程窗口；
+ * 只有 EventManager 的数据版本变化后才重新查询。
+ */
+public class CalendarViewModel extends AndroidViewModel {
+
+    public enum ViewMode {
+        YEAR, MONTH, WEEK, DAY, AGENDA
+    }
+
+    private final EventManager eventManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MonthPagerAdapter.MonthCache monthCache = new MonthPagerAdapter.MonthCache();
+    private final AgendaAdapter.State agendaState = new AgendaAdapter.State();
+    private final MutableLiveData<List<CalendarEvent>> dayEvents = new MutableLiveData<>();
+
+    private ViewMode viewMode = ViewMode.MONTH;
+    private Calendar currentCalendar = Calendar.getInstance();
+    private CalendarDay selectedDay;
+    private boolean showTimeline = false;
+
+    // 界面上已加载的数据对应的版本
+    private int dataVersion = EventManager.getDataVersion();
+    // dayEvents 对应的日期（当天零点）和类型筛选，相同时不重新查询
+    private long dayEventsDate = -1;
+    private Set<CalendarEvent.EventType> dayEventsFilter;
+    private boolean dayEventsLoading = false;
+    // 每次查询递增，用于丢弃过期的结果
+    private int dayEventsRequest = 0;
+
+    public CalendarViewModel(@NonNull Application application) {
+        super(application);
+        eventManager = new EventManager(application);
+    }
+
+    public ViewMode getViewMode() {
+        return viewMode;
+    }
+
+    public void setViewMode(ViewMode viewMode) {
+        this.viewMode = viewMode;
+    }
+
+    public Calendar getCurrentCalendar() {
+        return currentCalendar;
+    }
+
+    public void setCurrentCalendar(Calendar currentCalendar) {
+        this.currentCalendar = currentCalendar;
+    }
+
+    public CalendarDay getSelectedDay() {
+        return selectedDay;
+    }
+
+    public void setSelectedDay(CalendarDay selectedDay) {
+        this.selectedDay = selectedDay;
+    }
+
+    public boolean isShowTimeline() {
+        return showTimeline;
+    }
+
+    public void setShowTimeline(boolean showTimeline) {
+        this.showTimeline = showTimeline;
+    }
+
+    public MonthPagerAdapter.MonthCache getMonthCache() {
+        return monthCache;
+    }
+
+    public AgendaAdapter.State getAgendaState() {
+        return agendaState;
+    }
+
+    /**
+     * 数据在上次检查后是否有变化（本界面或其他界面、后台任务的写操作）；有变化时已加载的当天日程作废
+     */
+    public boolean checkDataChanged() {
+        int version = EventManager.getDataVersion();
+        if (version == dataVersion) {
+            return false;
+        }
+        dataVersion = version;
+        dayEventsDate = -1;
+        return true;
+    }
+
+    public LiveData<List<CalendarEvent>> getDayEvents() {
+        return dayEvents;
+    }
+
+    /**
+     * 加载某一天的日程（按当前类型筛选）到 getDayEvents()
+     * 同一天、同样的筛选已经加载过时不再查询，只把已有结果重新发给观察者
+     */
+    public void loadDayEvents(Date date) {
+        long dayStart = CalendarUtils.getStartOfDay(date);
+        Set<CalendarEvent.EventType> filter = EventManager.getTypeFilter();
+        if (dayStart == dayEventsDate && filter.equals(dayEventsFilter)) {
+            if (!dayEventsLoading) {
+                dayEvents.setValue(dayEvents.getValue());
+            }
+            return;
+        }
+        dayEventsDate = dayStart;
+        dayEventsFilter = filter;
+        dayEventsLoading = true;
+        int request = ++dayEventsRequest;
+        eventManager.loadDayEvents(date, events -> mainHandler.post(() -> {
+            if (request != dayEventsRequest) {
+                return;
+            }
+            dayEventsLoading = false;
+            dayEvents.setValue(events);
+        }));
+    }
+}
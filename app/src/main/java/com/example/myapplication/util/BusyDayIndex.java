@@ -0,0 +1,224 @@
+package com.example.myapplication.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * “有日程的日期”位图索引
+ * 每年一个 366 位的位图（6 个 long），第 i 位表示该年第 i + 1 天有日程；
+ * 每年保存为一个 52 字节的小文件，写操作时按天增量更新。
+ */
+public class BusyDayIndex {
+
+    public static final int DAYS_PER_YEAR = 366;
+    private static final int WORDS = (DAYS_PER_YEAR + 63) / 64;
+    private static final int FILE_VERSION = 1;
+
+    private final File dir;
+    private final Map<Integer, long[]> years = new HashMap<>();
+    // 确认磁盘上不存在索引的年份，避免重复读文件
+    private final Set<Integer> missingYears = new HashSet<>();
+    private final Set<Integer> dirtyYears = new HashSet<>();
+    // 每次修改递增，用于判断后台构建期间是否有写入
+    private int version = 0;
+
+    public BusyDayIndex(File dir) {
+        this.dir = dir;
+    }
+
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取某一年的位图（内存中没有时从文件读取），尚未建立索引时返回 null
+     */
+    public synchronized long[] getYear(int year) {
+        long[] bits = years.get(year);
+        if (bits == null && !missingYears.contains(year)) {
+            bits = readYear(year);
+            if (bits != null) {
+                years.put(year, bits);
+            } else {
+                missingYears.add(year);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 保存后台构建好的一年；构建期间若有写入（版本变化）则放弃，下次重新构建
+     */
+    public synchronized boolean putYear(int year, long[] bits, int expectedVersion) {
+        if (expectedVersion != version) {
+            return false;
+        }
+        years.put(year, bits);
+        missingYears.remove(year);
+        writeYear(year, bits);
+        return true;
+    }
+
+    /**
+     * 更新某一天的状态；该年尚未建立索引时忽略（以后构建时会包含这次修改）
+     * 修改先记录在内存中，调用 flush() 后写入文件
+     */
+    public synchronized void setBusy(long dayStart, boolean busy) {
+        version++;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayStart);
+        int year = calendar.get(Calendar.YEAR);
+        long[] bits = getYear(year);
+        if (bits == null) {
+            return;
+        }
+        int index = calendar.get(Calendar.DAY_OF_YEAR) - 1;
+        if (busy) {
+            bits[index >>> 6] |= 1L << (index & 63);
+        } else {
+            bits[index >>> 6] &= ~(1L << (index & 63));
+        }
+        dirtyYears.add(year);
+    }
+
+    public synchronized void flush() {
+        for (int year : dirtyYears) {
+            long[] bits = years.get(year);
+            if (bits != null) {
+                writeYear(year, bits);
+            }
+        }
+        dirtyYears.clear();
+    }
+
+    /**
+     * 丢弃所有年份的索引（内存和文件），之后按需重新构建
+     */
+    public synchronized void clear() {
+        version++;
+        years.clear();
+        missingYears.clear();
+        dirtyYears.clear();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".bin") || file.getName().endsWith(".tmp")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public static long[] newYear() {
+        return new long[WORDS];
+    }
+
+    public static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << (index & 63);
+    }
+
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * 从 from（含）开始向后查找第一个置位的日期序号，没有时返回 -1
+     */
+    public static int nextSetBit(long[] bits, int from) {
+        if (from >= DAYS_PER_YEAR) {
+            return -1;
+        }
+        from = Math.max(from, 0);
+        int index = from >>> 6;
+        long word = bits[index] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) {
+                return index * 64 + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == WORDS) {
+                return -1;
+            }
+            word = bits[index];
+        }
+    }
+
+    /**
+     * 从 from（含）开始向前查找第一个置位的日期序号，没有时返回 -1
+     */
+    public static int previousSetBit(long[] bits, int from) {
+        if (from < 0) {
+            return -1;
+        }
+        from = Math.min(from, DAYS_PER_YEAR - 1);
+        int index = from >>> 6;
+        long word = bits[index] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (word != 0) {
+                return index * 64 + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (--index < 0) {
+                return -1;
+            }
+            word = bits[index];
+        }
+    }
+
+    private File getFile(int year) {
+        return new File(dir, year + ".bin");
+    }
+
+    private long[] readYear(int year) {
+        File file = getFile(year);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            long[] bits = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                bits[i] = in.readLong();
+            }
+            return bits;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再改名，进程在写入中途被杀时不会留下不完整的文件
+     */
+    private void writeYear(int year, long[] bits) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            return;
+        }
+        File file = getFile(year);
+        File temp = new File(dir, year + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_VERSION);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+}
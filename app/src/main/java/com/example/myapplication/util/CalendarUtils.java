@@ -188,6 +188,31 @@ public class CalendarUtils {
         return days;
     }
 
+    /**
+     * 获取指定日期当天零点
+     * @param date 日期
+     * @return 当天零点的时间戳
+     */
+    public static long getStartOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        resetTime(calendar);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 获取指定日期所在周的第一天（周日）零点
+     * @param date 日期
+     * @return 周日零点的时间戳
+     */
+    public static long getStartOfWeek(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        resetTime(calendar);
+        calendar.add(Calendar.DAY_OF_MONTH, -(calendar.get(Calendar.DAY_OF_WEEK) - 1));
+        return calendar.getTimeInMillis();
+    }
+
     /**
      * 判断两个Calendar是否是同一天
      * @param cal1 第一个Calendar
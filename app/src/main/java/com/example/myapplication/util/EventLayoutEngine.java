@@ -0,0 +1,141 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 日程重叠布局引擎
+ * 将一组事件按时间轴排布，互相重叠的事件并排放在不同的列中。
+ * 使用扫描线 + 区间分组算法，复杂度 O(n log n)。
+ */
+public class EventLayoutEngine {
+
+    /**
+     * 单个事件的布局结果
+     */
+    public static class Block {
+        private final CalendarEvent event;
+        private final long start;
+        private final long end;
+        private int column;
+        private int columnCount;
+
+        Block(CalendarEvent event, long start, long end) {
+            this.event = event;
+            this.start = start;
+            this.end = end;
+        }
+
+        public CalendarEvent getEvent() {
+            return event;
+        }
+
+        /** 裁剪到布局区间后的开始时间 */
+        public long getStart() {
+            return start;
+        }
+
+        /** 裁剪到布局区间后的结束时间（已按最小时长补齐） */
+        public long getEnd() {
+            return end;
+        }
+
+        /** 所在列（从 0 开始） */
+        public int getColumn() {
+            return column;
+        }
+
+        /** 所在重叠组的总列数 */
+        public int getColumnCount() {
+            return columnCount;
+        }
+    }
+
+    /**
+     * 计算事件布局
+     *
+     * @param events 事件列表（不要求有序）
+     * @param rangeStart 布局区间开始（如当天零点）
+     * @param rangeEnd 布局区间结束（不含）
+     * @param minDurationMillis 最小显示时长，过短的事件按此时长参与重叠判断
+     * @return 按开始时间排序的布局结果
+     */
+    public static List<Block> layout(List<CalendarEvent> events, long rangeStart, long rangeEnd,
+                                     long minDurationMillis) {
+        List<Block> blocks = new ArrayList<>(events.size());
+        for (CalendarEvent event : events) {
+            if (event.getStartTime() == null) {
+                continue;
+            }
+            long start = Math.max(event.getStartTime().getTime(), rangeStart);
+            long end = event.getEndTime() != null ? event.getEndTime().getTime() : start;
+            end = Math.min(end, rangeEnd);
+            if (start >= rangeEnd) {
+                continue;
+            }
+            if (end - start < minDurationMillis) {
+                end = Math.min(start + minDurationMillis, rangeEnd);
+            }
+            if (end <= start) {
+                continue;
+            }
+            blocks.add(new Block(event, start, end));
+        }
+
+        // 开始时间升序，相同开始时间时长的在前
+        Collections.sort(blocks, (a, b) -> {
+            if (a.start != b.start) {
+                return Long.compare(a.start, b.start);
+            }
+            return Long.compare(b.end, a.end);
+        });
+
+        assignColumns(blocks);
+        return blocks;
+    }
+
+    /**
+     * 扫描线分配列：
+     * active 按结束时间保存正在进行的事件，释放的列号放入 freeColumns 以便复用最小列号；
+     * 当没有进行中的事件时，一个重叠组结束，组内所有事件共享该组用到的列数。
+     */
+    private static void assignColumns(List<Block> blocks) {
+        PriorityQueue<Block> active = new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+        PriorityQueue<Integer> freeColumns = new PriorityQueue<>();
+        int groupStart = 0;
+        int groupColumns = 0;
+
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+
+            while (!active.isEmpty() && active.peek().end <= block.start) {
+                freeColumns.add(active.poll().column);
+            }
+
+            if (active.isEmpty()) {
+                finishGroup(blocks, groupStart, i, groupColumns);
+                groupStart = i;
+                groupColumns = 0;
+                freeColumns.clear();
+            }
+
+            if (!freeColumns.isEmpty()) {
+                block.column = freeColumns.poll();
+            } else {
+                block.column = groupColumns++;
+            }
+            active.add(block);
+        }
+        finishGroup(blocks, groupStart, blocks.size(), groupColumns);
+    }
+
+    private static void finishGroup(List<Block> blocks, int from, int to, int columns) {
+        for (int i = from; i < to; i++) {
+            blocks.get(i).columnCount = columns;
+        }
+    }
+}
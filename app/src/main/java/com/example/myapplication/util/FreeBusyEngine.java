@@ -0,0 +1,233 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.util.List;
+
+/**
+ * 空闲/忙碌位图引擎
+ * 每天按 5 分钟一格表示为 288 位的位图（5 个 long），置位表示忙碌。
+ * 查找空闲时段时把多天位图拼接为一个连续位图，用按字的移位与运算查找连续空闲位，
+ * 不需要逐个遍历事件。
+ */
+public class FreeBusyEngine {
+
+    public static final long SLOT_MILLIS = 5 * 60 * 1000L;
+    public static final int SLOTS_PER_DAY = 288;
+    public static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    /**
+     * 根据事件生成某一天的忙碌位图
+     *
+     * @param dayStart 当天零点
+     * @param dayEnd 次日零点
+     */
+    public static long[] buildDay(List<CalendarEvent> events, long dayStart, long dayEnd) {
+        long[] bits = new long[WORDS_PER_DAY];
+        for (CalendarEvent event : events) {
+            markBusy(bits, dayStart, dayEnd, event);
+        }
+        return bits;
+    }
+
+    /**
+     * 把一个事件标记到某一天的位图上（事件与当天不相交时不做任何事）
+     */
+    public static void markBusy(long[] bits, long dayStart, long dayEnd, CalendarEvent event) {
+        if (event.getStartTime() == null) {
+            return;
+        }
+        long start = event.getStartTime().getTime();
+        long end = event.getEndTime() != null ? event.getEndTime().getTime() : start;
+        // 零时长事件至少占一格
+        if (end <= start) {
+            end = start + 1;
+        }
+        if (end <= dayStart || start >= dayEnd) {
+            return;
+        }
+        int from = (int) ((Math.max(start, dayStart) - dayStart) / SLOT_MILLIS);
+        int to = (int) ((Math.min(end, dayEnd) - dayStart + SLOT_MILLIS - 1) / SLOT_MILLIS);
+        setRange(bits, from, Math.min(to, SLOTS_PER_DAY));
+    }
+
+    /**
+     * 在 [from, to) 之间查找第一个长度不小于 duration 的空闲时段
+     *
+     * @param days 每一天的忙碌位图，与 dayStarts 对应
+     * @param dayStarts 每一天的零点，长度为 days.length + 1（最后一项为结束日次日零点）
+     * @param dailyFromSlot 每天可用的起始格（如 8:00 为 96）
+     * @param dailyToSlot 每天可用的结束格（不含，如 22:00 为 264）
+     * @return 空闲时段的开始时间，找不到时返回 -1
+     */
+    public static long findFreeSlot(long[][] days, long[] dayStarts, long from, long to, long duration,
+                                    int dailyFromSlot, int dailyToSlot) {
+        int dayCount = days.length;
+        int totalSlots = dayCount * SLOTS_PER_DAY;
+        int length = (int) Math.max(1, (duration + SLOT_MILLIS - 1) / SLOT_MILLIS);
+        if (dayCount == 0 || from >= to || length > SLOTS_PER_DAY * dayCount) {
+            return -1;
+        }
+
+        // 每天的可用时段掩码
+        long[] dailyMask = new long[WORDS_PER_DAY];
+        setRange(dailyMask, Math.max(0, dailyFromSlot), Math.min(SLOTS_PER_DAY, dailyToSlot));
+
+        // 拼接各天的空闲位：free = ~busy & mask；夏令时较短的一天去掉不存在的格子
+        long[] free = new long[(totalSlots + 63) / 64];
+        for (int d = 0; d < dayCount; d++) {
+            long[] day = days[d];
+            int validSlots = (int) Math.min(SLOTS_PER_DAY, (dayStarts[d + 1] - dayStarts[d]) / SLOT_MILLIS);
+            for (int w = 0; w < WORDS_PER_DAY; w++) {
+                int bitCount = Math.min(64, validSlots - w * 64);
+                if (bitCount <= 0) {
+                    break;
+                }
+                long word = ~day[w] & dailyMask[w];
+                if (bitCount < 64) {
+                    word &= (1L << bitCount) - 1;
+                }
+                writeBits(free, d * SLOTS_PER_DAY + w * 64, word, bitCount);
+            }
+        }
+
+        // 去掉查询区间之外的格子
+        int fromSlot = toGlobalSlot(dayStarts, from, true);
+        int toSlot = toGlobalSlot(dayStarts, to, false);
+        if (toSlot - fromSlot < length) {
+            return -1;
+        }
+        clearRange(free, 0, fromSlot);
+        clearRange(free, toSlot, totalSlots);
+
+        // 倍增移位与：runs 的第 i 位表示从 i 开始连续 covered 格都空闲
+        long[] runs = free;
+        int covered = 1;
+        while (covered * 2 <= length) {
+            runs = and(runs, shiftDown(runs, covered));
+            covered *= 2;
+        }
+        if (covered < length) {
+            runs = and(runs, shiftDown(runs, length - covered));
+        }
+
+        int slot = nextSetBit(runs, fromSlot);
+        if (slot < 0 || slot + length > toSlot) {
+            return -1;
+        }
+        return dayStarts[slot / SLOTS_PER_DAY] + (long) (slot % SLOTS_PER_DAY) * SLOT_MILLIS;
+    }
+
+    /**
+     * 时间转换为拼接位图中的格号；roundUp 为 true 时向上取整
+     */
+    private static int toGlobalSlot(long[] dayStarts, long time, boolean roundUp) {
+        int dayCount = dayStarts.length - 1;
+        if (time <= dayStarts[0]) {
+            return 0;
+        }
+        if (time >= dayStarts[dayCount]) {
+            return dayCount * SLOTS_PER_DAY;
+        }
+        int d = 0;
+        while (d + 1 < dayCount && dayStarts[d + 1] <= time) {
+            d++;
+        }
+        long offset = time - dayStarts[d];
+        long slot = roundUp ? (offset + SLOT_MILLIS - 1) / SLOT_MILLIS : offset / SLOT_MILLIS;
+        return d * SLOTS_PER_DAY + (int) Math.min(slot, SLOTS_PER_DAY);
+    }
+
+    private static void setRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            bits[w] = -1L;
+        }
+        bits[lastWord] |= lastMask;
+    }
+
+    private static void clearRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] &= ~(firstMask & lastMask);
+            return;
+        }
+        bits[firstWord] &= ~firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            bits[w] = 0L;
+        }
+        bits[lastWord] &= ~lastMask;
+    }
+
+    /**
+     * 把 word 的低 bitCount 位写入 bits 的 offset 位置（目标位置原本为 0）
+     */
+    private static void writeBits(long[] bits, int offset, long word, int bitCount) {
+        int index = offset >>> 6;
+        int shift = offset & 63;
+        bits[index] |= word << shift;
+        if (shift != 0 && shift + bitCount > 64) {
+            bits[index + 1] |= word >>> (64 - shift);
+        }
+    }
+
+    /**
+     * 结果的第 i 位等于输入的第 i + n 位（越界补 0）
+     */
+    private static long[] shiftDown(long[] bits, int n) {
+        long[] result = new long[bits.length];
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int i = 0; i + wordShift < bits.length; i++) {
+            long low = bits[i + wordShift] >>> bitShift;
+            long high = 0;
+            if (bitShift != 0 && i + wordShift + 1 < bits.length) {
+                high = bits[i + wordShift + 1] << (64 - bitShift);
+            }
+            result[i] = low | high;
+        }
+        return result;
+    }
+
+    private static long[] and(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] & b[i];
+        }
+        return result;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int index = from >>> 6;
+        if (index >= bits.length) {
+            return -1;
+        }
+        long word = bits[index] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) {
+                return index * 64 + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == bits.length) {
+                return -1;
+            }
+            word = bits[index];
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.myapplication.util;
+
+import java.util.TimeZone;
+
+/**
+ * iCalendar 日期时间（yyyyMMdd、yyyyMMdd'T'HHmmss、yyyyMMdd'T'HHmmss'Z'）的编解码
+ * 直接在字符上解析为毫秒时间戳、直接把数字写入调用方的缓冲区，不经过 SimpleDateFormat 和 Calendar；
+ * 没有共享的可变状态，可以在多个线程中同时使用。
+ * 不带 Z 的时间按传入的时区解析，夏令时跳过的时刻按切换前的偏移计算（与宽松模式的 Calendar 一致）。
+ */
+public final class IcsDateCodec {
+
+    // 解析失败时的返回值
+    public static final long INVALID = Long.MIN_VALUE;
+
+    // yyyyMMdd'T'HHmmss'Z' 的长度，format 的缓冲区至少需要这么大
+    public static final int MAX_LENGTH = 16;
+
+    private static final long SECOND = 1000L;
+    private static final long DAY = 24 * 60 * 60 * SECOND;
+
+    private IcsDateCodec() {
+    }
+
+    public static long parse(CharSequence value, TimeZone zone) {
+        int length = value.length();
+        if (length > MAX_LENGTH + 2) {
+            return INVALID;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = value.charAt(i);
+        }
+        return parse(chars, 0, length, zone);
+    }
+
+    /**
+     * 解析 chars[start, end)，首尾空白会被忽略；格式错误时返回 INVALID
+     *
+     * @param zone 不带 Z 的时间（包括只有日期的）所在的时区
+     */
+    public static long parse(char[] chars, int start, int end, TimeZone zone) {
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        int length = end - start;
+        if (length != 8 && length != 15 && length != 16) {
+            return INVALID;
+        }
+        int year = digits(chars, start, 4);
+        int month = digits(chars, start + 4, 2);
+        int day = digits(chars, start + 6, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        boolean utc = false;
+        if (length > 8) {
+            if (chars[start + 8] != 'T' && chars[start + 8] != 't') {
+                return INVALID;
+            }
+            hour = digits(chars, start + 9, 2);
+            minute = digits(chars, start + 11, 2);
+            second = digits(chars, start + 13, 2);
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+                return INVALID;
+            }
+            if (length == 16) {
+                char z = chars[start + 15];
+                if (z != 'Z' && z != 'z') {
+                    return INVALID;
+                }
+                utc = true;
+            }
+        }
+        // 闰秒按 59 秒处理
+        second = Math.min(second, 59);
+        long wall = daysFromCivil(year, month, day) * DAY + ((hour * 60L + minute) * 60 + second) * SECOND;
+        return utc ? wall : toUtc(wall, zone);
+    }
+
+    /**
+     * 按 zone 的本地时间写入 yyyyMMdd'T'HHmmss（utc 为 true 时写 UTC 时间并加 Z），返回写入的字符数
+     */
+    public static int format(long millis, TimeZone zone, boolean utc, char[] out, int offset) {
+        long wall = utc ? millis : millis + zone.getOffset(millis);
+        long days = Math.floorDiv(wall, DAY);
+        int secondOfDay = (int) (Math.floorMod(wall, DAY) / SECOND);
+        int pos = writeDate(days, out, offset);
+        out[pos++] = 'T';
+        pos = write2(secondOfDay / 3600, out, pos);
+        pos = write2(secondOfDay / 60 % 60, out, pos);
+        pos = write2(secondOfDay % 60, out, pos);
+        if (utc) {
+            out[pos++] = 'Z';
+        }
+        return pos - offset;
+    }
+
+    public static String format(long millis, TimeZone zone, boolean utc) {
+        char[] out = new char[MAX_LENGTH];
+        return new String(out, 0, format(millis, zone, utc, out, 0));
+    }
+
+    /**
+     * 本地时间（按 UTC 计的毫秒数）转为时间戳
+     * 先用该时刻附近的偏移估算，偏移在夏令时切换处不一致时再校正一次
+     */
+    private static long toUtc(long wall, TimeZone zone) {
+        int guessOffset = zone.getOffset(wall - zone.getRawOffset());
+        long utc = wall - guessOffset;
+        int offset = zone.getOffset(utc);
+        if (offset == guessOffset) {
+            return utc;
+        }
+        long adjusted = wall - offset;
+        if (zone.getOffset(adjusted) == offset) {
+            return adjusted;
+        }
+        // 本地时间落在夏令时跳过的区间内：按切换前的偏移计算
+        return wall - zone.getOffset(Math.min(utc, adjusted));
+    }
+
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int writeDate(long days, char[] out, int pos) {
+        // 公历日期换算（Howard Hinnant 的 civil_from_days）
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        pos = write2(year / 100, out, pos);
+        pos = write2(year % 100, out, pos);
+        pos = write2(month, out, pos);
+        return write2(day, out, pos);
+    }
+
+    private static int write2(int value, char[] out, int pos) {
+        out[pos] = (char) ('0' + value / 10);
+        out[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
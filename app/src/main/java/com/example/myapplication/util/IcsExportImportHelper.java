@@ -1,203 +1,410 @@
 package com.example.myapplication.util;
 
-import android.content.Context;
-import android.net.Uri;
-
 import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.data.model.DeletedEvent;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * iCalendar (.ics) 格式的导入导出工具类
- * 支持将日历事件导出为标准 ICS 文件，以及从 ICS 文件导入事件
+ * 分块写出标准 ICS 文件（IcsExportWorker），以及逐个读取事件的流式解析器（IcsImportWorker）
  */
 public class IcsExportImportHelper {
     
     private static final String ICAL_VERSION = "2.0";
     private static final String PRODUCT_ID = "-//MyCalendar//Calendar Events//CN";
     
-    // iCalendar 日期时间格式：使用本地时间格式，避免时区转换问题
-    // 格式：yyyyMMdd'T'HHmmss (不带 Z，表示本地时间)
-    private static final SimpleDateFormat ICS_DATE_FORMAT = 
-        new SimpleDateFormat("yyyyMMdd'T'HHmmss", Locale.US);
+    // 并行格式化时同时在处理中的块数为线程数的倍数，限制内存中的事件数量
+    private static final int PENDING_CHUNKS_PER_THREAD = 2;
+    private static final int MAX_EXPORT_THREADS = 4;
+    
+    /**
+     * 按块提供要导出的事件，返回空列表表示结束
+     * 在调用 writeEvents 的线程上调用，可以直接查询数据库
+     */
+    public interface EventChunkSource {
+        List<CalendarEvent> nextChunk();
+    }
+    
+    /**
+     * 每块事件写出后在调用线程上回调，用于记录进度和恢复位置
+     */
+    public interface ChunkListener {
+        void onChunkWritten(List<CalendarEvent> chunk) throws IOException;
+    }
     
     /**
-     * 导出事件列表到 ICS 文件
+     * 写入 iCalendar 头部
      * 
-     * @param context 上下文
-     * @param events 要导出的事件列表
-     * @param uri 输出文件的 Uri
-     * @return 是否成功
+     * @param compress 是否写为一个 gzip 成员（见 IcsLineWriter.compress）
      */
-    public static boolean exportToIcs(Context context, List<CalendarEvent> events, Uri uri) {
-        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"))) {
-            
-            // 写入 iCalendar 头部
-            writer.write("BEGIN:VCALENDAR\r\n");
-            writer.write("VERSION:" + ICAL_VERSION + "\r\n");
-            writer.write("PRODID:" + PRODUCT_ID + "\r\n");
-            writer.write("CALSCALE:GREGORIAN\r\n");
+    public static void writeHeader(OutputStream outputStream, boolean compress) throws IOException {
+        IcsLineWriter header = new IcsLineWriter(256);
+        header.line("BEGIN:VCALENDAR");
+        header.line("VERSION:" + ICAL_VERSION);
+        header.line("PRODID:" + PRODUCT_ID);
+        header.line("CALSCALE:GREGORIAN");
+        if (compress) {
+            header.compress();
+        }
+        header.writeTo(outputStream);
+    }
+    
+    /**
+     * 写入事件
+     * 每块事件交给工作线程格式化为 UTF-8 字节（已折行），按读取的顺序写出；
+     * 同时在处理中的块数有上限，读取块在格式化跟不上时会等待，内存占用与事件总数无关。
+     * 压缩时每块在工作线程上各自压缩为一个 gzip 成员，压缩也是并行的；块的边界仍是可以截断恢复的位置。
+     * 
+     * @param listener 每块写出后的回调，可为 null
+     * @param compress 是否压缩为 gzip
+     * @return 写出的事件数
+     */
+    public static int writeEvents(OutputStream outputStream, EventChunkSource source,
+                                  ChunkListener listener, boolean compress) throws Exception {
+        int threads = Math.max(1, Math.min(MAX_EXPORT_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<List<CalendarEvent>> pendingChunks = new ArrayDeque<>();
+        ArrayDeque<Future<IcsLineWriter>> pending = new ArrayDeque<>();
+        try {
+            // 日期时间使用本地时间格式（yyyyMMdd'T'HHmmss，不带 Z），避免时区转换问题
+            TimeZone zone = TimeZone.getDefault();
+            long now = System.currentTimeMillis();
             
-            // 写入每个事件
-            for (CalendarEvent event : events) {
-                writeEvent(writer, event);
+            int count = 0;
+            List<CalendarEvent> chunk;
+            while (!(chunk = source.nextChunk()).isEmpty()) {
+                List<CalendarEvent> events = chunk;
+                pendingChunks.add(events);
+                pending.add(executor.submit(() -> formatEvents(events, zone, now, compress)));
+                if (pending.size() >= threads * PENDING_CHUNKS_PER_THREAD) {
+                    count += writeChunk(outputStream, pending.poll(), pendingChunks.poll(), listener);
+                }
             }
-            
-            // 写入 iCalendar 结尾
-            writer.write("END:VCALENDAR\r\n");
-            writer.flush();
-            
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+            while (!pending.isEmpty()) {
+                count += writeChunk(outputStream, pending.poll(), pendingChunks.poll(), listener);
+            }
+            outputStream.flush();
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static int writeChunk(OutputStream outputStream, Future<IcsLineWriter> formatted,
+                                  List<CalendarEvent> chunk, ChunkListener listener) throws Exception {
+        formatted.get().writeTo(outputStream);
+        if (listener != null) {
+            listener.onChunkWritten(chunk);
+        }
+        return chunk.size();
+    }
+    
+    /**
+     * 写入删除记录（STATUS:CANCELLED）和 iCalendar 结尾
+     */
+    public static void writeFooter(OutputStream outputStream, List<DeletedEvent> cancelled,
+                                   boolean compress) throws IOException {
+        TimeZone zone = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        IcsLineWriter footer = new IcsLineWriter(32 + cancelled.size() * 160);
+        char[] dateBuffer = new char[IcsDateCodec.MAX_LENGTH];
+        for (DeletedEvent deleted : cancelled) {
+            writeCancelled(footer, deleted, zone, dateBuffer, now);
         }
+        footer.line("END:VCALENDAR");
+        if (compress) {
+            footer.compress();
+        }
+        footer.writeTo(outputStream);
+        outputStream.flush();
     }
     
     /**
-     * 写入单个事件到 ICS 文件
+     * 在工作线程上格式化一块事件；每块使用自己的缓冲区和时区副本，块之间不共享可变状态
      */
-    private static void writeEvent(BufferedWriter writer, CalendarEvent event) throws Exception {
-        writer.write("BEGIN:VEVENT\r\n");
+    private static IcsLineWriter formatEvents(List<CalendarEvent> events, TimeZone zone, long now,
+                                              boolean compress) throws IOException {
+        IcsLineWriter writer = new IcsLineWriter(events.size() * 512);
+        TimeZone localZone = (TimeZone) zone.clone();
+        char[] dateBuffer = new char[IcsDateCodec.MAX_LENGTH];
+        for (CalendarEvent event : events) {
+            writeEvent(writer, event, localZone, dateBuffer, now);
+        }
+        if (compress) {
+            writer.compress();
+        }
+        return writer;
+    }
+    
+    /**
+     * 写入单个事件
+     */
+    private static void writeEvent(IcsLineWriter writer, CalendarEvent event, TimeZone zone,
+                                   char[] dateBuffer, long now) {
+        writer.line("BEGIN:VEVENT");
+        
+        // UID: 唯一标识符；单独修改的实例与所属的重复日程使用同一个 UID
+        String uid = event.getUid();
+        if (uid == null) {
+            long uidId = event.getParentId() != 0 ? event.getParentId() : event.getId();
+            uid = "event-" + uidId + "@mycalendar.app";
+        }
+        writer.append("UID:").appendText(uid).endLine();
         
-        // UID: 唯一标识符
-        writer.write("UID:event-" + event.getId() + "@mycalendar.app\r\n");
+        // DTSTAMP: 创建时间戳 (使用当前时间，按规范为 UTC)
+        writeDate(writer, "DTSTAMP:", now, true, zone, dateBuffer);
         
-        // DTSTAMP: 创建时间戳 (使用当前时间)
-        writer.write("DTSTAMP:" + ICS_DATE_FORMAT.format(new Date()) + "\r\n");
+        // SEQUENCE / LAST-MODIFIED: 版本，重新导入时据此判断是否需要更新
+        if (event.getSequence() > 0) {
+            writer.append("SEQUENCE:").append(event.getSequence()).endLine();
+        }
+        if (event.getLastModified() != null) {
+            writeDate(writer, "LAST-MODIFIED:", event.getLastModified(), true, zone, dateBuffer);
+        }
         
         // DTSTART: 开始时间
         if (event.getStartTime() != null) {
-            writer.write("DTSTART:" + ICS_DATE_FORMAT.format(event.getStartTime()) + "\r\n");
+            writeDate(writer, "DTSTART:", event.getStartTime().getTime(), false, zone, dateBuffer);
         }
         
         // DTEND: 结束时间
         if (event.getEndTime() != null) {
-            writer.write("DTEND:" + ICS_DATE_FORMAT.format(event.getEndTime()) + "\r\n");
+            writeDate(writer, "DTEND:", event.getEndTime().getTime(), false, zone, dateBuffer);
+        }
+        
+        // RRULE / EXDATE: 重复规则和排除的各次
+        if (event.isRecurring()) {
+            writer.append("RRULE:").append(event.getRrule()).endLine();
+            if (event.getExdates() != null && !event.getExdates().isEmpty()) {
+                writer.append("EXDATE:");
+                boolean first = true;
+                for (long start : new java.util.TreeSet<>(event.getExcludedStarts())) {
+                    if (!first) {
+                        writer.append(',');
+                    }
+                    first = false;
+                    writer.append(dateBuffer, 0, IcsDateCodec.format(start, zone, false, dateBuffer, 0));
+                }
+                writer.endLine();
+            }
+        }
+        
+        // RECURRENCE-ID: 单独修改的实例原本的开始时间
+        if (event.getParentId() != 0 && event.getRecurrenceId() != null) {
+            writeDate(writer, "RECURRENCE-ID:", event.getRecurrenceId(), false, zone, dateBuffer);
         }
         
         // SUMMARY: 标题
         if (event.getTitle() != null && !event.getTitle().isEmpty()) {
-            writer.write("SUMMARY:" + escapeText(event.getTitle()) + "\r\n");
+            writer.append("SUMMARY:").appendText(event.getTitle()).endLine();
         }
         
         // DESCRIPTION: 描述
         if (event.getDescription() != null && !event.getDescription().isEmpty()) {
-            writer.write("DESCRIPTION:" + escapeText(event.getDescription()) + "\r\n");
+            writer.append("DESCRIPTION:").appendText(event.getDescription()).endLine();
         }
         
         // LOCATION: 地点
         if (event.getLocation() != null && !event.getLocation().isEmpty()) {
-            writer.write("LOCATION:" + escapeText(event.getLocation()) + "\r\n");
+            writer.append("LOCATION:").appendText(event.getLocation()).endLine();
         }
         
         // CATEGORIES: 类别（使用事件类型）
         if (event.getType() != null) {
-            writer.write("CATEGORIES:" + event.getType().getName() + "\r\n");
+            writer.append("CATEGORIES:").append(event.getType().getName()).endLine();
         }
         
         // COLOR: 颜色（使用 X- 扩展属性）
-        writer.write("X-APPLE-CALENDAR-COLOR:" + String.format("#%06X", (0xFFFFFF & event.getColor())) + "\r\n");
+        writer.append("X-APPLE-CALENDAR-COLOR:").appendColor(event.getColor()).endLine();
         
         // 提醒设置
         if (event.isReminderEnabled() && event.getReminderMinutesBefore() > 0) {
-            writer.write("BEGIN:VALARM\r\n");
-            writer.write("ACTION:DISPLAY\r\n");
-            writer.write("TRIGGER:-PT" + event.getReminderMinutesBefore() + "M\r\n");
-            writer.write("DESCRIPTION:Event reminder\r\n");
+            writer.line("BEGIN:VALARM");
+            writer.line("ACTION:DISPLAY");
+            writer.append("TRIGGER:-PT").append(event.getReminderMinutesBefore()).append('M').endLine();
+            writer.line("DESCRIPTION:Event reminder");
             
             // 如果开启响铃
             if (event.isSoundEnabled()) {
-                writer.write("X-SOUND-ENABLED:TRUE\r\n");
+                writer.line("X-SOUND-ENABLED:TRUE");
             }
             
-            writer.write("END:VALARM\r\n");
+            writer.line("END:VALARM");
         }
         
-        writer.write("END:VEVENT\r\n");
+        writer.line("END:VEVENT");
     }
     
     /**
-     * 从 ICS 文件导入事件
-     * 
-     * @param context 上下文
-     * @param uri 输入文件的 Uri
-     * @return 导入的事件列表
+     * 写入已删除的日程：同一 UID、SEQUENCE 加一、STATUS:CANCELLED，导入方据此删除
+     */
+    private static void writeCancelled(IcsLineWriter writer, DeletedEvent deleted, TimeZone zone,
+                                       char[] dateBuffer, long now) {
+        writer.line("BEGIN:VEVENT");
+        writer.append("UID:").appendText(deleted.getUid()).endLine();
+        writeDate(writer, "DTSTAMP:", now, true, zone, dateBuffer);
+        writer.append("SEQUENCE:").append(deleted.getSequence() + 1).endLine();
+        writeDate(writer, "LAST-MODIFIED:", deleted.getDeletedAt(), true, zone, dateBuffer);
+        if (deleted.getStartTime() != null) {
+            writeDate(writer, "DTSTART:", deleted.getStartTime(), false, zone, dateBuffer);
+        }
+        if (deleted.getRecurrenceId() != null) {
+            writeDate(writer, "RECURRENCE-ID:", deleted.getRecurrenceId(), false, zone, dateBuffer);
+        }
+        writer.line("STATUS:CANCELLED");
+        writer.line("END:VEVENT");
+    }
+    
+    /**
+     * 写入一行日期时间属性，数字直接写入 dateBuffer，不生成中间字符串
+     */
+    private static void writeDate(IcsLineWriter writer, String prefix, long millis, boolean utc,
+                                  TimeZone zone, char[] dateBuffer) {
+        writer.append(prefix)
+                .append(dateBuffer, 0, IcsDateCodec.format(millis, zone, utc, dateBuffer, 0))
+                .endLine();
+    }
+    
+    /**
+     * 逐个读取 VEVENT 的流式解析器，内存中只有当前事件
+     * 记录每个事件在文件中的字节位置，可以从某个事件的边界处恢复读取（见 IcsImportWorker）。
      */
-    public static List<CalendarEvent> importFromIcs(Context context, Uri uri) {
-        List<CalendarEvent> events = new ArrayList<>();
+    public static class EventReader {
+        private final IcsTokenizer tokenizer;
+        // 带 TZID 的时间按该时区解析，其余不带 Z 的时间按本地时区解析
+        private final IcsTimeZones zones = new IcsTimeZones(TimeZone.getDefault());
+        private final ReminderInfo reminderInfo = new ReminderInfo();
+        private boolean inTimeZone = false;
+        private long eventOffset = -1;
         
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
-            
-            String line;
+        public EventReader(Reader reader) {
+            this(reader, 0);
+        }
+        
+        /**
+         * @param startOffset reader 开始处在文件中的字节偏移，应为某个事件的边界
+         */
+        public EventReader(Reader reader, long startOffset) {
+            tokenizer = new IcsTokenizer(reader, startOffset);
+        }
+        
+        /**
+         * 从中间恢复读取时，先从文件开头读入第一个事件之前的时区定义
+         */
+        public void preloadTimeZones(Reader header) throws IOException {
+            IcsTokenizer headerTokenizer = new IcsTokenizer(header);
+            while (headerTokenizer.next()) {
+                if (headerTokenizer.isName("BEGIN") && headerTokenizer.isValue("VEVENT")) {
+                    break;
+                }
+                onTopLevelLine(headerTokenizer);
+            }
+            inTimeZone = false;
+        }
+        
+        /**
+         * 读取下一个事件，没有时返回 null
+         */
+        public CalendarEvent next() throws IOException {
             CalendarEvent currentEvent = null;
-            boolean inEvent = false;
             boolean inAlarm = false;
-            ReminderInfo reminderInfo = new ReminderInfo();
+            // VEVENT 内除 VALARM 外的其他子组件（其属性不属于事件本身）
+            int otherDepth = 0;
             
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
+            while (tokenizer.next()) {
+                if (currentEvent == null) {
+                    if (tokenizer.isName("BEGIN") && tokenizer.isValue("VEVENT")) {
+                        // 开始解析事件
+                        currentEvent = new CalendarEvent();
+                        eventOffset = tokenizer.getLineOffset();
+                        reminderInfo.reset();
+                    } else {
+                        onTopLevelLine(tokenizer);
+                    }
+                    continue;
+                }
                 
-                // 开始解析事件
-                if (line.equals("BEGIN:VEVENT")) {
-                    currentEvent = new CalendarEvent();
-                    inEvent = true;
-                    reminderInfo.reset();
+                if (tokenizer.isName("BEGIN")) {
+                    if (tokenizer.isValue("VALARM") && otherDepth == 0) {
+                        inAlarm = true;
+                    } else {
+                        otherDepth++;
+                    }
                     continue;
                 }
                 
-                // 结束解析事件
-                if (line.equals("END:VEVENT")) {
-                    if (currentEvent != null) {
-                        // 应用提醒设置
+                if (tokenizer.isName("END")) {
+                    if (tokenizer.isValue("VEVENT")) {
+                        // 结束解析事件，应用提醒设置
                         if (reminderInfo.reminderMinutes > 0) {
                             currentEvent.setReminderEnabled(true);
                             currentEvent.setReminderMinutesBefore(reminderInfo.reminderMinutes);
                             currentEvent.setSoundEnabled(reminderInfo.soundEnabled);
                         }
-                        events.add(currentEvent);
+                        return currentEvent;
+                    }
+                    if (otherDepth > 0) {
+                        otherDepth--;
+                    } else if (tokenizer.isValue("VALARM")) {
+                        inAlarm = false;
                     }
-                    currentEvent = null;
-                    inEvent = false;
-                    continue;
-                }
-                
-                // 解析提醒信息
-                if (line.equals("BEGIN:VALARM")) {
-                    inAlarm = true;
-                    continue;
-                }
-                
-                if (line.equals("END:VALARM")) {
-                    inAlarm = false;
                     continue;
                 }
                 
                 // 解析事件属性
-                if (inEvent && currentEvent != null) {
-                    parseEventProperty(line, currentEvent, inAlarm, reminderInfo);
+                if (otherDepth == 0) {
+                    parseEventProperty(tokenizer, currentEvent, inAlarm, reminderInfo, zones);
                 }
             }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
+            return null;
+        }
+        
+        /**
+         * 上一个 next() 返回的事件 BEGIN:VEVENT 所在行的字节偏移
+         */
+        public long getEventOffset() {
+            return eventOffset;
+        }
+        
+        /**
+         * 上一个 next() 返回的事件之后的字节偏移，从这里恢复读取即为下一个事件
+         */
+        public long getOffset() {
+            return tokenizer.getOffset();
         }
         
-        return events;
+        /**
+         * 事件之外的行：只处理 VTIMEZONE
+         */
+        private void onTopLevelLine(IcsTokenizer lineTokenizer) {
+            if (lineTokenizer.isName("BEGIN")) {
+                if (lineTokenizer.isValue("VTIMEZONE")) {
+                    inTimeZone = true;
+                    zones.beginTimeZone();
+                } else if (inTimeZone) {
+                    zones.beginObservance(lineTokenizer.isValue("DAYLIGHT"));
+                }
+            } else if (lineTokenizer.isName("END")) {
+                if (lineTokenizer.isValue("VTIMEZONE")) {
+                    inTimeZone = false;
+                    zones.endTimeZone();
+                } else if (inTimeZone) {
+                    zones.endObservance();
+                }
+            } else if (inTimeZone) {
+                zones.onProperty(lineTokenizer);
+            }
+        }
     }
     
     /**
@@ -213,88 +420,156 @@ public class IcsExportImportHelper {
         }
     }
     
+    // 导入时处理的属性，下标与 parseEventProperty 中的 case 对应
+    private static final String[] PROPERTY_NAMES = {
+            "UID", "SEQUENCE", "LAST-MODIFIED", "RRULE", "EXDATE", "RECURRENCE-ID",
+            "SUMMARY", "DESCRIPTION", "LOCATION", "DTSTART", "DTEND", "CATEGORIES",
+            "X-APPLE-CALENDAR-COLOR", "STATUS", "TRIGGER", "X-SOUND-ENABLED"
+    };
+    private static final int PROP_UID = 0;
+    private static final int PROP_SEQUENCE = 1;
+    private static final int PROP_LAST_MODIFIED = 2;
+    private static final int PROP_RRULE = 3;
+    private static final int PROP_EXDATE = 4;
+    private static final int PROP_RECURRENCE_ID = 5;
+    private static final int PROP_SUMMARY = 6;
+    private static final int PROP_DESCRIPTION = 7;
+    private static final int PROP_LOCATION = 8;
+    private static final int PROP_DTSTART = 9;
+    private static final int PROP_DTEND = 10;
+    private static final int PROP_CATEGORIES = 11;
+    private static final int PROP_COLOR = 12;
+    private static final int PROP_STATUS = 13;
+    private static final int PROP_TRIGGER = 14;
+    private static final int PROP_SOUND_ENABLED = 15;
+    
     /**
-     * 解析事件属性
+     * 解析事件属性；不处理的属性不会生成任何字符串
+     * VALARM 内只处理提醒相关属性（其中的 DESCRIPTION 等不属于事件）
      */
-    private static void parseEventProperty(String line, CalendarEvent event, 
-                                          boolean inAlarm, ReminderInfo reminderInfo) {
+    private static void parseEventProperty(IcsTokenizer tokenizer, CalendarEvent event, 
+                                          boolean inAlarm, ReminderInfo reminderInfo, IcsTimeZones zones) {
         try {
-            // 分割属性名和值
-            int colonIndex = line.indexOf(':');
-            if (colonIndex == -1) {
+            int property = tokenizer.matchName(PROPERTY_NAMES);
+            if (property < 0) {
                 return;
             }
-            
-            String property = line.substring(0, colonIndex);
-            String value = line.substring(colonIndex + 1);
-            
-            // 处理带参数的属性（如 DTSTART;TZID=xxx:20230101T120000）
-            int semicolonIndex = property.indexOf(';');
-            if (semicolonIndex != -1) {
-                property = property.substring(0, semicolonIndex);
+            if (inAlarm != (property == PROP_TRIGGER || property == PROP_SOUND_ENABLED)) {
+                return;
             }
             
             switch (property) {
-                case "SUMMARY":
-                    event.setTitle(unescapeText(value));
+                case PROP_UID:
+                    event.setUid(tokenizer.getTextValue());
                     break;
                     
-                case "DESCRIPTION":
-                    event.setDescription(unescapeText(value));
+                case PROP_SEQUENCE:
+                    // 解析失败按 0 处理
+                    event.setSequence(tokenizer.getIntValue(0));
                     break;
                     
-                case "LOCATION":
-                    event.setLocation(unescapeText(value));
+                case PROP_LAST_MODIFIED:
+                    long lastModified = parseDate(tokenizer, zones);
+                    if (lastModified != IcsDateCodec.INVALID) {
+                        event.setLastModified(lastModified);
+                    }
+                    break;
+                    
+                case PROP_RRULE:
+                    String rrule = tokenizer.getValue();
+                    if (RecurrenceRule.parse(rrule) != null) {
+                        event.setRrule(rrule);
+                    }
+                    break;
+                    
+                case PROP_EXDATE:
+                    // 可以有多行，每行可以是逗号分隔的多个时间
+                    TimeZone exdateZone = zones.resolve(tokenizer);
+                    char[] chars = tokenizer.getChars();
+                    int end = tokenizer.getValueEnd();
+                    int partStart = tokenizer.getValueStart();
+                    while (partStart < end) {
+                        int partEnd = partStart;
+                        while (partEnd < end && chars[partEnd] != ',') {
+                            partEnd++;
+                        }
+                        long exdate = IcsDateCodec.parse(chars, partStart, partEnd, exdateZone);
+                        if (exdate != IcsDateCodec.INVALID) {
+                            event.addExcludedStart(exdate);
+                        }
+                        partStart = partEnd + 1;
+                    }
+                    break;
+                    
+                case PROP_RECURRENCE_ID:
+                    long recurrenceId = parseDate(tokenizer, zones);
+                    if (recurrenceId != IcsDateCodec.INVALID) {
+                        event.setRecurrenceId(recurrenceId);
+                    }
+                    break;
+                    
+                case PROP_SUMMARY:
+                    event.setTitle(tokenizer.getTextValue());
+                    break;
+                    
+                case PROP_DESCRIPTION:
+                    event.setDescription(tokenizer.getTextValue());
                     break;
                     
-                case "DTSTART":
-                    Date startDate = parseIcsDate(value);
-                    if (startDate != null) {
-                        event.setStartTime(startDate);
+                case PROP_LOCATION:
+                    event.setLocation(tokenizer.getTextValue());
+                    break;
+                    
+                case PROP_DTSTART:
+                    long startDate = parseDate(tokenizer, zones);
+                    if (startDate != IcsDateCodec.INVALID) {
+                        event.setStartTime(new Date(startDate));
                     }
                     break;
                     
-                case "DTEND":
-                    Date endDate = parseIcsDate(value);
-                    if (endDate != null) {
-                        event.setEndTime(endDate);
+                case PROP_DTEND:
+                    long endDate = parseDate(tokenizer, zones);
+                    if (endDate != IcsDateCodec.INVALID) {
+                        event.setEndTime(new Date(endDate));
                     }
                     break;
                     
-                case "CATEGORIES":
+                case PROP_CATEGORIES:
                     // 根据类别名称设置事件类型
                     for (CalendarEvent.EventType type : CalendarEvent.EventType.values()) {
-                        if (type.getName().equals(value)) {
+                        if (tokenizer.isValue(type.getName())) {
                             event.setType(type);
                             break;
                         }
                     }
                     break;
                     
-                case "X-APPLE-CALENDAR-COLOR":
+                case PROP_COLOR:
                     // 解析颜色
                     try {
-                        int color = android.graphics.Color.parseColor(value);
+                        int color = android.graphics.Color.parseColor(tokenizer.getValue());
                         event.setColor(color);
                     } catch (Exception e) {
                         // 颜色解析失败，使用默认颜色
                     }
                     break;
                     
-                case "TRIGGER":
+                case PROP_STATUS:
+                    // 已取消的日程：导入时删除本地同一 UID 的日程
+                    event.setCancelled(tokenizer.isValue("CANCELLED"));
+                    break;
+                    
+                case PROP_TRIGGER:
                     // 解析提醒时间（格式如：-PT15M 表示提前15分钟）
-                    if (inAlarm && value.startsWith("-PT") && value.endsWith("M")) {
-                        try {
-                            String minutesStr = value.substring(3, value.length() - 1);
-                            reminderInfo.reminderMinutes = Integer.parseInt(minutesStr);
-                        } catch (NumberFormatException e) {
-                            // 解析失败
-                        }
+                    int minutes = parseTriggerMinutes(tokenizer.getChars(),
+                            tokenizer.getValueStart(), tokenizer.getValueEnd());
+                    if (minutes > 0) {
+                        reminderInfo.reminderMinutes = minutes;
                     }
                     break;
                     
-                case "X-SOUND-ENABLED":
-                    if (inAlarm && "TRUE".equalsIgnoreCase(value)) {
+                case PROP_SOUND_ENABLED:
+                    if (tokenizer.isValue("TRUE")) {
                         reminderInfo.soundEnabled = true;
                     }
                     break;
@@ -305,50 +580,29 @@ public class IcsExportImportHelper {
     }
     
     /**
-     * 解析 ICS 日期时间格式
+     * 解析 -PT15M 格式的提醒时间，不是这种格式时返回 -1
      */
-    private static Date parseIcsDate(String dateStr) {
-        try {
-            // 移除可能的时区标识符 (Z 表示 UTC，本来就应该被移除因为我们现在使用本地时间)
-            dateStr = dateStr.replace("Z", "");
-            dateStr = dateStr.replace("z", "");
-            
-            // 尝试标准格式：yyyyMMddTHHmmss (本地时间格式)
-            if (dateStr.contains("T")) {
-                return ICS_DATE_FORMAT.parse(dateStr);
-            } else {
-                // 全天事件格式：yyyyMMdd
-                SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd", Locale.US);
-                return format.parse(dateStr);
+    private static int parseTriggerMinutes(char[] chars, int start, int end) {
+        if (end - start < 5 || chars[start] != '-' || chars[start + 1] != 'P'
+                || chars[start + 2] != 'T' || chars[end - 1] != 'M') {
+            return -1;
+        }
+        int minutes = 0;
+        for (int i = start + 3; i < end - 1; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9' || minutes > 1000000) {
+                return -1;
             }
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return null;
+            minutes = minutes * 10 + (c - '0');
         }
+        return minutes;
     }
     
     /**
-     * 转义特殊字符（iCalendar 规范）
-     */
-    private static String escapeText(String text) {
-        if (text == null) return "";
-        
-        return text.replace("\\", "\\\\")
-                   .replace(";", "\\;")
-                   .replace(",", "\\,")
-                   .replace("\n", "\\n")
-                   .replace("\r", "");
-    }
-    
-    /**
-     * 反转义特殊字符
+     * 解析 ICS 日期时间格式：yyyyMMdd'T'HHmmss（TZID 指定的时区或本地时间）、带 Z 的 UTC 时间或全天事件的 yyyyMMdd
      */
-    private static String unescapeText(String text) {
-        if (text == null) return "";
-        
-        return text.replace("\\n", "\n")
-                   .replace("\\,", ",")
-                   .replace("\\;", ";")
-                   .replace("\\\\", "\\");
+    private static long parseDate(IcsTokenizer tokenizer, IcsTimeZones zones) {
+        return IcsDateCodec.parse(tokenizer.getChars(), tokenizer.getValueStart(), tokenizer.getValueEnd(),
+                zones.resolve(tokenizer));
     }
 }
@@ -0,0 +1,201 @@
+package com.example.myapplication.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ICS 内容行的 UTF-8 编码和折行
+ * 字符直接编码进可增长的字节数组，按 RFC 5545 每个物理行不超过 75 个字节（不含 CRLF），
+ * 超出时插入 CRLF 和一个空格续行；多字节字符和代理对不会被拆开。
+ * 非线程安全，每个线程使用自己的实例。
+ */
+public class IcsLineWriter {
+
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private byte[] bytes;
+    private int size = 0;
+    // 当前物理行已写入的字节数
+    private int lineOctets = 0;
+
+    public IcsLineWriter() {
+        this(8192);
+    }
+
+    public IcsLineWriter(int initialCapacity) {
+        bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public IcsLineWriter append(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            i = appendChar(s, i);
+        }
+        return this;
+    }
+
+    /**
+     * 写入 ASCII 字符（如 IcsDateCodec 格式化出的日期）
+     */
+    public IcsLineWriter append(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            writeCodePoint(chars[i]);
+        }
+        return this;
+    }
+
+    public IcsLineWriter append(char c) {
+        writeCodePoint(c);
+        return this;
+    }
+
+    public IcsLineWriter append(long value) {
+        return append(Long.toString(value));
+    }
+
+    /**
+     * TEXT 类型的值：转义 \\、;、, 和换行，去掉 \r
+     */
+    public IcsLineWriter appendText(String text) {
+        if (text == null) {
+            return this;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    writeCodePoint('\\');
+                    writeCodePoint(c);
+                    break;
+                case '\n':
+                    writeCodePoint('\\');
+                    writeCodePoint('n');
+                    break;
+                case '\r':
+                    break;
+                default:
+                    i = appendChar(text, i);
+                    break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 颜色写成 #RRGGBB
+     */
+    public IcsLineWriter appendColor(int color) {
+        writeCodePoint('#');
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            writeCodePoint(HEX_DIGITS[(color >> shift) & 0xF]);
+        }
+        return this;
+    }
+
+    /**
+     * 结束当前内容行
+     */
+    public IcsLineWriter endLine() {
+        ensureCapacity(2);
+        bytes[size++] = '\r';
+        bytes[size++] = '\n';
+        lineOctets = 0;
+        return this;
+    }
+
+    /**
+     * 写入一个完整的内容行
+     */
+    public IcsLineWriter line(String s) {
+        return append(s).endLine();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+        lineOctets = 0;
+    }
+
+    /**
+     * 把已写入的内容压缩为一个独立的 gzip 成员，替换原内容
+     * 多个成员依次拼接仍是一个合法的 gzip 文件（解压结果为各成员内容的拼接），
+     * 因此各块可以在不同线程中分别压缩；压缩后不能再追加内容。
+     */
+    public void compress() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, size / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(bytes, 0, size);
+        }
+        bytes = compressed.toByteArray();
+        size = bytes.length;
+        lineOctets = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    /**
+     * 写入 s 中 i 处的字符（代理对作为一个字符写入），返回最后处理的下标
+     */
+    private int appendChar(String s, int i) {
+        char c = s.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            writeCodePoint(Character.toCodePoint(c, s.charAt(i + 1)));
+            return i + 1;
+        }
+        writeCodePoint(c);
+        return i;
+    }
+
+    private void writeCodePoint(int codePoint) {
+        // 单独的代理字符按 '?' 写入（与 String.getBytes 一致）
+        if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            codePoint = '?';
+        }
+        int octets = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+        ensureCapacity(octets + 3);
+        if (lineOctets + octets > MAX_LINE_OCTETS) {
+            bytes[size++] = '\r';
+            bytes[size++] = '\n';
+            bytes[size++] = ' ';
+            lineOctets = 1;
+        }
+        switch (octets) {
+            case 1:
+                bytes[size++] = (byte) codePoint;
+                break;
+            case 2:
+                bytes[size++] = (byte) (0xC0 | (codePoint >> 6));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                break;
+            case 3:
+                bytes[size++] = (byte) (0xE0 | (codePoint >> 12));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                break;
+            default:
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                break;
+        }
+        lineOctets += octets;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, size + extra)];
+            System.arraycopy(bytes, 0, grown, 0, size);
+            bytes = grown;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.myapplication.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 导入文件的格式识别和读取辅助
+ * 按文件开头的魔数区分 gzip（1F 8B）、ZIP（50 4B 03 04）和普通文本，不依赖文件名和 MIME 类型
+ * （文件管理器给 .ics.gz 的类型常常是 application/octet-stream）。
+ */
+public final class IcsStreams {
+
+    public enum Format {
+        PLAIN, GZIP, ZIP
+    }
+
+    private IcsStreams() {
+    }
+
+    /**
+     * 读取开头几个字节判断格式，读完后流不能再使用
+     */
+    public static Format detect(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        int length = 0;
+        int n;
+        while (length < magic.length && (n = in.read(magic, length, magic.length - length)) > 0) {
+            length += n;
+        }
+        if (length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Format.GZIP;
+        }
+        if (length == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return Format.ZIP;
+        }
+        return Format.PLAIN;
+    }
+
+    /**
+     * ZIP 中的 .ics 文件，按在压缩包中的顺序（顺序是固定的，可用下标记录导入进度）
+     * 跳过目录和 macOS 打包时附带的 __MACOSX/、._ 元数据文件
+     */
+    public static List<ZipEntry> getIcsEntries(ZipFile zipFile) {
+        List<ZipEntry> entries = new ArrayList<>();
+        Enumeration<? extends ZipEntry> all = zipFile.entries();
+        while (all.hasMoreElements()) {
+            ZipEntry entry = all.nextElement();
+            String name = entry.getName();
+            String baseName = name.substring(name.lastIndexOf('/') + 1);
+            if (entry.isDirectory() || name.startsWith("__MACOSX/") || baseName.startsWith("._")) {
+                continue;
+            }
+            if (baseName.toLowerCase(Locale.ROOT).endsWith(".ics")) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 统计已读取（包括跳过）的字节数，用于在压缩文件上报告进度
+     */
+    public static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
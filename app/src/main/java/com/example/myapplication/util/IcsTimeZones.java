@@ -0,0 +1,308 @@
+package com.example.myapplication.util;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 导入时 TZID 到时区的解析
+ * 系统认识的 TZID（如 America/New_York）直接使用系统时区规则；系统不认识的（如 Outlook 的
+ * "China Standard Time"）使用文件中 VTIMEZONE 定义的规则；都没有时按本地时区处理。
+ * 解析结果按 TZID 缓存：系统时区在所有导入之间共享，每次导入另有一份 TZID 到时区的表，
+ * 并记住上一次命中的 TZID，连续的同一时区直接在字符上比较，不生成 String。
+ * 非线程安全，每次导入使用一个实例。
+ */
+public class IcsTimeZones {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // 系统时区按 ID 缓存（TimeZone.getTimeZone 每次都会查时区数据并复制一个对象）
+    private static final Map<String, TimeZone> SYSTEM_ZONES = new ConcurrentHashMap<>();
+    private static volatile Set<String> availableIds;
+
+    private final TimeZone defaultZone;
+    // VTIMEZONE 定义的时区
+    private final Map<String, TimeZone> definedZones = new HashMap<>();
+    // 本次导入中已解析过的 TZID
+    private final Map<String, TimeZone> resolvedZones = new HashMap<>();
+    private String lastId;
+    private TimeZone lastZone;
+
+    // 正在解析的 VTIMEZONE
+    private String pendingId;
+    private Observance standard;
+    private Observance daylight;
+    private Observance current;
+
+    public IcsTimeZones(TimeZone defaultZone) {
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * 当前属性的 TZID 参数对应的时区，没有 TZID 时返回本地时区
+     */
+    public TimeZone resolve(IcsTokenizer tokenizer) {
+        long range = tokenizer.findParameter("TZID");
+        if (range < 0) {
+            return defaultZone;
+        }
+        int start = (int) (range >>> 32);
+        int end = (int) range;
+        if (lastId != null && tokenizer.regionEquals(start, end, lastId)) {
+            return lastZone;
+        }
+        String id = new String(tokenizer.getChars(), start, end - start);
+        TimeZone zone = resolvedZones.get(id);
+        if (zone == null) {
+            zone = lookup(id);
+            resolvedZones.put(id, zone);
+        }
+        lastId = id;
+        lastZone = zone;
+        return zone;
+    }
+
+    /**
+     * BEGIN:VTIMEZONE
+     */
+    public void beginTimeZone() {
+        pendingId = null;
+        standard = null;
+        daylight = null;
+        current = null;
+    }
+
+    /**
+     * BEGIN:STANDARD 或 BEGIN:DAYLIGHT
+     */
+    public void beginObservance(boolean isDaylight) {
+        current = new Observance(isDaylight);
+    }
+
+    /**
+     * VTIMEZONE 内的属性（TZID，以及 STANDARD/DAYLIGHT 内的 TZOFFSETTO、DTSTART、RRULE）
+     */
+    public void onProperty(IcsTokenizer tokenizer) {
+        if (current == null) {
+            if (tokenizer.isName("TZID")) {
+                pendingId = tokenizer.getValue().trim();
+            }
+            return;
+        }
+        char[] chars = tokenizer.getChars();
+        int start = tokenizer.getValueStart();
+        int end = tokenizer.getValueEnd();
+        if (tokenizer.isName("TZOFFSETTO")) {
+            current.offset = parseOffset(chars, start, end);
+        } else if (tokenizer.isName("DTSTART")) {
+            // 按 UTC 解析得到的就是本地时间
+            current.start = IcsDateCodec.parse(chars, start, end, UTC);
+        } else if (tokenizer.isName("RRULE")) {
+            current.parseRule(tokenizer.getValue());
+        }
+    }
+
+    /**
+     * END:STANDARD 或 END:DAYLIGHT：同类有多段时保留开始时间最晚的（当前生效的规则）
+     */
+    public void endObservance() {
+        Observance observance = current;
+        current = null;
+        if (observance == null || observance.offset == Integer.MIN_VALUE) {
+            return;
+        }
+        if (observance.daylight) {
+            if (daylight == null || observance.start >= daylight.start) {
+                daylight = observance;
+            }
+        } else if (standard == null || observance.start >= standard.start) {
+            standard = observance;
+        }
+    }
+
+    /**
+     * END:VTIMEZONE：生成时区规则
+     */
+    public void endTimeZone() {
+        if (pendingId != null && (standard != null || daylight != null)) {
+            definedZones.put(pendingId, buildZone(pendingId, standard, daylight));
+            // 定义出现在引用之后时，丢掉之前按本地时区解析的结果
+            resolvedZones.remove(pendingId);
+            lastId = null;
+            lastZone = null;
+        }
+        beginTimeZone();
+    }
+
+    private TimeZone lookup(String id) {
+        TimeZone zone = systemZone(id);
+        if (zone != null) {
+            return zone;
+        }
+        zone = definedZones.get(id);
+        if (zone != null) {
+            return zone;
+        }
+        // 带前缀的 ID（如 /mozilla.org/20050126_1/America/New_York）取最后的 "地区/城市"
+        int slash = id.lastIndexOf('/');
+        while (slash > 0) {
+            slash = id.lastIndexOf('/', slash - 1);
+            zone = systemZone(id.substring(slash + 1));
+            if (zone != null) {
+                return zone;
+            }
+        }
+        return defaultZone;
+    }
+
+    private static TimeZone systemZone(String id) {
+        TimeZone zone = SYSTEM_ZONES.get(id);
+        if (zone != null) {
+            return zone;
+        }
+        // getTimeZone 不认识的 ID 会返回 GMT，需要先确认
+        if (!getAvailableIds().contains(id)) {
+            return null;
+        }
+        return SYSTEM_ZONES.computeIfAbsent(id, TimeZone::getTimeZone);
+    }
+
+    private static Set<String> getAvailableIds() {
+        Set<String> ids = availableIds;
+        if (ids == null) {
+            ids = new HashSet<>(Arrays.asList(TimeZone.getAvailableIDs()));
+            availableIds = ids;
+        }
+        return ids;
+    }
+
+    private static TimeZone buildZone(String id, Observance standard, Observance daylight) {
+        if (standard == null || daylight == null || !standard.hasRule() || !daylight.hasRule()) {
+            Observance only = standard != null ? standard : daylight;
+            return new SimpleTimeZone(only.offset, id);
+        }
+        // 开始规则的时间是切换前（标准时间）的本地时间，结束规则的时间是夏令时的本地时间
+        return new SimpleTimeZone(standard.offset, id,
+                daylight.month, daylight.day, daylight.dayOfWeek, daylight.timeOfDay(),
+                SimpleTimeZone.WALL_TIME,
+                standard.month, standard.day, standard.dayOfWeek, standard.timeOfDay(),
+                SimpleTimeZone.WALL_TIME,
+                daylight.offset - standard.offset);
+    }
+
+    /**
+     * 解析 ±HHMM 或 ±HHMMSS，格式错误时返回 Integer.MIN_VALUE
+     */
+    private static int parseOffset(char[] chars, int start, int end) {
+        int length = end - start;
+        if ((length != 5 && length != 7) || (chars[start] != '+' && chars[start] != '-')) {
+            return Integer.MIN_VALUE;
+        }
+        int seconds = 0;
+        int[] units = {3600, 60, 1};
+        for (int i = 0; i < (length - 1) / 2; i++) {
+            char high = chars[start + 1 + i * 2];
+            char low = chars[start + 2 + i * 2];
+            if (high < '0' || high > '9' || low < '0' || low > '9') {
+                return Integer.MIN_VALUE;
+            }
+            seconds += ((high - '0') * 10 + (low - '0')) * units[i];
+        }
+        return (chars[start] == '-' ? -seconds : seconds) * 1000;
+    }
+
+    /**
+     * VTIMEZONE 中的一段 STANDARD 或 DAYLIGHT
+     * 只支持每年按 "某月第 n 个（或最后一个）星期几" 切换的规则，这也是常见日历导出的形式
+     */
+    private static class Observance {
+        final boolean daylight;
+        int offset = Integer.MIN_VALUE;
+        long start = Long.MIN_VALUE;
+        // SimpleTimeZone 规则的参数，month 为 -1 表示没有可用的规则
+        int month = -1;
+        int day;
+        int dayOfWeek;
+
+        Observance(boolean daylight) {
+            this.daylight = daylight;
+        }
+
+        boolean hasRule() {
+            return month >= 0 && start != IcsDateCodec.INVALID && start != Long.MIN_VALUE;
+        }
+
+        int timeOfDay() {
+            return (int) Math.floorMod(start, DAY);
+        }
+
+        /**
+         * 解析 FREQ=YEARLY;BYMONTH=3;BYDAY=2SU（或 -1SU），
+         * 以及旧式的 BYDAY=SU;BYMONTHDAY=8,9,10,11,12,13,14（8 日及之后的第一个星期日）
+         */
+        void parseRule(String rule) {
+            int byMonth = -1;
+            int ordinal = 0;
+            int weekday = -1;
+            int monthDay = 0;
+            boolean yearly = false;
+            for (String part : rule.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String name = part.substring(0, eq).trim();
+                String value = part.substring(eq + 1).trim();
+                try {
+                    if (name.equalsIgnoreCase("FREQ")) {
+                        yearly = value.equalsIgnoreCase("YEARLY");
+                    } else if (name.equalsIgnoreCase("BYMONTH")) {
+                        byMonth = Integer.parseInt(value);
+                    } else if (name.equalsIgnoreCase("BYDAY") && value.length() >= 2) {
+                        weekday = weekday(value.substring(value.length() - 2));
+                        String prefix = value.substring(0, value.length() - 2);
+                        ordinal = prefix.isEmpty() ? 0 : Integer.parseInt(prefix.replace("+", ""));
+                    } else if (name.equalsIgnoreCase("BYMONTHDAY")) {
+                        int comma = value.indexOf(',');
+                        monthDay = Integer.parseInt(comma < 0 ? value : value.substring(0, comma));
+                    }
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();
+                    return;
+                }
+            }
+            if (!yearly || byMonth < 1 || byMonth > 12 || weekday < 0) {
+                return;
+            }
+            if (ordinal != 0 && ordinal >= -5 && ordinal <= 5) {
+                // 第 n 个（负数为倒数第 n 个）星期几
+                day = ordinal;
+                dayOfWeek = weekday;
+            } else if (ordinal == 0 && monthDay > 0) {
+                // 某日及之后的第一个星期几
+                day = monthDay;
+                dayOfWeek = -weekday;
+            } else {
+                return;
+            }
+            month = byMonth - 1;
+        }
+
+        private static int weekday(String code) {
+            String[] codes = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i].equalsIgnoreCase(code)) {
+                    return Calendar.SUNDAY + i;
+                }
+            }
+            return -1;
+        }
+    }
+}
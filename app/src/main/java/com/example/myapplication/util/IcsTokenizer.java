@@ -0,0 +1,416 @@
+package com.example.myapplication.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * RFC 5545 内容行的流式分词器
+ * 从 Reader 分块读入可复用的字符缓冲区，把折行（以空格或制表符开头的续行）拼回一行，
+ * 属性名、参数和值都只记录在行缓冲区中的位置，比较和数字解析直接在字符上进行；
+ * 只有需要保留的值才通过 getValue() / getTextValue() 生成 String。
+ * 同时按 UTF-8 统计已读取的字节数，用于记录和恢复导入位置。
+ * 非线程安全，每次解析使用一个实例。
+ */
+public class IcsTokenizer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferPos = 0;
+    private int bufferEnd = 0;
+    private boolean eof = false;
+
+    // 当前逻辑行（已展开折行），跨行复用
+    private char[] line = new char[256];
+    private int lineLength = 0;
+
+    // 当前行的切分位置：属性名 [0, nameEnd)，参数 [nameEnd, valueStart - 1)，值 [valueStart, lineLength)
+    private int nameEnd;
+    private int valueStart;
+
+    // 当前行开始处和已读取部分（到当前行的行尾之后）的字节偏移
+    private long lineOffset;
+    private long offset;
+
+    private final StringBuilder text = new StringBuilder();
+
+    public IcsTokenizer(Reader reader) {
+        this(reader, 0);
+    }
+
+    /**
+     * @param startOffset reader 开始处在整个文件中的字节偏移（从中间恢复读取时）
+     */
+    public IcsTokenizer(Reader reader, long startOffset) {
+        this.reader = reader;
+        this.offset = startOffset;
+        this.lineOffset = startOffset;
+    }
+
+    /**
+     * 当前内容行开始处的字节偏移
+     */
+    public long getLineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * 当前内容行（含行尾换行）之后的字节偏移，从这里开始读取即为下一行
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 读取下一个内容行，没有时返回 false；空行和没有冒号的行会被跳过
+     */
+    public boolean next() throws IOException {
+        while (readLine()) {
+            if (split()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 属性名是否为 name（忽略大小写）
+     */
+    public boolean isName(String name) {
+        return regionEqualsIgnoreCase(0, nameEnd, name);
+    }
+
+    /**
+     * 值是否为 value（忽略大小写，用于 BEGIN:VEVENT 这类枚举值）
+     */
+    public boolean isValue(String value) {
+        return regionEqualsIgnoreCase(valueStart, lineLength, value);
+    }
+
+    /**
+     * 属性名在 names 中的下标（忽略大小写），不在其中时返回 -1
+     */
+    public int matchName(String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (regionEqualsIgnoreCase(0, nameEnd, names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getName() {
+        return new String(line, 0, nameEnd);
+    }
+
+    /**
+     * 原始值（不做转义处理）
+     */
+    public String getValue() {
+        return new String(line, valueStart, lineLength - valueStart);
+    }
+
+    /**
+     * 值在行缓冲区中的位置，配合 getChars() 直接解析，避免生成 String；下次 next() 后失效
+     */
+    public int getValueStart() {
+        return valueStart;
+    }
+
+    public int getValueEnd() {
+        return lineLength;
+    }
+
+    public char[] getChars() {
+        return line;
+    }
+
+    /**
+     * TEXT 类型的值：处理 \\n、\\,、\\;、\\\\ 转义
+     */
+    public String getTextValue() {
+        int start = valueStart;
+        int end = lineLength;
+        int backslash = indexOf('\\', start, end);
+        if (backslash < 0) {
+            return new String(line, start, end - start);
+        }
+        text.setLength(0);
+        text.append(line, start, backslash - start);
+        for (int i = backslash; i < end; i++) {
+            char c = line[i];
+            if (c == '\\' && i + 1 < end) {
+                char escaped = line[++i];
+                text.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 值按整数解析（允许前导正负号），格式错误时返回 defaultValue
+     */
+    public int getIntValue(int defaultValue) {
+        int i = valueStart;
+        int end = lineLength;
+        while (i < end && line[i] == ' ') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        if (i >= end) {
+            return defaultValue;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            char c = line[i];
+            if (c < '0' || c > '9') {
+                return defaultValue;
+            }
+            result = result * 10 + (c - '0');
+            if (result > Integer.MAX_VALUE) {
+                return defaultValue;
+            }
+        }
+        return (int) (negative ? -result : result);
+    }
+
+    /**
+     * 参数值（如 DTSTART;TZID=Asia/Shanghai 中的 TZID），去掉引号；没有该参数时返回 null
+     */
+    public String getParameter(String name) {
+        long range = findParameter(name);
+        if (range < 0) {
+            return null;
+        }
+        int start = (int) (range >>> 32);
+        return new String(line, start, (int) range - start);
+    }
+
+    /**
+     * 参数值在行缓冲区中的位置（已去掉引号），高 32 位为开始、低 32 位为结束；没有该参数时返回 -1
+     */
+    public long findParameter(String name) {
+        int i = nameEnd;
+        int paramsEnd = valueStart - 1;
+        while (i < paramsEnd && line[i] == ';') {
+            int nameStart = i + 1;
+            int eq = nameStart;
+            while (eq < paramsEnd && line[eq] != '=' && line[eq] != ';') {
+                eq++;
+            }
+            int valueEnd = eq;
+            if (eq < paramsEnd && line[eq] == '=') {
+                valueEnd = skipParamValue(eq + 1, paramsEnd);
+                if (regionEqualsIgnoreCase(nameStart, eq, name)) {
+                    int start = eq + 1;
+                    int end = valueEnd;
+                    if (end - start >= 2 && line[start] == '"' && line[end - 1] == '"') {
+                        start++;
+                        end--;
+                    }
+                    return ((long) start << 32) | end;
+                }
+            }
+            i = valueEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * 行缓冲区 [start, end) 是否与 s 相同（区分大小写）
+     */
+    public boolean regionEquals(int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (line[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读入一个逻辑行到 line，展开折行；文件结束且没有内容时返回 false
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        lineOffset = offset;
+        boolean any = false;
+        while (true) {
+            if (bufferPos >= bufferEnd && !fill()) {
+                return any;
+            }
+            any = true;
+            // 在缓冲区中找本段的换行
+            int start = bufferPos;
+            int i = start;
+            while (i < bufferEnd && buffer[i] != '\n' && buffer[i] != '\r') {
+                i++;
+            }
+            append(start, i);
+            offset += utf8Length(start, i);
+            bufferPos = i;
+            if (i >= bufferEnd) {
+                // 行跨越了缓冲区，继续读
+                continue;
+            }
+            // 跳过 CRLF、LF 或单独的 CR
+            if (buffer[bufferPos] == '\r') {
+                bufferPos++;
+                offset++;
+                if ((bufferPos < bufferEnd || fill()) && buffer[bufferPos] == '\n') {
+                    bufferPos++;
+                    offset++;
+                }
+            } else {
+                bufferPos++;
+                offset++;
+            }
+            // 下一行以空格或制表符开头时是续行：去掉这一个字符后接在当前行后面
+            if ((bufferPos < bufferEnd || fill())
+                    && (buffer[bufferPos] == ' ' || buffer[bufferPos] == '\t')) {
+                bufferPos++;
+                offset++;
+                continue;
+            }
+            return true;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            bufferPos = bufferEnd = 0;
+            return false;
+        }
+        bufferPos = 0;
+        bufferEnd = n;
+        return true;
+    }
+
+    /**
+     * buffer[start, end) 按 UTF-8 编码的字节数；代理对的两个字符各计 2 字节
+     */
+    private int utf8Length(int start, int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            if (c >= 0x80) {
+                length += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    private void append(int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (lineLength + length > line.length) {
+            char[] grown = new char[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * 切分当前行：属性名到第一个 ';' 或 ':'，值从参数之后第一个不在引号内的 ':' 开始
+     * 去掉行首行尾的空白（兼容不规范的文件）
+     */
+    private boolean split() {
+        int start = 0;
+        while (start < lineLength && line[start] <= ' ') {
+            start++;
+        }
+        while (lineLength > start && line[lineLength - 1] <= ' ') {
+            lineLength--;
+        }
+        if (start > 0) {
+            System.arraycopy(line, start, line, 0, lineLength - start);
+            lineLength -= start;
+        }
+        int i = 0;
+        while (i < lineLength && line[i] != ';' && line[i] != ':') {
+            i++;
+        }
+        if (i >= lineLength) {
+            return false;
+        }
+        nameEnd = i;
+        while (i < lineLength && line[i] == ';') {
+            int eq = i + 1;
+            while (eq < lineLength && line[eq] != '=' && line[eq] != ';' && line[eq] != ':') {
+                eq++;
+            }
+            i = eq < lineLength && line[eq] == '=' ? skipParamValue(eq + 1, lineLength) : eq;
+        }
+        if (i >= lineLength || line[i] != ':') {
+            return false;
+        }
+        valueStart = i + 1;
+        return true;
+    }
+
+    /**
+     * 跳过一个参数值（可以带引号，也可以是逗号分隔的多个值），返回其后的位置
+     */
+    private int skipParamValue(int i, int end) {
+        boolean quoted = false;
+        while (i < end) {
+            char c = line[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == ';' || c == ':')) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionEqualsIgnoreCase(int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char a = line[start + i];
+            char b = s.charAt(i);
+            if (a != b && toUpper(a) != toUpper(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toUpper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+}
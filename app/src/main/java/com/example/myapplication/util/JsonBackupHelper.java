@@ -0,0 +1,246 @@
+package com.example.myapplication.util;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 应用自己的完整备份格式（JSON），基于 Gson 的流式 JsonWriter / JsonReader
+ * 备份直接从数据库游标逐行写出，恢复逐个读取事件、按批交给调用方写入，都不构建对象树，
+ * 内存中最多只有一批事件，与事件总数无关。
+ * 每个事件按列名保存所有非空的列（包括 ICS 中没有的 alarm_request_code、颜色和提醒设置）；
+ * 恢复时忽略当前表中没有的列，旧版本备份中缺少的列使用表的默认值；
+ * 数据库版本比当前新的备份不能恢复（同名的列含义可能已经不同）。
+ * 流式读取在遇到错误之前已经交出了前面的批次，所以恢复前应先用 validateBackup 完整读一遍。
+ */
+public class JsonBackupHelper {
+
+    public static final String FORMAT = "mycalendar-backup";
+    public static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 65536;
+    // 每写出这么多行回调一次进度
+    private static final int PROGRESS_INTERVAL = 500;
+
+    /**
+     * 备份进度回调，在调用线程上执行；抛出 CancellationException 可中止备份
+     */
+    public interface ProgressListener {
+        void onProgress(int count);
+    }
+
+    /**
+     * 恢复时接收数据的一方，在调用线程上执行
+     */
+    public interface RestoreSink {
+        /**
+         * 确认是有效的备份文件、开始读取事件之前调用一次（此时可以清空旧数据）
+         */
+        void begin() throws IOException;
+
+        /**
+         * 写入一批事件，每行为列名到值的映射
+         */
+        void insert(List<ContentValues> rows) throws IOException;
+    }
+
+    /**
+     * 把游标中的所有行写为备份，不关闭游标和输出流
+     *
+     * @param schemaVersion 数据库版本，记录在备份中
+     * @param listener 进度回调，可为 null
+     * @return 写出的事件数
+     */
+    public static int writeBackup(OutputStream outputStream, Cursor cursor, int schemaVersion,
+                                  ProgressListener listener) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE));
+        writer.beginObject();
+        writer.name("format").value(FORMAT);
+        writer.name("version").value(VERSION);
+        writer.name("schema").value(schemaVersion);
+        writer.name("created").value(System.currentTimeMillis());
+
+        writer.name("events").beginArray();
+        String[] names = cursor.getColumnNames();
+        int count = 0;
+        while (cursor.moveToNext()) {
+            writer.beginObject();
+            for (int i = 0; i < names.length; i++) {
+                switch (cursor.getType(i)) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        writer.name(names[i]).value(cursor.getLong(i));
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        writer.name(names[i]).value(cursor.getDouble(i));
+                        break;
+                    case Cursor.FIELD_TYPE_STRING:
+                        writer.name(names[i]).value(cursor.getString(i));
+                        break;
+                    default:
+                        // 空值省略；表中没有 BLOB 列
+                        break;
+                }
+            }
+            writer.endObject();
+            count++;
+            if (listener != null && count % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(count);
+            }
+        }
+        writer.endArray();
+        writer.endObject();
+        // 不关闭 writer，否则会关闭调用方的输出流
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * 读取备份，按批交给 sink
+     *
+     * @param columns 当前表中的列名，其他字段忽略
+     * @param maxSchema 当前的数据库版本，备份的数据库版本不能比它新
+     * @param batchSize 每批的事件数
+     * @return 读取的事件数
+     * @throws IOException 不是有效的备份文件，或者备份的格式或数据库版本比当前应用新
+     */
+    public static int readBackup(InputStream inputStream, Set<String> columns, int maxSchema, int batchSize,
+                                 RestoreSink sink) throws IOException {
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE));
+        boolean valid = false;
+        boolean events = false;
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("format") && reader.peek() == JsonToken.STRING) {
+                valid = FORMAT.equals(reader.nextString());
+            } else if (name.equals("version") && reader.peek() == JsonToken.NUMBER) {
+                if (reader.nextInt() > VERSION) {
+                    throw new IOException("Backup was written by a newer version");
+                }
+            } else if (name.equals("schema") && reader.peek() == JsonToken.NUMBER) {
+                if (reader.nextInt() > maxSchema) {
+                    throw new IOException("Backup was written by a newer database version");
+                }
+            } else if (name.equals("events")) {
+                // 写出时 format 在 events 之前
+                if (!valid || events) {
+                    throw new IOException("Not a calendar backup");
+                }
+                events = true;
+                sink.begin();
+                count += readEvents(reader, columns, batchSize, sink);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!valid) {
+            throw new IOException("Not a calendar backup");
+        }
+        return count;
+    }
+
+    /**
+     * 完整读一遍备份但不交出数据，确认文件没有截断、格式正确
+     * 读取方式与 readBackup 相同，通过校验的文件在 readBackup 中不会因为内容出错。
+     *
+     * @param listener 进度回调（已读取的事件数），可为 null
+     * @return 备份中的事件数
+     * @throws IOException 不是有效的备份文件，或者备份的格式或数据库版本比当前应用新
+     */
+    public static int validateBackup(InputStream inputStream, Set<String> columns, int maxSchema,
+                                     ProgressListener listener) throws IOException {
+        int[] count = {0};
+        return readBackup(inputStream, columns, maxSchema, PROGRESS_INTERVAL, new RestoreSink() {
+            @Override
+            public void begin() {
+            }
+
+            @Override
+            public void insert(List<ContentValues> rows) {
+                count[0] += rows.size();
+                if (listener != null) {
+                    listener.onProgress(count[0]);
+                }
+            }
+        });
+    }
+
+    private static int readEvents(JsonReader reader, Set<String> columns, int batchSize,
+                                  RestoreSink sink) throws IOException {
+        int count = 0;
+        List<ContentValues> batch = new ArrayList<>(batchSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            batch.add(readRow(reader, columns));
+            if (batch.size() >= batchSize) {
+                sink.insert(batch);
+                count += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        reader.endArray();
+        if (!batch.isEmpty()) {
+            sink.insert(batch);
+            count += batch.size();
+        }
+        return count;
+    }
+
+    private static ContentValues readRow(JsonReader reader, Set<String> columns) throws IOException {
+        ContentValues values = new ContentValues();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (!columns.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (token) {
+                case NUMBER:
+                    // 按原文判断整数还是小数，避免大整数经过 double 损失精度
+                    String number = reader.nextString();
+                    try {
+                        if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                            values.put(name, Long.parseLong(number));
+                        } else {
+                            values.put(name, Double.parseDouble(number));
+                        }
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed number in backup: " + number, e);
+                    }
+                    break;
+                case STRING:
+                    values.put(name, reader.nextString());
+                    break;
+                case BOOLEAN:
+                    values.put(name, reader.nextBoolean() ? 1 : 0);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return values;
+    }
+}
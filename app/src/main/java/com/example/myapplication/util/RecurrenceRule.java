@@ -0,0 +1,382 @@
+package com.example.myapplication.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * 重复规则（RFC 5545 RRULE 的常用子集）
+ * 支持 FREQ=DAILY/WEEKLY/MONTHLY/YEARLY、INTERVAL、COUNT、UNTIL 以及 WEEKLY 的 BYDAY（不带序号）。
+ * 含有其他部分的规则不能按原意展开，parse 返回 null，调用方只保留单次日程而不是按错误的规则重复。
+ * 展开只针对给定的时间窗口：没有 COUNT 的规则直接跳到窗口附近的周期开始计算，
+ * 不会从第一次发生开始逐个生成；有 COUNT 的规则最多生成 COUNT 次。
+ */
+public class RecurrenceRule {
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    private static final String[] WEEKDAY_CODES = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+    // 单次展开最多生成的次数，防止异常规则导致死循环
+    private static final int MAX_ITERATIONS = 100000;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Integer count;
+    private final Long until;
+    // Calendar.SUNDAY..SATURDAY，已排序；null 表示与开始时间同一天
+    private final int[] byDay;
+
+    public RecurrenceRule(Frequency frequency, int interval, Integer count, Long until, int[] byDay) {
+        this.frequency = frequency;
+        this.interval = Math.max(1, interval);
+        this.count = count;
+        this.until = until;
+        if (byDay != null && byDay.length > 0) {
+            this.byDay = byDay.clone();
+            Arrays.sort(this.byDay);
+        } else {
+            this.byDay = null;
+        }
+    }
+
+    /**
+     * 解析 RRULE 的值（如 FREQ=WEEKLY;BYDAY=MO,WE）
+     * 含有子集之外的部分（BYMONTHDAY、BYSETPOS、BYMONTH、非每周的 BYDAY、带序号的 BYDAY 等）
+     * 或格式错误时返回 null，不会丢掉这些部分后按不同的规则展开。
+     */
+    public static RecurrenceRule parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        Long until = null;
+        int[] byDay = null;
+        String weekStart = null;
+        try {
+            for (String part : value.trim().split(";")) {
+                if (part.trim().isEmpty()) {
+                    continue;
+                }
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    return null;
+                }
+                String name = part.substring(0, eq).trim().toUpperCase(Locale.US);
+                String v = part.substring(eq + 1).trim();
+                switch (name) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(v.toUpperCase(Locale.US));
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(v);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(v);
+                        break;
+                    case "UNTIL":
+                        until = parseUntil(v);
+                        break;
+                    case "BYDAY":
+                        byDay = parseByDay(v);
+                        break;
+                    case "WKST":
+                        weekStart = v.toUpperCase(Locale.US);
+                        if (!Arrays.asList(WEEKDAY_CODES).contains(weekStart)) {
+                            throw new IllegalArgumentException("Unknown WKST: " + v);
+                        }
+                        break;
+                    default:
+                        // BYMONTHDAY、BYSETPOS、BYMONTH、BYHOUR 等都会改变发生的日期
+                        return null;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (frequency == null || (count != null && count <= 0) || interval <= 0) {
+            return null;
+        }
+        // BYDAY 只支持每周重复；其他频率下的 BYDAY 表示“第几个星期几”等，不能展开
+        if (byDay != null && frequency != Frequency.WEEKLY) {
+            return null;
+        }
+        // 展开时每周从周一开始，其他 WKST 只在隔周且指定了星期时会改变结果
+        if (weekStart != null && !weekStart.equals("MO") && byDay != null && interval > 1) {
+            return null;
+        }
+        return new RecurrenceRule(frequency, interval, count, until, byDay);
+    }
+
+    /**
+     * 格式化为 RRULE 的值
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder("FREQ=").append(frequency.name());
+        if (interval > 1) {
+            sb.append(";INTERVAL=").append(interval);
+        }
+        if (count != null) {
+            sb.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            sb.append(";UNTIL=").append(IcsDateCodec.format(until, TimeZone.getDefault(), true));
+        }
+        if (byDay != null) {
+            sb.append(";BYDAY=");
+            for (int i = 0; i < byDay.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(WEEKDAY_CODES[byDay[i] - 1]);
+            }
+        }
+        return sb.toString();
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Long getUntil() {
+        return until;
+    }
+
+    public boolean isBounded() {
+        return count != null || until != null;
+    }
+
+    /**
+     * 最后一次发生的结束时间；无限重复时返回 Long.MAX_VALUE
+     */
+    public long getEnd(long dtStart, long duration) {
+        if (count != null) {
+            long last = dtStart;
+            Generator generator = new Generator(dtStart, 0);
+            int produced = 0;
+            long start;
+            while (produced < count && (start = generator.next()) >= 0) {
+                if (until != null && start > until) {
+                    break;
+                }
+                last = start;
+                produced++;
+            }
+            return last + duration;
+        }
+        if (until != null) {
+            return Math.max(until, dtStart) + duration;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 展开与 [windowStart, windowEnd) 相交的各次发生的开始时间（升序）
+     *
+     * @param excluded 不发生的开始时间（EXDATE 和被单独修改的实例），可为 null
+     */
+    public long[] expand(long dtStart, long duration, long windowStart, long windowEnd, Set<Long> excluded) {
+        List<Long> result = new ArrayList<>();
+        if (windowStart >= windowEnd) {
+            return new long[0];
+        }
+        // 有 COUNT 时必须从头数；否则跳到窗口前一个周期开始
+        long firstPeriod = 0;
+        if (count == null) {
+            long maxPeriod = maxPeriodMillis() * interval;
+            firstPeriod = Math.max(0, (windowStart - duration - dtStart) / maxPeriod - 1);
+        }
+        Generator generator = new Generator(dtStart, firstPeriod);
+        int produced = 0;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            long start = generator.next();
+            if (start < 0 || start >= windowEnd) {
+                break;
+            }
+            if (until != null && start > until) {
+                break;
+            }
+            if (count != null && produced++ >= count) {
+                break;
+            }
+            // 零时长的事件只要开始时间在窗口内就算相交
+            boolean overlaps = duration > 0 ? start + duration > windowStart : start >= windowStart;
+            if (overlaps && (excluded == null || !excluded.contains(start))) {
+                result.add(start);
+            }
+        }
+        long[] starts = new long[result.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = result.get(i);
+        }
+        return starts;
+    }
+
+    /**
+     * after 之后（不含）第一次发生的开始时间，没有时返回 -1
+     * 每次向后展开一年，最多查找十年
+     */
+    public long nextOccurrence(long dtStart, long duration, long after, Set<Long> excluded) {
+        long windowStart = Math.max(after + 1, dtStart);
+        for (int i = 0; i < 10; i++) {
+            long windowEnd = windowStart + 366 * DAY;
+            for (long start : expand(dtStart, duration, windowStart, windowEnd, excluded)) {
+                if (start > after) {
+                    return start;
+                }
+            }
+            if (isBounded() && windowEnd > getEnd(dtStart, duration)) {
+                return -1;
+            }
+            windowStart = windowEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * 一个周期的最大长度（考虑夏令时），用于估算窗口之前可以跳过的周期数
+     */
+    private long maxPeriodMillis() {
+        switch (frequency) {
+            case DAILY:
+                return DAY + HOUR;
+            case WEEKLY:
+                return 7 * DAY + HOUR;
+            case MONTHLY:
+                return 31 * DAY + HOUR;
+            default:
+                return 366 * DAY + HOUR;
+        }
+    }
+
+    /**
+     * 从第 firstPeriod 个周期开始按时间顺序生成各次发生（不考虑 COUNT、UNTIL 和排除日期）
+     */
+    private class Generator {
+        private final Calendar base = Calendar.getInstance();
+        private final int dayOfMonth;
+        private final int month;
+        private long period;
+        // 当前周期内的候选时间（每周多天时）
+        private long[] pending = new long[0];
+        private int pendingIndex = 0;
+        private final long dtStart;
+
+        Generator(long dtStart, long firstPeriod) {
+            this.dtStart = dtStart;
+            base.setTimeInMillis(dtStart);
+            dayOfMonth = base.get(Calendar.DAY_OF_MONTH);
+            month = base.get(Calendar.MONTH);
+            period = firstPeriod;
+        }
+
+        long next() {
+            for (int guard = 0; guard < MAX_ITERATIONS; guard++) {
+                if (pendingIndex < pending.length) {
+                    return pending[pendingIndex++];
+                }
+                pending = candidates(period++);
+                pendingIndex = 0;
+            }
+            return -1;
+        }
+
+        private long[] candidates(long p) {
+            int steps = (int) Math.min(Integer.MAX_VALUE, p * interval);
+            Calendar calendar = (Calendar) base.clone();
+            switch (frequency) {
+                case DAILY:
+                    calendar.add(Calendar.DAY_OF_MONTH, steps);
+                    return new long[]{calendar.getTimeInMillis()};
+                case WEEKLY:
+                    calendar.add(Calendar.DAY_OF_MONTH, steps * 7);
+                    if (byDay == null) {
+                        return new long[]{calendar.getTimeInMillis()};
+                    }
+                    return weekCandidates(calendar);
+                case MONTHLY:
+                    calendar.add(Calendar.MONTH, steps);
+                    // 没有这一天的月份跳过（如 31 日）
+                    if (calendar.get(Calendar.DAY_OF_MONTH) != dayOfMonth) {
+                        return new long[0];
+                    }
+                    return new long[]{calendar.getTimeInMillis()};
+                default:
+                    calendar.add(Calendar.YEAR, steps);
+                    // 非闰年跳过 2 月 29 日
+                    if (calendar.get(Calendar.DAY_OF_MONTH) != dayOfMonth || calendar.get(Calendar.MONTH) != month) {
+                        return new long[0];
+                    }
+                    return new long[]{calendar.getTimeInMillis()};
+            }
+        }
+
+        /**
+         * 每周多天：以周一为一周的开始，同一周内按 BYDAY 生成，早于第一次发生的跳过
+         */
+        private long[] weekCandidates(Calendar calendar) {
+            int offsetFromMonday = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+            calendar.add(Calendar.DAY_OF_MONTH, -offsetFromMonday);
+            long[] days = new long[byDay.length];
+            int size = 0;
+            // 按周一到周日的顺序
+            for (int i = 0; i < 7; i++) {
+                int dayOfWeek = (i + 1) % 7 + 1;
+                if (Arrays.binarySearch(byDay, dayOfWeek) >= 0) {
+                    Calendar day = (Calendar) calendar.clone();
+                    day.add(Calendar.DAY_OF_MONTH, i);
+                    long start = day.getTimeInMillis();
+                    if (start >= dtStart) {
+                        days[size++] = start;
+                    }
+                }
+            }
+            return Arrays.copyOf(days, size);
+        }
+    }
+
+    private static Long parseUntil(String value) {
+        long until = IcsDateCodec.parse(value, TimeZone.getDefault());
+        if (until == IcsDateCodec.INVALID) {
+            throw new IllegalArgumentException("Invalid UNTIL: " + value);
+        }
+        // 只有日期时包含当天
+        return value.length() == 8 ? until + DAY - 1 : until;
+    }
+
+    private static int[] parseByDay(String value) {
+        List<Integer> days = new ArrayList<>();
+        for (String code : value.split(",")) {
+            code = code.trim().toUpperCase(Locale.US);
+            // 带序号的（如 1MO、-1FR）不在支持的子集内，作为无法识别的值处理
+            int index = Arrays.asList(WEEKDAY_CODES).indexOf(code);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown BYDAY: " + code);
+            }
+            days.add(index + 1);
+        }
+        int[] result = new int[days.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = days.get(i);
+        }
+        return result;
+    }
+}
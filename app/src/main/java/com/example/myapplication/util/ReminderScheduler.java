@@ -13,6 +13,7 @@ import com.example.myapplication.data.model.CalendarEvent;
 import com.example.myapplication.receiver.ReminderReceiver;
 
 import java.util.Calendar;
+import java.util.Set;
 
 /**
  * 提醒调度器
@@ -60,13 +61,37 @@ public class ReminderScheduler {
      * 为事件设置提醒
      */
     public void scheduleReminder(CalendarEvent event) {
+        scheduleReminder(event, event.getExcludedStarts());
+    }
+    
+    /**
+     * 为事件设置提醒；重复日程只设置下一次发生的提醒，触发后由 ReminderReceiver 安排再下一次
+     *
+     * @param excluded 重复日程不发生的开始时间
+     */
+    public void scheduleReminder(CalendarEvent event, Set<Long> excluded) {
         if (!event.isReminderEnabled()) {
             return;
         }
         
+        long offsetMillis = event.getReminderMinutesBefore() * 60 * 1000L;
+        long startTimeMillis = event.getStartTime().getTime();
+        if (event.isRecurring()) {
+            RecurrenceRule rule = RecurrenceRule.parse(event.getRrule());
+            if (rule == null) {
+                return;
+            }
+            long duration = event.getEndTime() != null ? Math.max(0, event.getEndTime().getTime() - startTimeMillis) : 0;
+            // 提醒时间不早于现在的第一次
+            startTimeMillis = rule.nextOccurrence(startTimeMillis, duration,
+                    System.currentTimeMillis() + offsetMillis - 1, excluded);
+            if (startTimeMillis < 0) {
+                return;
+            }
+        }
+        
         // 计算提醒时间
-        long reminderTimeMillis = event.getStartTime().getTime() - 
-                                  (event.getReminderMinutesBefore() * 60 * 1000L);
+        long reminderTimeMillis = startTimeMillis - offsetMillis;
         
         // 如果提醒时间已经过去，则不设置
         if (reminderTimeMillis < System.currentTimeMillis()) {
@@ -78,8 +103,9 @@ public class ReminderScheduler {
         intent.putExtra("event_title", event.getTitle());
         intent.putExtra("event_description", event.getDescription());
         intent.putExtra("event_location", event.getLocation());
-        intent.putExtra("event_start_time", event.getStartTime().getTime());
+        intent.putExtra("event_start_time", startTimeMillis);
         intent.putExtra("sound_enabled", event.isSoundEnabled());
+        intent.putExtra("recurring", event.isRecurring());
         
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
@@ -0,0 +1,494 @@
+package com.example.myapplication.util;
+
+import android.database.Cursor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 紧凑的二进制快照格式（.mcsnap），用于很大的日历的备份与恢复
+ * 文件布局（小端序）：40 字节的头部 | 事件记录 | 字符串表
+ * 头部：魔数 "MCALSNAP"、格式版本 u16、数据库版本 u16、记录数 u32、字符串表位置 u64、
+ * 字符串数 u32、CRC32 u32（覆盖头部之后的全部内容）、创建时间 u64。
+ * 每条记录的字段顺序固定：id 与上一条的差、标志位、开始时间与上一条的差、时长，其余整数为 varint，
+ * 颜色为 4 字节；重复较多的标题、地点、类型和 RRULE 写为字符串表的下标，其余字符串直接写在记录中。
+ * 记录只依赖前一条记录，读取时可以直接在映射的缓冲区上顺序解码。
+ */
+public final class SnapshotCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    // 记录中的列，恢复时按这个顺序绑定到 INSERT 语句
+    public static final String[] COLUMNS = {
+            "id", "title", "description", "start_time", "end_time", "location", "color", "type",
+            "reminder_enabled", "reminder_minutes_before", "sound_enabled", "alarm_request_code",
+            "rrule", "exdates", "recurrence_end", "parent_id", "recurrence_id", "uid", "sequence",
+            "last_modified", "change_seq"
+    };
+
+    private static final byte[] MAGIC = "MCALSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 40;
+    private static final int BUFFER_SIZE = 65536;
+    // 每写出这么多条回调一次进度
+    private static final int PROGRESS_INTERVAL = 5000;
+    // 字符串表的上限：超过后新出现的字符串直接写在记录中，写入时的内存占用有上界
+    private static final int MAX_TABLE_SIZE = 65536;
+    private static final int MAX_TABLE_STRING_LENGTH = 256;
+
+    private static final int FLAG_REMINDER = 1;
+    private static final int FLAG_SOUND = 1 << 1;
+    private static final int FLAG_START = 1 << 2;
+    private static final int FLAG_END = 1 << 3;
+    private static final int FLAG_RECURRENCE_END = 1 << 4;
+    private static final int FLAG_RECURRENCE_ID = 1 << 5;
+    private static final int FLAG_LAST_MODIFIED = 1 << 6;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * 快照进度回调，在调用线程上执行；抛出 CancellationException 可中止
+     */
+    public interface ProgressListener {
+        void onProgress(int count);
+    }
+
+    /**
+     * 文件开头是否为快照的魔数
+     */
+    public static boolean isSnapshot(byte[] head, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把游标中的所有行（按 id 升序）写为快照，从 channel 的开头写起
+     *
+     * @return 写出的事件数
+     */
+    public static int write(FileChannel channel, Cursor cursor, int schemaVersion,
+                            ProgressListener listener) throws IOException {
+        int[] columns = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = cursor.getColumnIndexOrThrow(COLUMNS[i]);
+        }
+        channel.truncate(0);
+        channel.position(HEADER_SIZE);
+        Output out = new Output(channel);
+        Map<String, Integer> table = new HashMap<>();
+        List<String> tableStrings = new ArrayList<>();
+
+        int count = 0;
+        long prevId = 0;
+        long prevStart = 0;
+        while (cursor.moveToNext()) {
+            long id = cursor.getLong(columns[0]);
+            int flags = 0;
+            if (cursor.getLong(columns[8]) != 0) {
+                flags |= FLAG_REMINDER;
+            }
+            if (cursor.getLong(columns[10]) != 0) {
+                flags |= FLAG_SOUND;
+            }
+            boolean hasStart = !cursor.isNull(columns[3]);
+            if (hasStart) {
+                flags |= FLAG_START;
+            }
+            if (!cursor.isNull(columns[4])) {
+                flags |= FLAG_END;
+            }
+            if (!cursor.isNull(columns[14])) {
+                flags |= FLAG_RECURRENCE_END;
+            }
+            if (!cursor.isNull(columns[16])) {
+                flags |= FLAG_RECURRENCE_ID;
+            }
+            if (!cursor.isNull(columns[19])) {
+                flags |= FLAG_LAST_MODIFIED;
+            }
+
+            out.writeZigzag(id - prevId);
+            prevId = id;
+            out.writeByte(flags);
+            long start = hasStart ? cursor.getLong(columns[3]) : 0;
+            if (hasStart) {
+                out.writeZigzag(start - prevStart);
+                prevStart = start;
+            }
+            if ((flags & FLAG_END) != 0) {
+                // 有开始时间时写时长
+                out.writeZigzag(cursor.getLong(columns[4]) - start);
+            }
+            if ((flags & FLAG_RECURRENCE_END) != 0) {
+                out.writeZigzag(cursor.getLong(columns[14]));
+            }
+            if ((flags & FLAG_RECURRENCE_ID) != 0) {
+                out.writeZigzag(cursor.getLong(columns[16]));
+            }
+            if ((flags & FLAG_LAST_MODIFIED) != 0) {
+                out.writeZigzag(cursor.getLong(columns[19]));
+            }
+            out.writeInt((int) cursor.getLong(columns[6]));
+            out.writeVarint(cursor.getLong(columns[9]));
+            out.writeZigzag(cursor.getLong(columns[11]));
+            out.writeVarint(cursor.getLong(columns[15]));
+            out.writeVarint(cursor.getLong(columns[18]));
+            out.writeVarint(cursor.getLong(columns[20]));
+
+            writeShared(out, cursor, columns[1], table, tableStrings);
+            writeInline(out, cursor, columns[2]);
+            writeShared(out, cursor, columns[5], table, tableStrings);
+            writeShared(out, cursor, columns[7], table, tableStrings);
+            writeShared(out, cursor, columns[12], table, tableStrings);
+            writeInline(out, cursor, columns[13]);
+            writeInline(out, cursor, columns[17]);
+
+            count++;
+            if (listener != null && count % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(count);
+            }
+        }
+
+        long tableOffset = HEADER_SIZE + out.getWritten();
+        for (String s : tableStrings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.writeBytes(bytes);
+        }
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putShort((short) FORMAT_VERSION);
+        header.putShort((short) schemaVersion);
+        header.putInt(count);
+        header.putLong(tableOffset);
+        header.putInt(tableStrings.size());
+        header.putInt((int) out.getChecksum());
+        header.putLong(System.currentTimeMillis());
+        header.flip();
+        channel.write(header, 0);
+        channel.force(false);
+        return count;
+    }
+
+    private static void writeShared(Output out, Cursor cursor, int column, Map<String, Integer> table,
+                                    List<String> tableStrings) throws IOException {
+        if (cursor.isNull(column)) {
+            out.writeVarint(0);
+            return;
+        }
+        String value = cursor.getString(column);
+        Integer index = table.get(value);
+        if (index == null && tableStrings.size() < MAX_TABLE_SIZE && value.length() <= MAX_TABLE_STRING_LENGTH) {
+            index = tableStrings.size();
+            table.put(value, index);
+            tableStrings.add(value);
+        }
+        if (index != null) {
+            out.writeVarint(((long) index << 1) | 1);
+        } else {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeInline(Output out, Cursor cursor, int column) throws IOException {
+        if (cursor.isNull(column)) {
+            out.writeVarint(0);
+        } else {
+            writeString(out, cursor.getString(column));
+        }
+    }
+
+    /**
+     * 直接写在记录中的字符串：varint((字节数 + 1) << 1) 后接 UTF-8 字节
+     */
+    private static void writeString(Output out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeVarint(((long) bytes.length + 1) << 1);
+        out.writeBytes(bytes);
+    }
+
+    /**
+     * 写入缓冲：满了写到 channel，同时计算 CRC32
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long written = 0;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeByte(int b) throws IOException {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeVarint(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeZigzag(long value) throws IOException {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        long getWritten() {
+            return written + buffer.position();
+        }
+
+        long getChecksum() {
+            return crc.getValue();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            written += buffer.limit();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 一条记录，读取时复用同一个对象；没有值的可空列对应的 has 字段为 false
+     */
+    public static class Record {
+        public long id;
+        public String title;
+        public String description;
+        public boolean hasStartTime;
+        public long startTime;
+        public boolean hasEndTime;
+        public long endTime;
+        public String location;
+        public int color;
+        public String type;
+        public boolean reminderEnabled;
+        public long reminderMinutesBefore;
+        public boolean soundEnabled;
+        public long alarmRequestCode;
+        public String rrule;
+        public String exdates;
+        public boolean hasRecurrenceEnd;
+        public long recurrenceEnd;
+        public long parentId;
+        public boolean hasRecurrenceId;
+        public long recurrenceId;
+        public String uid;
+        public long sequence;
+        public boolean hasLastModified;
+        public long lastModified;
+        public long changeSeq;
+    }
+
+    /**
+     * 在（通常是内存映射的）缓冲区上顺序读取快照
+     * 打开时校验魔数、版本和 CRC32，并读入字符串表；之后每条记录直接从缓冲区解码。
+     */
+    public static class Reader {
+        private final ByteBuffer buffer;
+        private final int schemaVersion;
+        private final int recordCount;
+        private final String[] strings;
+        private byte[] scratch = new byte[256];
+        private int read = 0;
+        private long prevId = 0;
+        private long prevStart = 0;
+
+        /**
+         * @throws IOException 不是快照、版本不支持或校验失败
+         */
+        public Reader(ByteBuffer source) throws IOException {
+            buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE) {
+                throw new IOException("Snapshot is truncated");
+            }
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!isSnapshot(magic, magic.length)) {
+                throw new IOException("Not a calendar snapshot");
+            }
+            int formatVersion = buffer.getShort() & 0xFFFF;
+            if (formatVersion > FORMAT_VERSION) {
+                throw new IOException("Snapshot was written by a newer version");
+            }
+            schemaVersion = buffer.getShort() & 0xFFFF;
+            recordCount = buffer.getInt();
+            long tableOffset = buffer.getLong();
+            int stringCount = buffer.getInt();
+            int checksum = buffer.getInt();
+            buffer.getLong();
+            if (recordCount < 0 || stringCount < 0 || tableOffset < HEADER_SIZE || tableOffset > buffer.limit()) {
+                throw new IOException("Snapshot header is corrupt");
+            }
+
+            ByteBuffer body = buffer.duplicate();
+            body.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            try {
+                buffer.position((int) tableOffset);
+                strings = new String[stringCount];
+                for (int i = 0; i < stringCount; i++) {
+                    strings[i] = readBytes((int) readVarint());
+                }
+                buffer.position(HEADER_SIZE);
+                buffer.limit((int) tableOffset);
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot string table is corrupt", e);
+            }
+        }
+
+        public int getSchemaVersion() {
+            return schemaVersion;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * 读取下一条记录到 record，没有时返回 false
+         *
+         * @throws IOException 记录格式错误
+         */
+        public boolean next(Record record) throws IOException {
+            if (read >= recordCount) {
+                return false;
+            }
+            try {
+                record.id = prevId + readZigzag();
+                prevId = record.id;
+                int flags = buffer.get() & 0xFF;
+                record.reminderEnabled = (flags & FLAG_REMINDER) != 0;
+                record.soundEnabled = (flags & FLAG_SOUND) != 0;
+                record.hasStartTime = (flags & FLAG_START) != 0;
+                record.startTime = 0;
+                if (record.hasStartTime) {
+                    record.startTime = prevStart + readZigzag();
+                    prevStart = record.startTime;
+                }
+                record.hasEndTime = (flags & FLAG_END) != 0;
+                if (record.hasEndTime) {
+                    record.endTime = record.startTime + readZigzag();
+                }
+                record.hasRecurrenceEnd = (flags & FLAG_RECURRENCE_END) != 0;
+                if (record.hasRecurrenceEnd) {
+                    record.recurrenceEnd = readZigzag();
+                }
+                record.hasRecurrenceId = (flags & FLAG_RECURRENCE_ID) != 0;
+                if (record.hasRecurrenceId) {
+                    record.recurrenceId = readZigzag();
+                }
+                record.hasLastModified = (flags & FLAG_LAST_MODIFIED) != 0;
+                if (record.hasLastModified) {
+                    record.lastModified = readZigzag();
+                }
+                record.color = buffer.getInt();
+                record.reminderMinutesBefore = readVarint();
+                record.alarmRequestCode = readZigzag();
+                record.parentId = readVarint();
+                record.sequence = readVarint();
+                record.changeSeq = readVarint();
+
+                record.title = readString();
+                record.description = readString();
+                record.location = readString();
+                record.type = readString();
+                record.rrule = readString();
+                record.exdates = readString();
+                record.uid = readString();
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot record " + read + " is corrupt", e);
+            }
+            read++;
+            return true;
+        }
+
+        private String readString() {
+            long tag = readVarint();
+            if (tag == 0) {
+                return null;
+            }
+            if ((tag & 1) != 0) {
+                return strings[(int) (tag >>> 1)];
+            }
+            return readBytes((int) ((tag >>> 1) - 1));
+        }
+
+        private String readBytes(int length) {
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        private long readZigzag() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 冷启动首屏快照：本月每天各类型的事件数量和今天的日程摘要
+ * 每次数据变化后在后台重写（几 KB 的小文件），启动时同步读取，
+ * 不等数据库打开就能画出第一帧，之后由数据库的加载结果校正。
+ */
+public class StartupSnapshot {
+
+    private static final int FILE_VERSION = 1;
+    // 最多保存今天的前若干个日程
+    public static final int MAX_TODAY_EVENTS = 50;
+    // 摘要中的文字截断到这个长度（writeUTF 最多 65535 字节）
+    private static final int MAX_TEXT_LENGTH = 500;
+
+    private final int year;
+    private final int month;
+    private final long todayStart;
+    // 当天开始时间 -> 各类型的事件数量（下标为 EventType 序号）
+    private final Map<Long, int[]> dayCounts;
+    private final List<CalendarEvent> todayEvents;
+
+    public StartupSnapshot(int year, int month, long todayStart, Map<Long, int[]> dayCounts,
+                           List<CalendarEvent> todayEvents) {
+        this.year = year;
+        this.month = month;
+        this.todayStart = todayStart;
+        this.dayCounts = dayCounts;
+        this.todayEvents = todayEvents;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public long getTodayStart() {
+        return todayStart;
+    }
+
+    public Map<Long, int[]> getDayCounts() {
+        return dayCounts;
+    }
+
+    public List<CalendarEvent> getTodayEvents() {
+        return todayEvents;
+    }
+
+    /**
+     * 读取快照；文件不存在、版本不符或已损坏时返回 null
+     */
+    public static StartupSnapshot read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            int year = in.readInt();
+            int month = in.readInt();
+            long todayStart = in.readLong();
+            int typeCount = CalendarEvent.EventType.values().length;
+            if (in.readInt() != typeCount) {
+                return null;
+            }
+            int dayCount = in.readInt();
+            Map<Long, int[]> dayCounts = new HashMap<>();
+            for (int i = 0; i < dayCount; i++) {
+                long dayStart = in.readLong();
+                int[] counts = new int[typeCount];
+                for (int t = 0; t < typeCount; t++) {
+                    counts[t] = in.readInt();
+                }
+                dayCounts.put(dayStart, counts);
+            }
+            int eventCount = in.readInt();
+            List<CalendarEvent> todayEvents = new ArrayList<>(eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                todayEvents.add(readEvent(in));
+            }
+            return new StartupSnapshot(year, month, todayStart, dayCounts, todayEvents);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再改名，读取方不会看到写了一半的快照
+     */
+    public void write(File file) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            int typeCount = CalendarEvent.EventType.values().length;
+            out.writeInt(FILE_VERSION);
+            out.writeInt(year);
+            out.writeInt(month);
+            out.writeLong(todayStart);
+            out.writeInt(typeCount);
+            out.writeInt(dayCounts.size());
+            for (Map.Entry<Long, int[]> entry : dayCounts.entrySet()) {
+                out.writeLong(entry.getKey());
+                for (int t = 0; t < typeCount; t++) {
+                    out.writeInt(entry.getValue()[t]);
+                }
+            }
+            int eventCount = Math.min(todayEvents.size(), MAX_TODAY_EVENTS);
+            out.writeInt(eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                writeEvent(out, todayEvents.get(i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * 日程视图显示用到的字段；重复日程的某一次记录开始时间，读取时重新生成
+     */
+    private static void writeEvent(DataOutputStream out, CalendarEvent event) throws IOException {
+        out.writeLong(event.getId());
+        writeString(out, event.getTitle());
+        writeString(out, event.getDescription());
+        writeString(out, event.getLocation());
+        out.writeLong(event.getStartTime().getTime());
+        out.writeLong(event.getEndTime() != null ? event.getEndTime().getTime() : event.getStartTime().getTime());
+        out.writeInt(event.getColor());
+        out.writeInt(event.getType() != null ? event.getType().ordinal() : -1);
+        out.writeBoolean(event.isOccurrence());
+    }
+
+    private static CalendarEvent readEvent(DataInputStream in) throws IOException {
+        CalendarEvent event = new CalendarEvent();
+        event.setId(in.readLong());
+        event.setTitle(readString(in));
+        event.setDescription(readString(in));
+        event.setLocation(readString(in));
+        long start = in.readLong();
+        event.setStartTime(new Date(start));
+        event.setEndTime(new Date(in.readLong()));
+        event.setColor(in.readInt());
+        int type = in.readInt();
+        event.setType(type >= 0 ? CalendarEvent.EventType.values()[type] : null);
+        return in.readBoolean() ? event.createOccurrence(start) : event;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value.length() > MAX_TEXT_LENGTH ? value.substring(0, MAX_TEXT_LENGTH) : value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
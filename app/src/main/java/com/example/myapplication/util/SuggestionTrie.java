@@ -0,0 +1,398 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.data.model.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 历史输入（标题、地点）的前缀自动补全索引
+ * 使用压缩前缀树（边上存字符串，单链路径合并为一个节点），每个节点预先保存
+ * 子树中得分最高的 TOP_K 条，查询只需沿前缀走到对应节点，与历史条数无关。
+ * 得分 = log2(使用次数) + 最近使用时间 / 半衰期，兼顾频率和最近程度，且不随当前时间变化。
+ * 每条记录同时统计各事件类型和提醒设置的使用次数，用于推荐常用设置。
+ * 方法均已同步，可在后台构建、在主线程查询。
+ */
+public class SuggestionTrie {
+
+    public static final int TOP_K = 8;
+    // 提醒关闭时记录的提醒分钟数
+    public static final int NO_REMINDER = -1;
+    // 最近程度的半衰期：30 天前的一次使用相当于现在的半次
+    private static final double HALF_LIFE_MILLIS = 30 * 24 * 60 * 60 * 1000.0;
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * 一条历史输入及其使用统计
+     */
+    public static class Entry {
+        private final String text;
+        private int count;
+        private long lastUsed;
+        private double score;
+        private final int[] typeCounts = new int[CalendarEvent.EventType.values().length];
+        private final Map<Integer, Integer> reminderCounts = new HashMap<>();
+
+        Entry(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 最常用的事件类型，没有记录时返回 null
+         */
+        public CalendarEvent.EventType getUsualType() {
+            int best = -1;
+            for (int i = 0; i < typeCounts.length; i++) {
+                if (typeCounts[i] > 0 && (best < 0 || typeCounts[i] > typeCounts[best])) {
+                    best = i;
+                }
+            }
+            return best >= 0 ? CalendarEvent.EventType.values()[best] : null;
+        }
+
+        /**
+         * 最常用的提醒分钟数，提醒通常关闭时返回 NO_REMINDER，没有记录时返回 null
+         */
+        public Integer getUsualReminderMinutes() {
+            Integer best = null;
+            int bestCount = 0;
+            for (Map.Entry<Integer, Integer> e : reminderCounts.entrySet()) {
+                if (e.getValue() > bestCount) {
+                    best = e.getKey();
+                    bestCount = e.getValue();
+                }
+            }
+            return best;
+        }
+
+        private void updateScore() {
+            score = Math.log(Math.max(count, 1)) / Math.log(2) + lastUsed / HALF_LIFE_MILLIS;
+        }
+    }
+
+    private static class Node {
+        // 从父节点到本节点的边（已转小写）
+        String edge;
+        Node[] children = NO_CHILDREN;
+        // 恰好以本节点结尾的记录（大小写不同的写法会落在同一节点）
+        Entry[] terminals = NO_ENTRIES;
+        // 子树中得分最高的记录，按得分降序
+        Entry[] top = NO_ENTRIES;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * 记录一次使用（delta 为 1）或撤销一次使用（delta 为 -1）
+     *
+     * @param type 事件类型，地点等不区分类型时传 null
+     * @param reminderMinutes 提醒分钟数，提醒关闭时为 NO_REMINDER
+     * @param time 使用时间，晚于当前时间时按当前时间计
+     */
+    public synchronized void record(String text, CalendarEvent.EventType type, int reminderMinutes,
+                                    long time, int delta) {
+        if (text == null || (text = text.trim()).isEmpty()) {
+            return;
+        }
+        Entry entry = entries.get(text);
+        if (entry == null) {
+            if (delta <= 0) {
+                return;
+            }
+            entry = new Entry(text);
+            entries.put(text, entry);
+        }
+        applyUsage(entry, type, reminderMinutes, time, delta);
+
+        List<Node> path = new ArrayList<>();
+        Node node = insertPath(fold(text), path);
+        if (entry.count <= 0) {
+            entries.remove(text);
+            node.terminals = remove(node.terminals, entry);
+        } else if (!contains(node.terminals, entry)) {
+            node.terminals = append(node.terminals, entry);
+        }
+
+        if (delta > 0) {
+            // 得分只会升高：沿路径把它放进各节点的前 K 名即可
+            for (Node n : path) {
+                n.top = offer(n.top, entry);
+            }
+        } else {
+            // 得分降低或被删除：自底向上用子节点的前 K 名重新合并
+            for (int i = path.size() - 1; i >= 0; i--) {
+                recomputeTop(path.get(i));
+            }
+        }
+    }
+
+    /**
+     * 批量构建时使用：先累计所有记录，最后调用 rebuildTops() 一次性计算各节点的前 K 名
+     */
+    public synchronized void recordBulk(String text, CalendarEvent.EventType type, int reminderMinutes,
+                                        long time, int count) {
+        if (text == null || (text = text.trim()).isEmpty() || count <= 0) {
+            return;
+        }
+        Entry entry = entries.get(text);
+        if (entry == null) {
+            entry = new Entry(text);
+            entries.put(text, entry);
+            Node node = insertPath(fold(text), null);
+            node.terminals = append(node.terminals, entry);
+        }
+        applyUsage(entry, type, reminderMinutes, time, count);
+    }
+
+    public synchronized void rebuildTops() {
+        rebuildTops(root);
+    }
+
+    /**
+     * 以 prefix 开头（忽略大小写）的记录，按得分降序，不包含与 prefix 完全相同的记录
+     */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        if (prefix == null || (prefix = prefix.trim()).isEmpty()) {
+            return result;
+        }
+        Node node = find(fold(prefix));
+        if (node == null) {
+            return result;
+        }
+        for (Entry entry : node.top) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!entry.text.equals(prefix)) {
+                result.add(entry.text);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 某条输入的使用统计，没有记录时返回 null
+     */
+    public synchronized Entry get(String text) {
+        return text != null ? entries.get(text.trim()) : null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static void applyUsage(Entry entry, CalendarEvent.EventType type, int reminderMinutes,
+                                   long time, int delta) {
+        entry.count += delta;
+        if (type != null) {
+            entry.typeCounts[type.ordinal()] = Math.max(0, entry.typeCounts[type.ordinal()] + delta);
+        }
+        Integer reminderCount = entry.reminderCounts.get(reminderMinutes);
+        int newCount = (reminderCount != null ? reminderCount : 0) + delta;
+        if (newCount > 0) {
+            entry.reminderCounts.put(reminderMinutes, newCount);
+        } else {
+            entry.reminderCounts.remove(reminderMinutes);
+        }
+        if (delta > 0) {
+            entry.lastUsed = Math.max(entry.lastUsed, Math.min(time, System.currentTimeMillis()));
+        }
+        entry.updateScore();
+    }
+
+    /**
+     * 找到（必要时创建）key 对应的节点；path 不为 null 时记录从根开始经过的节点（含根和目标节点）
+     */
+    private Node insertPath(String key, List<Node> path) {
+        Node node = root;
+        int i = 0;
+        if (path != null) {
+            path.add(node);
+        }
+        while (i < key.length()) {
+            int index = childIndex(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.children = insertChild(node.children, -index - 1, leaf);
+                if (path != null) {
+                    path.add(leaf);
+                }
+                return leaf;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                // 在公共前缀处拆分边
+                Node mid = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                mid.children = new Node[]{child};
+                mid.top = child.top.clone();
+                node.children[index] = mid;
+                child = mid;
+            }
+            node = child;
+            i += common;
+            if (path != null) {
+                path.add(node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 找到路径以 prefix 开头的最浅节点，不存在时返回 null
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = childIndex(node, prefix.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int remaining = prefix.length() - i;
+            if (remaining <= child.edge.length()) {
+                return child.edge.startsWith(prefix.substring(i)) ? child : null;
+            }
+            if (!prefix.startsWith(child.edge, i)) {
+                return null;
+            }
+            node = child;
+            i += child.edge.length();
+        }
+        return node;
+    }
+
+    private void rebuildTops(Node node) {
+        for (Node child : node.children) {
+            rebuildTops(child);
+        }
+        recomputeTop(node);
+    }
+
+    private static void recomputeTop(Node node) {
+        Entry[] top = NO_ENTRIES;
+        for (Entry entry : node.terminals) {
+            top = offer(top, entry);
+        }
+        for (Node child : node.children) {
+            for (Entry entry : child.top) {
+                // 子节点的前 K 名已降序，排不进时后面的也排不进
+                if (top.length == TOP_K && entry.score <= top[TOP_K - 1].score) {
+                    break;
+                }
+                top = offer(top, entry);
+            }
+        }
+        node.top = top;
+    }
+
+    /**
+     * 把 entry 放进降序的前 K 名（已在其中时重新定位），返回新数组
+     */
+    private static Entry[] offer(Entry[] top, Entry entry) {
+        Entry[] result = remove(top, entry);
+        int position = result.length;
+        while (position > 0 && result[position - 1].score < entry.score) {
+            position--;
+        }
+        if (position >= TOP_K) {
+            return result;
+        }
+        int size = Math.min(result.length + 1, TOP_K);
+        Entry[] merged = new Entry[size];
+        System.arraycopy(result, 0, merged, 0, position);
+        merged[position] = entry;
+        System.arraycopy(result, position, merged, position + 1, size - position - 1);
+        return merged;
+    }
+
+    private static boolean contains(Entry[] array, Entry entry) {
+        for (Entry e : array) {
+            if (e == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry[] append(Entry[] array, Entry entry) {
+        Entry[] result = new Entry[array.length + 1];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = entry;
+        return result;
+    }
+
+    private static Entry[] remove(Entry[] array, Entry entry) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == entry) {
+                Entry[] result = new Entry[array.length - 1];
+                System.arraycopy(array, 0, result, 0, i);
+                System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+                return result;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * 子节点按边的首字符排序，二分查找；找不到时返回 -(插入位置) - 1
+     */
+    private static int childIndex(Node node, char c) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = node.children[mid].edge.charAt(0);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static Node[] insertChild(Node[] children, int position, Node child) {
+        Node[] result = new Node[children.length + 1];
+        System.arraycopy(children, 0, result, 0, position);
+        result[position] = child;
+        System.arraycopy(children, position, result, position + 1, children.length - position);
+        return result;
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.myapplication.worker;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.util.IcsStreams;
+import com.example.myapplication.util.JsonBackupHelper;
+import com.example.myapplication.util.ReminderScheduler;
+import com.example.myapplication.util.SnapshotCodec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 后台完整备份与恢复（JSON 格式见 JsonBackupHelper，二进制快照见 SnapshotCodec）
+ * 备份从数据库游标逐行写出；恢复清空现有日程后按批在事务中写入备份中的所有列。
+ * 恢复时按文件开头的魔数区分两种格式；两种格式都先整体校验再清空现有日程：JSON 先完整读一遍，
+ * 快照校验 CRC 后通过内存映射直接从文件解码写入。文件截断或损坏时现有日程不受影响。
+ * 数据库版本比当前新的备份（新版应用写出的）同样在清空之前拒绝。
+ * 校验通过后恢复中途取消或失败时，已写入的批次保留，可以用同一个备份重新恢复。
+ */
+public class BackupWorker extends Worker {
+
+    public static final String WORK_NAME = "json_backup";
+
+    public static final String KEY_URI = "uri";
+    public static final String KEY_RESTORE = "restore";
+    public static final String KEY_SNAPSHOT = "snapshot";
+    // 区分备份和恢复任务（共用一个唯一任务名，不能同时进行）
+    public static final String TAG_RESTORE = "restore";
+    // 进度和结果：已处理的事件数、事件总数（恢复时未知，为 -1）、恢复时已读取的字节数和文件大小
+    public static final String KEY_COUNT = "count";
+    public static final String KEY_TOTAL = "total";
+    public static final String KEY_BYTES = "bytes";
+    public static final String KEY_TOTAL_BYTES = "total_bytes";
+    // 恢复时正在校验 JSON 备份（尚未改动现有日程）
+    public static final String KEY_CHECKING = "checking";
+
+    private static final int RESTORE_BATCH_SIZE = 500;
+    // 快照的记录直接绑定到预编译语句，每个事务可以写入更多
+    private static final int SNAPSHOT_BATCH_SIZE = 5000;
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 开始备份或恢复，已有任务在进行时不重复开始
+     *
+     * @param restore true 为从 uri 恢复，false 为备份到 uri
+     * @param snapshot 备份为二进制快照而不是 JSON；恢复时自动识别格式，忽略此参数
+     */
+    public static void enqueue(Context context, Uri uri, boolean restore, boolean snapshot) {
+        Data input = new Data.Builder()
+                .putString(KEY_URI, uri.toString())
+                .putBoolean(KEY_RESTORE, restore)
+                .putBoolean(KEY_SNAPSHOT, snapshot)
+                .build();
+        OneTimeWorkRequest.Builder builder = new OneTimeWorkRequest.Builder(BackupWorker.class)
+                .setInputData(input);
+        if (restore) {
+            builder.addTag(TAG_RESTORE);
+        }
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, builder.build());
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Uri uri = Uri.parse(getInputData().getString(KEY_URI));
+        boolean restore = getInputData().getBoolean(KEY_RESTORE, false);
+        boolean snapshot = getInputData().getBoolean(KEY_SNAPSHOT, false);
+        EventManager eventManager = new EventManager(context);
+        try {
+            if (restore) {
+                return isSnapshot(context, uri)
+                        ? restoreSnapshot(context, uri, eventManager)
+                        : restore(context, uri, eventManager);
+            }
+            return snapshot ? backupSnapshot(context, uri, eventManager) : backup(context, uri, eventManager);
+        } catch (CancellationException e) {
+            if (!restore) {
+                IcsExportWorker.deleteDocument(context, uri);
+            }
+            return Result.failure();
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (!restore) {
+                IcsExportWorker.deleteDocument(context, uri);
+            }
+            return Result.failure();
+        } finally {
+            IcsImportWorker.releasePermission(context, uri, restore
+                    ? Intent.FLAG_GRANT_READ_URI_PERMISSION
+                    : Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+        }
+    }
+
+    private Result backup(Context context, Uri uri, EventManager eventManager) throws Exception {
+        int total = eventManager.getEventCount();
+        int count;
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri, "wt");
+             Cursor cursor = eventManager.openEventsCursor()) {
+            count = JsonBackupHelper.writeBackup(outputStream, cursor, eventManager.getSchemaVersion(), written -> {
+                checkStopped();
+                setProgressAsync(toData(written, total, 0, -1));
+            });
+        }
+        return Result.success(toData(count, total, 0, -1));
+    }
+
+    private Result backupSnapshot(Context context, Uri uri, EventManager eventManager) throws Exception {
+        int total = eventManager.getEventCount();
+        int count;
+        try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "rw");
+             FileOutputStream outputStream = new FileOutputStream(descriptor.getFileDescriptor());
+             Cursor cursor = eventManager.openEventsCursor()) {
+            count = SnapshotCodec.write(outputStream.getChannel(), cursor, eventManager.getSchemaVersion(), written -> {
+                checkStopped();
+                setProgressAsync(toData(written, total, 0, -1));
+            });
+        }
+        return Result.success(toData(count, total, 0, -1));
+    }
+
+    private Result restore(Context context, Uri uri, EventManager eventManager) throws Exception {
+        ReminderScheduler reminderScheduler = new ReminderScheduler(context);
+        Set<String> columns = eventManager.getEventColumns();
+        int schemaVersion = eventManager.getSchemaVersion();
+        long totalBytes = IcsImportWorker.getFileLength(context, uri);
+        // 先完整读一遍：文件截断或格式错误时在清空现有日程之前失败
+        IcsStreams.CountingInputStream checking =
+                new IcsStreams.CountingInputStream(context.getContentResolver().openInputStream(uri));
+        int total;
+        try (InputStream inputStream = checking) {
+            total = JsonBackupHelper.validateBackup(inputStream, columns, schemaVersion, read -> {
+                checkStopped();
+                setProgressAsync(new Data.Builder()
+                        .putAll(toData(0, -1, checking.getCount(), totalBytes))
+                        .putBoolean(KEY_CHECKING, true)
+                        .build());
+            });
+        }
+
+        int[] restored = {0};
+        boolean[] begun = {false};
+        IcsStreams.CountingInputStream counting =
+                new IcsStreams.CountingInputStream(context.getContentResolver().openInputStream(uri));
+        try (InputStream inputStream = counting) {
+            JsonBackupHelper.readBackup(inputStream, columns, schemaVersion, RESTORE_BATCH_SIZE,
+                    new JsonBackupHelper.RestoreSink() {
+                        @Override
+                        public void begin() {
+                            checkStopped();
+                            eventManager.beginRestore(reminderScheduler);
+                            begun[0] = true;
+                        }
+
+                        @Override
+                        public void insert(List<ContentValues> rows) {
+                            checkStopped();
+                            eventManager.restoreBatch(rows);
+                            restored[0] += rows.size();
+                            setProgressAsync(toData(restored[0], total, counting.getCount(), totalBytes));
+                        }
+                    });
+        } finally {
+            if (begun[0]) {
+                // 中途停止时同样刷新缓存和提醒，与已写入的数据一致
+                eventManager.finishRestore(reminderScheduler);
+            }
+        }
+        return Result.success(toData(restored[0], restored[0], totalBytes, totalBytes));
+    }
+
+    private Result restoreSnapshot(Context context, Uri uri, EventManager eventManager) throws Exception {
+        ReminderScheduler reminderScheduler = new ReminderScheduler(context);
+        File copy = new File(context.getCacheDir(), "restore-" + getId() + ".mcsnap");
+        int restored = 0;
+        try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+             FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor())) {
+            MappedByteBuffer buffer;
+            if (inputStream.getChannel().size() > 0) {
+                buffer = map(inputStream.getChannel());
+            } else {
+                // 提供方给的是管道（大小为 0，不能映射）：先复制到缓存目录再映射
+                try (OutputStream outputStream = new FileOutputStream(copy)) {
+                    inputStream.transferTo(outputStream);
+                }
+                try (FileInputStream copyStream = new FileInputStream(copy)) {
+                    buffer = map(copyStream.getChannel());
+                }
+            }
+            // 校验通过后才清空现有日程
+            SnapshotCodec.Reader reader = new SnapshotCodec.Reader(buffer);
+            if (reader.getSchemaVersion() > eventManager.getSchemaVersion()) {
+                throw new IOException("Snapshot was written by a newer database version");
+            }
+            int total = reader.getRecordCount();
+            checkStopped();
+            eventManager.beginRestore(reminderScheduler);
+            try {
+                int n;
+                while ((n = eventManager.restoreSnapshotBatch(reader, SNAPSHOT_BATCH_SIZE)) > 0) {
+                    restored += n;
+                    checkStopped();
+                    setProgressAsync(toData(restored, total, 0, -1));
+                }
+            } finally {
+                eventManager.finishRestore(reminderScheduler);
+            }
+        } finally {
+            copy.delete();
+        }
+        return Result.success(toData(restored, restored, 0, -1));
+    }
+
+    /**
+     * 文件开头是否为二进制快照的魔数
+     */
+    private static boolean isSnapshot(Context context, Uri uri) throws IOException {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            byte[] head = new byte[8];
+            int length = 0;
+            int n;
+            while (length < head.length && (n = inputStream.read(head, length, head.length - length)) > 0) {
+                length += n;
+            }
+            return SnapshotCodec.isSnapshot(head, length);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private void checkStopped() {
+        if (isStopped()) {
+            throw new CancellationException();
+        }
+    }
+
+    private static Data toData(int count, int total, long bytes, long totalBytes) {
+        return new Data.Builder()
+                .putInt(KEY_COUNT, count)
+                .putInt(KEY_TOTAL, total)
+                .putLong(KEY_BYTES, bytes)
+                .putLong(KEY_TOTAL_BYTES, totalBytes)
+                .build();
+    }
+}
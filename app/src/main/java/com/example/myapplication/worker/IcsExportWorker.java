@@ -0,0 +1,206 @@
+package com.example.myapplication.worker;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.data.model.DeletedEvent;
+import com.example.myapplication.data.model.TransferCheckpoint;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.util.IcsExportImportHelper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 后台导出 ICS 文件
+ * 导出范围在第一次运行时确定并记在检查点中：增量导出为变更序号区间，全部导出为当时最大的事件 id
+ * （导出期间修改的事件变更序号会变大，不能按序号筛选）。每块事件写出后记录文件位置、
+ * 批次号和最后一个事件的 id。进程被杀后重新运行时把文件截断到检查点的位置，从下一个事件继续写。
+ * 全部写完后才提交导出检查点，中途取消不影响下次增量导出的范围。
+ * 压缩导出（.ics.gz）时头部、每块事件和结尾各是一个 gzip 成员，检查点的位置总在成员之间。
+ */
+public class IcsExportWorker extends Worker {
+
+    public static final String WORK_NAME = "ics_export";
+
+    public static final String KEY_URI = "uri";
+    public static final String KEY_CHANGES_ONLY = "changes_only";
+    public static final String KEY_COMPRESSED = "compressed";
+    // 进度和结果：已写出的事件数、要写出的总数（包括删除记录）
+    public static final String KEY_EXPORTED = "exported";
+    public static final String KEY_TOTAL = "total";
+    // 结果：要求增量导出但写出的是全部日程（从未导出过，或有删除记录未导出就被清理）
+    public static final String KEY_FULL = "full";
+
+    // 写文件出错时最多尝试的次数
+    private static final int MAX_ATTEMPTS = 3;
+
+    public IcsExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 开始导出，已有导出在进行时不重复开始
+     * 调用前需要取得 uri 的持久读写权限，进程重启后才能继续写入
+     *
+     * @param changesOnly 是否只导出上次导出后的变更
+     * @param compressed 是否压缩为 gzip
+     */
+    public static void enqueue(Context context, Uri uri, boolean changesOnly, boolean compressed) {
+        Data input = new Data.Builder()
+                .putString(KEY_URI, uri.toString())
+                .putBoolean(KEY_CHANGES_ONLY, changesOnly)
+                .putBoolean(KEY_COMPRESSED, compressed)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(IcsExportWorker.class)
+                .setInputData(input)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Uri uri = Uri.parse(getInputData().getString(KEY_URI));
+        boolean changesOnly = getInputData().getBoolean(KEY_CHANGES_ONLY, false);
+        boolean compressed = getInputData().getBoolean(KEY_COMPRESSED, false);
+        String workId = getId().toString();
+        EventManager eventManager = new EventManager(context);
+
+        TransferCheckpoint saved = eventManager.getTransferCheckpoint(workId);
+        if (saved == null) {
+            // 第一次运行：确定导出范围，之后的修改留给下次导出
+            saved = new TransferCheckpoint(workId);
+            saved.setSinceSeq(eventManager.getExportCheckpoint());
+            // 先取变更序号再取 id：两次读取之间新增的事件 id 在范围内、序号在范围外，只会在下次增量导出中重复一次
+            saved.setUntilSeq(eventManager.getCommittedChangeSeq());
+            saved.setUntilId(eventManager.getMaxEventId());
+            eventManager.saveTransferCheckpoint(saved);
+        }
+        if (changesOnly && saved.getSinceSeq() >= 0 && eventManager.hasPrunedDeletionsAfter(saved.getSinceSeq())) {
+            // 上次导出之后有删除记录没导出就被清理了，增量文件会漏掉这些删除：从头改为全部导出
+            saved.setSinceSeq(-1);
+            saved.setPosition(0);
+            saved.setBatch(0);
+            saved.setItemCount(0);
+            saved.setLastId(0);
+            eventManager.saveTransferCheckpoint(saved);
+        }
+        TransferCheckpoint checkpoint = saved;
+        long sinceSeq = checkpoint.getSinceSeq();
+        long untilSeq = checkpoint.getUntilSeq();
+        long untilId = checkpoint.getUntilId();
+        // 从未导出过（或改为全部导出）时，增量导出同样按 id 写出全部日程
+        boolean full = !changesOnly || sinceSeq < 0;
+
+        try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "rw");
+             FileOutputStream outputStream = new FileOutputStream(descriptor.getFileDescriptor())) {
+            List<DeletedEvent> cancelled = eventManager.getDeletedEvents(sinceSeq, untilSeq);
+            int total = (full
+                    ? eventManager.countEventsUpToId(untilId)
+                    : eventManager.countEventsChangedAfter(sinceSeq, untilSeq)) + cancelled.size();
+
+            // 丢掉上次运行中最后一个检查点之后写出的部分
+            FileChannel channel = outputStream.getChannel();
+            channel.truncate(checkpoint.getPosition());
+            channel.position(checkpoint.getPosition());
+            if (checkpoint.getPosition() == 0) {
+                IcsExportImportHelper.writeHeader(outputStream, compressed);
+                checkpoint.setPosition(channel.position());
+                eventManager.saveTransferCheckpoint(checkpoint);
+            }
+
+            long[] readAfterId = {checkpoint.getLastId()};
+            IcsExportImportHelper.writeEvents(outputStream, () -> {
+                if (isStopped()) {
+                    return new ArrayList<>();
+                }
+                List<CalendarEvent> chunk = full
+                        ? eventManager.getEventsUpToId(readAfterId[0], untilId)
+                        : eventManager.getEventsChangedAfter(sinceSeq, untilSeq, readAfterId[0]);
+                if (!chunk.isEmpty()) {
+                    readAfterId[0] = chunk.get(chunk.size() - 1).getId();
+                }
+                return chunk;
+            }, chunk -> {
+                checkpoint.setBatch(checkpoint.getBatch() + 1);
+                checkpoint.setItemCount(checkpoint.getItemCount() + chunk.size());
+                checkpoint.setLastId(chunk.get(chunk.size() - 1).getId());
+                checkpoint.setPosition(channel.position());
+                eventManager.saveTransferCheckpoint(checkpoint);
+                setProgressAsync(toData(checkpoint.getItemCount(), total));
+            }, compressed);
+
+            if (isStopped()) {
+                // 被系统中断时保留检查点，下次从这里继续；用户取消时删除未写完的文件
+                if (getStopReason() == WorkInfo.STOP_REASON_CANCELLED_BY_APP) {
+                    deleteDocument(context, uri);
+                    finish(context, eventManager, workId, uri);
+                }
+                return Result.failure();
+            }
+
+            IcsExportImportHelper.writeFooter(outputStream, cancelled, compressed);
+            outputStream.getFD().sync();
+            eventManager.commitExport(untilSeq);
+            finish(context, eventManager, workId, uri);
+            return Result.success(new Data.Builder()
+                    .putAll(toData(checkpoint.getItemCount() + cancelled.size(), total))
+                    .putBoolean(KEY_FULL, changesOnly && full)
+                    .build());
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+                // 保留检查点，重试时从上次记录的位置继续
+                return Result.retry();
+            }
+            finish(context, eventManager, workId, uri);
+            return Result.failure();
+        } catch (Exception e) {
+            e.printStackTrace();
+            finish(context, eventManager, workId, uri);
+            return Result.failure();
+        }
+    }
+
+    private static Data toData(int exported, int total) {
+        return new Data.Builder()
+                .putInt(KEY_EXPORTED, exported)
+                .putInt(KEY_TOTAL, total)
+                .build();
+    }
+
+    /**
+     * 导出结束（完成、失败或取消）：删除检查点并释放文件的持久权限
+     */
+    private static void finish(Context context, EventManager eventManager, String workId, Uri uri) {
+        eventManager.deleteTransferCheckpoint(workId);
+        IcsImportWorker.releasePermission(context, uri,
+                Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+    }
+
+    static void deleteDocument(Context context, Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(context.getContentResolver(), uri);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
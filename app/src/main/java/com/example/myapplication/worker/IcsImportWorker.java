@@ -0,0 +1,372 @@
+package com.example.myapplication.worker;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.myapplication.data.model.CalendarEvent;
+import com.example.myapplication.data.model.TransferCheckpoint;
+import com.example.myapplication.manager.EventManager;
+import com.example.myapplication.util.IcsExportImportHelper;
+import com.example.myapplication.util.IcsStreams;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 后台导入 ICS 文件
+ * 每批事件在一个事务中写入，读到的字节位置和批次号记在同一事务的检查点中；
+ * 进程被杀后 WorkManager 重新运行时从检查点继续读取，已提交的批次不会再次写入。
+ * 进度通过 setProgressAsync 报告，用户取消时删除检查点（已导入的事件保留）。
+ * 按文件开头的魔数识别 gzip 和 ZIP：gzip 边解压边解析，ZIP 中的多个 .ics 文件并行解析。
+ */
+public class IcsImportWorker extends Worker {
+
+    public static final String WORK_NAME = "ics_import";
+
+    public static final String KEY_URI = "uri";
+    // 进度和结果：已读取的事件数、新增/更新/删除的事件数、已读取的字节数和文件大小
+    public static final String KEY_PROCESSED = "processed";
+    public static final String KEY_WRITTEN = "written";
+    public static final String KEY_BYTES = "bytes";
+    public static final String KEY_TOTAL_BYTES = "total_bytes";
+
+    private static final int BATCH_SIZE = 500;
+    // 并行解析 ZIP 中多个文件的最大线程数
+    private static final int MAX_ZIP_THREADS = 4;
+    // 读取文件出错（如存储暂时不可用）时最多尝试的次数
+    private static final int MAX_ATTEMPTS = 3;
+    // 超过这个时间没有更新的检查点视为已废弃
+    private static final long STALE_CHECKPOINT_AGE = 7 * 24 * 60 * 60 * 1000L;
+
+    public IcsImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * 开始导入，已有导入在进行时不重复开始（界面在选择文件前提示用户）
+     * 调用前需要取得 uri 的持久读取权限，进程重启后才能继续读取
+     */
+    public static void enqueue(Context context, Uri uri) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(IcsImportWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_URI, uri.toString()).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Uri uri = Uri.parse(getInputData().getString(KEY_URI));
+        String workId = getId().toString();
+        EventManager eventManager = new EventManager(context);
+
+        TransferCheckpoint checkpoint = eventManager.getTransferCheckpoint(workId);
+        if (checkpoint == null) {
+            eventManager.deleteStaleTransferCheckpoints(STALE_CHECKPOINT_AGE);
+            checkpoint = new TransferCheckpoint(workId);
+        }
+        long totalBytes = getFileLength(context, uri);
+
+        try {
+            IcsStreams.Format format;
+            try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+                format = IcsStreams.detect(inputStream);
+            }
+            EventManager.ImportSession session = eventManager.newImportSession();
+            boolean completed = format == IcsStreams.Format.ZIP
+                    ? importZip(context, uri, eventManager, session, checkpoint, totalBytes)
+                    : importStream(context, uri, format == IcsStreams.Format.GZIP,
+                            eventManager, session, checkpoint, totalBytes);
+
+            if (!completed) {
+                // 未提交的批次丢弃；被系统中断时保留检查点，下次从这里继续
+                if (getStopReason() == WorkInfo.STOP_REASON_CANCELLED_BY_APP) {
+                    finish(context, eventManager, workId, uri);
+                }
+                return Result.failure();
+            }
+
+            eventManager.finishImport(session, checkpoint);
+            Data output = toData(checkpoint, totalBytes, totalBytes);
+            finish(context, eventManager, workId, uri);
+            return checkpoint.getItemCount() > 0 ? Result.success(output) : Result.failure(output);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+                // 保留检查点，重试时从上次提交的位置继续
+                return Result.retry();
+            }
+            finish(context, eventManager, workId, uri);
+            return Result.failure();
+        } catch (Exception e) {
+            e.printStackTrace();
+            finish(context, eventManager, workId, uri);
+            return Result.failure();
+        }
+    }
+
+    /**
+     * 导入一个 .ics 文件（可以是 gzip 压缩的），边解压边解析
+     * 检查点的位置是解压后内容中的字节偏移，恢复时解压并跳过之前的部分
+     *
+     * @return 是否读完，被停止时返回 false
+     */
+    private boolean importStream(Context context, Uri uri, boolean gzip, EventManager eventManager,
+                                 EventManager.ImportSession session, TransferCheckpoint checkpoint,
+                                 long totalBytes) throws IOException {
+        // 进度按读取的文件字节数计算（压缩文件中的偏移与解压后的不同）
+        IcsStreams.CountingInputStream counting =
+                new IcsStreams.CountingInputStream(context.getContentResolver().openInputStream(uri));
+        try (InputStream inputStream = gzip ? new GZIPInputStream(counting, 65536) : counting) {
+            long start = checkpoint.getPosition();
+            skipFully(inputStream, start);
+            Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+            IcsExportImportHelper.EventReader eventReader = new IcsExportImportHelper.EventReader(reader, start);
+            if (start > 0) {
+                // 从中间继续时，先读入文件开头的时区定义
+                InputStream raw = context.getContentResolver().openInputStream(uri);
+                try (InputStream header = gzip ? new GZIPInputStream(raw) : raw) {
+                    eventReader.preloadTimeZones(new InputStreamReader(header, StandardCharsets.UTF_8));
+                }
+            }
+
+            List<CalendarEvent> batch = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            while (!isStopped()) {
+                CalendarEvent event = eventReader.next();
+                if (event != null) {
+                    batch.add(event);
+                    offsets.add(eventReader.getEventOffset());
+                }
+                if (batch.size() >= BATCH_SIZE || (event == null && !batch.isEmpty())) {
+                    checkpoint.setBatch(checkpoint.getBatch() + 1);
+                    checkpoint.setItemCount(checkpoint.getItemCount() + batch.size());
+                    checkpoint.setPosition(eventReader.getOffset());
+                    eventManager.importBatch(session, batch, offsets, checkpoint);
+                    setProgressAsync(toData(checkpoint, counting.getCount(), totalBytes));
+                    batch.clear();
+                    offsets.clear();
+                }
+                if (event == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 导入 ZIP 中的多个 .ics 文件
+     * 先复制到缓存目录（ZipFile 需要随机访问），各文件在线程池中并行解压和解析，
+     * 解析出的批次经有界队列交给当前线程，按到达顺序在事务中写入。
+     * 检查点的位置是第一个还没有全部写入的文件的下标，恢复时从它开始重新读取；
+     * 其中已经写入的事件按 UID 去重，不会重复插入。
+     *
+     * @return 是否读完，被停止时返回 false
+     */
+    private boolean importZip(Context context, Uri uri, EventManager eventManager,
+                              EventManager.ImportSession session, TransferCheckpoint checkpoint,
+                              long totalBytes) throws Exception {
+        File file = getZipCache(context, getId().toString());
+        if (!file.exists() || file.length() != totalBytes) {
+            try (InputStream in = context.getContentResolver().openInputStream(uri);
+                 OutputStream out = new FileOutputStream(file)) {
+                in.transferTo(out);
+            }
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            List<ZipEntry> entries = IcsStreams.getIcsEntries(zipFile);
+            int count = entries.size();
+            int first = (int) Math.min(checkpoint.getPosition(), count);
+            // 进度按已完成文件的压缩大小计算
+            long totalSize = 0;
+            long doneSize = 0;
+            for (int i = 0; i < count; i++) {
+                long size = Math.max(0, entries.get(i).getCompressedSize());
+                totalSize += size;
+                if (i < first) {
+                    doneSize += size;
+                }
+            }
+            boolean[] done = new boolean[count];
+            int remaining = count - first;
+            if (remaining == 0) {
+                return true;
+            }
+
+            int threads = Math.max(1, Math.min(Math.min(MAX_ZIP_THREADS,
+                    Runtime.getRuntime().availableProcessors()), remaining));
+            BlockingQueue<EntryBatch> queue = new ArrayBlockingQueue<>(threads * 2);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for (int i = first; i < count; i++) {
+                    int index = i;
+                    ZipEntry entry = entries.get(i);
+                    executor.execute(() -> readEntry(zipFile, entry, index, queue));
+                }
+                while (remaining > 0) {
+                    if (isStopped()) {
+                        return false;
+                    }
+                    EntryBatch batch = queue.poll(1, TimeUnit.SECONDS);
+                    if (batch == null) {
+                        continue;
+                    }
+                    if (batch.last) {
+                        done[batch.entryIndex] = true;
+                        doneSize += Math.max(0, entries.get(batch.entryIndex).getCompressedSize());
+                        remaining--;
+                    }
+                    int resume = first;
+                    while (resume < count && done[resume]) {
+                        resume++;
+                    }
+                    checkpoint.setBatch(checkpoint.getBatch() + 1);
+                    checkpoint.setItemCount(checkpoint.getItemCount() + batch.events.size());
+                    checkpoint.setPosition(resume);
+                    // 事件的位置记为所在文件的下标
+                    eventManager.importBatch(session, batch.events,
+                            Collections.nCopies(batch.events.size(), (long) batch.entryIndex), checkpoint);
+                    setProgressAsync(toData(checkpoint, doneSize, totalSize));
+                }
+                return true;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 在线程池中解析 ZIP 中的一个文件，按批放入队列，最后一批带结束标记
+     * 被停止时不发送结束标记，这个文件不会被记为已完成
+     */
+    private void readEntry(ZipFile zipFile, ZipEntry entry, int index, BlockingQueue<EntryBatch> queue) {
+        List<CalendarEvent> batch = new ArrayList<>();
+        try {
+            try (Reader reader = new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8)) {
+                IcsExportImportHelper.EventReader eventReader = new IcsExportImportHelper.EventReader(reader);
+                CalendarEvent event;
+                while (!isStopped() && (event = eventReader.next()) != null) {
+                    batch.add(event);
+                    if (batch.size() >= BATCH_SIZE) {
+                        queue.put(new EntryBatch(index, batch, false));
+                        batch = new ArrayList<>();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // 这个文件读取出错，保留已经读出的事件
+                e.printStackTrace();
+            }
+            if (!isStopped()) {
+                queue.put(new EntryBatch(index, batch, true));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * ZIP 中一个文件解析出的一批事件
+     */
+    private static class EntryBatch {
+        final int entryIndex;
+        final List<CalendarEvent> events;
+        // 是否为这个文件的最后一批
+        final boolean last;
+
+        EntryBatch(int entryIndex, List<CalendarEvent> events, boolean last) {
+            this.entryIndex = entryIndex;
+            this.events = events;
+            this.last = last;
+        }
+    }
+
+    private static Data toData(TransferCheckpoint checkpoint, long bytes, long totalBytes) {
+        return new Data.Builder()
+                .putInt(KEY_PROCESSED, checkpoint.getItemCount())
+                .putInt(KEY_WRITTEN, checkpoint.getWrittenCount())
+                .putLong(KEY_BYTES, bytes)
+                .putLong(KEY_TOTAL_BYTES, totalBytes)
+                .build();
+    }
+
+    /**
+     * 导入结束（完成、失败或取消）：删除检查点并释放文件的持久权限
+     */
+    private static void finish(Context context, EventManager eventManager, String workId, Uri uri) {
+        eventManager.deleteTransferCheckpoint(workId);
+        File zipCache = getZipCache(context, workId);
+        if (zipCache.exists()) {
+            zipCache.delete();
+        }
+        releasePermission(context, uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+    }
+
+    static void releasePermission(Context context, Uri uri, int flags) {
+        try {
+            context.getContentResolver().releasePersistableUriPermission(uri, flags);
+        } catch (SecurityException e) {
+            // 没有取得持久权限
+        }
+    }
+
+    private static File getZipCache(Context context, String workId) {
+        return new File(context.getCacheDir(), "import-" + workId + ".zip");
+    }
+
+    /**
+     * 文件大小，未知时返回 -1
+     */
+    static long getFileLength(Context context, Uri uri) {
+        try (AssetFileDescriptor descriptor = context.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+            return descriptor != null ? descriptor.getLength() : -1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static void skipFully(InputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                // skip 可能返回 0，用 read 确认是否已到文件末尾
+                if (inputStream.read() < 0) {
+                    throw new IOException("File is shorter than the checkpoint");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.myapplication.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * IcsDateCodec 的解析与格式化：DATE、UTC、TZID 时间的往返，以及夏令时切换处的处理
+ */
+public class IcsDateCodecTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone SHANGHAI = TimeZone.getTimeZone("Asia/Shanghai");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void dateIsLocalMidnight() {
+        assertEquals(calendar(SHANGHAI, 2024, 2, 29, 0, 0, 0), IcsDateCodec.parse("20240229", SHANGHAI));
+        assertEquals(calendar(NEW_YORK, 2023, 12, 31, 0, 0, 0), IcsDateCodec.parse(" 20231231 ", NEW_YORK));
+    }
+
+    @Test
+    public void utcRoundTrip() {
+        long millis = IcsDateCodec.parse("20240615T123456Z", NEW_YORK);
+        // 带 Z 的时间与传入的时区无关
+        assertEquals(calendar(UTC, 2024, 6, 15, 12, 34, 56), millis);
+        assertEquals("20240615T123456Z", IcsDateCodec.format(millis, NEW_YORK, true));
+        assertEquals("19691231T235959Z", IcsDateCodec.format(-1000L, UTC, true));
+        assertEquals(-1000L, IcsDateCodec.parse("19691231T235959Z", UTC));
+    }
+
+    @Test
+    public void zonedRoundTrip() {
+        String[] values = {
+                "20240101T000000", "20240229T235959", "20240704T090000",
+                "20241103T013000", "19991231T120000", "21000301T083000"
+        };
+        for (TimeZone zone : new TimeZone[]{SHANGHAI, NEW_YORK}) {
+            for (String value : values) {
+                long millis = IcsDateCodec.parse(value, zone);
+                assertEquals(value + " " + zone.getID(), value, IcsDateCodec.format(millis, zone, false));
+            }
+        }
+        assertEquals(calendar(SHANGHAI, 2024, 7, 4, 9, 0, 0), IcsDateCodec.parse("20240704T090000", SHANGHAI));
+        assertEquals(calendar(NEW_YORK, 2024, 7, 4, 9, 0, 0), IcsDateCodec.parse("20240704T090000", NEW_YORK));
+    }
+
+    @Test
+    public void matchesCalendarEveryHalfHourAroundTransitions() {
+        // 2024 年纽约 3 月 10 日 2:00 跳到 3:00，11 月 3 日 2:00 回到 1:00
+        int[][] days = {{2024, 3, 9}, {2024, 3, 10}, {2024, 3, 11}, {2024, 11, 2}, {2024, 11, 4}};
+        for (int[] day : days) {
+            for (int minutes = 0; minutes < 24 * 60; minutes += 30) {
+                int hour = minutes / 60;
+                int minute = minutes % 60;
+                String value = String.format("%04d%02d%02dT%02d%02d00", day[0], day[1], day[2], hour, minute);
+                assertEquals(value, calendar(NEW_YORK, day[0], day[1], day[2], hour, minute, 0),
+                        IcsDateCodec.parse(value, NEW_YORK));
+            }
+        }
+    }
+
+    @Test
+    public void gapUsesOffsetBeforeTransition() {
+        long millis = IcsDateCodec.parse("20240310T023000", NEW_YORK);
+        // 按切换前的 EST（-05:00）计算，即 UTC 07:30，本地显示为 03:30 EDT
+        assertEquals(calendar(UTC, 2024, 3, 10, 7, 30, 0), millis);
+        assertEquals(calendar(NEW_YORK, 2024, 3, 10, 2, 30, 0), millis);
+        assertEquals("20240310T033000", IcsDateCodec.format(millis, NEW_YORK, false));
+    }
+
+    @Test
+    public void overlapRoundTrips() {
+        // 11 月 3 日 1:30 出现两次，解析出其中之一，格式化回来的本地时间不变
+        long millis = IcsDateCodec.parse("20241103T013000", NEW_YORK);
+        long earlier = calendar(UTC, 2024, 11, 3, 5, 30, 0);
+        long later = calendar(UTC, 2024, 11, 3, 6, 30, 0);
+        assertTrue(millis == earlier || millis == later);
+        assertEquals("20241103T013000", IcsDateCodec.format(earlier, NEW_YORK, false));
+        assertEquals("20241103T013000", IcsDateCodec.format(later, NEW_YORK, false));
+    }
+
+    @Test
+    public void formatWritesIntoBuffer() {
+        char[] out = new char[IcsDateCodec.MAX_LENGTH + 2];
+        out[0] = '[';
+        int length = IcsDateCodec.format(calendar(UTC, 2024, 1, 2, 3, 4, 5), UTC, true, out, 1);
+        assertEquals(IcsDateCodec.MAX_LENGTH, length);
+        assertEquals("[20240102T030405Z", new String(out, 0, length + 1));
+        assertEquals(calendar(UTC, 2024, 1, 2, 3, 4, 5), IcsDateCodec.parse(out, 1, 1 + length, SHANGHAI));
+    }
+
+    @Test
+    public void invalidValues() {
+        String[] values = {
+                "", "2024", "2024010", "20240230", "20231301", "20240101X000000",
+                "20240101T240000", "20240101T006000", "20240101T000000X", "2024-01-01",
+                "20240101T0000000Z0"
+        };
+        for (String value : values) {
+            assertEquals(value, IcsDateCodec.INVALID, IcsDateCodec.parse(value, UTC));
+        }
+    }
+
+    private static long calendar(TimeZone zone, int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+}
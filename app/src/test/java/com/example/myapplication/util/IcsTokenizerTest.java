@@ -0,0 +1,190 @@
+package com.example.myapplication.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IcsTokenizer 的折行展开、字节偏移，以及与 IcsLineWriter 的 75 字节折行互相配合
+ */
+public class IcsTokenizerTest {
+
+    @Test
+    public void unfoldsContinuationLines() throws IOException {
+        IcsTokenizer tokenizer = new IcsTokenizer(new StringReader(
+                "SUMMARY:Hel\r\n lo\r\n\t World\r\nLOCATION:A\nDESCRIPTION:B\r\n  C\rEND:VEVENT"));
+
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.isName("summary"));
+        // 续行只去掉开头的一个空格或制表符
+        assertEquals("Hello World", tokenizer.getValue());
+
+        assertTrue(tokenizer.next());
+        assertEquals("LOCATION", tokenizer.getName());
+        assertEquals("A", tokenizer.getValue());
+
+        assertTrue(tokenizer.next());
+        assertEquals("B C", tokenizer.getValue());
+
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.isValue("vevent"));
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void parsesParametersAndEscapedText() throws IOException {
+        IcsTokenizer tokenizer = new IcsTokenizer(new StringReader(
+                "DTSTART;VALUE=DATE-TIME;TZID=\"Asia/Shanghai:X\":20240101T090000\r\n"
+                        + "DESCRIPTION:a\\, b\\; c\\\\d\\ne\r\n"));
+
+        assertTrue(tokenizer.next());
+        assertEquals("DTSTART", tokenizer.getName());
+        // 引号内的冒号不是值的开始
+        assertEquals("Asia/Shanghai:X", tokenizer.getParameter("tzid"));
+        assertEquals("DATE-TIME", tokenizer.getParameter("VALUE"));
+        assertNull(tokenizer.getParameter("RANGE"));
+        assertEquals("20240101T090000", tokenizer.getValue());
+
+        assertTrue(tokenizer.next());
+        assertEquals("a, b; c\\d\ne", tokenizer.getTextValue());
+    }
+
+    @Test
+    public void writerFoldsAt75OctetsWithoutSplittingCharacters() throws IOException {
+        // ASCII、两字节、三字节和代理对（四字节）混排，折行位置落在各种字符上
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            text.append("ab é 日程 📅 ");
+        }
+        // 分词器会去掉行尾空白，所以内容不以空格结尾
+        text.append("末");
+        IcsLineWriter writer = new IcsLineWriter();
+        writer.append("DESCRIPTION:").appendText(text.toString()).endLine();
+        byte[] bytes = toBytes(writer);
+
+        List<byte[]> physicalLines = splitCrlf(bytes);
+        assertTrue(physicalLines.size() > 1);
+        for (int i = 0; i < physicalLines.size(); i++) {
+            byte[] line = physicalLines.get(i);
+            assertTrue("line " + i + " has " + line.length + " octets", line.length <= 75);
+            if (i > 0) {
+                assertEquals(' ', line[0]);
+            }
+            // 每个物理行单独解码也是合法的 UTF-8，说明多字节字符没有被拆开
+            decodeStrict(line);
+        }
+
+        IcsTokenizer tokenizer = new IcsTokenizer(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        assertTrue(tokenizer.next());
+        assertEquals(text.toString(), tokenizer.getTextValue());
+        assertEquals(bytes.length, tokenizer.getOffset());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void offsetsCountUtf8BytesAcrossBufferBoundaries() throws IOException {
+        // 足够多的折行内容，使逻辑行跨越分词器 8192 字符的读缓冲区
+        IcsLineWriter writer = new IcsLineWriter();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            StringBuilder value = new StringBuilder();
+            for (int j = 0; j <= i % 7; j++) {
+                value.append(" 会议").append(i).append(" é 😀");
+            }
+            values.add(value.toString());
+            writer.append("SUMMARY:").appendText(value.toString()).endLine();
+        }
+        byte[] bytes = toBytes(writer);
+        List<Long> expectedStarts = logicalLineStarts(bytes);
+        assertEquals(values.size(), expectedStarts.size());
+
+        IcsTokenizer tokenizer = new IcsTokenizer(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        for (int i = 0; i < values.size(); i++) {
+            assertTrue(tokenizer.next());
+            assertEquals(values.get(i), tokenizer.getTextValue());
+            assertEquals("line " + i, (long) expectedStarts.get(i), tokenizer.getLineOffset());
+            long next = i + 1 < expectedStarts.size() ? expectedStarts.get(i + 1) : bytes.length;
+            assertEquals("line " + i, next, tokenizer.getOffset());
+        }
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void resumesWithAbsoluteOffsets() throws IOException {
+        String content = "SUMMARY:日程一\r\nSUMMARY:日程二\r\nSUMMARY:📅\r\n";
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        IcsTokenizer first = new IcsTokenizer(new StringReader(content));
+        assertTrue(first.next());
+        long resume = first.getOffset();
+        assertEquals("SUMMARY:日程一\r\n".getBytes(StandardCharsets.UTF_8).length, resume);
+
+        // 从记录的位置重新打开，偏移继续按整个文件计算
+        String rest = new String(bytes, (int) resume, bytes.length - (int) resume, StandardCharsets.UTF_8);
+        IcsTokenizer resumed = new IcsTokenizer(new StringReader(rest), resume);
+        assertTrue(resumed.next());
+        assertEquals("日程二", resumed.getValue());
+        assertEquals(resume, resumed.getLineOffset());
+        assertTrue(resumed.next());
+        assertEquals("📅", resumed.getValue());
+        assertEquals(bytes.length, resumed.getOffset());
+    }
+
+    private static byte[] toBytes(IcsLineWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> splitCrlf(byte[] bytes) {
+        List<byte[]> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i + 1 < bytes.length; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                byte[] line = new byte[i - start];
+                System.arraycopy(bytes, start, line, 0, line.length);
+                lines.add(line);
+                start = i + 2;
+                i++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 每个逻辑行开始处的字节偏移：文件开头，以及 CRLF 之后不以空格开头的位置
+     */
+    private static List<Long> logicalLineStarts(byte[] bytes) {
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        for (int i = 0; i + 1 < bytes.length; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n' && i + 2 < bytes.length && bytes[i + 2] != ' ') {
+                starts.add((long) i + 2);
+            }
+        }
+        return starts;
+    }
+
+    private static void decodeStrict(byte[] bytes) throws CharacterCodingException {
+        StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.myapplication.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * RecurrenceRule.parse 只接受能按原意展开的子集
+ */
+public class RecurrenceRuleTest {
+
+    @Test
+    public void parsesSupportedSubset() {
+        assertEquals("FREQ=DAILY", RecurrenceRule.parse("FREQ=DAILY").format());
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;COUNT=10;BYDAY=MO,WE",
+                RecurrenceRule.parse("freq=weekly;interval=2;count=10;byday=WE,MO;").format());
+        assertEquals("FREQ=MONTHLY", RecurrenceRule.parse("FREQ=MONTHLY;WKST=SU").format());
+        assertNotNull(RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=TU;WKST=MO;INTERVAL=2"));
+        assertNotNull(RecurrenceRule.parse("FREQ=YEARLY;UNTIL=20301231"));
+    }
+
+    @Test
+    public void rejectsPartsOutsideSubset() {
+        String[] values = {
+                // 每月第二个星期二、最后一个星期五
+                "FREQ=MONTHLY;BYDAY=2TU",
+                "FREQ=MONTHLY;BYDAY=-1FR",
+                "FREQ=WEEKLY;BYDAY=1MO",
+                "FREQ=MONTHLY;BYDAY=MO",
+                "FREQ=YEARLY;BYMONTH=3;BYDAY=2SU",
+                "FREQ=MONTHLY;BYMONTHDAY=-1",
+                "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1",
+                "FREQ=DAILY;BYHOUR=9,17",
+                "FREQ=WEEKLY;INTERVAL=2;BYDAY=SU,MO;WKST=SU",
+                "FREQ=HOURLY",
+                "FREQ=DAILY;INTERVAL=0",
+                "FREQ=DAILY;COUNT=0",
+                "FREQ=DAILY;RSCALE",
+                "INTERVAL=2",
+                ""
+        };
+        for (String value : values) {
+            assertNull(value, RecurrenceRule.parse(value));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.myapplication.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SnapshotCodec 写入后读回的往返测试，覆盖空值、负数字段和 CRC 校验
+ */
+public class SnapshotCodecTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("snapshot", ".mcsnap");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void roundTripsAllColumns() throws IOException {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            longText.append("很长的地点名称 ").append(i);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        // 开始时间在 1970 年之前、结束早于开始、颜色和提醒请求码为负数
+        rows.add(row(5, "周会", "描述 📅", -86_400_000L, -90_000_000L, "会议室", 0xFFFF0000, "work",
+                1, 15, 0, -123456789L, "FREQ=WEEKLY", "20240101T090000Z", -1L, 0, -3_600_000L,
+                "uid-1@example.com", 2, -1000L, 7));
+        // 所有可空列都为空
+        rows.add(row(6, null, null, null, null, null, 0, null,
+                0, 0, 1, 0, null, null, null, 0, null, null, 0, null, 0));
+        // id 比上一条小、开始时间回退、重复的标题与类型走字符串表，超长地点直接写在记录中
+        rows.add(row(2, "周会", "", 1_700_000_000_000L, null, longText.toString(), -1, "work",
+                1, Integer.MAX_VALUE, 1, Long.MIN_VALUE, null, null, Long.MAX_VALUE, 5, null,
+                "uid-2", Long.MAX_VALUE, 1_700_000_000_000L, Long.MAX_VALUE));
+        rows.add(row(3, "周会", null, 1_600_000_000_000L, 1_600_000_000_000L, "会议室", 0, "work",
+                0, 0, 0, 0, "FREQ=WEEKLY", null, null, 0, null, null, 0, null, 0));
+
+        assertEquals(rows.size(), write(rows, 7));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            SnapshotCodec.Reader reader = new SnapshotCodec.Reader(buffer);
+            assertEquals(7, reader.getSchemaVersion());
+            assertEquals(rows.size(), reader.getRecordCount());
+            SnapshotCodec.Record record = new SnapshotCodec.Record();
+            for (Object[] row : rows) {
+                assertTrue(reader.next(record));
+                assertRecord(row, record);
+            }
+            assertFalse(reader.next(record));
+        }
+    }
+
+    @Test
+    public void detectsCorruptChecksum() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(1, "标题", "描述", 1_000L, 2_000L, "地点", 1, "type",
+                0, 0, 0, 0, null, null, null, 0, null, "uid", 0, null, 0));
+        write(rows, 7);
+
+        byte[] bytes = Files.readAllBytes(file);
+        // 头部 40 字节之后的第一个字节属于第一条记录
+        bytes[40] ^= 0x01;
+        try {
+            new SnapshotCodec.Reader(ByteBuffer.wrap(bytes));
+            fail("Corrupt snapshot was accepted");
+        } catch (IOException e) {
+            assertEquals("Snapshot checksum mismatch", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        byte[] bytes = new byte[64];
+        assertFalse(SnapshotCodec.isSnapshot(bytes, bytes.length));
+        try {
+            new SnapshotCodec.Reader(ByteBuffer.wrap(bytes));
+            fail("Non-snapshot file was accepted");
+        } catch (IOException e) {
+            assertEquals("Not a calendar snapshot", e.getMessage());
+        }
+    }
+
+    private int write(List<Object[]> rows, int schemaVersion) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return SnapshotCodec.write(channel, cursor(rows), schemaVersion, null);
+        }
+    }
+
+    private static Object[] row(Object... values) {
+        assertEquals(SnapshotCodec.COLUMNS.length, values.length);
+        return values;
+    }
+
+    private static void assertRecord(Object[] row, SnapshotCodec.Record record) {
+        assertEquals(number(row[0]), record.id);
+        assertEquals(row[1], record.title);
+        assertEquals(row[2], record.description);
+        assertNullable(row[3], record.hasStartTime, record.startTime);
+        assertNullable(row[4], record.hasEndTime, record.endTime);
+        assertEquals(row[5], record.location);
+        assertEquals((int) number(row[6]), record.color);
+        assertEquals(row[7], record.type);
+        assertEquals(number(row[8]) != 0, record.reminderEnabled);
+        assertEquals(number(row[9]), record.reminderMinutesBefore);
+        assertEquals(number(row[10]) != 0, record.soundEnabled);
+        assertEquals(number(row[11]), record.alarmRequestCode);
+        assertEquals(row[12], record.rrule);
+        assertEquals(row[13], record.exdates);
+        assertNullable(row[14], record.hasRecurrenceEnd, record.recurrenceEnd);
+        assertEquals(number(row[15]), record.parentId);
+        assertNullable(row[16], record.hasRecurrenceId, record.recurrenceId);
+        assertEquals(row[17], record.uid);
+        assertEquals(number(row[18]), record.sequence);
+        assertNullable(row[19], record.hasLastModified, record.lastModified);
+        assertEquals(number(row[20]), record.changeSeq);
+    }
+
+    private static void assertNullable(Object expected, boolean has, long actual) {
+        if (expected == null) {
+            assertFalse(has);
+        } else {
+            assertTrue(has);
+            assertEquals(number(expected), actual);
+        }
+    }
+
+    private static long number(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    /**
+     * 按 COLUMNS 的列顺序返回 rows 的只读游标；android.jar 中的 Cursor 是接口，可以直接代理
+     */
+    private static Cursor cursor(List<Object[]> rows) {
+        List<String> columns = Arrays.asList(SnapshotCodec.COLUMNS);
+        int[] position = {-1};
+        return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[]{Cursor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnIndexOrThrow":
+                            int index = columns.indexOf((String) args[0]);
+                            if (index < 0) {
+                                throw new IllegalArgumentException((String) args[0]);
+                            }
+                            return index;
+                        case "moveToNext":
+                            return ++position[0] < rows.size();
+                        case "isNull":
+                            return rows.get(position[0])[(Integer) args[0]] == null;
+                        case "getLong":
+                            // 与 SQLite 游标一致：空值读为 0
+                            return number(rows.get(position[0])[(Integer) args[0]]);
+                        case "getString":
+                            Object value = rows.get(position[0])[(Integer) args[0]];
+                            return value == null ? null : value.toString();
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}